@@ -0,0 +1,94 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.memory;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+
+/**
+ * Gerencia a memória usada no cache com {@link MemorySegment}. Cada região 
+ * tem a sua própria {@link Arena} compartilhada. Desse modo, a região pode 
+ * ser acessada por qualquer thread e é liberada individualmente.
+ * <p>A liberação de uma arena compartilhada é mais cara que a liberação 
+ * feita pelo {@link UnsafeMemory}. Em compensação, todo acesso às regiões 
+ * é verificado e uma região liberada nunca é acessada.</p>
+ * <p>Requer o JDK 22. É usado com o tipo de acesso à memória 
+ * <code>segment</code>.</p>
+ * 
+ * @author Ribeiro
+ *
+ */
+public class SegmentMemory implements Memory{
+
+	/**
+	 * Alinhamento das regiões.
+	 */
+	public static final long ALIGNMENT = 8;
+	
+	public SegmentMemory(){
+	}
+	
+	public RegionMemory alloc(long size){
+		Arena arena = Arena.ofShared();
+		return new SegmentRegionMemory(arena, arena.allocate(size, ALIGNMENT));
+	}
+
+	public void realloc(long size, RegionMemory region) {
+		synchronized(region){
+			SegmentRegionMemory r = (SegmentRegionMemory)region;
+			Arena arena           = Arena.ofShared();
+			MemorySegment segment = arena.allocate(size, ALIGNMENT);
+			
+			if(r.arena != null){
+				MemorySegment.copy(r.segment, 0, segment, 0, Math.min(size, r.length));
+				r.arena.close();
+			}
+			
+			r.arena   = arena;
+			r.segment = segment;
+			r.length  = size;
+		}
+	}
+	
+	public void alloc(long size, RegionMemory region){
+		synchronized(region){
+			SegmentRegionMemory r = (SegmentRegionMemory)region;
+			if(r.arena != null)
+				throw new IllegalStateException();
+			
+			Arena arena = Arena.ofShared();
+			r.arena     = arena;
+			r.segment   = arena.allocate(size, ALIGNMENT);
+			r.length    = size;
+		}
+	}
+	
+	public void release(RegionMemory region){
+		synchronized(region){
+			SegmentRegionMemory r = (SegmentRegionMemory)region;
+			if(r.arena == null)
+				return;
+			
+			//o segmento continua associado à região. Um acesso depois 
+			//da liberação lança IllegalStateException.
+			r.arena.close();
+			r.arena = null;
+		}
+ 	}
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.memory;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Região da memória em um {@link MemorySegment}. As cópias são feitas com 
+ * {@link MemorySegment#copy(MemorySegment, long, MemorySegment, long, long)} 
+ * e os limites são verificados uma vez por cópia.
+ * 
+ * @author Ribeiro
+ *
+ */
+public class SegmentRegionMemory 
+	implements RegionMemory{
+
+	private static final long serialVersionUID = -3163794734826617408L;
+
+	private static final ValueLayout.OfByte BYTE = ValueLayout.JAVA_BYTE;
+	
+	transient Arena arena;
+	
+	transient MemorySegment segment;
+
+	long length;
+	
+	public SegmentRegionMemory(Arena arena, MemorySegment segment) {
+		this.arena   = arena;
+		this.segment = segment;
+		this.length  = segment.byteSize();
+	}
+
+	public long size(){
+		return this.length;
+	}
+	
+	public byte get(long off){
+		return this.segment.get(BYTE, off);
+	}
+	
+	public int read(long thisOff, byte[] buf, int off, int len){
+		
+		int max = (int)(this.length - thisOff);
+		max     = max > len? len : max;
+
+		if(max > 0){
+			MemorySegment.copy(this.segment, BYTE, thisOff, buf, off, max);
+		}
+		
+		return max;
+	}
+	
+	public long read(long thisOff, RegionMemory buf, long off, long len){
+		
+		SegmentRegionMemory dest = (SegmentRegionMemory)buf;
+		long max                 = (this.length - thisOff);
+		max                      = max > len? len : max;
+		max                      = max > dest.length - off? dest.length - off : max;
+		
+		if(max > 0){
+			MemorySegment.copy(this.segment, thisOff, dest.segment, off, max);
+		}
+		
+		return max;
+	}
+	
+	public void read(OutputStream out, int off, int len) throws IOException {
+		byte[] tmp = new byte[2048];
+		int read;
+		int thisOff = off;
+		int maxRead = len > tmp.length? tmp.length : len;
+		while((read = read(thisOff, tmp, 0, maxRead)) > 0){
+			out.write(tmp, 0, read);
+			thisOff += read;
+			len     -= read;
+			maxRead  = len > tmp.length? tmp.length : len;
+		}
+	}
+	
+	public void write(long thisOff, byte[] buf, int off, int len){
+		
+		long max = (this.length - thisOff);
+		max      = max > len? len : max;
+		
+		if(max > 0){
+			MemorySegment.copy(buf, off, this.segment, BYTE, thisOff, (int)max);
+		}
+	}
+
+	public void write(long thisOff, RegionMemory buf, long off, long len){
+		
+		SegmentRegionMemory src = (SegmentRegionMemory)buf;
+		long max                = (this.length - thisOff);
+		max                     = max > len? len : max;
+		max                     = max > src.length - off? src.length - off : max;
+		
+		if(max > 0){
+			MemorySegment.copy(src.segment, off, this.segment, thisOff, max);
+		}
+		
+	}
+	
+	private void writeObject(ObjectOutputStream stream) throws IOException {
+		stream.writeLong(this.length);
+		long len;
+		byte[] b = new byte[9024];
+		int off = 0;
+		while((len = this.read(off, b, 0, b.length)) > 0){
+			stream.write(b, 0, (int)len);
+			off += len;
+		}
+		
+    }
+
+    private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+    	this.length  = stream.readLong();
+    	this.arena   = Arena.ofShared();
+    	this.segment = arena.allocate(length, SegmentMemory.ALIGNMENT);
+		int len;
+		int thisOff = 0;
+		byte[] b = new byte[9024];
+		while(thisOff < this.length){
+			int maxLen = (int)Math.min(b.length, this.length - thisOff);
+			len = stream.read(b, 0, maxLen);
+			this.write(thisOff, b, 0, len);
+			thisOff += len;
+			if(len == 0){
+				break;
+			}
+				
+		}
+    }
+	
+}
@@ -0,0 +1,161 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.memory;
+
+/**
+ * Compara a vazão das cópias do {@link SegmentMemory} com a do 
+ * {@link UnsafeMemory}. Também mede o custo da alocação e liberação 
+ * de uma região.
+ * <p>Uso: <code>SegmentMemoryBenchmark [segundos por medição]</code></p>
+ * 
+ * @author Ribeiro
+ *
+ */
+public class SegmentMemoryBenchmark {
+
+	private static final int[] SIZES = new int[]{64, 1024, 64*1024};
+	
+	private static final int WARMUP_ROUNDS = 3;
+	
+	public static void main(String[] args){
+		long time = toNanos(args.length > 0? Integer.parseInt(args[0]) : 2);
+		
+		Memory[] memories = new Memory[]{new UnsafeMemory(), new SegmentMemory()};
+		
+		System.out.println(String.format("%-14s %-12s %8s %12s", "memory", "operation", "size", "MB/s"));
+		
+		for(int size: SIZES){
+			for(Memory memory: memories){
+				for(int i=0;i<WARMUP_ROUNDS;i++){
+					write(memory, size, time/10);
+					read(memory, size, time/10);
+					copy(memory, size, time/10);
+				}
+				
+				print(memory, "write", size, write(memory, size, time), time);
+				print(memory, "read", size, read(memory, size, time), time);
+				print(memory, "copy", size, copy(memory, size, time), time);
+			}
+		}
+		
+		System.out.println();
+		System.out.println(String.format("%-14s %-12s %8s %12s", "memory", "operation", "size", "ops/s"));
+		
+		for(Memory memory: memories){
+			alloc(memory, 1024, time/10);
+			long ops = alloc(memory, 1024, time);
+			System.out.println(String.format("%-14s %-12s %8d %12d", 
+					memory.getClass().getSimpleName(), "alloc/free", 1024, ops*1000000000L/time));
+		}
+	}
+	
+	private static long toNanos(int seconds){
+		return seconds*1000000000L;
+	}
+	
+	/*
+	 * Cópia de um array para a região. Devolve a quantidade de bytes copiados.
+	 */
+	private static long write(Memory memory, int size, long time){
+		RegionMemory region = memory.alloc(size);
+		byte[] buf          = new byte[size];
+		long bytes          = 0;
+		long end            = System.nanoTime() + time;
+		
+		try{
+			while(System.nanoTime() < end){
+				for(int i=0;i<1000;i++){
+					region.write(0, buf, 0, size);
+				}
+				bytes += 1000L*size;
+			}
+			return bytes;
+		}
+		finally{
+			memory.release(region);
+		}
+	}
+	
+	/*
+	 * Cópia da região para um array.
+	 */
+	private static long read(Memory memory, int size, long time){
+		RegionMemory region = memory.alloc(size);
+		byte[] buf          = new byte[size];
+		long bytes          = 0;
+		long end            = System.nanoTime() + time;
+		
+		try{
+			while(System.nanoTime() < end){
+				for(int i=0;i<1000;i++){
+					bytes += region.read(0, buf, 0, size);
+				}
+			}
+			return bytes;
+		}
+		finally{
+			memory.release(region);
+		}
+	}
+	
+	/*
+	 * Cópia entre regiões.
+	 */
+	private static long copy(Memory memory, int size, long time){
+		RegionMemory src  = memory.alloc(size);
+		RegionMemory dest = memory.alloc(size);
+		long bytes        = 0;
+		long end          = System.nanoTime() + time;
+		
+		try{
+			while(System.nanoTime() < end){
+				for(int i=0;i<1000;i++){
+					bytes += src.read(0, dest, 0, size);
+				}
+			}
+			return bytes;
+		}
+		finally{
+			memory.release(src);
+			memory.release(dest);
+		}
+	}
+	
+	/*
+	 * Alocação e liberação de regiões. Devolve a quantidade de operações.
+	 */
+	private static long alloc(Memory memory, int size, long time){
+		long ops = 0;
+		long end = System.nanoTime() + time;
+		
+		while(System.nanoTime() < end){
+			for(int i=0;i<100;i++){
+				memory.release(memory.alloc(size));
+			}
+			ops += 100;
+		}
+		
+		return ops;
+	}
+	
+	private static void print(Memory memory, String operation, int size, long bytes, long time){
+		System.out.println(String.format("%-14s %-12s %8d %12d", 
+				memory.getClass().getSimpleName(), operation, size, (long)(bytes/(1024.0*1024.0)/(time/1000000000.0))));
+	}
+	
+}
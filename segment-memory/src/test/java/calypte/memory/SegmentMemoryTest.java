@@ -0,0 +1,222 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package calypte.memory;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * 
+ * @author Ribeiro
+ *
+ */
+public class SegmentMemoryTest extends TestCase{
+
+	private Memory memory = new SegmentMemory();
+	
+	public void testAlloc(){
+		RegionMemory r = memory.alloc(1024);
+		byte[] b = new byte[1024];
+		Random random = new Random();
+		random.nextBytes(b);
+		r.write(0, b, 0, b.length);
+		
+		byte[] b2 = new byte[1024];
+		r.read(0, b2, 0, b2.length);
+		assertTrue(Arrays.equals(b, b2));
+	}
+	
+	public void testCopyAlloc(){
+		RegionMemory r = memory.alloc(1024);
+		byte[] b = new byte[1024];
+		Random random = new Random();
+		random.nextBytes(b);
+		r.write(0, b, 0, b.length);
+		
+		byte[] b2 = new byte[1024];
+		r.read(0, b2, 0, b2.length);
+		assertTrue(Arrays.equals(b, b2));
+	}
+
+	public void testCopy2(){
+		RegionMemory r = memory.alloc(1024);
+		byte[] b = new byte[1024];
+		Random random = new Random();
+		random.nextBytes(b);
+		r.write(10, b, 10, b.length-10);
+		
+		byte[] b2 = new byte[1024];
+		r.read(10, b2, 10, b2.length-10);
+		
+		for(int i= 0;i<10;i++){
+			b[i] = 0;
+		}
+		
+		assertTrue(Arrays.equals(b, b2));
+	}
+	
+	public void testBounds(){
+		RegionMemory r  = memory.alloc(100);
+		RegionMemory r2 = memory.alloc(50);
+		
+		try{
+			r.write(0, new byte[10], 5, 10);
+			fail();
+		}
+		catch(IndexOutOfBoundsException e){
+		}
+		
+		try{
+			r.read(0, new byte[10], -1, 5);
+			fail();
+		}
+		catch(IndexOutOfBoundsException e){
+		}
+		
+		try{
+			r.get(100);
+			fail();
+		}
+		catch(IndexOutOfBoundsException e){
+		}
+		
+		//a cópia é limitada pela menor região.
+		assertEquals(50, r.read(0, r2, 0, 100));
+		
+		memory.realloc(200, r);
+		assertEquals(200, r.size());
+	}
+	
+	public void testOutOfBounds(){
+		RegionMemory r  = memory.alloc(100);
+		RegionMemory r2 = memory.alloc(50);
+		byte[] b        = new byte[10];
+		
+		try{
+			r.get(-1);
+			fail();
+		}
+		catch(IndexOutOfBoundsException e){
+		}
+		
+		try{
+			r.read(-1, b, 0, 5);
+			fail();
+		}
+		catch(IndexOutOfBoundsException e){
+		}
+		
+		try{
+			r.write(-1, b, 0, 5);
+			fail();
+		}
+		catch(IndexOutOfBoundsException e){
+		}
+		
+		try{
+			r.read(0, b, 8, 5);
+			fail();
+		}
+		catch(IndexOutOfBoundsException e){
+		}
+		
+		try{
+			r.read(0, r2, -1, 10);
+			fail();
+		}
+		catch(IndexOutOfBoundsException e){
+		}
+		
+		try{
+			r.write(0, r2, -1, 10);
+			fail();
+		}
+		catch(IndexOutOfBoundsException e){
+		}
+		
+		try{
+			r.write(-1, r2, 0, 10);
+			fail();
+		}
+		catch(IndexOutOfBoundsException e){
+		}
+		
+		//a escrita depois do fim da região é limitada ao tamanho da região.
+		Arrays.fill(b, (byte)1);
+		r.write(95, b, 0, 10);
+		assertEquals(5, r.read(95, new byte[10], 0, 10));
+		assertEquals(1, r.get(99));
+		
+		//nada é lido ou escrito a partir do fim da região.
+		byte[] b2 = new byte[10];
+		assertTrue(r.read(100, b2, 0, 10) <= 0);
+		assertTrue(Arrays.equals(new byte[10], b2));
+		r.write(100, b, 0, 10);
+		assertEquals(100, r.size());
+		
+		//a cópia entre regiões é limitada ao fim de cada região.
+		r2.write(0, new byte[50], 0, 50);
+		r.write(90, r2, 0, 50);
+		assertEquals(0, r.get(99));
+		assertEquals(5, r.read(0, r2, 45, 10));
+		assertEquals(0, r.read(0, r2, 50, 10));
+	}
+	
+	public void testRelease(){
+		RegionMemory r = memory.alloc(100);
+		r.write(0, new byte[10], 0, 10);
+		memory.release(r);
+		
+		//a região liberada nunca é acessada.
+		try{
+			r.get(0);
+			fail();
+		}
+		catch(IllegalStateException e){
+		}
+		
+		//a liberação é feita uma única vez.
+		memory.release(r);
+	}
+	
+	public void testSharedAccess() throws InterruptedException{
+		final RegionMemory r = memory.alloc(1024);
+		final byte[] b       = new byte[1024];
+		new Random().nextBytes(b);
+		
+		//a região é escrita por outra thread.
+		Thread t = new Thread(){
+			
+			public void run(){
+				r.write(0, b, 0, b.length);
+			}
+			
+		};
+		t.start();
+		t.join();
+		
+		byte[] b2 = new byte[1024];
+		r.read(0, b2, 0, b2.length);
+		assertTrue(Arrays.equals(b, b2));
+		memory.release(r);
+	}
+	
+}
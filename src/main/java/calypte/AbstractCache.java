@@ -19,6 +19,7 @@ package calypte;
 
 import java.io.InputStream;
 import java.io.Serializable;
+import java.util.Iterator;
 
 /**
  * É a base para um cache. Ele faz o mapeamento chave-fluxo de 
@@ -76,28 +77,63 @@ public abstract class AbstractCache implements Cache, Serializable{
     	return cacheHandler.putStream(key, inputData, timeToLive, timeToIdle);
     }
 
+    public boolean putStream(byte[] key, InputStream inputData, 
+    		long timeToLive, long timeToIdle) throws StorageException{
+    	return cacheHandler.putStream(key, inputData, timeToLive, timeToIdle);
+    }
+
     public boolean replaceStream(String key, InputStream inputData, 
     		long timeToLive, long timeToIdle) throws StorageException{
     	return cacheHandler.replaceStream(key, inputData, timeToLive, timeToIdle);
     }
     
+    public boolean replaceStream(byte[] key, InputStream inputData, 
+    		long timeToLive, long timeToIdle) throws StorageException{
+    	return cacheHandler.replaceStream(key, inputData, timeToLive, timeToIdle);
+    }
+    
     public InputStream putIfAbsentStream(String key, InputStream inputData, 
     		long timeToLive, long timeToIdle) throws StorageException{
     	return cacheHandler.putIfAbsentStream(key, inputData, timeToLive, timeToIdle);
     }
     
+    public InputStream putIfAbsentStream(byte[] key, InputStream inputData, 
+    		long timeToLive, long timeToIdle) throws StorageException{
+    	return cacheHandler.putIfAbsentStream(key, inputData, timeToLive, timeToIdle);
+    }
+    
     public InputStream getStream(String key) throws RecoverException {
     	return cacheHandler.getStream(key);
     }
     
+    public InputStream getStream(byte[] key) throws RecoverException {
+    	return cacheHandler.getStream(key);
+    }
+    
     public boolean remove(String key) throws StorageException{
     	return cacheHandler.removeStream(key);
     }
     
+    public boolean remove(byte[] key) throws StorageException{
+    	return cacheHandler.removeStream(key);
+    }
+    
     public boolean containsKey(String key){
     	return cacheHandler.containsKey(key);
     }
     
+    public Iterator<String> keys(String prefix){
+    	return cacheHandler.keys(prefix);
+    }
+    
+    public long removeByPrefix(String prefix) throws StorageException{
+    	return cacheHandler.removeByPrefix(prefix);
+    }
+    
+    public long countByPrefix(String prefix){
+    	return cacheHandler.countByPrefix(prefix);
+    }
+    
     public long getCountRead(){
         return cacheHandler.getCountRead();
     }
@@ -17,55 +17,153 @@
 
 package calypte;
 
-import calypte.collections.MapReferenceCollection.Find;
+import calypte.collections.KeyUtil;
+import calypte.collections.MapReferenceCollection.ParallelFind;
 import calypte.collections.treehugemap.TreeNode;
 
 /**
+ * Busca no índice dos itens. Nas buscas em paralelo, as cópias criadas por 
+ * {@link #fork()} compartilham os campos das subclasses. Desse modo, 
+ * {@link #found(String, String, DataMap)} tem que ser seguro para acesso 
+ * simultâneo.
  * 
  * @author Ribeiro
  *
  */
 public abstract class AbstractFindCacheHandler 
-	implements Find<DataMap>{
+	implements ParallelFind<DataMap>, Cloneable{
 
 	private String key;
 	
 	public AbstractFindCacheHandler(String key) {
-		this.chars      = key == null? null : key.toCharArray();
+		this(key, false);
+	}
+	
+	/**
+	 * Cria uma nova busca.
+	 * @param key Chave ou prefixo das chaves.
+	 * @param prefix Define que serão encontradas todas as chaves iniciadas por <code>key</code>.
+	 */
+	public AbstractFindCacheHandler(String key, boolean prefix) {
+		this.filter     = key == null? null : KeyUtil.toBytes(key, null, KeyUtil.length(key));
+		this.prefix     = prefix;
 		this.index      = 0;
-		this.currentKey = new StringBuilder();
+		this.currentKey = new byte[64];
 	}
 	
 	/* map */
 	
-	private char[] chars;
+	private byte[] filter;
+	
+	private boolean prefix;
 	
 	private int index;
 	
-	private StringBuilder currentKey;
+	private byte[] currentKey;
 	
 	public void found(DataMap value) {
-		found(key, currentKey.toString(), value);
+		byte[] k = new byte[index];
+		System.arraycopy(currentKey, 0, k, 0, index);
+		found(key, k, value);
 	}
 
-	protected abstract void found(String request, String key, DataMap value);
+	/**
+	 * Notifica que um item foi encontrado.
+	 * @param request Chave usada na busca.
+	 * @param key Chave do item no formato binário.
+	 * @param value Item.
+	 */
+	protected void found(String request, byte[] key, DataMap value){
+		found(request, KeyUtil.toString(key, 0, key.length), value);
+	}
+	
+	/**
+	 * Notifica que um item foi encontrado.
+	 * @param request Chave usada na busca.
+	 * @param key Chave do item.
+	 * @param value Item.
+	 */
+	protected void found(String request, String key, DataMap value){
+	}
 	
 	public boolean accept() {
-		return chars == null? true : index == chars.length;
+		return filter == null? true : prefix? index >= filter.length : index == filter.length;
 	}
 
 	public boolean acceptNodeKey(Object key) {
-		return chars == null? true : key.equals(chars[index]);
+		if(filter == null)
+			return true;
+		
+		if(key instanceof Byte)
+			return index < filter.length? filter[index] == ((Byte)key).byteValue() : prefix;
+		
+		byte[] k = (byte[])key;
+		
+		if(!prefix && index + k.length > filter.length)
+			return false;
+		
+		//somente a parte da chave que está dentro do filtro é verificada.
+		int len = Math.min(k.length, filter.length - index);
+		
+		for(int i=0;i<len;i++){
+			if(filter[index + i] != k[i])
+				return false;
+		}
+		
+		return true;
 	}
 	
 	public void beforeNextNode(Object key, TreeNode<DataMap> node) {
-		currentKey.append(key);
-		index++;
+		if(key instanceof Byte){
+			ensureCapacity(index + 1);
+			currentKey[index++] = ((Byte)key).byteValue();
+		}
+		else{
+			byte[] k = (byte[])key;
+			ensureCapacity(index + k.length);
+			System.arraycopy(k, 0, currentKey, index, k.length);
+			index += k.length;
+		}
 	}
 
 	public void afterNextNode(Object key, TreeNode<DataMap> node) {
-		currentKey.setLength(currentKey.length() - 1);
-		index--;
+		index -= key instanceof Byte? 1 : ((byte[])key).length;
+	}
+	
+	/**
+	 * Obtém a chave do nó atual no formato binário.
+	 * @return Buffer da chave. Somente os primeiros {@link #getCurrentKeyLength()} 
+	 * bytes são válidos.
+	 */
+	protected byte[] getCurrentKey(){
+		return currentKey;
+	}
+	
+	/**
+	 * Obtém o tamanho da chave do nó atual.
+	 * @return Tamanho.
+	 */
+	protected int getCurrentKeyLength(){
+		return index;
+	}
+	
+	public ParallelFind<DataMap> fork(){
+		try{
+			AbstractFindCacheHandler f = (AbstractFindCacheHandler)super.clone();
+			f.currentKey = currentKey.clone();
+			return f;
+		}
+		catch(CloneNotSupportedException e){
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private void ensureCapacity(int length){
+		if(length > currentKey.length){
+			byte[] k = new byte[Math.max(length, currentKey.length*2)];
+			System.arraycopy(currentKey, 0, k, 0, index);
+			currentKey = k;
+		}
 	}
 	
 }
@@ -116,8 +116,14 @@ public class BasicCache extends AbstractCache {
 						timeToLive, timeToIdle);
 			
 			if(in != null){
-				ObjectInputStream oin = new ObjectInputStream(in);
-				return oin.readObject();
+				try{
+					ObjectInputStream oin = new ObjectInputStream(in);
+					return oin.readObject();
+				}
+				finally{
+					//libera os blocos do item.
+					in.close();
+				}
 			}
 			else
 				return null;
@@ -172,8 +178,14 @@ public class BasicCache extends AbstractCache {
 		try{
 			InputStream in = super.getStream(key);
 			if(in != null){
-				ObjectInputStream oin = new ObjectInputStream(in);
-				return oin.readObject();
+				try{
+					ObjectInputStream oin = new ObjectInputStream(in);
+					return oin.readObject();
+				}
+				finally{
+					//libera os blocos do item.
+					in.close();
+				}
 			}
 			else
 				return null;
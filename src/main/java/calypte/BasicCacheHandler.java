@@ -20,15 +20,25 @@ package calypte;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicLong;
 
-import org.brandao.entityfilemanager.EntityFileAccess;
+import org.brandao.entityfilemanager.EntityFileDataHandler;
 import org.brandao.entityfilemanager.EntityFileManagerConfigurer;
 import org.brandao.entityfilemanager.EntityFileManagerImp;
 import org.brandao.entityfilemanager.EntityFileTransactionFactory;
 import org.brandao.entityfilemanager.LockProvider;
 import org.brandao.entityfilemanager.LockProviderImp;
-import org.brandao.entityfilemanager.SimpleEntityFileAccess;
 import org.brandao.entityfilemanager.TransactionLog;
 import org.brandao.entityfilemanager.tx.EntityFileTransactionFactoryImp;
 import org.brandao.entityfilemanager.tx.EntityFileTransactionManagerConfigurer;
@@ -38,22 +48,27 @@ import org.brandao.entityfilemanager.tx.RecoveryTransactionLogImp;
 import org.brandao.entityfilemanager.tx.TransactionLogImp;
 
 import calypte.HugeListCalculator.HugeListInfo;
+import calypte.collections.AdaptiveNodeSwapper;
 import calypte.collections.BasicMapReferenceCollection;
+import calypte.collections.BatchSwapper;
 import calypte.collections.BlockEntityFileDataHandler;
 import calypte.collections.BlockEntityFileHeader;
-import calypte.collections.CharNodeEntityFileDataHandler;
-import calypte.collections.CharNodeEntityFileHeader;
-import calypte.collections.DataMapEntityFileDataHandler;
-import calypte.collections.DataMapEntityFileHeader;
-import calypte.collections.EntityFileSwapper;
+import calypte.collections.CountingBloomFilter;
+import calypte.collections.BlockEntityFileSwapper;
 import calypte.collections.FlushableReferenceCollection;
 import calypte.collections.FlushableReferenceCollectionImp;
+import calypte.collections.HashMapReferenceCollection;
+import calypte.collections.KeyUtil;
+import calypte.collections.MappedBlockEntityFileDataHandler;
+import calypte.collections.MappedBlockEntityFileSwapper;
 import calypte.collections.MapReferenceCollection;
 import calypte.collections.MapReferenceCollection.Find;
+import calypte.collections.MapReferenceCollection.ParallelFind;
+import calypte.collections.ShardedMapReferenceCollection;
 import calypte.collections.Swapper;
-import calypte.collections.treehugemap.CharNode;
+import calypte.collections.WriteBehindSwapper;
 import calypte.collections.treehugemap.DataMapStringTreeNodes;
-import calypte.collections.treehugemap.TreeNode;
+import calypte.memory.MappedMemory;
 import calypte.memory.Memory;
 import calypte.memory.RegionMemory;
 
@@ -70,11 +85,11 @@ public class BasicCacheHandler implements CacheHandler{
 
     /* node size */
     
-    private static final int CHAR_NODE_SIZE                    = 40;
+    private static final int ADAPTIVE_NODE_SIZE                = 64;
 
-    private static final int LONG_ARRAY_CHAR_NODE_SIZE         = 784;
+    private static final int ARRAYS_ADAPTIVE_NODE_SIZE         = 88;
 
-    private static final int NODE_SIZE                         = ENTRY_SIZE + CHAR_NODE_SIZE + LONG_ARRAY_CHAR_NODE_SIZE;//CharNodeUtil.DATA_SIZE + ENTRY_BINARY_SIZE;
+    private static final int NODE_SIZE                         = ENTRY_SIZE + ADAPTIVE_NODE_SIZE + ARRAYS_ADAPTIVE_NODE_SIZE;
 
     /* index size */
 
@@ -82,6 +97,8 @@ public class BasicCacheHandler implements CacheHandler{
     
     private static final int INDEX_SIZE                        = DATA_MAP_SIZE + ENTRY_SIZE;//58 + ENTRY_BINARY_SIZE;
     
+    private static final int DATA_MAP_NODE_SIZE                = NODE_SIZE + DATA_MAP_SIZE;
+    
     /* block data size base */
     
     private static final int BLOCK_SIZE                        = 48;
@@ -90,13 +107,48 @@ public class BasicCacheHandler implements CacheHandler{
     
     private static final int BLOCK_DATA_SIZE                   = REGION_MEMORY_SIZE + BLOCK_SIZE;
     
+    private static final String INDEX_TYPE_HASH                = "hash";
+    
+    private static final long MIN_SHARD_BUFFER_SIZE            = 1536*1024;
+    
+    /**
+     * Razão entre os blocos de dois conjuntos seguidos.
+     */
+    private static final int BLOCK_POOL_FACTOR                 = 16;
+    
+    /**
+     * Em uma leitura do cache de itens, o horário do último acesso é gravado 
+     * no índice em intervalos dessa fração do tempo de ociosidade.
+     */
+    private static final int TIME_TO_IDLE_INDEX_FACTOR         = 8;
+    
     private static final Class<?> ITEM_CACHE_INPUTSTREAM_CLASS = ItemCacheInputStream.class;
     
     private Memory memory;
     
-    protected MapReferenceCollection<String, DataMap> dataMap;
+    protected MapReferenceCollection<Object, DataMap> dataMap;
 
-    protected FlushableReferenceCollection<Block> dataList;
+    /**
+     * Conjuntos de blocos. Cada conjunto tem o seu tamanho de bloco e os 
+     * seus próprios arquivos.
+     */
+    protected FlushableReferenceCollection<Block>[] dataLists;
+    
+    private int[] blockSizes;
+    
+    protected PackedDataStore packedData;
+    
+    protected FrontCache frontCache;
+    
+    protected volatile CountingBloomFilter keyFilter;
+    
+    protected EvictionPolicy evictionPolicy;
+    
+    private volatile CountingBloomFilter pendingKeyFilter;
+    
+    private ReferenceQueue<CacheInputStream> unclosedStreams;
+    
+    private Map<CacheInputStreamReference, Boolean> streams;
     
     private int segmentSize;
     
@@ -122,6 +174,8 @@ public class BasicCacheHandler implements CacheHandler{
 
     AtomicLong countRemovedData;
     
+    AtomicLong countEvicted;
+    
     private boolean deleteOnExit;
     
     private boolean enabled;
@@ -130,6 +184,10 @@ public class BasicCacheHandler implements CacheHandler{
     
     private Thread cleanTask;
     
+    private ForkJoinPool findPool;
+    
+    private ScheduledExecutorService swapWriters;
+    
     public BasicCacheHandler(String name, CalypteConfig config) throws CacheException{
     	this.config                 = config;
     	this.memory                 = config.getMemory();
@@ -139,8 +197,19 @@ public class BasicCacheHandler implements CacheHandler{
         this.maxLengthKey           = config.getMaxSizeKey();
         this.deleteOnExit           = true;
     	this.entityFileManager      = this.createEntityFileManager(config);
-        this.dataList               = this.createDataBuffer(name, this.entityFileManager, config);
+    	this.swapWriters            = this.createSwapWriters(config);
+        this.configureMemory(config);
+        this.blockSizes             = this.createBlockSizes(config);
+        this.dataLists              = this.createDataBuffers(name, this.entityFileManager, config);
+        this.packedData             = new PackedDataStore(this.dataLists[0], this.memory, this.segmentSize);
         this.dataMap                = this.createDataMap(name, this.entityFileManager, config);
+        this.frontCache             = config.getFrontCacheSize() <= 0? 
+        									null : 
+        									new FrontCache(config.getFrontCacheSize(), config.getFrontCacheValueSize());
+        this.keyFilter              = this.createKeyFilter();
+        this.evictionPolicy         = this.createEvictionPolicy(config);
+        this.unclosedStreams        = new ReferenceQueue<CacheInputStream>();
+        this.streams                = new ConcurrentHashMap<CacheInputStreamReference, Boolean>();
         this.enabled                = true;
         this.creationTime           = 0;
         this.countRead              = new AtomicLong();
@@ -149,10 +218,80 @@ public class BasicCacheHandler implements CacheHandler{
         this.countReadData          = new AtomicLong();
         this.countWriteData         = new AtomicLong();
         this.countRemovedData       = new AtomicLong();
+        this.countEvicted           = new AtomicLong();
+        this.findPool               = this.createFindPool(config);
         this.cleanTask              = new Thread(null, new BasicCacheHandlerCleanTask(this), "clean cache task");
         this.cleanTask.start();
     }
     
+    private ForkJoinPool createFindPool(CalypteConfig config){
+    	int parallelism = config.getFindParallelism() <= 0? 
+    			Runtime.getRuntime().availableProcessors() : 
+				config.getFindParallelism();
+    	
+    	//com somente uma thread, a busca é feita pela thread que a solicitou.
+    	return parallelism <= 1? null : new ForkJoinPool(parallelism);
+    }
+    
+    private ScheduledExecutorService createSwapWriters(CalypteConfig config){
+    	if(config.getSwapWriterThreads() <= 0)
+    		return null;
+    	
+    	return new ScheduledThreadPoolExecutor(config.getSwapWriterThreads(), new ThreadFactory(){
+    		
+    		public Thread newThread(Runnable r){
+    			Thread t = new Thread(r, "swap writer task");
+    			t.setDaemon(true);
+    			return t;
+    		}
+    		
+    	});
+    }
+    
+    /**
+     * Envolve o envio para o arquivo na gravação em segundo plano, se 
+     * as threads de gravação existirem.
+     */
+    private <T> Swapper<T> createSwapper(BatchSwapper<T> swapper, int recordLength){
+    	if(swapWriters == null)
+    		return swapper;
+    	
+    	String policy = config.getSwapFlushPolicy();
+    	
+    	return new WriteBehindSwapper<T>(
+    			swapper, 
+    			swapWriters, 
+    			policy.equals("never")? 
+    					WriteBehindSwapper.FLUSH_NEVER : 
+					policy.equals("bytes")? 
+							WriteBehindSwapper.FLUSH_BYTES : 
+							WriteBehindSwapper.FLUSH_INTERVAL,
+    			config.getSwapFlushInterval(), 
+    			config.getSwapFlushBytes(), 
+    			config.getSwapMaxBacklog(), 
+    			recordLength);
+    }
+    
+    private EvictionPolicy createEvictionPolicy(CalypteConfig config){
+    	if(config.getMaxBytes() <= 0 && config.getMaxEntries() <= 0)
+    		return null;
+    	
+    	long capacity = config.getMaxEntries() > 0? 
+    			config.getMaxEntries() : 
+    			config.getMaxBytes() / config.getDataBlockSize();
+    	
+    	return new EvictionPolicy(config.getMaxBytes(), config.getMaxEntries(), capacity);
+    }
+    
+    /**
+     * Define o diretório dos arquivos mapeados se não foi informado.
+     */
+    private void configureMemory(CalypteConfig config){
+    	if(this.memory instanceof MappedMemory && ((MappedMemory)this.memory).getPath() == null){
+    		((MappedMemory)this.memory).setPath(new File(config.getDataPath(), "memory"));
+    	}
+    }
+    
     private EntityFileManagerConfigurer createEntityFileManager(CalypteConfig config){
     	try{
     		if(config.getEntityFileManager() != null){
@@ -201,29 +340,74 @@ public class BasicCacheHandler implements CacheHandler{
     	}
     }
     
+    private int[] createBlockSizes(CalypteConfig config){
+    	int[] sizes = new int[Math.max(1, config.getDataBlockPools())];
+    	
+    	for(int i=0;i<sizes.length;i++){
+    		sizes[i] = i == 0? (int)config.getDataBlockSize() : sizes[i - 1]*BLOCK_POOL_FACTOR;
+    	}
+    	
+    	return sizes;
+    }
+    
     @SuppressWarnings("unchecked")
-    private FlushableReferenceCollection<Block> createDataBuffer(String name, 
+    private FlushableReferenceCollection<Block>[] createDataBuffers(String name, 
     		EntityFileManagerConfigurer efm, CalypteConfig config){
+    	
+    	FlushableReferenceCollection<Block>[] dataLists = new FlushableReferenceCollection[blockSizes.length];
+    	long pageSize                                   = config.getDataPageSize();
+    	
+    	for(int i=0;i<blockSizes.length;i++){
+    		//a quantidade de blocos por página é a mesma em todos os conjuntos.
+    		//o primeiro conjunto mantém os nomes dos arquivos.
+    		dataLists[i] = this.createDataBuffer(
+    				i == 0? name : name + "b" + i + "_", 
+					efm, 
+					getPoolBufferSize(config.getDataBufferSize(), pageSize), 
+					pageSize, 
+					blockSizes[i]);
+    		pageSize *= BLOCK_POOL_FACTOR;
+    	}
+    	
+    	return dataLists;
+    }
+    
+    private long getPoolBufferSize(long bufferSize, long pageSize){
+    	if(blockSizes.length <= 1)
+    		return bufferSize;
+    	
+    	long size = bufferSize / blockSizes.length;
+    	size      = size < MIN_SHARD_BUFFER_SIZE? MIN_SHARD_BUFFER_SIZE : size;
+    	return size < 2*pageSize? 2*pageSize : size;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private FlushableReferenceCollection<Block> createDataBuffer(String name, 
+    		EntityFileManagerConfigurer efm, long bufferSize, long pageSize, int blockSize){
     	try{
 	    	HugeListInfo dataInfo = 
 	    			HugeListCalculator
 	    				.calculate(
-	    						config.getDataBufferSize(),
-	    						config.getDataPageSize(),
-	    						config.getDataBlockSize() + BLOCK_DATA_SIZE);
+	    						bufferSize,
+	    						pageSize,
+	    						blockSize + BLOCK_DATA_SIZE);
 	    	
 	    	Swapper<Block>[] swappers = new Swapper[dataInfo.getSubLists()];
 	    	
 	    	for(int i=0;i<dataInfo.getSubLists();i++) {
-	    		EntityFileAccess<Block, ?, ?> efa =
-	    				new SimpleEntityFileAccess<Block, byte[], BlockEntityFileHeader>(
-	    		    			name + i + "_dta", 
-	    		    			new File(efm.getPath(), name + i + "_dta"), 
-	    		    			new BlockEntityFileDataHandler(this.memory, (int)config.getDataBlockSize()));
-	    		
-	    		efa.createNewFile();
+	    		//com os arquivos mapeados, somente a posição da região é enviada para o disco.
+	    		boolean mapped                    = this.memory instanceof MappedMemory;
+	    		File file                         = new File(efm.getPath(), name + i + "_dta");
+	    		EntityFileDataHandler<Block, byte[], BlockEntityFileHeader> handler = 
+	    				mapped?
+	    						new MappedBlockEntityFileDataHandler((MappedMemory)this.memory) :
+	    						new BlockEntityFileDataHandler(this.memory, blockSize);
 		    	
-		    	swappers[i] = new EntityFileSwapper<Block>(efa);
+		    	swappers[i] = createSwapper(
+		    			mapped?
+		    					new MappedBlockEntityFileSwapper(file, handler, this.memory, config.isSwapMapped()) :
+		    					new BlockEntityFileSwapper(file, handler, this.memory, config.isSwapMapped()), 
+		    			handler.getRecordLength());
 	    	}
 	    	
 	    	FlushableReferenceCollection<Block> dataList =
@@ -242,66 +426,62 @@ public class BasicCacheHandler implements CacheHandler{
     	}
     }
     
-    @SuppressWarnings({ "rawtypes", "unchecked" })
-	private MapReferenceCollection<String, DataMap> createDataMap(
+    @SuppressWarnings("unchecked")
+	private MapReferenceCollection<Object, DataMap> createDataMap(
     		String name, EntityFileManagerConfigurer efm, CalypteConfig config){
+    	
+    	int shards = config.getIndexShards();
+    	
+    	if(shards <= 1)
+    		return this.createDataMap(name, efm, config, 1);
+    	
+		MapReferenceCollection<Object, DataMap>[] dataMaps = new MapReferenceCollection[shards];
+		
+		for(int i=0;i<shards;i++){
+			dataMaps[i] = this.createDataMap(name + "s" + i + "_", efm, config, shards);
+		}
+		
+		return new ShardedMapReferenceCollection<DataMap>(dataMaps);
+    }
+    
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+	private MapReferenceCollection<Object, DataMap> createDataMap(
+    		String name, EntityFileManagerConfigurer efm, CalypteConfig config, int shards){
 
     	try{
-    		//nós da arvore de busca
+    		if(INDEX_TYPE_HASH.equals(config.getIndexType())){
+    			MapReferenceCollection<Object, DataMap> dataMap =
+    					new HashMapReferenceCollection(this, getShardBufferSize(config.getIndexBufferSize(), shards) / INDEX_SIZE);
+    	        dataMap.setDeleteOnExit(false);
+    			return dataMap;
+    		}
+    		
+    		//nós da arvore de busca. Os itens ficam nos próprios nós e 
+    		//o buffer do índice é usado pelos nós.
     		HugeListInfo nodeInfo = 
 	    			HugeListCalculator
 	    				.calculate(
-	    						config.getNodesBufferSize(),
+	    						getShardBufferSize(config.getNodesBufferSize() + config.getIndexBufferSize(), shards),
 	    						config.getNodesPageSize(),
-	    						NODE_SIZE);
+	    						DATA_MAP_NODE_SIZE);
 
     		Swapper[] nodesSwappers = new Swapper[nodeInfo.getSubLists()];
 	    	
 	    	for(int i=0;i<nodeInfo.getSubLists();i++) {
 	    		
-	    		EntityFileAccess<CharNode, ?, ?> efa =
-	    				new SimpleEntityFileAccess<CharNode, byte[], CharNodeEntityFileHeader>(
-	    		    			name + i + "_idx",
-	    		    			new File(efm.getPath(), name + i + "_idx"), 
-	    		    			new CharNodeEntityFileDataHandler());
-	    		
-	    		efa.createNewFile();
-		    	nodesSwappers[i] = (Swapper<TreeNode<DataMap>>)new EntityFileSwapper(efa);
+	    		//um arquivo por tipo de nó. Os nós pequenos não ocupam o 
+	    		//espaço de um nó com todas as ligações.
+	    		AdaptiveNodeSwapper swapper = 
+	    				new AdaptiveNodeSwapper(new File(efm.getPath(), name + i + "_idx"), config.isSwapMapped());
+		    	nodesSwappers[i] = createSwapper(swapper, swapper.getRecordLength());
 	    	}
-    		
-	    	//índice dos itens
-    		HugeListInfo indexInfo = 
-	    			HugeListCalculator
-	    				.calculate(
-	    						config.getIndexBufferSize(),
-	    						config.getIndexPageSize(),
-	    						INDEX_SIZE);
-    		
-
-    		Swapper<DataMap>[] indexSwappers = new Swapper[indexInfo.getSubLists()];
 	    	
-	    	for(int i=0;i<indexInfo.getSubLists();i++) {
-	    		EntityFileAccess<DataMap, ?, ?> efa =
-	    				new SimpleEntityFileAccess<DataMap, byte[], DataMapEntityFileHeader>(
-	    		    			name + i + "_idxv", 
-	    		    			new File(efm.getPath(), name + i + "_idxv"), 
-	    		    			new DataMapEntityFileDataHandler());	    		
-		    	
-	    		efa.createNewFile();
-	    		
-		    	indexSwappers[i] = new EntityFileSwapper<DataMap>(efa);
-	    	}
-	    	
-    		MapReferenceCollection<String, DataMap> dataMap =
-            		new BasicMapReferenceCollection<String, DataMap>(
+    		MapReferenceCollection<Object, DataMap> dataMap =
+            		new BasicMapReferenceCollection<Object, DataMap>(
                             nodeInfo.getMaxCapacityElements(),
                             nodeInfo.getFragmentFactorElements(),
                             nodesSwappers,
                             nodeInfo.getSubLists(), 
-                            indexInfo.getMaxCapacityElements(),
-                            indexInfo.getFragmentFactorElements(),
-                            indexSwappers,
-                            indexInfo.getSubLists(), 
                             new DataMapStringTreeNodes(this)
     				);
             		
@@ -315,12 +495,135 @@ public class BasicCacheHandler implements CacheHandler{
     	
     }
     
+    private long getShardBufferSize(long bufferSize, int shards){
+    	if(shards <= 1)
+    		return bufferSize;
+    	
+    	//cada partição tem as suas próprias listas
+    	long size = bufferSize / shards;
+    	return size < MIN_SHARD_BUFFER_SIZE? MIN_SHARD_BUFFER_SIZE : size;
+    }
+    
     public void find(Find<DataMap> result) {
     	dataMap.find(result);
     }
     
+    /**
+     * Executa uma busca em paralelo no índice dos itens. O método retorna 
+     * quando todas as tarefas forem finalizadas.
+     * @param result Busca.
+     */
+    public void parallelFind(ParallelFind<DataMap> result) {
+    	if(findPool == null)
+    		dataMap.find(result);
+    	else
+    		dataMap.find(result, findPool);
+    }
+    
+    /**
+     * Executa uma busca em paralelo que encontra todas as chaves existentes 
+     * no início da busca. As partições do índice reorganizadas durante a 
+     * busca são percorridas novamente. Desse modo, uma chave pode ser 
+     * encontrada mais de uma vez.
+     * @param result Busca.
+     */
+    public void findAll(ParallelFind<DataMap> result) {
+    	MapReferenceCollection<Object, DataMap>[] partitions = getIndexPartitions();
+    	long[] rehashes = new long[partitions.length];
+    	
+    	for(int i=0;i<partitions.length;i++){
+    		rehashes[i] = getRehashes(partitions[i]);
+    	}
+    	
+    	parallelFind(result);
+    	
+    	boolean changed = true;
+    	
+    	while(changed){
+    		changed = false;
+    		
+	    	for(int i=0;i<partitions.length;i++){
+	    		long value = getRehashes(partitions[i]);
+	    		
+	    		if(value != rehashes[i]){
+	    			rehashes[i] = value;
+	    			changed     = true;
+	    			
+	    			if(findPool == null)
+	    				partitions[i].find(result);
+	    			else
+	    				partitions[i].find(result, findPool);
+	    		}
+	    	}
+    	}
+    }
+    
+    /*
+     * Somente o índice hash muda a posição das chaves existentes.
+     */
+    private long getRehashes(MapReferenceCollection<Object, DataMap> partition){
+    	return partition instanceof HashMapReferenceCollection? 
+    			((HashMapReferenceCollection)partition).getRehashes() : 
+    			0;
+    }
+    
+    public Iterator<String> keys(String prefix) {
+    	return new KeyCursor(getIndexPartitions(), this, prefix, KeyCursor.DEFAULT_BATCH_SIZE);
+    }
+    
+    public long removeByPrefix(String prefix) {
+    	final AtomicLong count = new AtomicLong();
+    	
+    	parallelFind(new AbstractFindCacheHandler(prefix, true){
+			protected void found(String request, byte[] key, DataMap value) {
+				if(removeEntry(key, value) && !value.isDead(creationTime)){
+					count.incrementAndGet();
+				}
+			}
+    	});
+    	
+    	return count.get();
+    }
+    
+    public long countByPrefix(String prefix) {
+    	final AtomicLong count = new AtomicLong();
+    	
+    	parallelFind(new AbstractFindCacheHandler(prefix, true){
+			protected void found(String request, byte[] key, DataMap value) {
+				if(!value.isDead(creationTime)){
+					count.incrementAndGet();
+				}
+			}
+    	});
+    	
+    	return count.get();
+    }
+    
+    /**
+     * Obtém as partições do índice. Cada partição pode ser percorrida 
+     * separadamente.
+     * @return Partições.
+     */
+    @SuppressWarnings("unchecked")
+	protected MapReferenceCollection<Object, DataMap>[] getIndexPartitions(){
+    	if(dataMap instanceof ShardedMapReferenceCollection)
+    		return ((ShardedMapReferenceCollection<DataMap>)dataMap).getShards();
+    	
+    	return new MapReferenceCollection[]{dataMap};
+    }
+    
     public boolean putStream(String key, InputStream inputData, 
     		long timeToLive, long timeToIdle) throws StorageException{
+    	return putEntry(key, inputData, timeToLive, timeToIdle);
+    }
+    
+    public boolean putStream(byte[] key, InputStream inputData, 
+    		long timeToLive, long timeToIdle) throws StorageException{
+    	return putEntry(key, inputData, timeToLive, timeToIdle);
+    }
+    
+    private boolean putEntry(Object key, InputStream inputData, 
+    		long timeToLive, long timeToIdle) throws StorageException{
         
     	if(timeToLive < 0)
             throw new StorageException(CacheErrors.ERROR_1029);
@@ -328,7 +631,8 @@ public class BasicCacheHandler implements CacheHandler{
     	if(timeToIdle < 0)
             throw new StorageException(CacheErrors.ERROR_1028);
     	
-        if(key.length() > this.maxLengthKey)
+    	//o tamanho da chave é verificado na forma binária usada pelo índice.
+        if(KeyUtil.length(key) > this.maxLengthKey)
             throw new StorageException(CacheErrors.ERROR_1008);
         
         DataMap oldMap = null;
@@ -383,6 +687,8 @@ public class BasicCacheHandler implements CacheHandler{
         	
         }
 
+        CountingBloomFilter[] filter = this.beginKeyFilterInsert(key);
+        
         try{
             //Faz a indexação do item e retorna o índice atual, caso exista.
             oldMap = this.dataMap.put(key, map);
@@ -399,18 +705,32 @@ public class BasicCacheHandler implements CacheHandler{
         	throw new StorageException(e, CacheErrors.ERROR_1020);
         }
         finally{
+        	this.endKeyFilterInsert(key, filter, oldMap != null);
+        	this.invalidate(key);
+        	
 	    	if(oldMap != null){
 	    		this.releaseSegments(oldMap);
 	            this.countRemoved.incrementAndGet();
 	    	}
         }
         
+        this.recordPut(key, map);
         this.countWrite.incrementAndGet();
         return oldMap != null && !oldMap.isDead(creationTime);
     }
 
     public boolean replaceStream(String key, InputStream inputData, 
     		long timeToLive, long timeToIdle) throws StorageException{
+    	return replaceEntry(key, inputData, timeToLive, timeToIdle);
+    }
+    
+    public boolean replaceStream(byte[] key, InputStream inputData, 
+    		long timeToLive, long timeToIdle) throws StorageException{
+    	return replaceEntry(key, inputData, timeToLive, timeToIdle);
+    }
+    
+    private boolean replaceEntry(Object key, InputStream inputData, 
+    		long timeToLive, long timeToIdle) throws StorageException{
         
     	if(timeToLive < 0)
             throw new StorageException(CacheErrors.ERROR_1029);
@@ -418,7 +738,7 @@ public class BasicCacheHandler implements CacheHandler{
     	if(timeToIdle < 0)
             throw new StorageException(CacheErrors.ERROR_1028);
     	
-        if(key.length() > this.maxLengthKey)
+        if(KeyUtil.length(key) > this.maxLengthKey)
             throw new StorageException(CacheErrors.ERROR_1008);
         
         DataMap oldMap = null;
@@ -467,6 +787,8 @@ public class BasicCacheHandler implements CacheHandler{
         }
         finally{
 	    	if(oldMap != null){
+	        	this.invalidate(key);
+	        	
 	    		//Se oldMap foi substituido, remover os segmentos associados ao oldMap
 	    		releaseSegments(oldMap);
 	    	}
@@ -477,6 +799,7 @@ public class BasicCacheHandler implements CacheHandler{
         }
         
         if(oldMap != null){
+            this.recordPut(key, map);
             this.countWrite.incrementAndGet();
         	return true;
         }
@@ -486,6 +809,16 @@ public class BasicCacheHandler implements CacheHandler{
     
     public InputStream putIfAbsentStream(String key, InputStream inputData, 
     		long timeToLive, long timeToIdle) throws StorageException{
+    	return putIfAbsentEntry(key, inputData, timeToLive, timeToIdle);
+    }
+    
+    public InputStream putIfAbsentStream(byte[] key, InputStream inputData, 
+    		long timeToLive, long timeToIdle) throws StorageException{
+    	return putIfAbsentEntry(key, inputData, timeToLive, timeToIdle);
+    }
+    
+    private InputStream putIfAbsentEntry(Object key, InputStream inputData, 
+    		long timeToLive, long timeToIdle) throws StorageException{
         
     	if(timeToLive < 0)
             throw new StorageException(CacheErrors.ERROR_1029);
@@ -493,7 +826,7 @@ public class BasicCacheHandler implements CacheHandler{
     	if(timeToIdle < 0)
             throw new StorageException(CacheErrors.ERROR_1028);
     	
-        if(key.length() > this.maxLengthKey)
+        if(KeyUtil.length(key) > this.maxLengthKey)
             throw new StorageException(CacheErrors.ERROR_1008);
         
         DataMap oldMap = null;
@@ -527,6 +860,8 @@ public class BasicCacheHandler implements CacheHandler{
         	
         }
 
+        CountingBloomFilter[] filter = this.beginKeyFilterInsert(key);
+        
         try{
             oldMap = dataMap.putIfAbsent(key, map);
         }
@@ -541,6 +876,11 @@ public class BasicCacheHandler implements CacheHandler{
         	
         	throw new StorageException(e, CacheErrors.ERROR_1020);
         }
+        finally{
+        	this.endKeyFilterInsert(key, filter, oldMap != null);
+        }
+        
+        this.invalidate(key);
         
     	//se oldMap for diferente de null, significa que já existe um item no cache
         if(oldMap != null){
@@ -552,7 +892,7 @@ public class BasicCacheHandler implements CacheHandler{
 	    		releaseSegments(map);
 	    		
 	        	//tenta obter o stream do item no cache
-	        	in = getStream(key, oldMap);
+	        	in = getEntry(key, oldMap);
 	        	
 		    	if(in == null){
 		    		//será lançada uma exceção se o item não existir
@@ -565,25 +905,283 @@ public class BasicCacheHandler implements CacheHandler{
 		    	}
         	}
         	else {
+        		//o item expirado foi substituído por map.
         		releaseSegments(oldMap);
+	            countRemoved.incrementAndGet();
+	            recordPut(key, map);
         	}
         	
         }
+        else
+        	recordPut(key, map);
         
         return null;
     }
     
     public InputStream getStream(String key) throws RecoverException {
+    	return getEntry(key);
+    }
+    
+    public InputStream getStream(byte[] key) throws RecoverException {
+    	return getEntry(key);
+    }
+    
+    private InputStream getEntry(Object key) throws RecoverException {
+    	if(!mightContain(key))
+    		return null;
+    	
+    	if(frontCache != null)
+    		return getFrontEntry(key);
+    	
         DataMap map = dataMap.get(key);
-    	return map == null || map.isDead(creationTime)? null : getStream(key, map);
+    	return map == null || map.isDead(creationTime)? null : getEntry(key, map);
+    }
+    
+    private InputStream getFrontEntry(Object key) throws RecoverException {
+    	FrontCache.Entry entry = frontCache.get(key);
+    	
+    	if(entry != null){
+    		InputStream in = getEntry(key, entry);
+    		
+    		if(in != null)
+    			return in;
+    		
+    		//o item foi alterado ou removido.
+    		frontCache.remove(key, entry);
+    	}
+    	
+    	//a versão tem que ser obtida antes da busca no índice.
+    	long stamp  = frontCache.getStamp(key);
+        DataMap map = dataMap.get(key);
+        
+        if(map == null || map.isDead(creationTime))
+        	return null;
+        
+        Block[] segments = getSegments(key, map);
+        
+        if(segments == null)
+        	return null;
+        
+        frontCache.put(key, stamp, map, segments);
+        return createStream(map, segments);
+    }
+    
+    private InputStream getEntry(Object key, FrontCache.Entry entry) throws RecoverException {
+    	DataMap map = entry.getMap();
+    	
+    	if(map.isDead(creationTime) || map.getFirstSegment() < 0)
+    		return null;
+    	
+    	//Somente os itens materializados mantém os blocos. Os blocos dos 
+    	//demais são obtidos da lista de blocos.
+    	if(entry.getBlocks() == null)
+    		return getEntry(key, map);
+    	
+    	//o cache de itens mantém uma referência. Os blocos nunca são liberados aqui.
+    	Block[] blocks = entry.getBlocks();
+    	
+    	for(Block block: blocks){
+    		block.pin();
+    	}
+    	
+    	//o item materializado não depende da lista de blocos. Ele é válido 
+    	//enquanto não for removido do cache de itens por uma alteração no índice.
+    	if(entry.isRemoved() || blocks[0].id != map.getId()){
+    		unpinBlocks(blocks);
+    		return null;
+    	}
+    	
+    	recordAccess(key);
+        countRead.incrementAndGet();
+        countReadData.addAndGet(map.getLength());
+        
+    	if(map.getTimeToIdle() > 0 && 
+    			entry.touch(System.currentTimeMillis(), map.getTimeToIdle() / TIME_TO_IDLE_INDEX_FACTOR)){
+        	dataMap.replace(key, map, map);
+    	}
+    	
+    	return createStream(map, blocks);
+    }
+    
+    /*
+     * O fluxo é registrado para que os seus blocos sejam liberados mesmo 
+     * que ele não seja fechado.
+     */
+    private CacheInputStream createStream(DataMap map, Block[] blocks){
+    	releaseUnclosedStreams();
+    	
+    	CacheInputStream in = new CacheInputStream(this, map, blocks, segmentSize);
+    	in.setReference(
+    			new CacheInputStreamReference(in, unclosedStreams, blocks, memory, streams));
+    	return in;
+    }
+    
+    /**
+     * Libera os blocos dos fluxos que foram coletados sem serem fechados.
+     */
+    void releaseUnclosedStreams(){
+    	Reference<? extends CacheInputStream> ref;
+    	
+    	while((ref = unclosedStreams.poll()) != null){
+    		((CacheInputStreamReference)ref).release();
+    	}
+    }
+    
+    private void invalidate(Object key){
+    	if(frontCache != null)
+    		frontCache.remove(key);
+    }
+    
+    /* política de remoção */
+    
+    private void recordAccess(Object key){
+    	if(evictionPolicy != null)
+    		evictionPolicy.recordAccess(key);
+    }
+    
+    private void recordPut(Object key, DataMap map){
+    	if(evictionPolicy != null){
+    		evictionPolicy.put(key, map.getId(), map.getLength());
+    		evict();
+    	}
+    }
+    
+    private void recordPointer(Object key, DataMap map){
+    	if(evictionPolicy != null){
+    		evictionPolicy.replace(key, map.getId(), map.getLength());
+    		evict();
+    	}
+    }
+    
+    /*
+     * Remove os itens selecionados pela política. O item somente é removido 
+     * se não foi substituído depois do registro na política.
+     */
+    private void evict(){
+    	for(EvictionPolicy.Entry e: evictionPolicy.evict()){
+    		try{
+	    		Object key  = e.getKey();
+	    		DataMap map = dataMap.get(key);
+	    		
+	    		if(map != null && map.getId() <= e.getId() && removeEntry(key, map))
+	    			countEvicted.incrementAndGet();
+    		}
+    		catch(Throwable ex){
+    			ex.printStackTrace();
+    		}
+    	}
+    }
+    
+    /* filtro de chaves */
+    
+    private boolean mightContain(Object key){
+    	CountingBloomFilter filter = keyFilter;
+    	return filter == null || filter.mightContain(key);
+    }
+    
+    /*
+     * A chave é incluída no filtro antes da inclusão no índice. Desse modo, 
+     * uma chave do índice nunca é rejeitada pelo filtro. Se a chave já 
+     * existia, a inclusão é desfeita em endKeyFilterInsert. A chave também 
+     * é incluída no filtro que está sendo reconstruído.
+     */
+    private CountingBloomFilter[] beginKeyFilterInsert(Object key){
+    	if(keyFilter == null)
+    		return null;
+    	
+		//o filtro pendente tem que ser obtido antes do filtro atual.
+		CountingBloomFilter[] filter = 
+			new CountingBloomFilter[]{pendingKeyFilter, keyFilter};
+		
+		for(CountingBloomFilter f: filter){
+			if(f != null)
+				f.add(key);
+		}
+		
+    	return filter;
+    }
+    
+    private void endKeyFilterInsert(Object key, CountingBloomFilter[] filter, boolean exists){
+    	if(filter == null)
+    		return;
+    	
+    	//a inclusão é desfeita somente no filtro atual. No filtro pendente, a 
+    	//chave pode ter sido registrada também pela busca da reconstrução.
+		if(exists){
+			filter[1].remove(key);
+			return;
+		}
+		
+		//uma reconstrução iniciada durante a inclusão pode não ter encontrado 
+		//a chave no índice.
+		CountingBloomFilter pending = pendingKeyFilter;
+		CountingBloomFilter current = keyFilter;
+		
+		if(pending != null && pending != filter[0])
+			pending.add(key);
+		
+		if(current != filter[1] && current != filter[0] && current != pending)
+			current.add(key);
+    }
+    
+    /**
+     * Cria um filtro de chaves vazio com a configuração do cache.
+     * @return Filtro ou <code>null</code> se o filtro não for usado.
+     */
+    public CountingBloomFilter createKeyFilter(){
+    	return config.getKeyFilterFalsePositive() <= 0? 
+    			null : 
+    			new CountingBloomFilter(config.getKeyFilterCapacity(), config.getKeyFilterFalsePositive());
+    }
+    
+    /**
+     * Inicia a reconstrução do filtro de chaves. A partir deste momento, as 
+     * inclusões também são registradas no novo filtro. As remoções não são 
+     * registradas no novo filtro. As chaves do índice têm que ser 
+     * incluídas no filtro com {@link #findAll(ParallelFind)}.
+     * @return Novo filtro ou <code>null</code> se o filtro não for usado.
+     */
+    public synchronized CountingBloomFilter startKeyFilterRebuild(){
+    	if(keyFilter == null)
+    		return null;
+    	
+    	pendingKeyFilter = createKeyFilter();
+    	return pendingKeyFilter;
+    }
+    
+    /**
+     * Finaliza a reconstrução do filtro de chaves.
+     * @param install Define se o novo filtro substitui o filtro atual. Se 
+     * <code>false</code>, o novo filtro é descartado.
+     * @return Filtro de chaves atual.
+     */
+    public synchronized CountingBloomFilter finishKeyFilterRebuild(boolean install){
+    	CountingBloomFilter filter = pendingKeyFilter;
+    	
+    	if(install && filter != null)
+    		keyFilter = filter;
+    	
+    	pendingKeyFilter = null;
+    	return keyFilter;
     }
     
 	public boolean removeIfInvalid(String key) throws StorageException {
+		return removeIfInvalidEntry(key);
+	}
+	
+	public boolean removeIfInvalid(byte[] key) throws StorageException {
+		return removeIfInvalidEntry(key);
+	}
+	
+	private boolean removeIfInvalidEntry(Object key) throws StorageException {
+		if(!mightContain(key))
+			return false;
+		
         try{
         	DataMap data = this.dataMap.get(key);
 
             if(data != null && data.isDead(creationTime)){
-            	remove(key, data);
+            	removeEntry(key, data);
             	return true;
             }
             else
@@ -595,12 +1193,23 @@ public class BasicCacheHandler implements CacheHandler{
 	}
     
     public boolean removeStream(String key) throws StorageException{
+    	return removeStreamEntry(key);
+    }
+    
+    public boolean removeStream(byte[] key) throws StorageException{
+    	return removeStreamEntry(key);
+    }
+    
+    private boolean removeStreamEntry(Object key) throws StorageException{
         
+    	if(!mightContain(key))
+    		return false;
+    	
         try{
         	DataMap data = this.dataMap.get(key);
 
             if(data != null){
-            	remove(key, data);
+            	removeEntry(key, data);
             	return !data.isDead(creationTime);
             }
             else
@@ -613,26 +1222,61 @@ public class BasicCacheHandler implements CacheHandler{
     }
     
     public boolean containsKey(String key){
-    	return dataMap.get(key) != null;
+    	return mightContain(key) && dataMap.get(key) != null;
     }
 
     public DataMap getPointer(String key) throws RecoverException {
-        return dataMap.get(key);
+        return mightContain(key)? dataMap.get(key) : null;
     }
 
     public void setPointer(String key, DataMap newDta) throws RecoverException {
-    	dataMap.put(key, newDta);
+    	CountingBloomFilter[] filter = beginKeyFilterInsert(key);
+    	DataMap oldDta             = null;
+    	
+    	try{
+    		oldDta = dataMap.put(key, newDta);
+    	}
+    	finally{
+    		endKeyFilterInsert(key, filter, oldDta != null);
+    	}
+    	
+    	invalidate(key);
+    	recordPointer(key, newDta);
     }
     
     public boolean replacePointer(String key, DataMap originalDta, DataMap newDta) throws RecoverException {
-    	return dataMap.replace(key, originalDta, newDta);
+    	if(dataMap.replace(key, originalDta, newDta)){
+    		invalidate(key);
+    		recordPointer(key, newDta);
+    		return true;
+    	}
+    	else
+    		return false;
     }
     
     public void remove(String key, DataMap data){
+    	removeEntry(key, data);
+    }
+    
+    private boolean removeEntry(Object key, DataMap data){
+    	//o filtro tem que ser obtido antes da remoção.
+    	CountingBloomFilter filter = this.keyFilter;
+    	
     	if(this.dataMap.remove(key, data)){
+    		if(filter != null)
+    			filter.remove(key);
+    		
+    		this.invalidate(key);
 	    	this.releaseSegments(data);
+	    	
+	    	if(evictionPolicy != null)
+	    		evictionPolicy.remove(key, data.getId());
+	    	
 	        countRemoved.incrementAndGet();
+	        return true;
     	}
+    	else
+    		return false;
     }
     
     public void releaseSegments(DataMap map){
@@ -641,23 +1285,41 @@ public class BasicCacheHandler implements CacheHandler{
     	if(segmentId == -1)
     		return;
     	
-        Block current = this.dataList.get(segmentId);
-        
-        int i=0;
-        while(current != null){
-			if(current.id == map.getId() && current.segment == i){
-				this.dataList.remove(segmentId, current);
-			}
-            
-			segmentId = current.nextBlock;
-        	current = segmentId < 0? null : this.dataList.get(segmentId);
-        	i++;
-        }
+    	if(map.isPacked()){
+    		this.packedData.remove(map);
+        	map.setFirstSegment(-1);
+        	return;
+    	}
+    	
+    	FlushableReferenceCollection<Block> dataList = this.dataLists[map.getPool()];
+    	Block[] blocks                               = new Block[map.getSegments()];
+    	
+    	dataList.get(segmentId, blocks);
+    	
+    	for(int i=0;i<blocks.length;i++){
+    		Block current = blocks[i];
+    		
+			//somente os blocos do item são removidos.
+    		if(current != null && (current.id != map.getId() || current.segment != i)){
+    			blocks[i] = null;
+    		}
+    	}
     	
+		//a região é liberada quando a última leitura do bloco for finalizada.
+    	dataList.remove(segmentId, blocks);
     	map.setFirstSegment(-1);
     }
     
     public InputStream getStream(String key, DataMap map) throws RecoverException {
+    	return getEntry(key, map);
+    }
+    
+    private InputStream getEntry(Object key, DataMap map) throws RecoverException {
+    	Block[] segments = getSegments(key, map);
+    	return segments == null? null : createStream(map, segments);
+    }
+    
+    private Block[] getSegments(Object key, DataMap map) throws RecoverException {
         
         try{
             countRead.incrementAndGet();
@@ -669,6 +1331,7 @@ public class BasicCacheHandler implements CacheHandler{
         		return null;
         	}
         	
+        	recordAccess(key);
         	
         	//Se timeToIdle foi definido, é atualizado o horário do último acesso.
         	if(map.getTimeToIdle() > 0){
@@ -677,38 +1340,69 @@ public class BasicCacheHandler implements CacheHandler{
             	dataMap.replace(key, map, map);
         	}
         	
-        	int readData     = 0;
-            Block[] segments = new Block[map.getSegments()];
-            Block current    = map.getFirstSegment() < 0? null : dataList.get(map.getFirstSegment());
-            int i            = 0;
-            
-            while(current != null){
-
-                /*
-                Se id for diferente da
-                id do DataMap, significa que essa entrada foi ou está sendo
-                removida.
-                */
-				if(current.id != map.getId() || current.segment != i)
-				    throw new CorruptedDataException("invalid segment: " + current.id + ":" + map.getId() + " " + current.segment + ":" + i);
-                
-            	readData    += current.length;
-                segments[i]  = current;
-            	current      = current.nextBlock < 0? null : dataList.get(current.nextBlock);
-            	i++;
-            }
+        	if(map.isPacked()){
+        		Block block = packedData.get(map);
+        		
+        		if(block == null)
+        			return null;
+        		
+                countReadData.addAndGet(block.length);
+        		return new Block[]{block};
+        	}
+        	
+        	FlushableReferenceCollection<Block> dataList = dataLists[map.getPool()];
+        	int readData                                 = 0;
+            Block[] segments                             = new Block[map.getSegments()];
+            Block[] blocks                               = new Block[segments.length];
+            long segmentId                               = map.getFirstSegment();
+            boolean success                              = false;
             
-            if(readData <= 0) {
-            	return null;
+            try{
+            	//os blocos do item estão em posições consecutivas e são obtidos 
+            	//de uma vez.
+            	dataList.get(segmentId, blocks);
+            	
+	            for(int i=0;i<blocks.length;i++){
+	            	
+	            	Block current = blocks[i];
+	            	
+	            	if(current != null && !current.pin())
+	            		current = pinBlock(dataList, dataList.getReference(segmentId, i));
+	            	
+	            	if(current == null)
+	            		break;
+	            	
+	                /*
+	                Se id for diferente da
+	                id do DataMap, significa que essa entrada foi ou está sendo
+	                removida.
+	                */
+					if(current.id != map.getId() || current.segment != i){
+						current.release(memory);
+					    throw new CorruptedDataException("invalid segment: " + current.id + ":" + map.getId() + " " + current.segment + ":" + i);
+					}
+					
+	            	readData    += current.length;
+	                segments[i]  = current;
+	            }
+	            
+	            if(readData <= 0) {
+	            	return null;
+	            }
+	            
+	            if(map.getLength() != readData) {
+	                throw new RecoverException(CacheErrors.ERROR_1021);
+	            }
+	            
+	            countReadData.addAndGet(readData);
+	            success = true;
+	            return segments;
             }
-            
-            if(map.getLength() != readData) {
-                throw new RecoverException(CacheErrors.ERROR_1021);
+            finally{
+            	if(!success){
+            		this.unpinBlocks(segments);
+            	}
             }
-            
-            countReadData.addAndGet(readData);
-            
-            return new CacheInputStream(this, map, segments, segmentSize);
         }
         catch(CorruptedDataException e){
             return null;
@@ -719,34 +1413,58 @@ public class BasicCacheHandler implements CacheHandler{
         }
     }
     
+    /**
+     * Obtém um bloco e registra uma referência para ele. Se a região do bloco 
+     * já foi liberada, o bloco deixou a memória e é obtido novamente. 
+     * @param segmentId Índice do bloco.
+     * @return Bloco ou <code>null</code>.
+     */
+    private Block pinBlock(FlushableReferenceCollection<Block> dataList, long segmentId){
+    	for(;;){
+    		Block block = dataList.get(segmentId);
+    		
+    		if(block == null || block.pin())
+    			return block;
+    	}
+    }
+    
+    private void unpinBlocks(Block[] blocks){
+    	for(Block block: blocks){
+    		if(block != null){
+    			block.release(memory);
+    		}
+    	}
+    }
+    
     public void putData(DataMap map, InputStream inputData) throws StorageException, InterruptedException{
         
-        int writeData    = 0;
-        byte[] buffer    = new byte[this.segmentSize];
-        int index        = 0;
-        Block lastBlock  = null;
-        long lastSegment = -1;
+        int writeData      = 0;
+        List<Block> blocks = new ArrayList<Block>();
+        int pool           = 0;
+        boolean success    = false;
         int read;
         
         try{
-            while((read = inputData.read(buffer, 0, this.segmentSize)) != -1){
+        	pool          = getPool(getExpectedLength(inputData));
+        	int blockSize = blockSizes[pool];
+            byte[] buffer = new byte[blockSize];
+            
+            while((read = inputData.read(buffer, 0, blockSize)) != -1){
             	writeData += read;
             	
-        		RegionMemory data = this.memory.alloc(this.segmentSize);
+        		RegionMemory data = this.memory.alloc(blockSize);
         		data.write(0, buffer, 0, read);
         		
-            	Block block = new Block(map.getId(), index++, data, read);
-                Long segment = dataList.insert(block);
-
-                if(lastBlock != null){
-                	lastBlock.nextBlock = segment;
-                	dataList.set(lastSegment, lastBlock);
-                }
-                else
-                	map.setFirstSegment(segment);
-                
-            	lastBlock   = block;
-                lastSegment = segment;
+            	blocks.add(new Block(map.getId(), blocks.size(), data, read));
+            	
+            	//o item ultrapassou o bloco do próximo conjunto. Os dados são 
+            	//copiados para os blocos do novo conjunto.
+            	if(pool + 1 < blockSizes.length && writeData >= blockSizes[pool + 1]){
+            		pool      = getPool(writeData);
+            		blockSize = blockSizes[pool];
+            		buffer    = new byte[blockSize];
+            		blocks    = moveBlocks(map, blocks, blockSize);
+            	}
             }
 
             if(inputData.available() != 0) {
@@ -761,22 +1479,116 @@ public class BasicCacheHandler implements CacheHandler{
     		if(writeData > this.maxBytesToStorageEntry){
                 throw new StorageException(CacheErrors.ERROR_1007);
     		}
-            
+    		
+    		//os itens pequenos compartilham uma página.
+    		if(pool == 0 && blocks.size() == 1 && writeData <= this.packedData.getMaxValueSize()){
+    			Block block = blocks.remove(0);
+    			try{
+    				this.packedData.put(map, block.buffer, writeData);
+    			}
+    			finally{
+    				block.release(memory);
+    			}
+    		}
+    		else{
+	    		//os blocos são indexados em posições consecutivas. O item é 
+	    		//identificado pelo primeiro bloco e pela quantidade de blocos.
+	    		Block[] extent = blocks.toArray(new Block[blocks.size()]);
+	    		
+	    		if(extent.length > 0){
+	    			map.setFirstSegment(dataLists[pool].insert(extent));
+	    			blocks.clear();
+	    		}
+	    		
+	            map.setSegments(extent.length);
+	            map.setPool(pool);
+    		}
+    		
             map.setLength(writeData);
-            map.setSegments(index);
-        }
-        catch(StorageException e){
-            this.countRemovedData.addAndGet(writeData);
-            this.releaseSegments(map);
-            throw e;
+            success = true;
         }
         catch(IOException e){
-            this.countRemovedData.addAndGet(writeData);
-            this.releaseSegments(map);
             throw new StorageException(e, CacheErrors.ERROR_1014);
         }
+        finally{
+        	if(!success){
+                this.countRemovedData.addAndGet(writeData);
+                this.releaseBlocks(blocks);
+        	}
+        }
+    }
+    
+    /**
+     * Obtém o tamanho informado pelo fluxo. Usado somente para escolher 
+     * o conjunto de blocos.
+     */
+    private long getExpectedLength(InputStream inputData) throws IOException{
+    	if(inputData instanceof CacheInputStream && ((CacheInputStream)inputData).getMap() != null)
+    		return ((CacheInputStream)inputData).getSize();
+    	
+    	return inputData.available();
+    }
+    
+    /**
+     * Obtém o conjunto com o maior bloco que não ultrapassa o tamanho do item.
+     * @param length Tamanho do item.
+     * @return Índice do conjunto.
+     */
+    private int getPool(long length){
+    	int pool = 0;
+    	
+    	while(pool + 1 < blockSizes.length && blockSizes[pool + 1] <= length){
+    		pool++;
+    	}
+    	
+    	return pool;
+    }
+    
+    /**
+     * Copia os dados de um item para blocos maiores. Os blocos originais 
+     * são liberados.
+     */
+    private List<Block> moveBlocks(DataMap map, List<Block> blocks, int blockSize){
+    	List<Block> result = new ArrayList<Block>();
+    	Block current      = null;
+    	
+    	for(Block block: blocks){
+    		int off = 0;
+    		
+    		while(off < block.length){
+    			if(current == null || current.length == blockSize){
+    				current = new Block(map.getId(), result.size(), this.memory.alloc(blockSize), 0);
+    				result.add(current);
+    			}
+    			
+    			int len = Math.min(block.length - off, blockSize - current.length);
+    			current.buffer.write(current.length, block.buffer, off, len);
+    			current.length += len;
+    			off            += len;
+    		}
+    	}
+    	
+    	this.releaseBlocks(blocks);
+    	return result;
+    }
+    
+    /**
+     * Libera os blocos de um item que não foi armazenado. 
+     * @param blocks Blocos.
+     */
+    private void releaseBlocks(List<Block> blocks){
+    	for(Block block: blocks){
+    		block.release(memory);
+    	}
     }
 
+    /**
+     * Recupera o espaço dos itens removidos das páginas compartilhadas.
+     */
+    public void compactData(){
+    	packedData.compact();
+    }
+    
     public long getNextModCount(){
     	return modCount.incrementAndGet();
     }
@@ -809,6 +1621,30 @@ public class BasicCacheHandler implements CacheHandler{
         return countRemovedData.longValue();
     }
     
+    /**
+     * Obtém a quantidade de itens removidos pela política de remoção.
+     * @return Quantidade.
+     */
+    public long getCountEvicted() {
+        return countEvicted.longValue();
+    }
+    
+    /**
+     * Obtém a quantidade de leituras atendidas pelo cache de itens mais acessados.
+     * @return Quantidade.
+     */
+    public long getCountFrontCacheHit() {
+        return frontCache == null? 0 : frontCache.getCountHit();
+    }
+    
+    /**
+     * Obtém a quantidade de leituras não atendidas pelo cache de itens mais acessados.
+     * @return Quantidade.
+     */
+    public long getCountFrontCacheMiss() {
+        return frontCache == null? 0 : frontCache.getCountMiss();
+    }
+    
     public boolean isDeleteOnExit() {
 		return deleteOnExit;
 	}
@@ -843,6 +1679,13 @@ public class BasicCacheHandler implements CacheHandler{
 		this.countWriteData 	= 0;
 		*/
 		this.creationTime       = System.currentTimeMillis();
+		
+		if(frontCache != null)
+			frontCache.clear();
+		
+		//os itens expirados são removidos pelo processo de limpeza.
+		if(evictionPolicy != null)
+			evictionPolicy.clear();
 		//this.dataList.clear();
 		//this.dataMap.clear();
 	}
@@ -851,9 +1694,22 @@ public class BasicCacheHandler implements CacheHandler{
 		if(enabled){
 			enabled = false;
 			cleanTask.interrupt();
-			dataList.destroy();
+			
+			if(findPool != null)
+				findPool.shutdown();
+			
+			if(frontCache != null)
+				frontCache.clear();
+			
+			for(FlushableReferenceCollection<Block> dataList: dataLists){
+				dataList.destroy();
+			}
+			
 			dataMap.destroy();
 			entityFileManager.destroy();
+			
+			if(swapWriters != null)
+				swapWriters.shutdown();
 		}
 	}
 	
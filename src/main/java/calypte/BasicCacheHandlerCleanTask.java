@@ -19,6 +19,8 @@ package calypte;
 
 import java.util.concurrent.TimeUnit;
 
+import calypte.collections.CountingBloomFilter;
+
 /**
  * 
  * @author Ribeiro
@@ -26,9 +28,19 @@ import java.util.concurrent.TimeUnit;
  */
 public class BasicCacheHandlerCleanTask implements Runnable{
 
-	private CacheHandler handler;
+	/**
+	 * Quantidade de chaves percorridas entre as pausas da busca.
+	 */
+	private static final int KEYS_PER_PAUSE = 1000;
+	
+	/**
+	 * Duração da pausa em milisegundos.
+	 */
+	private static final long PAUSE_TIME = 10;
 	
-	public BasicCacheHandlerCleanTask(CacheHandler handler) {
+	private BasicCacheHandler handler;
+	
+	public BasicCacheHandlerCleanTask(BasicCacheHandler handler) {
 		this.handler = handler;
 	}
 	
@@ -50,33 +62,63 @@ public class BasicCacheHandlerCleanTask implements Runnable{
 	}
 
 	private void clean() {
-		handler.find(new Find(null));
+		//o filtro de chaves é recriado com as chaves válidas. As inclusões 
+		//feitas durante a busca também são registradas no novo filtro.
+		CountingBloomFilter filter = handler.startKeyFilterRebuild();
+		boolean done               = false;
+		
+		try {
+			handler.findAll(new Find(null, filter));
+			done = true;
+		}
+		finally {
+			if(filter != null) {
+				handler.finishKeyFilterRebuild(done);
+			}
+		}
+		
+		handler.releaseUnclosedStreams();
+		handler.compactData();
 	}
 	
+	/**
+	 * Busca executada em paralelo. Os métodos {@link BasicCacheHandler#removeIfInvalid(byte[])} 
+	 * e {@link CountingBloomFilter#add(Object)} são seguros para acesso simultâneo.
+	 */
 	private class Find extends AbstractFindCacheHandler{
 
-		public Find(String key) {
+		private CountingBloomFilter filter;
+		
+		//cada cópia da busca tem o seu próprio contador.
+		private int keys;
+		
+		public Find(String key, CountingBloomFilter filter) {
 			super(key);
+			this.filter = filter;
 		}
 
 		public boolean acceptNodeKey(Object key) {
-			try {
-				Thread.sleep(100);
-			}
-			catch(Throwable e) {
-				throw new IllegalStateException(e);
+			if(++keys % KEYS_PER_PAUSE == 0) {
+				try {
+					Thread.sleep(PAUSE_TIME);
+				}
+				catch(Throwable e) {
+					throw new IllegalStateException(e);
+				}
 			}
 			return super.acceptNodeKey(key);
 		}
 		
 		@Override
-		protected void found(String request, String key, DataMap value) {
+		protected void found(String request, byte[] key, DataMap value) {
 			
 			if(handler.isDestroyed()) {
 				throw new IllegalStateException();
 			}
 			
-			handler.removeIfInvalid(key);
+			if(!handler.removeIfInvalid(key) && filter != null) {
+				filter.add(key);
+			}
 		}
 		
 	}
@@ -18,10 +18,16 @@
 package calypte;
 
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
+import calypte.memory.Memory;
 import calypte.memory.RegionMemory;
 
 /**
+ * Bloco de dados de um item.
+ * <p>A região do bloco é liberada quando não existem mais referências para 
+ * ele. A lista de blocos tem uma referência enquanto o bloco estiver na 
+ * memória e cada leitura em andamento tem outra.</p>
  * 
  * @author Ribeiro
  *
@@ -30,6 +36,10 @@ import calypte.memory.RegionMemory;
 public class Block 
     implements Serializable{
 
+	private static final AtomicIntegerFieldUpdater<Block> REFS = 
+			AtomicIntegerFieldUpdater.newUpdater(Block.class, "refs");
+	
+
     public long id;
 
     public int segment;
@@ -40,12 +50,43 @@ public class Block
     
     public RegionMemory buffer;
     
+    private volatile int refs;
+    
     public Block(long id, int segment, RegionMemory data, int length){
         this.id        = id;
         this.segment   = segment;
         this.buffer    = data;
         this.length    = length;
         this.nextBlock = -1;
+        this.refs      = 1;
+    }
+
+    /**
+     * Registra uma nova referência para o bloco.
+     * @return <code>false</code> se a região do bloco já foi liberada. 
+     * Caso contrário, <code>true</code>.
+     */
+    public boolean pin(){
+    	for(;;){
+    		int r = refs;
+    		
+    		if(r <= 0)
+    			return false;
+    		
+    		if(REFS.compareAndSet(this, r, r + 1))
+    			return true;
+    	}
+    }
+    
+    /**
+     * Remove uma referência do bloco. A região é devolvida quando não 
+     * existem mais referências.
+     * @param memory Memória de onde a região foi alocada.
+     */
+    public void release(Memory memory){
+    	if(REFS.decrementAndGet(this) == 0 && buffer != null){
+    		memory.release(buffer);
+    	}
     }
 
 	@Override
@@ -18,6 +18,7 @@
 package calypte;
 
 import java.io.InputStream;
+import java.util.Iterator;
 
 /**
  * É a classe central do Calypte. 
@@ -79,6 +80,18 @@ public interface Cache {
     boolean replaceStream(String key, InputStream inputData, 
     		long timeToLive, long timeToIdle) throws StorageException;
 	
+    /**
+     * Substitui o fluxo de bytes associado a uma chave binária somente se ele existir.
+     * @param key chave associada ao valor.
+	 * @param timeToLive é a quantidade máxima de tempo que um item expira após sua criação.
+	 * @param timeToIdle é a quantidade máxima de tempo que um item expira após o último acesso.
+     * @param inputData fluxo de bytes do valor.
+     * @return <code>true</code> se o valor for substituido. Caso contrário, <code>false</code>.
+     * @throws StorageException Lançada se ocorrer alguma falha ao tentar inserir o item.
+     */
+    boolean replaceStream(byte[] key, InputStream inputData, 
+    		long timeToLive, long timeToIdle) throws StorageException;
+	
 	/**
 	 * Substitui o valor associado à chave somente se ele for igual a um determinado valor.
 	 * @param key chave associada ao valor.
@@ -116,6 +129,19 @@ public interface Cache {
     InputStream putIfAbsentStream(String key, InputStream inputData, 
     		long timeToLive, long timeToIdle) throws StorageException;
 	
+    /**
+     * Associa o fluxo de bytes do valor a uma chave binária somente se a chave 
+     * não estiver associada a um valor.
+     * @param key chave associada ao valor.
+	 * @param timeToLive é a quantidade máxima de tempo que um item expira após sua criação.
+	 * @param timeToIdle é a quantidade máxima de tempo que um item expira após o último acesso.
+     * @param inputData fluxo de bytes do valor.
+     * @return fluxo associado à chave ou <code>null</code>.
+     * @throws StorageException Lançada se ocorrer alguma falha ao tentar inserir o item.
+     */
+    InputStream putIfAbsentStream(byte[] key, InputStream inputData, 
+    		long timeToLive, long timeToIdle) throws StorageException;
+	
 	/**
 	 * Associa o valor à chave.
 	 * @param key chave associada ao valor.
@@ -138,6 +164,20 @@ public interface Cache {
      */
     boolean putStream(String key, InputStream inputData, 
     		long timeToLive, long timeToIdle) throws StorageException;
+    
+    /**
+	 * Associa o fluxo de bytes do valor a uma chave binária. A chave é usada 
+	 * sem conversão e é equivalente a uma chave do tipo <code>String</code> 
+	 * codificada em UTF-8.
+	 * @param key chave associada ao fluxo.
+	 * @param timeToLive é a quantidade máxima de tempo que um item expira após sua criação.
+	 * @param timeToIdle é a quantidade máxima de tempo que um item expira após o último acesso.
+     * @param inputData fluxo de bytes do valor.
+     * @return <code>true</code> se o item for substituido. Caso contrário, <code>false</code>
+     * @throws StorageException Lançada se ocorrer alguma falha ao tentar inserir o item.
+     */
+    boolean putStream(byte[] key, InputStream inputData, 
+    		long timeToLive, long timeToIdle) throws StorageException;
 	
     /* métodos de coleta */
 	
@@ -158,6 +198,15 @@ public interface Cache {
      * item.
      */
     InputStream getStream(String key) throws RecoverException;
+    
+    /**
+     * Obtém o fluxo de bytes do valor associado a uma chave binária.
+     * @param key chave associada ao fluxo.
+     * @return fluxo de bytes do valor ou <code>null</code>.
+     * @throws RecoverException Lançada se ocorrer alguma falha ao tentar obter o
+     * item.
+     */
+    InputStream getStream(byte[] key) throws RecoverException;
 	
     /* métodos de remoção */
 
@@ -180,6 +229,15 @@ public interface Cache {
      */
     boolean remove(String key) throws StorageException;
 	
+    /**
+     * Remove o valor associado a uma chave binária.
+     * @param key chave associada ao valor.
+     * @return <code>true</code> se o valor for removido. Caso contrário <code>false</code>.
+     * @throws StorageException Lançada se ocorrer alguma falha ao tentar remover o
+     * item.
+     */
+    boolean remove(byte[] key) throws StorageException;
+	
     /* métodos de manipulação*/
     
 	/**
@@ -203,6 +261,31 @@ public interface Cache {
 	 */
 	boolean containsKey(String key) throws RecoverException;
 
+	/**
+	 * Obtém as chaves iniciadas por um prefixo. As chaves são obtidas sob 
+	 * demanda, em lotes, sem percorrer o índice para cada chave.
+	 * @param prefix Prefixo. Se for vazio, todas as chaves são retornadas.
+	 * @return Cursor das chaves.
+	 */
+	Iterator<String> keys(String prefix);
+
+	/**
+	 * Remove todos os itens cujas chaves são iniciadas por um prefixo. 
+	 * Os itens são removidos em uma única passagem pelo índice.
+	 * @param prefix Prefixo.
+	 * @return Quantidade de itens removidos.
+	 * @throws StorageException Lançada se ocorrer alguma falha ao tentar remover 
+	 * os itens.
+	 */
+	long removeByPrefix(String prefix) throws StorageException;
+
+	/**
+	 * Obtém a quantidade de itens cujas chaves são iniciadas por um prefixo.
+	 * @param prefix Prefixo.
+	 * @return Quantidade de itens.
+	 */
+	long countByPrefix(String prefix);
+
     /**
      * Obtém a quantidade de itens recuperados.
      * @return Quantidade de itens recuperados.
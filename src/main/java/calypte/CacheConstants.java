@@ -71,6 +71,12 @@ public interface CacheConstants {
      */
     public static final String DATA_BLOCK_SIZE 		= "data_block_size";
     
+    /**
+     * Quantidade de conjuntos de blocos de dados. O bloco de cada conjunto 
+     * é 16 vezes maior que o bloco do conjunto anterior.
+     */
+    public static final String DATA_BLOCK_POOLS 	= "data_block_pools";
+    
     /**
      * Tamanho da página do buffer dos itens.
      */
@@ -91,6 +97,20 @@ public interface CacheConstants {
      */
     public static final String MAX_SIZE_KEY 		= "max_size_key";
     
+    /**
+     * Quantidade máxima, em bytes, dos dados dos itens. Quando o limite é 
+     * atingido, os itens menos acessados são removidos. Com um limite menor 
+     * que <code>data_buffer_size</code> os dados não são enviados para o disco. 
+     * Se for 0, não há limite.
+     */
+    public static final String MAX_BYTES 			= "max_bytes";
+    
+    /**
+     * Quantidade máxima de itens. Quando o limite é atingido, os itens 
+     * menos acessados são removidos. Se for 0, não há limite.
+     */
+    public static final String MAX_ENTRIES 			= "max_entries";
+    
     /**
      * Quantidade de processos que irão fazer a troca dos dados
      * entre a memória e outro dispositivo, por exemplo, disco.
@@ -106,5 +126,78 @@ public interface CacheConstants {
      * Estratégia de acesso a memória.
      */
     public static final String MEMORY_ACCESS_TYPE 	= "memory_access_type";
+    
+    /**
+     * Tamanho de um segmento da memória do heap. Deve ser uma potência de 2.
+     */
+    public static final String HEAP_SEGMENT_SIZE 	= "heap_segment_size";
+    
+    /**
+     * Tipo do índice dos itens. Pode ser <code>trie</code> ou <code>hash</code>.
+     */
+    public static final String INDEX_TYPE 			= "index_type";
+    
+    /**
+     * Quantidade de partições independentes do índice dos itens.
+     */
+    public static final String INDEX_SHARDS 		= "index_shards";
+    
+    /**
+     * Tamanho do cache dos itens mais acessados. Se for 0, o cache não é usado.
+     */
+    public static final String FRONT_CACHE_SIZE 	= "front_cache_size";
+    
+    /**
+     * Tamanho máximo de um item mantido materializado no cache dos itens mais acessados.
+     */
+    public static final String FRONT_CACHE_VALUE_SIZE = "front_cache_value_size";
+    
+    /**
+     * Probabilidade de falsos positivos do filtro de chaves. Se for 0, o filtro não é usado.
+     */
+    public static final String KEY_FILTER_FALSE_POSITIVE = "key_filter_false_positive";
+    
+    /**
+     * Quantidade esperada de chaves no filtro de chaves.
+     */
+    public static final String KEY_FILTER_CAPACITY 	= "key_filter_capacity";
+    
+    /**
+     * Quantidade de threads usadas nas buscas em paralelo. Se for 0, é usada a 
+     * quantidade de processadores.
+     */
+    public static final String FIND_PARALLELISM 	= "find_parallelism";
+    
+    /**
+     * Quantidade de threads que gravam em segundo plano os itens enviados para o disco. 
+     * Se for 0, os itens são gravados pela thread que os enviou.
+     */
+    public static final String SWAP_WRITER_THREADS 	= "swap_writer_threads";
+    
+    /**
+     * Momento da gravação dos itens pendentes: never, interval ou bytes.
+     */
+    public static final String SWAP_FLUSH_POLICY 	= "swap_flush_policy";
+    
+    /**
+     * Intervalo, em milisegundos, entre as gravações dos itens pendentes.
+     */
+    public static final String SWAP_FLUSH_INTERVAL 	= "swap_flush_interval";
+    
+    /**
+     * Quantidade de bytes pendentes que inicia uma gravação.
+     */
+    public static final String SWAP_FLUSH_BYTES 	= "swap_flush_bytes";
+    
+    /**
+     * Quantidade máxima de bytes pendentes de uma lista. Acima desse valor, o envio 
+     * aguarda a gravação.
+     */
+    public static final String SWAP_MAX_BACKLOG 	= "swap_max_backlog";
+    
+    /**
+     * Os registros dos arquivos de dados e de índice são lidos dos arquivos mapeados na memória.
+     */
+    public static final String SWAP_MAPPED 			= "swap_mapped";
 
 }
@@ -133,5 +133,15 @@ public class CacheErrors {
 	 * ERROR 1030: Expired Item
 	 */
 	public static final CacheError ERROR_1030 = new CacheError(1029, "Expired Item");
+
+	/**
+	 * ERROR 1031: Binary keys are not supported
+	 */
+	public static final CacheError ERROR_1031 = new CacheError(1031, "Binary keys are not supported");
+
+	/**
+	 * ERROR 1032: Write backlog wait timeout exceeded
+	 */
+	public static final CacheError ERROR_1032 = new CacheError(1032, "Write backlog wait timeout exceeded");
 	
 }
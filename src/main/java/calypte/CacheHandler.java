@@ -19,6 +19,7 @@ package calypte;
 
 import java.io.InputStream;
 import java.io.Serializable;
+import java.util.Iterator;
 
 import calypte.collections.MapReferenceCollection.Find;
 
@@ -31,21 +32,42 @@ public interface CacheHandler extends Serializable{
     
 	void find(Find<DataMap> result);
 	
+	Iterator<String> keys(String prefix);
+	
+	long removeByPrefix(String prefix) throws StorageException;
+	
+	long countByPrefix(String prefix);
+	
     boolean putStream(String key, InputStream inputData, 
     		long timeToLive, long timeToIdle) throws StorageException;
 
+    boolean putStream(byte[] key, InputStream inputData, 
+    		long timeToLive, long timeToIdle) throws StorageException;
+
     boolean replaceStream(String key, InputStream inputData, 
     		long timeToLive, long timeToIdle) throws StorageException;
     
+    boolean replaceStream(byte[] key, InputStream inputData, 
+    		long timeToLive, long timeToIdle) throws StorageException;
+    
     InputStream putIfAbsentStream(String key, InputStream inputData, 
     		long timeToLive, long timeToIdle) throws StorageException;
     
+    InputStream putIfAbsentStream(byte[] key, InputStream inputData, 
+    		long timeToLive, long timeToIdle) throws StorageException;
+    
     InputStream getStream(String key) throws RecoverException;
     
+    InputStream getStream(byte[] key) throws RecoverException;
+    
     boolean removeIfInvalid(String key) throws StorageException;
     
+    boolean removeIfInvalid(byte[] key) throws StorageException;
+    
     boolean removeStream(String key) throws StorageException;
     
+    boolean removeStream(byte[] key) throws StorageException;
+    
     boolean containsKey(String key);
 
     DataMap getPointer(String key) throws RecoverException;
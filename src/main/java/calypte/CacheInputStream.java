@@ -25,6 +25,10 @@ import calypte.memory.RegionMemory;
 
 /**
  * Representa o fluxo de bytes de um item de um cache.
+ * <p>O fluxo mantém uma referência para os blocos do item. As referências 
+ * são removidas em {@link #close()}. Se o fluxo não for fechado, as 
+ * referências são removidas pelo gerenciador do cache depois que ele 
+ * for coletado.</p>
  * 
  * @author Ribeiro.
  */
@@ -44,6 +48,8 @@ public class CacheInputStream extends InputStream{
 
     private int segmentSize;
     
+    private CacheInputStreamReference reference;
+    
     public CacheInputStream(){
     	this(null, null, null, 1024);
     }
@@ -73,6 +79,14 @@ public class CacheInputStream extends InputStream{
 		this.arrayDataList = arrayDataList;
 	}
 
+	CacheInputStreamReference getReference() {
+		return reference;
+	}
+
+	void setReference(CacheInputStreamReference reference) {
+		this.reference = reference;
+	}
+
 	public CacheHandler getCache() {
 		return cache;
 	}
@@ -149,6 +163,32 @@ public class CacheInputStream extends InputStream{
         return read;
     }
     
+    /**
+     * Remove as referências dos blocos do item. A região de um bloco é 
+     * liberada quando não existem mais referências para ele.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+    	Block[] blocks = this.arrayDataList;
+    	
+    	if(blocks == null || cache == null)
+    		return;
+    	
+    	this.arrayDataList = new Block[0];
+    	
+    	//os blocos registrados no gerenciador são liberados pela referência.
+    	if(reference != null){
+    		reference.release();
+    		return;
+    	}
+    	
+    	for(Block block: blocks){
+    		if(block != null){
+    			block.release(cache.getConfig().getMemory());
+    		}
+    	}
+    }
+    
     public void writeTo(OutputStream out) throws IOException{
     	
     	if(arrayDataList.length > 0){
@@ -204,4 +244,4 @@ public class CacheInputStream extends InputStream{
     }
 
     
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,75 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Map;
+
+import calypte.memory.Memory;
+
+/**
+ * Referência para um fluxo de um item. Mantém os blocos do fluxo. Se o 
+ * fluxo for coletado sem ser fechado, a referência é colocada na fila 
+ * do gerenciador do cache e os blocos são liberados por ele.
+ * 
+ * @author Ribeiro
+ *
+ */
+class CacheInputStreamReference extends PhantomReference<CacheInputStream>{
+
+	private Block[] blocks;
+	
+	private Memory memory;
+	
+	private Map<CacheInputStreamReference, Boolean> references;
+	
+	public CacheInputStreamReference(CacheInputStream stream, 
+			ReferenceQueue<CacheInputStream> queue, Block[] blocks, Memory memory, 
+			Map<CacheInputStreamReference, Boolean> references) {
+		super(stream, queue);
+		this.blocks     = blocks;
+		this.memory     = memory;
+		this.references = references;
+		references.put(this, Boolean.TRUE);
+	}
+	
+	/**
+	 * Remove as referências dos blocos. Executado uma única vez.
+	 */
+	public void release(){
+		Block[] blocks;
+		
+		synchronized(this){
+			blocks      = this.blocks;
+			this.blocks = null;
+		}
+		
+		if(blocks == null)
+			return;
+		
+		references.remove(this);
+		
+		for(Block block: blocks){
+			if(block != null){
+				block.release(memory);
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,65 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte;
+
+import java.util.Arrays;
+
+import calypte.collections.KeyUtil;
+
+/**
+ * Chave dos itens mantidos na heap. Uma <code>String</code> e os seus 
+ * bytes em UTF-8 são a mesma chave.
+ * 
+ * @author Ribeiro
+ *
+ */
+class CacheKey {
+	
+	final Object value;
+	
+	final long hash;
+	
+	public CacheKey(Object value){
+		this.value = value;
+		this.hash  = KeyUtil.hash(value);
+	}
+
+	public int hashCode(){
+		return (int)hash;
+	}
+	
+	public boolean equals(Object o){
+		if(o == this)
+			return true;
+		
+		CacheKey k = (CacheKey)o;
+		
+		if(k.hash != hash)
+			return false;
+		
+		if(value instanceof String && k.value instanceof String)
+			return value.equals(k.value);
+		
+		return Arrays.equals(toBytes(value), toBytes(k.value));
+	}
+	
+	private static byte[] toBytes(Object value){
+		return KeyUtil.toBytes(value, null, KeyUtil.length(value));
+	}
+	
+}
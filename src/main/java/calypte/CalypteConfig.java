@@ -50,14 +50,48 @@ public class CalypteConfig implements Serializable{
     
 	protected long dataBlockSize;
     
+	protected int dataBlockPools;
+    
 	protected long dataPageSize;
     
 	protected long maxSizeEntry;
     
     protected int maxSizeKey;
     
+    protected long maxBytes;
+    
+    protected long maxEntries;
+    
+    protected String indexType;
+    
+    protected int indexShards;
+    
+    protected long frontCacheSize;
+    
+    protected int frontCacheValueSize;
+    
+    protected double keyFilterFalsePositive;
+    
+    protected long keyFilterCapacity;
+    
+    protected int findParallelism;
+    
+    protected int swapWriterThreads;
+    
+    protected String swapFlushPolicy;
+    
+    protected long swapFlushInterval;
+    
+    protected long swapFlushBytes;
+    
+    protected long swapMaxBacklog;
+    
+    protected boolean swapMapped;
+    
     protected Memory memory;
     
+    protected int heapSegmentSize;
+    
     protected String dataPath;
     
     protected EntityFileManager entityFileManager;
@@ -174,6 +208,25 @@ public class CalypteConfig implements Serializable{
 		this.dataBlockSize = dataBlockSize;
 	}
 
+	/**
+	 * Obtém a quantidade de conjuntos de blocos de dados.
+	 * @return quantidade.
+	 */
+	public int getDataBlockPools() {
+		return dataBlockPools;
+	}
+
+	/**
+	 * Define a quantidade de conjuntos de blocos de dados. O primeiro 
+	 * conjunto usa o bloco definido em {@link #setDataBlockSize(long)} e o 
+	 * bloco de cada conjunto seguinte é 16 vezes maior. O conjunto de um 
+	 * item é escolhido pelo seu tamanho.
+	 * @param dataBlockPools quantidade.
+	 */
+	public void setDataBlockPools(int dataBlockPools) {
+		this.dataBlockPools = dataBlockPools;
+	}
+
 	/**
 	 * Obtém o tamanho da página do buffer de itens.
 	 * @return tamanho em bytes.
@@ -222,6 +275,266 @@ public class CalypteConfig implements Serializable{
 		this.maxSizeKey = maxSizeKey;
 	}
 
+	/**
+	 * Obtém a quantidade máxima de bytes dos dados dos itens.
+	 * @return tamanho em bytes.
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Define a quantidade máxima de bytes dos dados dos itens. Quando o 
+	 * limite é atingido, os itens menos acessados são removidos. Se for 0, 
+	 * não há limite.
+	 * @param maxBytes tamanho em bytes.
+	 */
+	public void setMaxBytes(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Obtém a quantidade máxima de itens.
+	 * @return quantidade.
+	 */
+	public long getMaxEntries() {
+		return maxEntries;
+	}
+
+	/**
+	 * Define a quantidade máxima de itens. Quando o limite é atingido, os 
+	 * itens menos acessados são removidos. Se for 0, não há limite.
+	 * @param maxEntries quantidade.
+	 */
+	public void setMaxEntries(long maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Obtém o tipo do índice dos itens.
+	 * @return <code>trie</code> ou <code>hash</code>.
+	 */
+	public String getIndexType() {
+		return indexType;
+	}
+
+	/**
+	 * Define o tipo do índice dos itens.
+	 * @param indexType <code>trie</code> ou <code>hash</code>.
+	 */
+	public void setIndexType(String indexType) {
+		this.indexType = indexType;
+	}
+
+	/**
+	 * Obtém a quantidade de partições do índice dos itens.
+	 * @return quantidade.
+	 */
+	public int getIndexShards() {
+		return indexShards;
+	}
+
+	/**
+	 * Define a quantidade de partições do índice dos itens. Cada partição tem 
+	 * a sua própria raiz, os seus próprios bloqueios e uma parte dos buffers 
+	 * do índice (no mínimo 1,5mb).
+	 * @param indexShards quantidade.
+	 */
+	public void setIndexShards(int indexShards) {
+		this.indexShards = indexShards;
+	}
+
+	/**
+	 * Obtém o tamanho do cache dos itens mais acessados.
+	 * @return tamanho em bytes.
+	 */
+	public long getFrontCacheSize() {
+		return frontCacheSize;
+	}
+
+	/**
+	 * Define o tamanho do cache dos itens mais acessados. O cache fica na 
+	 * heap e evita a busca no índice. Se for 0, o cache não é usado.
+	 * @param frontCacheSize tamanho em bytes.
+	 */
+	public void setFrontCacheSize(long frontCacheSize) {
+		this.frontCacheSize = frontCacheSize;
+	}
+
+	/**
+	 * Obtém o tamanho máximo de um item materializado no cache dos itens mais acessados.
+	 * @return tamanho em bytes.
+	 */
+	public int getFrontCacheValueSize() {
+		return frontCacheValueSize;
+	}
+
+	/**
+	 * Define o tamanho máximo de um item materializado no cache dos itens 
+	 * mais acessados. Os itens maiores são mantidos como referências aos blocos.
+	 * @param frontCacheValueSize tamanho em bytes.
+	 */
+	public void setFrontCacheValueSize(int frontCacheValueSize) {
+		this.frontCacheValueSize = frontCacheValueSize;
+	}
+
+	/**
+	 * Obtém a probabilidade de falsos positivos do filtro de chaves.
+	 * @return probabilidade.
+	 */
+	public double getKeyFilterFalsePositive() {
+		return keyFilterFalsePositive;
+	}
+
+	/**
+	 * Define a probabilidade de falsos positivos do filtro de chaves. O filtro 
+	 * rejeita as chaves inexistentes sem acessar o índice. Se for 0, o filtro 
+	 * não é usado.
+	 * @param keyFilterFalsePositive probabilidade (0 a 1).
+	 */
+	public void setKeyFilterFalsePositive(double keyFilterFalsePositive) {
+		this.keyFilterFalsePositive = keyFilterFalsePositive;
+	}
+
+	/**
+	 * Obtém a quantidade esperada de chaves no filtro de chaves.
+	 * @return quantidade.
+	 */
+	public long getKeyFilterCapacity() {
+		return keyFilterCapacity;
+	}
+
+	/**
+	 * Define a quantidade esperada de chaves no filtro de chaves. Acima dessa 
+	 * quantidade a taxa de falsos positivos aumenta.
+	 * @param keyFilterCapacity quantidade.
+	 */
+	public void setKeyFilterCapacity(long keyFilterCapacity) {
+		this.keyFilterCapacity = keyFilterCapacity;
+	}
+
+	/**
+	 * Obtém a quantidade de threads usadas nas buscas em paralelo.
+	 * @return quantidade.
+	 */
+	public int getFindParallelism() {
+		return findParallelism;
+	}
+
+	/**
+	 * Define a quantidade de threads usadas nas buscas em paralelo. Se for 0, 
+	 * é usada a quantidade de processadores. Se for 1, as buscas são feitas 
+	 * somente pela thread que as solicitou.
+	 * @param findParallelism quantidade.
+	 */
+	public void setFindParallelism(int findParallelism) {
+		this.findParallelism = findParallelism;
+	}
+
+	/**
+	 * Obtém a quantidade de threads que gravam os itens enviados para o disco.
+	 * @return quantidade.
+	 */
+	public int getSwapWriterThreads() {
+		return swapWriterThreads;
+	}
+
+	/**
+	 * Define a quantidade de threads que gravam em segundo plano os itens 
+	 * enviados para o disco. Se for 0, os itens são gravados pela thread 
+	 * que os enviou.
+	 * @param swapWriterThreads quantidade.
+	 */
+	public void setSwapWriterThreads(int swapWriterThreads) {
+		this.swapWriterThreads = swapWriterThreads;
+	}
+
+	/**
+	 * Obtém o momento da gravação dos itens pendentes.
+	 * @return never, interval ou bytes.
+	 */
+	public String getSwapFlushPolicy() {
+		return swapFlushPolicy;
+	}
+
+	/**
+	 * Define o momento da gravação dos itens pendentes. Com never, os itens 
+	 * são gravados somente quando o limite de itens pendentes é atingido.
+	 * @param swapFlushPolicy never, interval ou bytes.
+	 */
+	public void setSwapFlushPolicy(String swapFlushPolicy) {
+		this.swapFlushPolicy = swapFlushPolicy;
+	}
+
+	/**
+	 * Obtém o intervalo entre as gravações dos itens pendentes.
+	 * @return intervalo em milisegundos.
+	 */
+	public long getSwapFlushInterval() {
+		return swapFlushInterval;
+	}
+
+	/**
+	 * Define o intervalo entre as gravações dos itens pendentes. 
+	 * Usado com a política interval.
+	 * @param swapFlushInterval intervalo em milisegundos.
+	 */
+	public void setSwapFlushInterval(long swapFlushInterval) {
+		this.swapFlushInterval = swapFlushInterval;
+	}
+
+	/**
+	 * Obtém a quantidade de bytes pendentes que inicia uma gravação.
+	 * @return quantidade em bytes.
+	 */
+	public long getSwapFlushBytes() {
+		return swapFlushBytes;
+	}
+
+	/**
+	 * Define a quantidade de bytes pendentes que inicia uma gravação. 
+	 * Usado com a política bytes.
+	 * @param swapFlushBytes quantidade em bytes.
+	 */
+	public void setSwapFlushBytes(long swapFlushBytes) {
+		this.swapFlushBytes = swapFlushBytes;
+	}
+
+	/**
+	 * Obtém a quantidade máxima de bytes pendentes de uma lista.
+	 * @return quantidade em bytes.
+	 */
+	public long getSwapMaxBacklog() {
+		return swapMaxBacklog;
+	}
+
+	/**
+	 * Define a quantidade máxima de bytes pendentes de uma lista. Acima 
+	 * desse valor, o envio aguarda a gravação.
+	 * @param swapMaxBacklog quantidade em bytes.
+	 */
+	public void setSwapMaxBacklog(long swapMaxBacklog) {
+		this.swapMaxBacklog = swapMaxBacklog;
+	}
+
+	/**
+	 * Verifica se os registros são lidos dos arquivos mapeados na memória.
+	 * @return <code>true</code> se os arquivos são mapeados. Caso contrário, <code>false</code>.
+	 */
+	public boolean isSwapMapped() {
+		return swapMapped;
+	}
+
+	/**
+	 * Define se os registros dos arquivos de dados e de índice são lidos dos 
+	 * arquivos mapeados na memória. A leitura de um registro que está no cache 
+	 * de páginas do sistema não usa chamadas ao sistema.
+	 * @param swapMapped <code>true</code> para mapear os arquivos.
+	 */
+	public void setSwapMapped(boolean swapMapped) {
+		this.swapMapped = swapMapped;
+	}
+
 	/**
 	 * Obtém a estratégia de acesso a memória.
 	 * @return estratégia.
@@ -238,6 +551,23 @@ public class CalypteConfig implements Serializable{
 		this.memory = memory;
 	}
 
+	/**
+	 * Obtém o tamanho de um segmento da memória do heap.
+	 * @return Tamanho em bytes.
+	 */
+	public int getHeapSegmentSize() {
+		return heapSegmentSize;
+	}
+
+	/**
+	 * Define o tamanho de um segmento da memória do heap. Usado somente 
+	 * na criação da memória.
+	 * @param heapSegmentSize Tamanho em bytes. Deve ser uma potência de 2.
+	 */
+	public void setHeapSegmentSize(int heapSegmentSize) {
+		this.heapSegmentSize = heapSegmentSize;
+	}
+
 	/**
 	 * Obtém o sistema de arquivos.
 	 * @return Sistema de arquivos.
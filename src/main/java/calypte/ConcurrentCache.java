@@ -18,6 +18,7 @@
 package calypte;
 
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.concurrent.locks.Lock;
 
 import calypte.lock.CacheLockImp;
@@ -43,7 +44,7 @@ public class ConcurrentCache extends BasicCache {
 	
 	private static final long serialVersionUID = -8558471389768293591L;
 
-	protected transient CacheLock<String> locks;
+	protected transient CacheLock<Object> locks;
 	
     /**
      * Cria um novo cache a partir de uma configuração específica.
@@ -51,7 +52,7 @@ public class ConcurrentCache extends BasicCache {
      */
     public ConcurrentCache(CalypteConfig config){
     	super(config);
-    	this.locks = new CacheLockImp<String>();
+    	this.locks = new CacheLockImp<Object>();
     }
     
     /**
@@ -61,7 +62,7 @@ public class ConcurrentCache extends BasicCache {
      */
     public ConcurrentCache(CacheHandler cacheHandler){
     	super(cacheHandler);
-    	this.locks = new CacheLockImp<String>();
+    	this.locks = new CacheLockImp<Object>();
     }
     
 	/* métodos de armazenamento */
@@ -90,6 +91,17 @@ public class ConcurrentCache extends BasicCache {
 		}
     }
 	
+    public boolean replaceStream(byte[] key, InputStream inputData, long timeToLive, long timeToIdle) throws StorageException{
+		Lock lock = this.locks.getLock(ByteBuffer.wrap(key)).writeLock();
+		lock.lock();
+		try{
+			return super.replaceStream(key, inputData, timeToLive, timeToIdle);
+		}
+		finally{
+			lock.unlock();
+		}
+    }
+	
 	public boolean replace(String key, Object oldValue, 
 			Object newValue, long timeToLive, long timeToIdle) throws StorageException {
 		
@@ -146,6 +158,24 @@ public class ConcurrentCache extends BasicCache {
 		}
     }
 	
+    public InputStream putIfAbsentStream(byte[] key, InputStream inputData, long timeToLive, long timeToIdle) throws StorageException{
+    	
+		Lock lock = this.locks.getLock(ByteBuffer.wrap(key)).writeLock();
+		lock.lock();
+		try{
+			return super.putIfAbsentStream(key, inputData, timeToLive, timeToIdle);
+		}
+		catch(StorageException e){
+			throw e;
+		}
+		catch(RecoverException e){
+			throw new StorageException(e, e.getError(), e.getParams());
+		}
+		finally{
+			lock.unlock();
+		}
+    }
+	
 	public boolean put(String key, Object value, long timeToLive, long timeToIdle) throws StorageException {
 		
 		Lock lock = this.locks.getLock(key).writeLock();
@@ -170,6 +200,18 @@ public class ConcurrentCache extends BasicCache {
 		}
     }
 	
+    public boolean putStream(byte[] key, InputStream inputData, 
+    		long timeToLive, long timeToIdle) throws StorageException{
+		Lock lock = this.locks.getLock(ByteBuffer.wrap(key)).writeLock();
+		lock.lock();
+		try{
+			return super.putStream(key, inputData, timeToLive, timeToIdle);
+		}
+		finally{
+			lock.unlock();
+		}
+    }
+    
     /* métodos de coleta */
 	
 	public Object get(String key) throws RecoverException {
@@ -193,6 +235,17 @@ public class ConcurrentCache extends BasicCache {
 			lock.unlock();
 		}
     }
+    
+    public InputStream getStream(byte[] key) throws RecoverException {
+		Lock lock = this.locks.getLock(ByteBuffer.wrap(key)).readLock();
+		lock.lock();
+		try {
+			return super.getStream(key);
+		}
+		finally {
+			lock.unlock();
+		}
+    }
 	
     /* métodos de remoção */
 
@@ -233,4 +286,15 @@ public class ConcurrentCache extends BasicCache {
 		}
     }
 	
+    public boolean remove(byte[] key) throws StorageException{
+		Lock lock = this.locks.getLock(ByteBuffer.wrap(key)).writeLock();
+		lock.lock();
+		try{
+			return super.remove(key);
+		}
+		finally{
+			lock.unlock();
+		}
+    }
+	
 }
@@ -44,6 +44,8 @@ public class DataMap implements Serializable{
     private long length;
     
     private long mostRecentTime;
+    
+    private int pool;
 
     public DataMap(){
     	this(-1, 0, -1, 0, (short)0, -1, 0, 0, 0);
@@ -159,6 +161,37 @@ public class DataMap implements Serializable{
 		this.segments = segments;
 	}
 
+	/**
+	 * Verifica se os dados do item estão em uma página compartilhada.
+	 * Nesse caso, <code>firstSegment</code> é o índice da página e 
+	 * <code>segments</code> guarda a posição do item no diretório da 
+	 * página, com valor negativo.
+	 * @return <code>true</code> se o item está em uma página. Caso contrário, <code>false</code>.
+	 */
+	public boolean isPacked() {
+		return segments < 0;
+	}
+	
+	public int getSlot() {
+		return -segments - 1;
+	}
+
+	public void setSlot(int slot) {
+		this.segments = -slot - 1;
+	}
+
+	/**
+	 * Obtém o conjunto de blocos onde estão os dados do item.
+	 * @return Índice do conjunto.
+	 */
+	public int getPool() {
+		return pool;
+	}
+
+	public void setPool(int pool) {
+		this.pool = pool;
+	}
+
 	public long getLength() {
 		return length;
 	}
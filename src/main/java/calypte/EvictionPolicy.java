@@ -0,0 +1,453 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import calypte.collections.FrequencySketch;
+
+/**
+ * Política de remoção dos itens quando o cache atinge o limite de bytes 
+ * ou de itens (W-TinyLFU). Os itens novos entram em uma janela LRU 
+ * pequena. O item que sai da janela somente é aceito na área principal 
+ * (LRU segmentado) se a sua frequência estimada de acesso for maior que a 
+ * do item que seria removido. Desse modo, uma varredura não remove os 
+ * itens mais acessados e um item recém incluído ainda pode ganhar 
+ * frequência na janela.
+ * <p>As alterações são feitas com o bloqueio da política. Um acesso é 
+ * descartado se o bloqueio estiver em uso. A ordem dos itens é 
+ * aproximada, mas a leitura nunca espera pela política.</p>
+ * <p>Cada item é registrado com a identificação do seu {@link DataMap}. 
+ * Um registro mais antigo que o atual é ignorado.</p>
+ * 
+ * @author Ribeiro
+ *
+ */
+public class EvictionPolicy {
+
+	/**
+	 * Percentual da capacidade destinado à janela.
+	 */
+	private static final int WINDOW_FACTOR    = 1;
+	
+	/**
+	 * Percentual da área principal destinado à área protegida.
+	 */
+	private static final int PROTECTED_FACTOR = 80;
+	
+	private static final int WINDOW           = 0;
+	
+	private static final int PROBATION        = 1;
+	
+	private static final int PROTECTED        = 2;
+	
+	private HashMap<CacheKey, Entry> entries;
+	
+	private Area[] areas;
+	
+	private FrequencySketch sketch;
+	
+	private long maxBytes;
+	
+	private long maxEntries;
+	
+	private long bytes;
+	
+	private ReentrantLock lock;
+	
+	/**
+	 * Cria uma nova política.
+	 * @param maxBytes Quantidade máxima de bytes dos itens. Se for 0, não há limite.
+	 * @param maxEntries Quantidade máxima de itens. Se for 0, não há limite.
+	 * @param capacity Quantidade esperada de itens.
+	 */
+	public EvictionPolicy(long maxBytes, long maxEntries, long capacity){
+		this.maxBytes   = maxBytes;
+		this.maxEntries = maxEntries;
+		this.entries    = new HashMap<CacheKey, Entry>();
+		this.areas      = new Area[]{new Area(), new Area(), new Area()};
+		this.sketch     = new FrequencySketch(capacity);
+		this.lock       = new ReentrantLock();
+	}
+	
+	/**
+	 * Registra a leitura de um item.
+	 * @param key Chave.
+	 */
+	public void recordAccess(Object key){
+		CacheKey k = new CacheKey(key);
+		
+		if(!lock.tryLock())
+			return;
+		
+		try{
+			sketch.increment(k.hash);
+			Entry e = entries.get(k);
+			
+			if(e != null)
+				access(e);
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Registra a inclusão ou a substituição de um item.
+	 * @param key Chave.
+	 * @param id Identificação do item.
+	 * @param weight Tamanho do item em bytes.
+	 */
+	public void put(Object key, long id, long weight){
+		put(key, id, weight, false);
+	}
+	
+	/**
+	 * Registra um item mesmo que o registro atual seja mais recente. Usado 
+	 * quando um item anterior é restaurado.
+	 * @param key Chave.
+	 * @param id Identificação do item.
+	 * @param weight Tamanho do item em bytes.
+	 */
+	public void replace(Object key, long id, long weight){
+		put(key, id, weight, true);
+	}
+	
+	/**
+	 * Remove o registro de um item. O registro não é removido se for mais 
+	 * recente que o item.
+	 * @param key Chave.
+	 * @param id Identificação do item.
+	 */
+	public void remove(Object key, long id){
+		CacheKey k = new CacheKey(key);
+		lock.lock();
+		try{
+			Entry e = entries.get(k);
+			
+			if(e != null && e.id <= id)
+				remove(e);
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Seleciona os itens que devem ser removidos para que os limites sejam 
+	 * respeitados. Os registros dos itens selecionados são removidos.
+	 * @return Itens selecionados.
+	 */
+	public List<Entry> evict(){
+		List<Entry> victims = new ArrayList<Entry>();
+		
+		lock.lock();
+		try{
+			Area window = areas[WINDOW];
+			
+			//o item mais recente sempre permanece na janela.
+			while(window.count > 1 && isOverflow(window, WINDOW_FACTOR)){
+				admit(window.first(), victims);
+			}
+			
+			while(isOverflow()){
+				Entry victim = first(PROBATION, PROTECTED, WINDOW);
+				remove(victim);
+				victims.add(victim);
+			}
+		}
+		finally{
+			lock.unlock();
+		}
+		
+		return victims;
+	}
+	
+	/**
+	 * Remove todos os registros.
+	 */
+	public void clear(){
+		lock.lock();
+		try{
+			entries.clear();
+			sketch.clear();
+			bytes = 0;
+			
+			for(int i=0;i<areas.length;i++){
+				areas[i] = new Area();
+			}
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Obtém a quantidade de itens registrados.
+	 * @return Quantidade.
+	 */
+	public long size(){
+		lock.lock();
+		try{
+			return entries.size();
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Obtém a quantidade de bytes dos itens registrados.
+	 * @return Quantidade.
+	 */
+	public long getBytes(){
+		lock.lock();
+		try{
+			return bytes;
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+	
+	private void put(Object key, long id, long weight, boolean force){
+		CacheKey k = new CacheKey(key);
+		lock.lock();
+		try{
+			sketch.increment(k.hash);
+			Entry e = entries.get(k);
+			
+			if(e != null){
+				if(!force && e.id > id)
+					return;
+				
+				areas[e.area].bytes += weight - e.weight;
+				bytes               += weight - e.weight;
+				e.id                 = id;
+				e.weight             = weight;
+				access(e);
+				return;
+			}
+			
+			k     = key instanceof byte[]? new CacheKey(((byte[])key).clone()) : k;
+			e     = new Entry(k, id, weight);
+			bytes += weight;
+			entries.put(k, e);
+			
+			//um item maior que o limite é o primeiro a ser removido.
+			if(maxBytes > 0 && weight > maxBytes)
+				areas[PROBATION].addFirst(e, PROBATION);
+			else
+				areas[WINDOW].addLast(e, WINDOW);
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+	
+	private void access(Entry e){
+		Area area = areas[e.area];
+		
+		if(e.area != PROBATION){
+			area.unlink(e);
+			area.addLast(e, e.area);
+			return;
+		}
+		
+		//segundo acesso na área principal. O item é promovido para a área protegida.
+		Area protectedArea = areas[PROTECTED];
+		area.unlink(e);
+		protectedArea.addLast(e, PROTECTED);
+		
+		//os itens menos acessados da área protegida voltam para a área de experiência.
+		while(protectedArea.first() != e && isProtectedOverflow()){
+			Entry d = protectedArea.first();
+			protectedArea.unlink(d);
+			area.addLast(d, PROBATION);
+		}
+	}
+	
+	/*
+	 * O item que sai da janela disputa a permanência com o item menos 
+	 * recente da área de experiência.
+	 */
+	private void admit(Entry candidate, List<Entry> victims){
+		areas[WINDOW].unlink(candidate);
+		areas[PROBATION].addLast(candidate, PROBATION);
+		
+		if(!isOverflow())
+			return;
+		
+		Entry victim = areas[PROBATION].first();
+		victim       = victim == candidate? areas[PROTECTED].first() : victim;
+		
+		if(victim == null)
+			return;
+		
+		victim = sketch.frequency(candidate.key.hash) > sketch.frequency(victim.key.hash)? 
+				victim : 
+				candidate;
+		
+		remove(victim);
+		victims.add(victim);
+	}
+	
+	private void remove(Entry e){
+		areas[e.area].unlink(e);
+		entries.remove(e.key);
+		bytes -= e.weight;
+	}
+	
+	private Entry first(int ... order){
+		for(int area: order){
+			Entry e = areas[area].first();
+			
+			if(e != null)
+				return e;
+		}
+		return null;
+	}
+	
+	private boolean isOverflow(){
+		return (maxBytes > 0 && bytes > maxBytes) || (maxEntries > 0 && entries.size() > maxEntries);
+	}
+	
+	private boolean isOverflow(Area area, int factor){
+		return 
+			(maxBytes > 0 && area.bytes > maxBytes*factor/100) || 
+			(maxEntries > 0 && area.count > maxEntries*factor/100);
+	}
+	
+	private boolean isProtectedOverflow(){
+		Area area = areas[PROTECTED];
+		return 
+			(maxBytes > 0 && area.bytes > (maxBytes - maxBytes*WINDOW_FACTOR/100)*PROTECTED_FACTOR/100) || 
+			(maxEntries > 0 && area.count > (maxEntries - maxEntries*WINDOW_FACTOR/100)*PROTECTED_FACTOR/100);
+	}
+	
+	/**
+	 * Registro de um item.
+	 */
+	public static class Entry {
+		
+		private CacheKey key;
+		
+		private long id;
+		
+		private long weight;
+		
+		private int area;
+		
+		private Entry previous;
+		
+		private Entry next;
+		
+		private Entry(CacheKey key, long id, long weight){
+			this.key    = key;
+			this.id     = id;
+			this.weight = weight;
+		}
+		
+		/**
+		 * Obtém a chave do item.
+		 * @return Chave.
+		 */
+		public Object getKey(){
+			return key.value;
+		}
+		
+		/**
+		 * Obtém a identificação do item no momento do registro.
+		 * @return Identificação.
+		 */
+		public long getId(){
+			return id;
+		}
+		
+	}
+	
+	/**
+	 * Lista dos itens de uma área, do menos recente para o mais recente.
+	 */
+	private static class Area {
+		
+		private Entry head;
+		
+		private Entry tail;
+		
+		private long count;
+		
+		private long bytes;
+		
+		public Entry first(){
+			return head;
+		}
+		
+		public void addLast(Entry e, int area){
+			e.area     = area;
+			e.previous = tail;
+			e.next     = null;
+			
+			if(tail == null)
+				head = e;
+			else
+				tail.next = e;
+			
+			tail   = e;
+			count++;
+			bytes += e.weight;
+		}
+		
+		public void addFirst(Entry e, int area){
+			e.area     = area;
+			e.previous = null;
+			e.next     = head;
+			
+			if(head == null)
+				tail = e;
+			else
+				head.previous = e;
+			
+			head   = e;
+			count++;
+			bytes += e.weight;
+		}
+		
+		public void unlink(Entry e){
+			if(e.previous == null)
+				head = e.next;
+			else
+				e.previous.next = e.next;
+			
+			if(e.next == null)
+				tail = e.previous;
+			else
+				e.next.previous = e.previous;
+			
+			e.previous = null;
+			e.next     = null;
+			count--;
+			bytes -= e.weight;
+		}
+		
+	}
+	
+}
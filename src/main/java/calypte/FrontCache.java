@@ -0,0 +1,408 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package calypte;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import calypte.collections.KeyUtil;
+import calypte.memory.ByteArrayRegionMemory;
+
+/**
+ * Cache em memória, na heap, dos itens mais acessados. Evita a busca no 
+ * índice e a montagem da lista de blocos a cada leitura. Os itens pequenos 
+ * são mantidos já materializados em um <code>byte[]</code>. Dos itens 
+ * grandes somente os metadados são mantidos, pois as regiões dos seus 
+ * blocos são liberadas quando os blocos são enviados para o disco.
+ * <p>O cache é dividido em segmentos independentes. Cada segmento usa o 
+ * algoritmo LRU segmentado (SLRU): um item novo entra na área de 
+ * experiência e somente é promovido para a área protegida no segundo acesso. 
+ * Desse modo, uma varredura não remove os itens mais acessados.</p>
+ * <p>Uma alteração do item no índice tem que ser seguida de 
+ * {@link #remove(Object)}. Um item obtido do índice somente é incluído se 
+ * nenhuma alteração no segmento ocorreu depois de {@link #getStamp(Object)}. 
+ * Um item removido é marcado e deixa de ser válido para as leituras que já 
+ * o obtiveram.</p>
+ * 
+ * @author Ribeiro
+ *
+ */
+public class FrontCache {
+
+	private static final int SEGMENTS           = 16;
+	
+	/**
+	 * Percentual do segmento destinado à área protegida.
+	 */
+	private static final int PROTECTED_FACTOR   = 80;
+	
+	/**
+	 * Tamanho estimado de um item, sem a chave e os dados.
+	 */
+	private static final int ENTRY_SIZE         = 128;
+	
+	private Segment[] segments;
+	
+	private int maxSizeValue;
+	
+	private AtomicLong countHit;
+	
+	private AtomicLong countMiss;
+	
+	/**
+	 * Cria um novo cache.
+	 * @param maxSize Tamanho máximo, em bytes.
+	 * @param maxSizeValue Tamanho máximo, em bytes, de um item materializado.
+	 */
+	public FrontCache(long maxSize, int maxSizeValue){
+		this.segments     = new Segment[SEGMENTS];
+		this.maxSizeValue = maxSizeValue;
+		this.countHit     = new AtomicLong();
+		this.countMiss    = new AtomicLong();
+		
+		for(int i=0;i<SEGMENTS;i++){
+			this.segments[i] = new Segment(maxSize / SEGMENTS);
+		}
+	}
+	
+	/**
+	 * Obtém um item.
+	 * @param key Chave.
+	 * @return Item ou <code>null</code>.
+	 */
+	public Entry get(Object key){
+		CacheKey k = new CacheKey(key);
+		Entry e    = getSegment(k).get(k);
+		
+		if(e == null)
+			countMiss.incrementAndGet();
+		else
+			countHit.incrementAndGet();
+		
+		return e;
+	}
+	
+	/**
+	 * Obtém a versão atual do segmento associado a uma chave. Deve ser 
+	 * obtida antes da busca no índice.
+	 * @param key Chave.
+	 * @return Versão.
+	 */
+	public long getStamp(Object key){
+		return getSegment(new CacheKey(key)).stamp;
+	}
+	
+	/**
+	 * Inclui um item obtido do índice. O item não é incluído se o segmento 
+	 * foi alterado depois da obtenção da versão.
+	 * @param key Chave.
+	 * @param stamp Versão do segmento.
+	 * @param map Metadados do item.
+	 * @param blocks Blocos do item.
+	 * @return Item incluído ou <code>null</code>.
+	 */
+	public Entry put(Object key, long stamp, DataMap map, Block[] blocks){
+		CacheKey k = new CacheKey(key instanceof byte[]? ((byte[])key).clone() : key);
+		
+		int weight = ENTRY_SIZE + KeyUtil.length(key) + (int)map.getLength();
+		
+		if(map.getLength() <= maxSizeValue){
+			//os dados deixam de depender dos blocos do item.
+			byte[] data = toBytes(blocks, (int)map.getLength());
+			blocks      = new Block[]{new Block(map.getId(), 0, new ByteArrayRegionMemory(data), data.length)};
+		}
+		else
+			blocks = null;
+		
+		Entry e = new Entry(k, map, blocks, weight);
+		return getSegment(k).put(k, e, stamp)? e : null;
+	}
+	
+	/**
+	 * Remove um item.
+	 * @param key Chave.
+	 */
+	public void remove(Object key){
+		CacheKey k = new CacheKey(key);
+		getSegment(k).remove(k, null);
+	}
+	
+	/**
+	 * Remove um item se ele for o item informado.
+	 * @param key Chave.
+	 * @param entry Item.
+	 */
+	public void remove(Object key, Entry entry){
+		CacheKey k = new CacheKey(key);
+		getSegment(k).remove(k, entry);
+	}
+	
+	/**
+	 * Remove todos os itens.
+	 */
+	public void clear(){
+		for(Segment s: segments){
+			s.clear();
+		}
+	}
+	
+	/**
+	 * Obtém a quantidade de leituras atendidas pelo cache.
+	 * @return Quantidade.
+	 */
+	public long getCountHit(){
+		return countHit.longValue();
+	}
+	
+	/**
+	 * Obtém a quantidade de leituras não atendidas pelo cache.
+	 * @return Quantidade.
+	 */
+	public long getCountMiss(){
+		return countMiss.longValue();
+	}
+	
+	/**
+	 * Obtém o espaço, em bytes, ocupado pelos itens.
+	 * @return Tamanho.
+	 */
+	public long size(){
+		long r = 0;
+		for(Segment s: segments){
+			synchronized(s){
+				r += s.size;
+			}
+		}
+		return r;
+	}
+	
+	private Segment getSegment(CacheKey key){
+		return segments[(int)(key.hash >>> 60)];
+	}
+	
+	private static byte[] toBytes(Block[] blocks, int length){
+		byte[] r = new byte[length];
+		int off  = 0;
+		
+		for(Block b: blocks){
+			b.buffer.read(0, r, off, b.length);
+			off += b.length;
+		}
+		
+		return r;
+	}
+	
+	/**
+	 * Item do cache.
+	 */
+	public static class Entry {
+		
+		private CacheKey key;
+		
+		private DataMap map;
+		
+		private Block[] blocks;
+		
+		private int weight;
+		
+		private boolean protectedArea;
+		
+		private volatile boolean removed;
+		
+		private volatile long indexTime;
+		
+		private Entry(CacheKey key, DataMap map, Block[] blocks, int weight){
+			this.key       = key;
+			this.map       = map;
+			this.blocks    = blocks;
+			this.weight    = weight;
+			this.indexTime = map.getMostRecentTime();
+		}
+		
+		/**
+		 * Verifica se o item foi removido por uma alteração no índice.
+		 * @return <code>true</code> se o item foi removido. Caso contrário, <code>false</code>.
+		 */
+		public boolean isRemoved() {
+			return removed;
+		}
+		
+		/**
+		 * Registra um acesso ao item. O horário do último acesso é atualizado 
+		 * nos metadados, mas somente precisa ser gravado no índice quando o 
+		 * intervalo desde a última gravação for atingido.
+		 * @param time Horário do acesso.
+		 * @param interval Intervalo mínimo entre as gravações no índice.
+		 * @return <code>true</code> se o horário deve ser gravado no índice.
+		 */
+		public boolean touch(long time, long interval) {
+			map.setMostRecentTime(time);
+			
+			if(time - indexTime < interval)
+				return false;
+			
+			indexTime = time;
+			return true;
+		}
+
+		/**
+		 * Obtém os metadados do item.
+		 * @return Metadados.
+		 */
+		public DataMap getMap() {
+			return map;
+		}
+
+		/**
+		 * Obtém os blocos do item. Um item materializado tem somente um 
+		 * bloco que não pertence à lista de blocos do cache.
+		 * @return Blocos ou <code>null</code>, se o item não foi materializado.
+		 */
+		public Block[] getBlocks() {
+			return blocks;
+		}
+		
+	}
+	
+	private static class Segment {
+		
+		private LinkedHashMap<CacheKey, Entry> probation;
+		
+		private LinkedHashMap<CacheKey, Entry> protectedArea;
+		
+		private long maxSize;
+		
+		private long maxProtectedSize;
+		
+		private long size;
+		
+		private long protectedSize;
+		
+		private volatile long stamp;
+		
+		public Segment(long maxSize){
+			this.maxSize          = maxSize;
+			this.maxProtectedSize = maxSize*PROTECTED_FACTOR/100;
+			this.probation        = new LinkedHashMap<CacheKey, Entry>(16, 0.75f, true);
+			this.protectedArea    = new LinkedHashMap<CacheKey, Entry>(16, 0.75f, true);
+		}
+		
+		public synchronized Entry get(CacheKey key){
+			Entry e = protectedArea.get(key);
+			
+			if(e != null)
+				return e;
+			
+			e = probation.remove(key);
+			
+			if(e == null)
+				return null;
+			
+			//segundo acesso. O item é promovido para a área protegida.
+			e.protectedArea  = true;
+			protectedArea.put(e.key, e);
+			protectedSize   += e.weight;
+			
+			//os itens menos acessados da área protegida voltam para a área de experiência.
+			Iterator<Entry> i = protectedArea.values().iterator();
+			while(protectedSize > maxProtectedSize && i.hasNext()){
+				Entry d = i.next();
+				
+				if(d == e)
+					break;
+				
+				i.remove();
+				d.protectedArea  = false;
+				protectedSize   -= d.weight;
+				probation.put(d.key, d);
+			}
+			
+			return e;
+		}
+		
+		public synchronized boolean put(CacheKey key, Entry e, long stamp){
+			if(this.stamp != stamp || e.weight > maxSize)
+				return false;
+			
+			remove(key);
+			probation.put(key, e);
+			size += e.weight;
+			
+			//os itens menos acessados da área de experiência são removidos primeiro.
+			evict(probation);
+			evict(protectedArea);
+			return true;
+		}
+		
+		public synchronized void remove(CacheKey key, Entry e){
+			stamp++;
+			
+			if(e == null || (e.protectedArea? protectedArea : probation).get(key) == e)
+				remove(key);
+		}
+		
+		public synchronized void clear(){
+			stamp++;
+			
+			for(Entry e: probation.values()){
+				e.removed = true;
+			}
+			
+			for(Entry e: protectedArea.values()){
+				e.removed = true;
+			}
+			
+			probation.clear();
+			protectedArea.clear();
+			size          = 0;
+			protectedSize = 0;
+		}
+		
+		private void remove(CacheKey key){
+			Entry old = probation.remove(key);
+			
+			if(old == null){
+				old = protectedArea.remove(key);
+				
+				if(old != null)
+					protectedSize -= old.weight;
+			}
+			
+			if(old != null){
+				old.removed  = true;
+				size        -= old.weight;
+			}
+		}
+		
+		private void evict(LinkedHashMap<CacheKey, Entry> area){
+			Iterator<Entry> i = area.values().iterator();
+			while(size > maxSize && i.hasNext()){
+				Entry d = i.next();
+				i.remove();
+				size -= d.weight;
+				
+				if(d.protectedArea)
+					protectedSize -= d.weight;
+			}
+		}
+		
+	}
+	
+}
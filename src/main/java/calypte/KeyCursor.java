@@ -0,0 +1,185 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package calypte;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import calypte.collections.BasicMapReferenceCollection;
+import calypte.collections.KeyUtil;
+import calypte.collections.MapReferenceCollection;
+
+/**
+ * Cursor das chaves iniciadas por um prefixo. As chaves são obtidas em 
+ * lotes. Na árvore, as chaves são visitadas em ordem e cada lote continua 
+ * a partir da última chave do lote anterior, sem percorrer novamente as 
+ * partes da árvore já visitadas. Nas coleções sem ordem (hash), todas as 
+ * chaves da partição são obtidas em um único lote.
+ * <p>As chaves incluídas ou removidas durante o uso do cursor podem ou 
+ * não ser retornadas.</p>
+ * 
+ * @author Ribeiro
+ *
+ */
+public class KeyCursor implements Iterator<String>{
+
+	public static final int DEFAULT_BATCH_SIZE = 256;
+	
+	private MapReferenceCollection<Object, DataMap>[] partitions;
+	
+	private CacheHandler handler;
+	
+	private String prefix;
+	
+	private int batchSize;
+	
+	private int partition;
+	
+	private byte[] lastKey;
+	
+	private List<byte[]> batch;
+	
+	private int position;
+	
+	public KeyCursor(MapReferenceCollection<Object, DataMap>[] partitions, 
+			CacheHandler handler, String prefix, int batchSize){
+		this.partitions = partitions;
+		this.handler    = handler;
+		this.prefix     = prefix;
+		this.batchSize  = batchSize;
+		this.partition  = 0;
+		this.batch      = new ArrayList<byte[]>(batchSize);
+		this.position   = 0;
+	}
+	
+	public boolean hasNext() {
+		while(position >= batch.size()){
+			if(!fetch())
+				return false;
+		}
+		return true;
+	}
+
+	public String next() {
+		if(!hasNext())
+			throw new NoSuchElementException();
+		
+		byte[] key = batch.get(position++);
+		return KeyUtil.toString(key, 0, key.length);
+	}
+
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+	
+	private boolean fetch(){
+		
+		if(partition >= partitions.length)
+			return false;
+		
+		MapReferenceCollection<Object, DataMap> p = partitions[partition];
+		boolean ordered                           = p instanceof BasicMapReferenceCollection;
+		Batch find                                = new Batch(ordered? batchSize : Integer.MAX_VALUE);
+		
+		batch.clear();
+		position = 0;
+		p.find(find);
+		
+		if(!ordered || batch.size() < batchSize){
+			partition++;
+			lastKey = null;
+		}
+		else
+			lastKey = batch.get(batch.size() - 1);
+		
+		return true;
+	}
+	
+	private static int compare(byte[] a, int aLen, byte[] b, int bLen){
+		int len = Math.min(aLen, bLen);
+		
+		for(int i=0;i<len;i++){
+			int c = (a[i] & 0xff) - (b[i] & 0xff);
+			if(c != 0)
+				return c;
+		}
+		
+		return aLen - bLen;
+	}
+	
+	private class Batch extends AbstractFindCacheHandler{
+
+		private int limit;
+		
+		public Batch(int limit) {
+			super(prefix, true);
+			this.limit = limit;
+		}
+
+		public boolean acceptNodeKey(Object key) {
+			if(batch.size() >= limit || !super.acceptNodeKey(key))
+				return false;
+			
+			if(lastKey == null)
+				return true;
+			
+			//o nó somente é visitado se puder conter uma chave maior que a última chave.
+			byte[] current = getCurrentKey();
+			int len        = getCurrentKeyLength();
+			
+			if(key instanceof Byte){
+				int c = compare(current, len, lastKey, Math.min(len, lastKey.length));
+				
+				if(c != 0 || len >= lastKey.length)
+					return c >= 0;
+				
+				return (((Byte)key).byteValue() & 0xff) >= (lastKey[len] & 0xff);
+			}
+			
+			byte[] k = (byte[])key;
+			int c    = compare(current, len, lastKey, Math.min(len, lastKey.length));
+			
+			if(c != 0 || len >= lastKey.length)
+				return c >= 0;
+			
+			int off = len;
+			for(int i=0;i<k.length && off < lastKey.length;i++, off++){
+				c = (k[i] & 0xff) - (lastKey[off] & 0xff);
+				if(c != 0)
+					return c > 0;
+			}
+			
+			return true;
+		}
+		
+		protected void found(String request, byte[] key, DataMap value) {
+			if(batch.size() >= limit || value.isDead(handler.getCreationTime()))
+				return;
+			
+			if(lastKey != null && compare(key, key.length, lastKey, lastKey.length) <= 0)
+				return;
+			
+			batch.add(key);
+		}
+		
+	}
+	
+}
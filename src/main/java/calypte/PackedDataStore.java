@@ -0,0 +1,566 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import calypte.collections.FlushableReferenceCollection;
+import calypte.memory.Memory;
+import calypte.memory.RegionMemory;
+
+/**
+ * Armazena os itens pequenos compartilhando blocos da lista de blocos. 
+ * Um bloco compartilhado (página) tem um cabeçalho, os dados dos itens 
+ * e, no fim, um diretório com a posição de cada item. O item é 
+ * localizado pelo índice da página e pela posição no diretório 
+ * ({@link DataMap#getSlot()}).
+ * <p>Uma página nunca é alterada. Cada alteração cria uma cópia que 
+ * substitui a página na lista de blocos. Desse modo, a leitura não 
+ * precisa de bloqueio e uma página pode ser enviada para o disco a 
+ * qualquer momento.</p>
+ * <p>A remoção de um item somente é registrada. O espaço é recuperado 
+ * em {@link #compact()}, executado pela tarefa de limpeza ou quando 
+ * existem muitas remoções pendentes. Uma página sem itens é removida.</p>
+ * 
+ * <pre>
+ * página: count(4) end(4) dados... livre... [id(8) offset(4) length(4)]*count
+ * </pre>
+ * 
+ * @author Ribeiro
+ *
+ */
+public class PackedDataStore {
+
+	/**
+	 * Segmento de um bloco que é uma página.
+	 */
+	public static final int PAGE          = -1;
+	
+	private static final int HEADER_SIZE  = 8;
+	
+	private static final int SLOT_SIZE    = 16;
+	
+	private static final int LOCKS        = 64;
+	
+	private static final int WRITERS      = 8;
+	
+	/**
+	 * Quantidade de remoções pendentes que provoca a compactação.
+	 */
+	private static final int MAX_PENDING  = 4096;
+	
+	private FlushableReferenceCollection<Block> dataList;
+	
+	private Memory memory;
+	
+	private int pageSize;
+	
+	private int maxValueSize;
+	
+	private Lock[] locks;
+	
+	private Writer[] writers;
+	
+	/**
+	 * Páginas que receberam espaço livre na compactação.
+	 */
+	private Set<Long> freePages;
+	
+	private ConcurrentLinkedQueue<Removed> removed;
+	
+	private AtomicInteger pending;
+	
+	private Lock compactLock;
+	
+	private AtomicLong pageId;
+	
+	/**
+	 * Cria um novo armazenamento.
+	 * @param dataList Lista de blocos.
+	 * @param memory Memória usada pelas páginas.
+	 * @param pageSize Tamanho de uma página. É o tamanho do bloco.
+	 */
+	public PackedDataStore(FlushableReferenceCollection<Block> dataList, Memory memory, int pageSize){
+		this.dataList     = dataList;
+		this.memory       = memory;
+		this.pageSize     = pageSize;
+		this.maxValueSize = (pageSize - HEADER_SIZE) / 2 - SLOT_SIZE;
+		this.locks        = new Lock[LOCKS];
+		this.writers      = new Writer[WRITERS];
+		this.freePages    = new LinkedHashSet<Long>();
+		this.removed      = new ConcurrentLinkedQueue<Removed>();
+		this.pending      = new AtomicInteger();
+		this.compactLock  = new ReentrantLock();
+		this.pageId       = new AtomicLong();
+		
+		for(int i=0;i<LOCKS;i++){
+			this.locks[i] = new ReentrantLock();
+		}
+		
+		for(int i=0;i<WRITERS;i++){
+			this.writers[i] = new Writer();
+		}
+	}
+	
+	/**
+	 * Obtém o tamanho máximo de um item compartilhando uma página. Uma 
+	 * página comporta pelo menos dois itens.
+	 * @return Tamanho, em bytes.
+	 */
+	public int getMaxValueSize(){
+		return maxValueSize;
+	}
+	
+	/**
+	 * Inclui os dados de um item em uma página. A posição do item é 
+	 * registrada no {@link DataMap}.
+	 * @param map Metadados do item.
+	 * @param data Dados do item.
+	 * @param length Tamanho dos dados.
+	 */
+	public void put(DataMap map, RegionMemory data, int length){
+		Writer writer = writers[(int)(Thread.currentThread().getId() % WRITERS)];
+		
+		writer.lock.lock();
+		try{
+			if(writer.page != -1 && append(writer.page, map, data, length))
+				return;
+			
+			Long page = pollFreePage();
+			
+			while(page != null){
+				if(append(page, map, data, length)){
+					writer.page = page;
+					return;
+				}
+				page = pollFreePage();
+			}
+			
+			writer.page = createPage(map, data, length);
+		}
+		finally{
+			writer.lock.unlock();
+		}
+	}
+	
+	/**
+	 * Obtém uma cópia dos dados de um item.
+	 * @param map Metadados do item.
+	 * @return Bloco com os dados ou <code>null</code> se o item não existe 
+	 * mais.
+	 */
+	public Block get(DataMap map){
+		Block page = pin(map.getFirstSegment());
+		
+		if(page == null)
+			return null;
+		
+		try{
+			byte[] slot = readSlot(page, map.getSlot());
+			
+			if(slot == null || getLong(slot, 0) != map.getId())
+				return null;
+			
+			int length     = getInt(slot, 12);
+			RegionMemory r = memory.alloc(length);
+			r.write(0, page.buffer, getInt(slot, 8), length);
+			return new Block(map.getId(), 0, r, length);
+		}
+		finally{
+			page.release(memory);
+		}
+	}
+	
+	/**
+	 * Verifica se os dados de um item estão em uma página.
+	 * @param map Metadados do item.
+	 * @return <code>true</code> se o item existe. Caso contrário, <code>false</code>.
+	 */
+	public boolean contains(DataMap map){
+		Block page = pin(map.getFirstSegment());
+		
+		if(page == null)
+			return false;
+		
+		try{
+			byte[] slot = readSlot(page, map.getSlot());
+			return slot != null && getLong(slot, 0) == map.getId();
+		}
+		finally{
+			page.release(memory);
+		}
+	}
+	
+	/**
+	 * Registra a remoção de um item. O espaço é recuperado na próxima 
+	 * compactação.
+	 * @param map Metadados do item.
+	 */
+	public void remove(DataMap map){
+		removed.add(new Removed(map.getFirstSegment(), map.getSlot(), map.getId()));
+		
+		if(pending.incrementAndGet() >= MAX_PENDING && compactLock.tryLock()){
+			try{
+				compactPages();
+			}
+			finally{
+				compactLock.unlock();
+			}
+		}
+	}
+	
+	/**
+	 * Aplica as remoções pendentes e compacta as páginas alteradas. As 
+	 * páginas com espaço livre passam a receber novos itens.
+	 */
+	public void compact(){
+		compactLock.lock();
+		try{
+			compactPages();
+		}
+		finally{
+			compactLock.unlock();
+		}
+	}
+	
+	private void compactPages(){
+		Map<Long, List<Removed>> pages = new HashMap<Long, List<Removed>>();
+		Removed r;
+		
+		while((r = removed.poll()) != null){
+			pending.decrementAndGet();
+			
+			List<Removed> list = pages.get(r.page);
+			
+			if(list == null){
+				list = new ArrayList<Removed>();
+				pages.put(r.page, list);
+			}
+			
+			list.add(r);
+		}
+		
+		for(Map.Entry<Long, List<Removed>> e: pages.entrySet()){
+			compact(e.getKey(), e.getValue());
+		}
+	}
+	
+	private void compact(long index, List<Removed> items){
+		Lock lock = getLock(index);
+		lock.lock();
+		try{
+			Block page = pin(index);
+			
+			if(page == null)
+				return;
+			
+			try{
+				if(page.segment != PAGE)
+					return;
+				
+				int count    = readInt(page.buffer, 0);
+				long[] ids   = new long[count];
+				int[] offs   = new int[count];
+				int[] lens   = new int[count];
+				byte[] slot  = new byte[SLOT_SIZE];
+				int live     = 0;
+				
+				for(int i=0;i<count;i++){
+					page.buffer.read(slotOffset(i), slot, 0, SLOT_SIZE);
+					ids[i]  = getLong(slot, 0);
+					offs[i] = getInt(slot, 8);
+					lens[i] = getInt(slot, 12);
+				}
+				
+				for(Removed item: items){
+					if(item.slot < count && ids[item.slot] == item.id){
+						ids[item.slot] = -1;
+					}
+				}
+				
+				for(int i=0;i<count;i++){
+					if(ids[i] != -1){
+						live++;
+					}
+				}
+				
+				if(live == 0){
+					dataList.remove(index, page);
+					
+					synchronized(freePages){
+						freePages.remove(index);
+					}
+					return;
+				}
+				
+				//as posições dos itens não mudam. Somente as posições livres 
+				//do fim do diretório são descartadas.
+				while(ids[count - 1] == -1){
+					count--;
+				}
+				
+				RegionMemory data = memory.alloc(pageSize);
+				int end           = HEADER_SIZE;
+				
+				for(int i=0;i<count;i++){
+					if(ids[i] == -1){
+						writeSlot(data, i, -1, 0, 0);
+					}
+					else{
+						data.write(end, page.buffer, offs[i], lens[i]);
+						writeSlot(data, i, ids[i], end, lens[i]);
+						end += lens[i];
+					}
+				}
+				
+				writeHeader(data, count, end);
+				
+				if(!replace(index, page, data))
+					return;
+				
+				if(getFreeSpace(count, end) >= maxValueSize + SLOT_SIZE){
+					synchronized(freePages){
+						freePages.add(index);
+					}
+				}
+			}
+			finally{
+				page.release(memory);
+			}
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+	
+	private boolean append(long index, DataMap map, RegionMemory value, int length){
+		Lock lock = getLock(index);
+		lock.lock();
+		try{
+			Block page = pin(index);
+			
+			if(page == null)
+				return false;
+			
+			try{
+				//o índice pode ter sido reutilizado por um bloco comum.
+				if(page.segment != PAGE)
+					return false;
+				
+				int count   = readInt(page.buffer, 0);
+				int end     = readInt(page.buffer, 4);
+				int slot    = count;
+				byte[] data = new byte[SLOT_SIZE];
+				
+				for(int i=0;i<count;i++){
+					page.buffer.read(slotOffset(i), data, 0, SLOT_SIZE);
+					if(getLong(data, 0) == -1){
+						slot = i;
+						break;
+					}
+				}
+				
+				int newCount = slot == count? count + 1 : count;
+				
+				if(getFreeSpace(newCount, end) < length)
+					return false;
+				
+				RegionMemory copy = memory.alloc(pageSize);
+				copy.write(0, page.buffer, 0, pageSize);
+				copy.write(end, value, 0, length);
+				writeSlot(copy, slot, map.getId(), end, length);
+				writeHeader(copy, newCount, end + length);
+				
+				if(!replace(index, page, copy))
+					return false;
+				
+				map.setFirstSegment(index);
+				map.setSlot(slot);
+				return true;
+			}
+			finally{
+				page.release(memory);
+			}
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+	
+	private long createPage(DataMap map, RegionMemory value, int length){
+		RegionMemory data = memory.alloc(pageSize);
+		data.write(HEADER_SIZE, value, 0, length);
+		writeSlot(data, 0, map.getId(), HEADER_SIZE, length);
+		writeHeader(data, 1, HEADER_SIZE + length);
+		
+		long index = dataList.insert(new Block(pageId.incrementAndGet(), PAGE, data, pageSize));
+		map.setFirstSegment(index);
+		map.setSlot(0);
+		return index;
+	}
+	
+	/**
+	 * Substitui uma página pela sua cópia. A referência da página é 
+	 * removida pela lista de blocos.
+	 */
+	private boolean replace(long index, Block page, RegionMemory data){
+		Block copy = new Block(page.id, PAGE, data, pageSize);
+		
+		if(dataList.replace(index, page, copy))
+			return true;
+		
+		copy.release(memory);
+		return false;
+	}
+	
+	private Long pollFreePage(){
+		synchronized(freePages){
+			Iterator<Long> i = freePages.iterator();
+			
+			if(!i.hasNext())
+				return null;
+			
+			Long page = i.next();
+			i.remove();
+			return page;
+		}
+	}
+	
+	private Block pin(long index){
+		if(index < 0)
+			return null;
+		
+		for(;;){
+			Block block = dataList.get(index);
+			
+			if(block == null || block.pin())
+				return block;
+		}
+	}
+	
+	private Lock getLock(long index){
+		return locks[(int)(index & (LOCKS - 1))];
+	}
+	
+	private int getFreeSpace(int count, int end){
+		return pageSize - count*SLOT_SIZE - end;
+	}
+	
+	private int slotOffset(int slot){
+		return pageSize - (slot + 1)*SLOT_SIZE;
+	}
+	
+	private byte[] readSlot(Block page, int slot){
+		if(page.segment != PAGE || slot < 0 || slot >= readInt(page.buffer, 0))
+			return null;
+		
+		byte[] data = new byte[SLOT_SIZE];
+		page.buffer.read(slotOffset(slot), data, 0, SLOT_SIZE);
+		return data;
+	}
+	
+	private void writeSlot(RegionMemory page, int slot, long id, int offset, int length){
+		byte[] data = new byte[SLOT_SIZE];
+		putLong(data, 0, id);
+		putInt(data, 8, offset);
+		putInt(data, 12, length);
+		page.write(slotOffset(slot), data, 0, SLOT_SIZE);
+	}
+	
+	private void writeHeader(RegionMemory page, int count, int end){
+		byte[] data = new byte[HEADER_SIZE];
+		putInt(data, 0, count);
+		putInt(data, 4, end);
+		page.write(0, data, 0, HEADER_SIZE);
+	}
+	
+	private static int readInt(RegionMemory region, int off){
+		byte[] data = new byte[4];
+		region.read(off, data, 0, 4);
+		return getInt(data, 0);
+	}
+	
+	private static void putInt(byte[] buffer, int off, int value){
+		for(int i=3;i>=0;i--){
+			buffer[off + i] = (byte)value;
+			value >>>= 8;
+		}
+	}
+	
+	private static int getInt(byte[] buffer, int off){
+		int value = 0;
+		for(int i=0;i<4;i++){
+			value = (value << 8) | (buffer[off + i] & 0xff);
+		}
+		return value;
+	}
+	
+	private static void putLong(byte[] buffer, int off, long value){
+		for(int i=7;i>=0;i--){
+			buffer[off + i] = (byte)value;
+			value >>>= 8;
+		}
+	}
+
+	private static long getLong(byte[] buffer, int off){
+		long value = 0;
+		for(int i=0;i<8;i++){
+			value = (value << 8) | (buffer[off + i] & 0xff);
+		}
+		return value;
+	}
+	
+	/**
+	 * Página que recebe os itens de um grupo de threads.
+	 */
+	private static class Writer {
+		
+		public Lock lock = new ReentrantLock();
+		
+		public long page = -1;
+		
+	}
+	
+	private static class Removed {
+		
+		public long page;
+		
+		public int slot;
+		
+		public long id;
+
+		public Removed(long page, int slot, long id) {
+			this.page = page;
+			this.slot = slot;
+			this.id   = id;
+		}
+		
+	}
+	
+}
@@ -17,6 +17,7 @@
 
 package calypte;
 
+import calypte.memory.HeapMemory;
 import calypte.memory.Memory;
 
 /**
@@ -54,12 +55,79 @@ public class PropertiesCalypteConfig extends CalypteConfig{
         this.indexPageSize   = config.getLong(CacheConstants.INDEX_PAGE_SIZE,		"1k");
         this.dataBufferSize  = config.getLong(CacheConstants.DATA_BUFFER_SIZE,		"64m");
         this.dataBlockSize   = config.getLong(CacheConstants.DATA_BLOCK_SIZE,		"1k");
+        this.dataBlockPools  = config.getInt(CacheConstants.DATA_BLOCK_POOLS,		"1");
         this.dataPageSize    = config.getLong(CacheConstants.DATA_PAGE_SIZE,		"8k");
         this.maxSizeEntry    = config.getLong(CacheConstants.MAX_SIZE_ENTRY,		"1m");
         this.maxSizeKey      = config.getInt(CacheConstants.MAX_SIZE_KEY,			"100");
+        this.maxBytes        = config.getLong(CacheConstants.MAX_BYTES,			"0");
+        this.maxEntries      = config.getLong(CacheConstants.MAX_ENTRIES,			"0");
         this.dataPath        = config.getString(CacheConstants.DATA_PATH,			"/mnt/calypte");
+        this.indexType       = config.getString(CacheConstants.INDEX_TYPE,			"trie").toLowerCase();
+        this.indexShards     = config.getInt(CacheConstants.INDEX_SHARDS,			"1");
+        this.frontCacheSize  = config.getLong(CacheConstants.FRONT_CACHE_SIZE,		"0");
+        this.frontCacheValueSize = config.getInt(CacheConstants.FRONT_CACHE_VALUE_SIZE, "1k");
+        this.keyFilterFalsePositive = config.getDouble(CacheConstants.KEY_FILTER_FALSE_POSITIVE, "0");
+        this.keyFilterCapacity      = config.getLong(CacheConstants.KEY_FILTER_CAPACITY, "1m");
+        this.findParallelism = config.getInt(CacheConstants.FIND_PARALLELISM,		"0");
+        this.heapSegmentSize = config.getInt(CacheConstants.HEAP_SEGMENT_SIZE,		"1m");
+        this.swapWriterThreads = config.getInt(CacheConstants.SWAP_WRITER_THREADS,	"1");
+        this.swapFlushPolicy   = config.getString(CacheConstants.SWAP_FLUSH_POLICY,	"interval").toLowerCase();
+        this.swapFlushInterval = config.getLong(CacheConstants.SWAP_FLUSH_INTERVAL,	"100");
+        this.swapFlushBytes    = config.getLong(CacheConstants.SWAP_FLUSH_BYTES,		"256k");
+        this.swapMaxBacklog    = config.getLong(CacheConstants.SWAP_MAX_BACKLOG,		"4m");
+        this.swapMapped        = config.getBoolean(CacheConstants.SWAP_MAPPED,		"false");
+        
+        if(this.heapSegmentSize < HeapMemory.MIN_SLOT_SIZE || Integer.bitCount(this.heapSegmentSize) != 1)
+        	throw new IllegalStateException("invalid heap segment size: " + this.heapSegmentSize);
+        
         this.memory          = createMemory(config.getString(CacheConstants.MEMORY_ACCESS_TYPE,"heap"), classLoader);
         
+        if(!this.indexType.equals("trie") && !this.indexType.equals("hash"))
+        	throw new IllegalStateException("invalid index type: " + this.indexType);
+        
+        if(this.dataBlockPools < 1 || this.dataBlockPools > 8 || (this.dataBlockSize << 4*(this.dataBlockPools - 1)) > Integer.MAX_VALUE)
+        	throw new IllegalStateException("invalid data block pools: " + this.dataBlockPools);
+        
+        if(this.indexShards < 1)
+        	throw new IllegalStateException("invalid index shards: " + this.indexShards);
+        
+        if(this.frontCacheSize < 0)
+        	throw new IllegalStateException("invalid front cache size: " + this.frontCacheSize);
+        
+        if(this.frontCacheValueSize < 0)
+        	throw new IllegalStateException("invalid front cache value size: " + this.frontCacheValueSize);
+        
+        if(this.keyFilterFalsePositive < 0 || this.keyFilterFalsePositive >= 1)
+        	throw new IllegalStateException("invalid key filter false positive: " + this.keyFilterFalsePositive);
+        
+        if(this.keyFilterCapacity < 1)
+        	throw new IllegalStateException("invalid key filter capacity: " + this.keyFilterCapacity);
+        
+        if(this.findParallelism < 0)
+        	throw new IllegalStateException("invalid find parallelism: " + this.findParallelism);
+        
+        if(this.maxBytes < 0)
+        	throw new IllegalStateException("invalid max bytes: " + this.maxBytes);
+        
+        if(this.maxEntries < 0)
+        	throw new IllegalStateException("invalid max entries: " + this.maxEntries);
+        
+        if(this.swapWriterThreads < 0)
+        	throw new IllegalStateException("invalid swap writer threads: " + this.swapWriterThreads);
+        
+        if(!this.swapFlushPolicy.equals("never") && !this.swapFlushPolicy.equals("interval") && 
+        		!this.swapFlushPolicy.equals("bytes"))
+        	throw new IllegalStateException("invalid swap flush policy: " + this.swapFlushPolicy);
+        
+        if(this.swapFlushInterval < 1)
+        	throw new IllegalStateException("invalid swap flush interval: " + this.swapFlushInterval);
+        
+        if(this.swapFlushBytes < 1)
+        	throw new IllegalStateException("invalid swap flush bytes: " + this.swapFlushBytes);
+        
+        if(this.swapMaxBacklog < 1)
+        	throw new IllegalStateException("invalid swap max backlog: " + this.swapMaxBacklog);
+        
     }
 
     /**
@@ -72,6 +140,10 @@ public class PropertiesCalypteConfig extends CalypteConfig{
     
     @SuppressWarnings("unchecked")
     protected Memory createMemory(String name, ClassLoader classLoader){
+    	//o tamanho do segmento é definido na criação da memória do heap.
+    	if(name.equalsIgnoreCase("heap"))
+    		return new HeapMemory(heapSegmentSize);
+    	
     	try{
         	String className = 
         			MEMORY_PREFIX + 
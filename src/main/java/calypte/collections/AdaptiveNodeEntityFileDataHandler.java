@@ -0,0 +1,291 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.collections;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.brandao.entityfilemanager.DataReader;
+import org.brandao.entityfilemanager.DataWritter;
+import org.brandao.entityfilemanager.EntityFileDataHandler;
+
+import calypte.DataMap;
+import calypte.collections.treehugemap.AdaptiveNode;
+import calypte.collections.treehugemap.AdaptiveNode16;
+import calypte.collections.treehugemap.AdaptiveNode4;
+import calypte.collections.treehugemap.AdaptiveNode48;
+
+/**
+ * Registro de um nó adaptativo. Somente as ligações existentes são 
+ * gravadas. O restante do registro é completado até o tamanho do tipo 
+ * de nó do arquivo. O {@link DataMap} do nó é gravado no próprio registro, 
+ * no formato do {@link DataMapEntityFileDataHandler}.
+ * <p>Um nó com mais ligações que o tipo do arquivo é gravado somente com 
+ * o tipo que comporta as suas ligações. Na leitura, é devolvido o nó 
+ * de {@link #getRedirectType(AdaptiveNode)}.</p>
+ * <p>Os buffers são criados em cada operação. Desse modo, a mesma instância 
+ * pode ser usada por várias threads.</p>
+ * 
+ * @author Ribeiro
+ *
+ */
+public class AdaptiveNodeEntityFileDataHandler
+	implements EntityFileDataHandler<AdaptiveNode<DataMap>, byte[], AdaptiveNodeEntityFileHeader>{
+
+	public static final int MAX_NODES = AdaptiveNode.MAX_NODES;
+	
+	private static final int NODE_SIZE = 9;
+	
+	private static final int DATA_MAP_SIZE = 64;
+	
+	private static final int HEADER_SIZE = 8 + DATA_MAP_SIZE + 4 + 1 + AdaptiveNode.MAX_PREFIX + 2;
+	
+	private static final byte NULL_RECORD = 0;
+	
+	private static final byte NODE_RECORD = 1;
+	
+	private static final byte REDIRECT_RECORD = 2;
+	
+	/*
+	 * Nós devolvidos na leitura de um registro que indica o tipo do nó. 
+	 * Um por tipo.
+	 */
+	private static final List<AdaptiveNode<DataMap>> REDIRECTS;
+	
+	static{
+		REDIRECTS = new ArrayList<AdaptiveNode<DataMap>>();
+		
+		for(int i=AdaptiveNode.NODE4;i<=AdaptiveNode.NODE256;i++){
+			REDIRECTS.add(AdaptiveNode.<DataMap>create(
+					-1, null, AdaptiveNode.REMOVED, AdaptiveNode.EMPTY_PREFIX, 0, new int[0], new long[0]));
+		}
+	}
+	
+	private int maxNodes;
+	
+	private int recordSize;
+	
+	private byte[] empty;
+	
+	private DataMapEntityFileDataHandler dataMapHandler;
+	
+	public AdaptiveNodeEntityFileDataHandler(){
+		this(AdaptiveNode.NODE256);
+	}
+	
+	/**
+	 * Cria o formato dos registros de um tipo de nó.
+	 * @param type Tipo do nó. {@link AdaptiveNode#NODE4}, {@link AdaptiveNode#NODE16}, 
+	 * {@link AdaptiveNode#NODE48} ou {@link AdaptiveNode#NODE256}.
+	 */
+	public AdaptiveNodeEntityFileDataHandler(int type){
+		this.maxNodes       = getCapacity(type);
+		this.recordSize     = HEADER_SIZE + maxNodes*NODE_SIZE + 1;
+		this.empty          = new byte[this.recordSize - 1];
+		this.dataMapHandler = new DataMapEntityFileDataHandler();
+	}
+	
+	/**
+	 * Obtém a quantidade máxima de ligações de um tipo de nó.
+	 * @param type Tipo do nó.
+	 * @return Quantidade.
+	 */
+	public static int getCapacity(int type){
+		switch(type){
+		case AdaptiveNode.NODE4:
+			return AdaptiveNode4.CAPACITY;
+		case AdaptiveNode.NODE16:
+			return AdaptiveNode16.CAPACITY;
+		case AdaptiveNode.NODE48:
+			return AdaptiveNode48.CAPACITY;
+		default:
+			return MAX_NODES;
+		}
+	}
+	
+	/**
+	 * Obtém o menor tipo de nó que comporta uma quantidade de ligações.
+	 * @param count Quantidade de ligações.
+	 * @return Tipo do nó.
+	 */
+	public static int getType(int count){
+		return count <= AdaptiveNode4.CAPACITY? AdaptiveNode.NODE4 :
+			count <= AdaptiveNode16.CAPACITY? AdaptiveNode.NODE16 :
+			count <= AdaptiveNode48.CAPACITY? AdaptiveNode.NODE48 :
+			AdaptiveNode.NODE256;
+	}
+	
+	/**
+	 * Obtém o tipo do nó lido de um registro que somente indica o tipo. 
+	 * O nó tem que ser lido do arquivo desse tipo.
+	 * @param node Nó lido.
+	 * @return Tipo do nó ou -1 se o nó foi lido do registro.
+	 */
+	public static int getRedirectType(AdaptiveNode<DataMap> node){
+		return node == null? -1 : REDIRECTS.indexOf(node);
+	}
+	
+	public void writeMetaData(DataWritter stream, AdaptiveNodeEntityFileHeader value)
+			throws IOException {
+	}
+
+	public AdaptiveNodeEntityFileHeader readMetaData(DataReader srteam)
+			throws IOException {
+		return null;
+	}
+
+	public void writeEOF(DataWritter stream) throws IOException {
+		stream.writeByte((byte)-1);
+	}
+
+	public void write(DataWritter stream, AdaptiveNode<DataMap> entity)
+			throws IOException {
+		if(entity == null){
+			stream.writeByte(NULL_RECORD);
+			stream.write(empty);
+		}
+		else
+		if(entity.getCount() > maxNodes){
+			stream.writeByte((byte)(REDIRECT_RECORD + getType(entity.getCount())));
+			stream.write(empty);
+		}
+		else{
+			byte[] prefix       = entity.getPrefix();
+			int count           = entity.getCount();
+			byte[] prefixBuffer = new byte[AdaptiveNode.MAX_PREFIX];
+			byte[] nodesBuffer  = new byte[maxNodes*NODE_SIZE];
+			
+			stream.writeByte(NODE_RECORD);
+			stream.writeLong(entity.getId());
+			dataMapHandler.write(stream, entity.getValue(null));
+			stream.writeInt(entity.getDepth());
+			stream.writeByte((byte)prefix.length);
+			
+			System.arraycopy(prefix, 0, prefixBuffer, 0, prefix.length);
+			stream.write(prefixBuffer);
+			
+			stream.writeShort((short)count);
+			
+			int label = entity.nextLabel(0);
+			int off   = 0;
+			
+			while(label != -1){
+				nodesBuffer[off] = (byte)label;
+				putLong(nodesBuffer, off + 1, entity.getNextId(label));
+				off   += NODE_SIZE;
+				label  = label + 1 < AdaptiveNode.MAX_NODES? entity.nextLabel(label + 1) : -1;
+			}
+			
+			stream.write(nodesBuffer);
+		}
+	}
+
+	public void writeRaw(DataWritter stream, byte[] entity) throws IOException {
+		stream.write(entity);
+	}
+
+	public AdaptiveNode<DataMap> read(DataReader stream) throws IOException {
+		byte e = stream.readByte();
+		if(e == NULL_RECORD){
+			stream.read(new byte[empty.length]);
+			return null;
+		}
+		else
+		if(e >= REDIRECT_RECORD){
+			stream.read(new byte[empty.length]);
+			return REDIRECTS.get(e - REDIRECT_RECORD);
+		}
+		else{
+			byte[] prefixBuffer = new byte[AdaptiveNode.MAX_PREFIX];
+			byte[] nodesBuffer  = new byte[maxNodes*NODE_SIZE];
+			long id             = stream.readLong();
+			DataMap value       = dataMapHandler.read(stream);
+			int depth           = stream.readInt();
+			int prefixLen       = stream.readByte() & 0xff;
+			byte[] prefix       = prefixLen == 0? AdaptiveNode.EMPTY_PREFIX : new byte[prefixLen];
+			
+			stream.read(prefixBuffer);
+			System.arraycopy(prefixBuffer, 0, prefix, 0, prefixLen);
+			
+			int count         = stream.readShort();
+			int[] labels      = new int[count];
+			long[] nextNodes  = new long[count];
+			
+			stream.read(nodesBuffer);
+			
+			for(int i=0;i<count;i++){
+				labels[i]    = nodesBuffer[i*NODE_SIZE] & 0xff;
+				nextNodes[i] = getLong(nodesBuffer, i*NODE_SIZE + 1);
+			}
+			
+			return AdaptiveNode.create(id, value, depth, prefix, count, labels, nextNodes);
+		}
+	}
+
+	private static void putLong(byte[] buffer, int off, long value){
+		for(int i=7;i>=0;i--){
+			buffer[off + i] = (byte)value;
+			value >>>= 8;
+		}
+	}
+
+	private static long getLong(byte[] buffer, int off){
+		long value = 0;
+		for(int i=0;i<8;i++){
+			value = (value << 8) | (buffer[off + i] & 0xff);
+		}
+		return value;
+	}
+	
+	public byte[] readRaw(DataReader stream) throws IOException {
+		byte[] b = new byte[recordSize];
+		stream.read(b);
+		return b;
+	}
+
+	public long getFirstPointer() {
+		return 0;
+	}
+
+	public int getHeaderLength() {
+		return 0;
+	}
+
+	public int getRecordLength() {
+		return recordSize;
+	}
+
+	public int getEOFLength() {
+		return 1;
+	}
+
+	public int getFirstRecord() {
+		return 0;
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public Class<AdaptiveNode<DataMap>> getType() {
+		return (Class)AdaptiveNode.class;
+	}
+
+	public Class<byte[]> getRawType() {
+		return byte[].class;
+	}
+
+}
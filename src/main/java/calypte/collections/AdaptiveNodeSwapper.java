@@ -0,0 +1,146 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.collections;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import calypte.CacheException;
+import calypte.DataMap;
+import calypte.collections.treehugemap.AdaptiveNode;
+
+/**
+ * Envia os nós adaptativos para um arquivo por tipo de nó. Todos os nós 
+ * têm um registro no arquivo do menor tipo. Os nós que não cabem nesse 
+ * registro são gravados no arquivo do tipo que comporta as suas ligações, 
+ * na mesma posição, e o registro do menor tipo somente indica o tipo. 
+ * <p>Os arquivos dos tipos maiores crescem sem alocar as áreas que não 
+ * foram gravadas. Desse modo, o espaço usado no disco é proporcional ao 
+ * tamanho dos nós gravados.</p>
+ * 
+ * @author Ribeiro
+ *
+ */
+public class AdaptiveNodeSwapper implements BatchSwapper<AdaptiveNode<DataMap>>{
+
+	private static final long serialVersionUID = 4281660743386405337L;
+
+	private final List<FileChannelSwapper<AdaptiveNode<DataMap>>> swappers;
+	
+	/**
+	 * Cria um novo envio. Os arquivos são criados vazios.
+	 * @param file Arquivo do menor tipo de nó. Os arquivos dos demais tipos 
+	 * têm o mesmo nome seguido da quantidade máxima de ligações do tipo.
+	 * @param mapped Os registros são lidos dos arquivos mapeados na memória.
+	 */
+	public AdaptiveNodeSwapper(File file, boolean mapped) throws IOException{
+		this.swappers = new ArrayList<FileChannelSwapper<AdaptiveNode<DataMap>>>();
+		
+		for(int type=AdaptiveNode.NODE4;type<=AdaptiveNode.NODE256;type++){
+			File f = type == AdaptiveNode.NODE4? 
+					file : 
+					new File(file.getPath() + "_" + AdaptiveNodeEntityFileDataHandler.getCapacity(type));
+			
+			this.swappers.add(
+					new FileChannelSwapper<AdaptiveNode<DataMap>>(f, new AdaptiveNodeEntityFileDataHandler(type), mapped));
+		}
+	}
+	
+	public void sendItem(long index, Entry<AdaptiveNode<DataMap>> item) throws CacheException {
+		int type = getType(item.getItem());
+		
+		//o nó é gravado antes do registro que indica o seu tipo.
+		if(type != AdaptiveNode.NODE4)
+			swappers.get(type).sendItem(index, item);
+		
+		swappers.get(AdaptiveNode.NODE4).sendItem(index, item);
+	}
+
+	public void sendItems(long index, List<AdaptiveNode<DataMap>> items) throws CacheException {
+		int size  = items.size();
+		int start = 0;
+		
+		//as sequências de nós do mesmo tipo são gravadas em uma única operação.
+		while(start < size){
+			int type = getType(items.get(start));
+			int end  = start + 1;
+			
+			while(end < size && getType(items.get(end)) == type){
+				end++;
+			}
+			
+			if(type != AdaptiveNode.NODE4)
+				swappers.get(type).sendItems(index + start, items.subList(start, end));
+			
+			start = end;
+		}
+		
+		swappers.get(AdaptiveNode.NODE4).sendItems(index, items);
+	}
+
+	public Entry<AdaptiveNode<DataMap>> getItem(long index) throws CacheException {
+		Entry<AdaptiveNode<DataMap>> e = swappers.get(AdaptiveNode.NODE4).getItem(index);
+		int type                       = AdaptiveNodeEntityFileDataHandler.getRedirectType(e.getItem());
+		return type < 0? e : swappers.get(type).getItem(index);
+	}
+
+	public void releaseItem(long index, AdaptiveNode<DataMap> item) {
+	}
+
+	public void unloadItem(long index, AdaptiveNode<DataMap> item) {
+	}
+
+	public void clear() throws CacheException {
+		for(FileChannelSwapper<AdaptiveNode<DataMap>> swapper: swappers){
+			swapper.clear();
+		}
+	}
+
+	public void destroy() throws CacheException {
+		for(FileChannelSwapper<AdaptiveNode<DataMap>> swapper: swappers){
+			swapper.destroy();
+		}
+	}
+	
+	/**
+	 * Obtém o arquivo de um tipo de nó.
+	 * @param type Tipo do nó.
+	 * @return Arquivo.
+	 */
+	public File getFile(int type){
+		return swappers.get(type).getFile();
+	}
+	
+	/**
+	 * Obtém o tamanho do registro do menor tipo de nó. Todos os nós têm 
+	 * um registro desse tamanho.
+	 * @return Tamanho.
+	 */
+	public int getRecordLength(){
+		return swappers.get(AdaptiveNode.NODE4).getRecordLength();
+	}
+	
+	private static int getType(AdaptiveNode<DataMap> node){
+		return node == null? 
+				AdaptiveNode.NODE4 : 
+				AdaptiveNodeEntityFileDataHandler.getType(node.getCount());
+	}
+	
+}
@@ -17,6 +17,11 @@
 
 package calypte.collections;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 import calypte.collections.treehugemap.TreeMapKey;
 import calypte.collections.treehugemap.TreeNode;
 import calypte.collections.treehugemap.TreeNodes;
@@ -91,87 +96,178 @@ public class BasicMapReferenceCollection<K,T>
         this.treeNodes.init(this.nodes);
     }
     
+    /**
+     * Cria uma coleção cujos valores ficam nos próprios nós.
+     */
+    public BasicMapReferenceCollection(
+            int maxCapacityNodes,
+            double fragmentFactorNodes,
+            Swapper<TreeNode<T>>[] swapNodes,
+            int subListsNodes,
+            TreeNodes<T> treeNodes){
+        
+        this.values = null;
+        
+        this.nodes = 
+            new FlushableReferenceCollectionImp<TreeNode<T>>(
+                maxCapacityNodes, 
+                fragmentFactorNodes,
+                swapNodes,
+                subListsNodes);
+
+        this.treeNodes = treeNodes;
+        this.treeNodes.init(this.nodes);
+    }
+    
     public T put(K key, T element){
-    	TreeMapKey k = this.treeNodes.getKey(key);
-        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
-        return put(k, root, element);
+    	int op = this.treeNodes.beginOperation();
+    	try{
+	    	TreeMapKey k = this.treeNodes.getKey(key);
+	        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
+	        return put(k, root, element);
+    	}
+    	finally{
+    		this.treeNodes.endOperation(op);
+    	}
     }
 
     public boolean replace(K key, T oldElement, T element){
-    	TreeMapKey k = this.treeNodes.getKey(key);
-        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
-        return this.replace(k, root, oldElement, element);
+    	int op = this.treeNodes.beginOperation();
+    	try{
+	    	TreeMapKey k = this.treeNodes.getKey(key);
+	        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
+	        return this.replace(k, root, oldElement, element);
+    	}
+    	finally{
+    		this.treeNodes.endOperation(op);
+    	}
     }
 
     public T replace(K key, T element){
-    	TreeMapKey k = this.treeNodes.getKey(key);
-        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
-        return this.replace(k, root, element);
+    	int op = this.treeNodes.beginOperation();
+    	try{
+	    	TreeMapKey k = this.treeNodes.getKey(key);
+	        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
+	        return this.replace(k, root, element);
+    	}
+    	finally{
+    		this.treeNodes.endOperation(op);
+    	}
     }
 
     public T putIfAbsent(K key, T element){
-    	TreeMapKey k = this.treeNodes.getKey(key);
-        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
-        return this.putIfAbsent(k, root, element);
+    	int op = this.treeNodes.beginOperation();
+    	try{
+	    	TreeMapKey k = this.treeNodes.getKey(key);
+	        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
+	        return this.putIfAbsent(k, root, element);
+    	}
+    	finally{
+    		this.treeNodes.endOperation(op);
+    	}
     }
     
     public T get(Object key) {
-    	TreeMapKey k = this.treeNodes.getKey(key);
-        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
-        if(root == null)
-            return null;
-        else
-            return this.get(k, root);
+    	int op = this.treeNodes.beginOperation();
+    	try{
+	    	TreeMapKey k = this.treeNodes.getKey(key);
+	        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
+	        if(root == null)
+	            return null;
+	        else
+	            return this.get(k, root);
+    	}
+    	finally{
+    		this.treeNodes.endOperation(op);
+    	}
     }
 
     public T remove(Object key) {
-    	TreeMapKey k = this.treeNodes.getKey(key);
-        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
-        if(root == null)
-            return null;
-        else
-            return this.remove(k, root);
+    	int op = this.treeNodes.beginOperation();
+    	try{
+	    	TreeMapKey k = this.treeNodes.getKey(key);
+	        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
+	        if(root == null)
+	            return null;
+	        else
+	            return this.remove(k, root);
+    	}
+    	finally{
+    		this.treeNodes.endOperation(op);
+    	}
     }
 
     @SuppressWarnings("unchecked")
 	public boolean remove(Object key, Object oldValue) {
-    	TreeMapKey k = this.treeNodes.getKey(key);
-        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
-        if(root == null)
-            return false;
-        else
-            return this.remove(k, root, (T)oldValue);
+    	int op = this.treeNodes.beginOperation();
+    	try{
+	    	TreeMapKey k = this.treeNodes.getKey(key);
+	        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
+	        if(root == null)
+	            return false;
+	        else
+	            return this.remove(k, root, (T)oldValue);
+    	}
+    	finally{
+    		this.treeNodes.endOperation(op);
+    	}
     }
     
     public void find(Find<T> f) {
-        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
-        
-        if(root == null)
-        	return; 
-
-    	find(f, root);
-    	
+    	int op = this.treeNodes.beginOperation();
+    	try{
+	        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
+	        
+	        if(root == null)
+	        	return; 
+	
+	    	find(f, root);
+    	}
+    	finally{
+    		this.treeNodes.endOperation(op);
+    	}
+    }
+    
+    public void find(ParallelFind<T> f, ForkJoinPool pool) {
+    	//a operação registrada pela thread atual protege os nós até o fim 
+    	//de todas as tarefas.
+    	int op = this.treeNodes.beginOperation();
+    	try{
+	        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
+	        
+	        if(root == null)
+	        	return; 
+	
+	        pool.invoke(new FindTask(f.fork(), root));
+    	}
+    	finally{
+    		this.treeNodes.endOperation(op);
+    	}
     }
     
     public void clear() {
-        this.values.clear();
+    	if(this.values != null)
+    		this.values.clear();
         this.nodes.clear();
         this.treeNodes.init(this.nodes);
     }
 
     public void destroy() {
-		this.values.destroy();
+    	if(this.values != null)
+    		this.values.destroy();
 		this.nodes.destroy();
     }
     
     public void flush(){
         this.nodes.flush();
-        this.values.flush();
+    	if(this.values != null)
+    		this.values.flush();
     }
 
     public void setDeleteOnExit(boolean value){
     	this.nodes.setDeleteOnExit(value);
-    	this.values.setDeleteOnExit(value);
+    	if(this.values != null)
+    		this.values.setDeleteOnExit(value);
     }
 
     public boolean isDeleteOnExit(){
@@ -180,11 +276,12 @@ public class BasicMapReferenceCollection<K,T>
 
     public void setReadOnly(boolean value){
         this.nodes.setReadOnly(value);
-        this.values.setReadOnly(value);
+    	if(this.values != null)
+    		this.values.setReadOnly(value);
     }
     
     public boolean isReadOnly(){
-        return this.values.isReadOnly();
+        return this.nodes.isReadOnly();
     }
 
     private T put(TreeMapKey key, TreeNode<T> node, T value){
@@ -196,7 +293,7 @@ public class BasicMapReferenceCollection<K,T>
             return r;
         }
         else{
-        	return this.treeNodes.setValue(nodes, values, node, value);
+        	return this.treeNodes.setValue(nodes, values, key, node, value);
         }
     }
 
@@ -235,7 +332,7 @@ public class BasicMapReferenceCollection<K,T>
             return r;
         }
         else{
-        	return this.treeNodes.putIfAbsentValue(nodes, values, node, value);
+        	return this.treeNodes.putIfAbsentValue(nodes, values, key, node, value);
         }
     }
     
@@ -257,6 +354,10 @@ public class BasicMapReferenceCollection<K,T>
         if(!this.treeNodes.isEquals(key, node)){
             TreeNode<T> next = this.treeNodes.getNext(this.nodes, key, node, true);
             T r = next == null? null : remove(key, next);
+            
+            if(r != null)
+            	this.treeNodes.removeNext(this.nodes, key, node, next);
+            
             next = null;
             return r;
         }
@@ -271,6 +372,10 @@ public class BasicMapReferenceCollection<K,T>
         if(!this.treeNodes.isEquals(key, node)){
             TreeNode<T> next = this.treeNodes.getNext(this.nodes, key, node, true);
             boolean r = next == null? false : remove(key, next, oldValue);
+            
+            if(r)
+            	this.treeNodes.removeNext(this.nodes, key, node, next);
+            
             next = null;
             return r;
         }
@@ -288,21 +393,122 @@ public class BasicMapReferenceCollection<K,T>
     		f.found(e);
     	}
     	
-		Object[] nexKeys = node.getNextNodes();
-		
 		TreeNode<T> n;
+		int label = node.nextLabel(0);
 		
-		for(Object k: nexKeys) {
-			n = node.getNext(nodes, k);
-			if(n != null && f.acceptNodeKey(k)) {
-				f.beforeNextNode(k, n);
-				find(f, n);
-				f.afterNextNode(k, n);
+		while(label != -1) {
+			n = node.getNextNode(nodes, label);
+			
+			if(n != null) {
+				Object nodeKey = treeNodes.getNodeKey(node.getLabelKey(label), n);
+				
+				if(f.acceptNodeKey(nodeKey)) {
+					f.beforeNextNode(nodeKey, n);
+					find(f, n);
+					f.afterNextNode(nodeKey, n);
+				}
 			}
+			
+			label = node.nextLabel(label + 1);
 		}
 		
 		n = null;
     	
     }
     
+    /**
+     * Busca em uma subárvore. As ligações do nó são divididas em novas 
+     * tarefas enquanto existirem threads sem trabalho. Caso contrário, 
+     * a subárvore é percorrida pela própria tarefa.
+     */
+    private class FindTask extends RecursiveAction {
+    	
+		private static final long serialVersionUID = -3365278386472826449L;
+
+		/**
+		 * Quantidade de tarefas aguardando execução na thread atual a partir 
+		 * da qual as ligações não são mais divididas.
+		 */
+		private static final int MAX_SURPLUS_TASKS = 3;
+		
+		private ParallelFind<T> f;
+    	
+    	private TreeNode<T> node;
+    	
+    	public FindTask(ParallelFind<T> f, TreeNode<T> node) {
+    		this.f    = f;
+    		this.node = node;
+    	}
+    	
+		protected void compute() {
+			TreeNode<T> node = this.node;
+			
+			for(;;) {
+				if(getSurplusQueuedTaskCount() > MAX_SURPLUS_TASKS) {
+					find(f, node);
+					return;
+				}
+				
+		    	T e = treeNodes.getValue(nodes, values, node);
+		    	
+		    	if(e != null && f.accept()) {
+		    		f.found(e);
+		    	}
+		    	
+		    	List<FindTask> tasks = null;
+		    	TreeNode<T> next     = null;
+		    	Object nextKey       = null;
+		    	int label            = node.nextLabel(0);
+				
+				while(label != -1) {
+					TreeNode<T> n = node.getNextNode(nodes, label);
+					
+					if(n != null) {
+						Object nodeKey = treeNodes.getNodeKey(node.getLabelKey(label), n);
+						
+						if(f.acceptNodeKey(nodeKey)) {
+							if(next != null) {
+								//existe mais de uma ligação. As ligações são divididas.
+								if(tasks == null) {
+									tasks = new ArrayList<FindTask>();
+									tasks.add(createTask(nextKey, next));
+								}
+								tasks.add(createTask(nodeKey, n));
+							}
+							else {
+								next    = n;
+								nextKey = nodeKey;
+							}
+						}
+					}
+					
+					label = node.nextLabel(label + 1);
+				}
+				
+				if(tasks != null) {
+					invokeAll(tasks);
+					return;
+				}
+				
+				if(next == null)
+					return;
+				
+				//somente uma ligação. O nó é percorrido na própria tarefa.
+				f.beforeNextNode(nextKey, next);
+				node = next;
+			}
+		}
+		
+		private FindTask createTask(Object nodeKey, TreeNode<T> n) {
+			f.beforeNextNode(nodeKey, n);
+			try {
+				return new FindTask(f.fork(), n);
+			}
+			finally {
+				f.afterNextNode(nodeKey, n);
+			}
+		}
+		
+    }
+    
 }
@@ -0,0 +1,40 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.collections;
+
+import java.util.List;
+
+import calypte.CacheException;
+
+/**
+ * Permite o envio de itens de posições consecutivas em uma única operação.
+ * 
+ * @author Ribeiro
+ *
+ * @param <T>
+ */
+public interface BatchSwapper<T> extends Swapper<T> {
+
+	/**
+	 * Envia os itens de posições consecutivas.
+	 * @param index Posição do primeiro item.
+	 * @param items Itens.
+	 */
+	void sendItems(long index, List<T> items) throws CacheException;
+	
+}
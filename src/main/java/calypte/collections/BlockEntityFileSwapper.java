@@ -0,0 +1,53 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.collections;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.brandao.entityfilemanager.EntityFileDataHandler;
+
+import calypte.Block;
+import calypte.memory.Memory;
+
+/**
+ * Envia os blocos de dados para o disco. A referência da lista de blocos 
+ * é removida quando o bloco deixa a memória ou a lista.
+ * 
+ * @author Ribeiro
+ *
+ */
+public class BlockEntityFileSwapper extends FileChannelSwapper<Block>{
+
+	private static final long serialVersionUID = 4428851924506693027L;
+	
+	private Memory memory;
+	
+	public BlockEntityFileSwapper(File file, EntityFileDataHandler<Block, ?, ?> handler, 
+			Memory memory, boolean mapped) throws IOException{
+		super(file, handler, mapped);
+		this.memory = memory;
+	}
+
+	public void releaseItem(long index, Block item) {
+		if(item != null){
+			item.release(memory);
+		}
+	}
+	
+}
@@ -0,0 +1,165 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package calypte.collections;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom com contadores de 4 bits. Permite a inclusão e a 
+ * remoção de chaves. Uma chave rejeitada pelo filtro não existe. Uma chave 
+ * aceita pode não existir, com a probabilidade definida na criação do filtro.
+ * <p>Um contador que chega ao valor máximo não é mais alterado. Desse modo, 
+ * o filtro nunca rejeita uma chave incluída, mas a taxa de falsos positivos 
+ * aumenta com o tempo. O filtro deve ser recriado periodicamente.</p>
+ * 
+ * @author Ribeiro
+ *
+ */
+public class CountingBloomFilter {
+
+	private static final int COUNTER_BITS     = 4;
+	
+	private static final int COUNTERS_PER_LONG = 64 / COUNTER_BITS;
+	
+	private static final long MAX_COUNTER     = (1 << COUNTER_BITS) - 1;
+	
+	private AtomicLongArray counters;
+	
+	private long size;
+	
+	private int hashes;
+	
+	/**
+	 * Cria um novo filtro.
+	 * @param capacity Quantidade esperada de chaves.
+	 * @param falsePositiveProbability Probabilidade de falsos positivos (0 a 1).
+	 */
+	public CountingBloomFilter(long capacity, double falsePositiveProbability){
+		
+		if(capacity <= 0)
+			throw new IllegalArgumentException("capacity");
+		
+		if(falsePositiveProbability <= 0 || falsePositiveProbability >= 1)
+			throw new IllegalArgumentException("falsePositiveProbability");
+		
+		double ln2  = Math.log(2);
+		long m      = (long)Math.ceil(-capacity*Math.log(falsePositiveProbability)/(ln2*ln2));
+		m           = Math.max(COUNTERS_PER_LONG, m);
+		
+		if(m/COUNTERS_PER_LONG > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("capacity");
+		
+		this.counters = new AtomicLongArray((int)((m + COUNTERS_PER_LONG - 1)/COUNTERS_PER_LONG));
+		this.size     = (long)this.counters.length()*COUNTERS_PER_LONG;
+		this.hashes   = Math.max(1, (int)Math.round((double)this.size/capacity*ln2));
+	}
+	
+	/**
+	 * Inclui uma chave.
+	 * @param key Chave.
+	 */
+	public void add(Object key){
+		long h = KeyUtil.hash(key);
+		for(int i=0;i<hashes;i++){
+			increment(index(h, i));
+		}
+	}
+	
+	/**
+	 * Remove uma chave. Somente pode ser removida uma chave incluída.
+	 * @param key Chave.
+	 */
+	public void remove(Object key){
+		long h = KeyUtil.hash(key);
+		for(int i=0;i<hashes;i++){
+			decrement(index(h, i));
+		}
+	}
+	
+	/**
+	 * Verifica se uma chave pode existir.
+	 * @param key Chave.
+	 * @return <code>false</code> se a chave não existe. Caso contrário, <code>true</code>.
+	 */
+	public boolean mightContain(Object key){
+		long h = KeyUtil.hash(key);
+		for(int i=0;i<hashes;i++){
+			long index = index(h, i);
+			long value = counters.get((int)(index / COUNTERS_PER_LONG));
+			
+			if(((value >>> shift(index)) & MAX_COUNTER) == 0)
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Obtém a quantidade de contadores do filtro.
+	 * @return Quantidade.
+	 */
+	public long size(){
+		return size;
+	}
+	
+	/**
+	 * Obtém a quantidade de funções de hash usadas pelo filtro.
+	 * @return Quantidade.
+	 */
+	public int getHashes(){
+		return hashes;
+	}
+	
+	private long index(long h, int i){
+		//double hashing com as partes alta e baixa do hash.
+		long h1 = h & 0xffffffffL;
+		long h2 = (h >>> 32) | 1;
+		return (h1 + i*h2) % size;
+	}
+	
+	private static int shift(long index){
+		return (int)(index % COUNTERS_PER_LONG)*COUNTER_BITS;
+	}
+	
+	private void increment(long index){
+		int i     = (int)(index / COUNTERS_PER_LONG);
+		int shift = shift(index);
+		
+		for(;;){
+			long value   = counters.get(i);
+			long counter = (value >>> shift) & MAX_COUNTER;
+			
+			if(counter == MAX_COUNTER || counters.compareAndSet(i, value, value + (1L << shift)))
+				return;
+		}
+	}
+	
+	private void decrement(long index){
+		int i     = (int)(index / COUNTERS_PER_LONG);
+		int shift = shift(index);
+		
+		for(;;){
+			long value   = counters.get(i);
+			long counter = (value >>> shift) & MAX_COUNTER;
+			
+			if(counter == 0 || counter == MAX_COUNTER || counters.compareAndSet(i, value, value - (1L << shift)))
+				return;
+		}
+	}
+	
+}
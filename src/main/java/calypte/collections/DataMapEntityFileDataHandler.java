@@ -40,7 +40,7 @@ public class DataMapEntityFileDataHandler
 	private byte[] empty;
 	
 	public DataMapEntityFileDataHandler(){
-		this.recordSize = 63;
+		this.recordSize = 64;
 		this.buffer = new byte[this.recordSize - 1];
 		this.empty  = new byte[this.recordSize - 1];
 	}
@@ -75,6 +75,7 @@ public class DataMapEntityFileDataHandler
 			stream.writeLong(entity.getMostRecentTime());
 			stream.writeInt(entity.getSegments());
 			stream.writeShort(entity.getFlag());
+			stream.writeByte((byte)entity.getPool());
 		}
 	}
 
@@ -99,6 +100,7 @@ public class DataMapEntityFileDataHandler
 			b.setMostRecentTime(stream.readLong());
 			b.setSegments(stream.readInt());
 			b.setFlag(stream.readShort());
+			b.setPool(stream.readByte() & 0xff);
 			return b;
 		}
 	}
@@ -17,7 +17,9 @@
 
 package calypte.collections;
 
+import java.io.IOException;
 import java.lang.reflect.Array;
+import java.util.List;
 
 import org.brandao.entityfilemanager.EntityFileAccess;
 
@@ -30,7 +32,7 @@ import calypte.CacheException;
  *
  * @param <T>
  */
-public class EntityFileSwapper<T> implements Swapper<T>{
+public class EntityFileSwapper<T> implements BatchSwapper<T>{
 
 	private static final long serialVersionUID = -6380145781552093583L;
 
@@ -42,17 +44,9 @@ public class EntityFileSwapper<T> implements Swapper<T>{
 		this.entityFile = entityFile;
 	}
 	
-	@SuppressWarnings("unchecked")
 	public synchronized void sendItem(long index, Entry<T> item) throws CacheException{
 		try {
-			if(maxID <= index) {
-				int emptyInsert = (int)(maxID < 0? index : index - maxID) + 1;
-				T[] array = (T[]) Array.newInstance(entityFile.getType(), emptyInsert);
-				entityFile.seek(entityFile.length());
-				entityFile.batchWrite(array);
-				maxID = entityFile.length() - 1;
-			}
-			
+			ensureLength(index);
 			entityFile.seek(index);
 			entityFile.write(item.getItem());
 			entityFile.flush();
@@ -62,6 +56,30 @@ public class EntityFileSwapper<T> implements Swapper<T>{
 		}
 	}
 	
+	@SuppressWarnings("unchecked")
+	public synchronized void sendItems(long index, List<T> items) throws CacheException{
+		try {
+			ensureLength(index + items.size() - 1);
+			entityFile.seek(index);
+			entityFile.batchWrite(items.toArray((T[]) Array.newInstance(entityFile.getType(), items.size())));
+			entityFile.flush();
+		}
+		catch(Throwable e) {
+			throw new CacheException(CacheErrors.ERROR_1014, e);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void ensureLength(long index) throws IOException{
+		if(maxID <= index) {
+			int emptyInsert = (int)(maxID < 0? index : index - maxID) + 1;
+			T[] array = (T[]) Array.newInstance(entityFile.getType(), emptyInsert);
+			entityFile.seek(entityFile.length());
+			entityFile.batchWrite(array);
+			maxID = entityFile.length() - 1;
+		}
+	}
+	
 	public synchronized Entry<T> getItem(long index) throws CacheException{
 		try {
 			entityFile.seek(index);
@@ -74,6 +92,13 @@ public class EntityFileSwapper<T> implements Swapper<T>{
 		}
 	}
 
+	public void releaseItem(long index, T item) {
+	}
+	
+	public void unloadItem(long index, T item) {
+		this.releaseItem(index, item);
+	}
+	
 	public synchronized void clear() throws CacheException{
 		try {
 			entityFile.setLength(0);
@@ -20,7 +20,7 @@ package calypte.collections;
 import java.io.Serializable;
 
 /**
- * Encapsula uma entidade. Necessário para sua manipulação.
+ * Encapsula uma entidade enviada ou recebida do {@link Swapper}.
  * 
  * @author Ribeiro
  */
@@ -32,21 +32,12 @@ public class Entry<T> implements Serializable {
 
     private T item;
     
-    private Entry<T> next;
-
-    private Entry<T> before;
-    
-    private boolean needReload;
-    
-    private NodeEntry node;
-    
     private boolean needUpdate;
 
     public Entry() {
         this.index 		= -1;
         this.item 		= null;
         this.needUpdate = false;
-        this.needReload = false;
     }
     
     /**
@@ -61,7 +52,6 @@ public class Entry<T> implements Serializable {
         this.index      = index;
         this.item       = item;
         this.needUpdate = update;
-        this.needReload = false;
     }
     
     /**
@@ -74,7 +64,6 @@ public class Entry<T> implements Serializable {
         this.index      = index;
         this.item       = item;
         this.needUpdate = true;
-        this.needReload = false;
     }
 
     /**
@@ -109,38 +98,6 @@ public class Entry<T> implements Serializable {
         this.item = item;
     }
 
-    /**
-     * Obtém a posição do item na memória.
-     * @return Posição.
-     */
-    public NodeEntry getNode() {
-        return node;
-    }
-
-    /**
-     * Define a posição do item na memória.
-     * @param node Posição
-     */
-    public void setNode(NodeEntry node) {
-        this.node = node;
-    }
-
-    /**
-     * Verifica se a entidade precisa ser recarregada.
-     * @return Verdadeiro se existe a necessidade de ser recarregada. Caso contrário falso.
-     */
-    public boolean isNeedReload() {
-        return needReload;
-    }
-
-    /**
-     * Define que a entidade precisa ser recarregada.
-     * @param value Verdadeiro se existe a necessidade de ser recarregada. Caso contrário falso.
-     */
-    public void setNeedReload(boolean value) {
-        this.needReload = value;
-    }
-
     /**
      * Verifica se a entidade precisa ser atualizada.
      * @return Verdadeiro se existe a necessidade de ser atualizada. Caso contrário falso.
@@ -157,38 +114,6 @@ public class Entry<T> implements Serializable {
         this.needUpdate = needUpdate;
     }
 
-    /**
-     * Obtém o próximo item.
-     * @return Item.
-     */
-    public Entry<T> getNext() {
-        return next;
-    }
-
-    /**
-     * Define o próximo item.
-     * @param next Item
-     */
-    public void setNext(Entry<T> next) {
-        this.next = next;
-    }
-
-    /**
-     * Obtém o item anterior.
-     * @return Item.
-     */
-    public Entry<T> getBefore() {
-        return before;
-    }
-
-    /**
-     * Define o item anterior.
-     * @param before Item.
-     */
-    public void setBefore(Entry<T> before) {
-        this.before = before;
-    }
-
 	@Override
 	public String toString() {
 		return "Entry [index=" + index + ", item=" + item + "]";
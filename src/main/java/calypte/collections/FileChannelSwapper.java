@@ -0,0 +1,321 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.collections;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.List;
+
+import org.brandao.entityfilemanager.DataReader;
+import org.brandao.entityfilemanager.DataWritter;
+import org.brandao.entityfilemanager.EntityFileDataHandler;
+
+import calypte.CacheErrors;
+import calypte.CacheException;
+
+/**
+ * Envia os itens para um arquivo de registros de tamanho fixo. As leituras 
+ * e gravações usam a posição do registro no {@link FileChannel}. Desse modo, 
+ * não existe posição compartilhada e qualquer quantidade de leituras pode 
+ * ser feita ao mesmo tempo.
+ * <p>O arquivo cresce em blocos de vários registros. As posições ainda não 
+ * gravadas são lidas como itens nulos. O {@link EntityFileDataHandler} 
+ * deve permitir o uso por várias threads.</p>
+ * <p>Se o arquivo for mapeado, cada bloco é mapeado na memória no primeiro 
+ * acesso e os registros são lidos diretamente do mapeamento, sem chamadas 
+ * ao sistema. As gravações continuam no {@link FileChannel} e são vistas 
+ * pelo mapeamento porque ambos usam o cache de páginas do sistema.</p>
+ * 
+ * @author Ribeiro
+ *
+ * @param <T>
+ */
+public class FileChannelSwapper<T> implements BatchSwapper<T>{
+
+	private static final long serialVersionUID = -2315307254398414117L;
+
+	/**
+	 * Tamanho mínimo do crescimento do arquivo.
+	 */
+	public static final long CHUNK_SIZE = 4*1024*1024;
+	
+	private final File file;
+	
+	private final EntityFileDataHandler<T, ?, ?> handler;
+	
+	private final int recordLength;
+	
+	private final long chunkSize;
+	
+	private final boolean mapped;
+	
+	private transient volatile MappedByteBuffer[] windows;
+	
+	private transient RandomAccessFile raf;
+	
+	private transient FileChannel channel;
+	
+	private volatile long length;
+	
+	/**
+	 * Cria um novo envio. O arquivo é criado vazio.
+	 * @param file Arquivo.
+	 * @param handler Formato dos registros.
+	 */
+	public FileChannelSwapper(File file, EntityFileDataHandler<T, ?, ?> handler) throws IOException{
+		this(file, handler, false);
+	}
+	
+	/**
+	 * Cria um novo envio. O arquivo é criado vazio.
+	 * @param file Arquivo.
+	 * @param handler Formato dos registros.
+	 * @param mapped Os registros são lidos do arquivo mapeado na memória.
+	 */
+	public FileChannelSwapper(File file, EntityFileDataHandler<T, ?, ?> handler, 
+			boolean mapped) throws IOException{
+		this.file         = file;
+		this.handler      = handler;
+		this.recordLength = handler.getRecordLength();
+		//o bloco tem uma quantidade inteira de registros. Um registro nunca 
+		//fica entre dois mapeamentos.
+		this.chunkSize    = Math.max(1, CHUNK_SIZE / recordLength)*recordLength;
+		this.mapped       = mapped;
+		this.windows      = new MappedByteBuffer[0];
+		this.raf          = new RandomAccessFile(file, "rw");
+		this.channel      = raf.getChannel();
+		
+		this.raf.setLength(0);
+	}
+	
+	public void sendItem(long index, Entry<T> item) throws CacheException {
+		try{
+			ByteArrayOutputStream bout = new ByteArrayOutputStream(recordLength);
+			handler.write(new DataWritter(new DataOutputStream(bout)), item.getItem());
+			write(index, bout.toByteArray());
+		}
+		catch(CacheException e){
+			throw e;
+		}
+		catch(Throwable e){
+			throw new CacheException(e, CacheErrors.ERROR_1014);
+		}
+	}
+
+	public void sendItems(long index, List<T> items) throws CacheException {
+		try{
+			ByteArrayOutputStream bout = new ByteArrayOutputStream(items.size()*recordLength);
+			DataWritter stream         = new DataWritter(new DataOutputStream(bout));
+			
+			for(T item: items){
+				handler.write(stream, item);
+			}
+			
+			write(index, bout.toByteArray());
+		}
+		catch(CacheException e){
+			throw e;
+		}
+		catch(Throwable e){
+			throw new CacheException(e, CacheErrors.ERROR_1014);
+		}
+	}
+	
+	public Entry<T> getItem(long index) throws CacheException {
+		try{
+			long position = index*recordLength;
+			
+			if(mapped && position + recordLength <= length){
+				Entry<T> e = new Entry<T>(index, 
+						handler.read(new DataReader(new DataInputStream(new WindowInputStream(window(position))))));
+				e.setNeedUpdate(false);
+				return e;
+			}
+			
+			byte[] data = new byte[recordLength];
+			
+			//uma posição depois do fim do arquivo nunca foi gravada.
+			if(position + recordLength <= length){
+				ByteBuffer buf = ByteBuffer.wrap(data);
+				
+				while(buf.hasRemaining()){
+					if(channel.read(buf, position + buf.position()) < 0)
+						throw new IOException("unexpected end of file: " + index);
+				}
+			}
+			
+			Entry<T> e = new Entry<T>(index, 
+					handler.read(new DataReader(new DataInputStream(new ByteArrayInputStream(data)))));
+			e.setNeedUpdate(false);
+			return e;
+		}
+		catch(Throwable e){
+			throw new CacheException(e, CacheErrors.ERROR_1015);
+		}
+	}
+
+	public void releaseItem(long index, T item) {
+	}
+
+	public void unloadItem(long index, T item) {
+		this.releaseItem(index, item);
+	}
+
+	public synchronized void clear() throws CacheException {
+		try{
+			//os mapeamentos antigos são liberados pelo coletor de lixo.
+			windows = new MappedByteBuffer[0];
+			length  = 0;
+			raf.setLength(0);
+		}
+		catch(Throwable e){
+			throw new CacheException(e, CacheErrors.ERROR_1014);
+		}
+	}
+
+	public synchronized void destroy() throws CacheException {
+		try{
+			windows = new MappedByteBuffer[0];
+			length  = 0;
+			channel.close();
+			raf.close();
+			file.delete();
+		}
+		catch(Throwable e){
+			throw new CacheException(e, CacheErrors.ERROR_1014);
+		}
+	}
+	
+	public File getFile(){
+		return file;
+	}
+	
+	public int getRecordLength(){
+		return recordLength;
+	}
+	
+	public boolean isMapped(){
+		return mapped;
+	}
+	
+	/*
+	 * Obtém a visão do registro no mapeamento do bloco. O bloco é mapeado 
+	 * no primeiro acesso.
+	 */
+	private ByteBuffer window(long position) throws IOException{
+		int chunk             = (int)(position / chunkSize);
+		MappedByteBuffer[] ws = this.windows;
+		MappedByteBuffer w    = chunk < ws.length? ws[chunk] : null;
+		
+		if(w == null){
+			synchronized(this){
+				ws = this.windows;
+				w  = chunk < ws.length? ws[chunk] : null;
+				
+				if(w == null){
+					//o array é copiado para que o novo mapeamento seja publicado 
+					//somente pela escrita do campo.
+					MappedByteBuffer[] nws = new MappedByteBuffer[Math.max(chunk + 1, ws.length)];
+					System.arraycopy(ws, 0, nws, 0, ws.length);
+					
+					w          = channel.map(MapMode.READ_ONLY, chunk*chunkSize, chunkSize);
+					nws[chunk] = w;
+					windows    = nws;
+				}
+			}
+		}
+		
+		ByteBuffer view = w.duplicate();
+		int off         = (int)(position - chunk*chunkSize);
+		view.limit(off + recordLength);
+		view.position(off);
+		return view;
+	}
+	
+	private void write(long index, byte[] data) throws IOException{
+		if(data.length % recordLength != 0)
+			throw new IOException("invalid record length: " + data.length);
+		
+		long position = index*recordLength;
+		
+		ensureLength(position + data.length);
+		
+		ByteBuffer buf = ByteBuffer.wrap(data);
+		
+		while(buf.hasRemaining()){
+			channel.write(buf, position + buf.position());
+		}
+	}
+	
+	/*
+	 * O arquivo cresce em blocos. O conteúdo da nova área é zero e 
+	 * corresponde a registros nulos.
+	 */
+	private void ensureLength(long end) throws IOException{
+		if(end <= length)
+			return;
+		
+		synchronized(this){
+			if(end > length){
+				long newLength = ((end + chunkSize - 1)/chunkSize)*chunkSize;
+				raf.setLength(newLength);
+				length = newLength;
+			}
+		}
+	}
+	
+	/**
+	 * Leitura de um registro diretamente do mapeamento.
+	 */
+	private static class WindowInputStream extends InputStream {
+		
+		private final ByteBuffer buffer;
+		
+		public WindowInputStream(ByteBuffer buffer){
+			this.buffer = buffer;
+		}
+		
+		public int read() {
+			return buffer.hasRemaining()? buffer.get() & 0xff : -1;
+		}
+		
+		public int read(byte[] b, int off, int len) {
+			if(len == 0)
+				return 0;
+			
+			if(!buffer.hasRemaining())
+				return -1;
+			
+			len = Math.min(len, buffer.remaining());
+			buffer.get(b, off, len);
+			return len;
+		}
+		
+	}
+	
+}
@@ -28,4 +28,36 @@ public interface FlushableReferenceCollection<T>
 
     void flush();
     
+    /**
+     * Inclui itens em posições consecutivas (extensão).
+     * @param e Itens.
+     * @return Referência do primeiro item.
+     */
+    long insert(T[] e);
+    
+    /**
+     * Obtém os itens de uma extensão.
+     * @param reference Referência do primeiro item.
+     * @param e Vetor que recebe os itens. O tamanho do vetor define a quantidade.
+     */
+    void get(long reference, T[] e);
+    
+    /**
+     * Obtém a referência de um item de uma extensão.
+     * @param reference Referência do primeiro item.
+     * @param index Posição do item na extensão.
+     * @return Referência.
+     */
+    long getReference(long reference, int index);
+    
+    /**
+     * Remove os itens de uma extensão. A extensão somente é reutilizada 
+     * por inteiro se todos os itens forem removidos.
+     * @param reference Referência do primeiro item.
+     * @param oldValues Itens esperados em cada posição. As posições com 
+     * <code>null</code> não são removidas.
+     * @return <code>true</code> se todos os itens foram removidos. Caso contrário, <code>false</code>.
+     */
+    boolean remove(long reference, T[] oldValues);
+    
 }
@@ -106,6 +106,24 @@ public class FlushableReferenceCollectionImp<T>
 		return lists[(int)(reference & 0xff)].remove(reference >> 8, oldValue);
 	}
 	
+	public long insert(T[] e) {
+		int threadReference  = (int)(Thread.currentThread().getId() % lists.length);
+		long index           = lists[threadReference].insert(e);
+		return ((index & 0xffffffffL) << 8) | (threadReference & 0xff);
+	}
+
+	public void get(long reference, T[] e) {
+		lists[(int)(reference & 0xff)].get(reference >> 8, e);
+	}
+	
+	public long getReference(long reference, int index) {
+		return reference + ((long)index << 8);
+	}
+	
+	public boolean remove(long reference, T[] oldValues) {
+		return lists[(int)(reference & 0xff)].remove(reference >> 8, oldValues);
+	}
+	
     public void setDeleteOnExit(boolean value){
     	this.deleteOnExit = value;
     }
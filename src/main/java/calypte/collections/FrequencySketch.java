@@ -0,0 +1,134 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.collections;
+
+/**
+ * Estimativa da frequência de acesso das chaves (count-min sketch) com 
+ * contadores de 4 bits. Cada chave é associada a 4 contadores e a 
+ * frequência é o menor deles.
+ * <p>Depois de uma quantidade de incrementos proporcional ao tamanho da 
+ * tabela, todos os contadores são divididos por 2. Desse modo, a 
+ * frequência dos acessos antigos perde o peso com o tempo.</p>
+ * <p>A classe não é segura para acesso simultâneo.</p>
+ * 
+ * @author Ribeiro
+ *
+ */
+public class FrequencySketch {
+
+	private static final int COUNTER_BITS      = 4;
+	
+	private static final int COUNTERS_PER_LONG = 64 / COUNTER_BITS;
+	
+	private static final long MAX_COUNTER      = (1 << COUNTER_BITS) - 1;
+	
+	private static final long RESET_MASK       = 0x7777777777777777L;
+	
+	private static final int DEPTH             = 4;
+	
+	private static final int MAX_TABLE_SIZE    = 1 << 26;
+	
+	private static final int SAMPLE_FACTOR     = 10;
+	
+	private long[] table;
+	
+	private int mask;
+	
+	private int sampleSize;
+	
+	private int size;
+	
+	/**
+	 * Cria uma nova estimativa.
+	 * @param capacity Quantidade esperada de chaves.
+	 */
+	public FrequencySketch(long capacity){
+		int length = (int)Math.min(Math.max(capacity, COUNTERS_PER_LONG), MAX_TABLE_SIZE);
+		length     = Integer.highestOneBit(length - 1) << 1;
+		
+		this.table      = new long[length];
+		this.mask       = length - 1;
+		this.sampleSize = SAMPLE_FACTOR*length;
+	}
+	
+	/**
+	 * Registra um acesso.
+	 * @param hash Hash da chave obtido em {@link KeyUtil#hash(Object)}.
+	 */
+	public void increment(long hash){
+		boolean added = false;
+		
+		for(int i=0;i<DEPTH;i++){
+			long h    = index(hash, i);
+			int index = (int)(h & mask);
+			int shift = shift(h);
+			
+			if(((table[index] >>> shift) & MAX_COUNTER) != MAX_COUNTER){
+				table[index] += 1L << shift;
+				added         = true;
+			}
+		}
+		
+		if(added && ++size >= sampleSize)
+			reset();
+	}
+	
+	/**
+	 * Obtém a frequência estimada de uma chave.
+	 * @param hash Hash da chave obtido em {@link KeyUtil#hash(Object)}.
+	 * @return Frequência, de 0 a 15.
+	 */
+	public int frequency(long hash){
+		long frequency = MAX_COUNTER;
+		
+		for(int i=0;i<DEPTH;i++){
+			long h    = index(hash, i);
+			frequency = Math.min(frequency, (table[(int)(h & mask)] >>> shift(h)) & MAX_COUNTER);
+		}
+		
+		return (int)frequency;
+	}
+	
+	/**
+	 * Zera todos os contadores.
+	 */
+	public void clear(){
+		for(int i=0;i<table.length;i++){
+			table[i] = 0;
+		}
+		size = 0;
+	}
+	
+	private void reset(){
+		for(int i=0;i<table.length;i++){
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+		size >>>= 1;
+	}
+	
+	private static long index(long hash, int i){
+		//cada linha usa uma mistura diferente do hash.
+		long h = (hash + i*0x9e3779b97f4a7c15L)*0xbf58476d1ce4e5b9L;
+		return h ^ (h >>> 31);
+	}
+	
+	private static int shift(long h){
+		return (int)((h >>> 58) & (COUNTERS_PER_LONG - 1))*COUNTER_BITS;
+	}
+	
+}
@@ -0,0 +1,710 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import calypte.BasicCacheHandler;
+import calypte.DataMap;
+import calypte.memory.UnsafeMemoryUtil;
+
+/**
+ * Índice dos itens em uma tabela hash fora do heap com endereçamento aberto.
+ * <p>Cada posição da tabela tem o hash de 64 bits da chave e o endereço 
+ * do registro. O registro tem os bytes da chave, usados na verificação, 
+ * e os dados do {@link DataMap}. A tabela é dividida em segmentos e cada 
+ * segmento tem seu próprio bloqueio.</p>
+ * <p>Não suporta busca por prefixo. Os registros não são enviados 
+ * para o disco.</p>
+ * 
+ * @author Ribeiro
+ *
+ */
+public class HashMapReferenceCollection 
+	implements MapReferenceCollection<Object, DataMap>{
+
+	public static final int DEFAULT_SEGMENTS	= 16;
+	
+	private static final float LOAD_FACTOR		= 0.75f;
+	
+	private static final int MIN_CAPACITY		= 16;
+	
+	private static final int SLOT_SIZE			= 16;
+	
+	private static final long EMPTY				= 0;
+
+	private static final long REMOVED			= -1;
+	
+	/* registro */
+	
+	private static final int KEY_LENGTH			= 0;
+	
+	private static final int ID					= 4;
+
+	private static final int TIME_TO_LIVE		= 12;
+	
+	private static final int CREATION_TIME		= 20;
+	
+	private static final int TIME_TO_IDLE		= 28;
+	
+	private static final int FIRST_SEGMENT		= 36;
+	
+	private static final int LENGTH				= 44;
+	
+	private static final int MOST_RECENT_TIME	= 52;
+	
+	private static final int SEGMENTS			= 60;
+	
+	private static final int FLAG				= 64;
+	
+	private static final int POOL				= 66;
+	
+	private static final int KEY				= 67;
+	
+	private static final ThreadLocal<Key> keys = 
+		new ThreadLocal<Key>(){
+		
+			protected Key initialValue(){
+				return new Key();
+			}
+			
+		};
+	
+	private BasicCacheHandler cacheHandler;
+	
+	private Segment[] segments;
+	
+	private int segmentMask;
+	
+	private boolean deleteOnExit;
+	
+	private boolean readOnly;
+	
+	public HashMapReferenceCollection(BasicCacheHandler cacheHandler, long capacity){
+		this(cacheHandler, capacity, DEFAULT_SEGMENTS);
+	}
+	
+	public HashMapReferenceCollection(BasicCacheHandler cacheHandler, long capacity, int segments){
+		int n = 1;
+		
+		while(n < segments){
+			n <<= 1;
+		}
+		
+		long segmentCapacity = capacity / n;
+		int slots            = MIN_CAPACITY;
+		
+		while(slots < segmentCapacity / LOAD_FACTOR && slots < (1 << 29)){
+			slots <<= 1;
+		}
+		
+		this.cacheHandler = cacheHandler;
+		this.segments     = new Segment[n];
+		this.segmentMask  = n - 1;
+		this.deleteOnExit = true;
+		
+		for(int i=0;i<n;i++){
+			this.segments[i] = new Segment(slots);
+		}
+	}
+	
+	public DataMap put(Object value, DataMap element) {
+		Key key       = toKey(value);
+		long h        = key.hash();
+		Segment s     = segmentFor(h);
+		Lock lock     = s.lock.writeLock();
+		lock.lock();
+		try{
+			s.check();
+			long slot = s.find(h, key);
+			
+			if(slot == -1){
+				s.insert(h, key, element);
+				return null;
+			}
+			
+			long address = UnsafeMemoryUtil.getLong(slot, 8);
+			DataMap old  = read(address);
+			write(address, element);
+			return old;
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+
+	public boolean replace(Object value, DataMap oldElement, DataMap element) {
+		Key key       = toKey(value);
+		long h        = key.hash();
+		Segment s     = segmentFor(h);
+		Lock lock     = s.lock.writeLock();
+		lock.lock();
+		try{
+			s.check();
+			long slot = s.find(h, key);
+			
+			if(slot == -1)
+				return false;
+			
+			long address = UnsafeMemoryUtil.getLong(slot, 8);
+			DataMap e    = read(address);
+			
+			if(!e.isDead(cacheHandler.getCreationTime()) && e.equals(oldElement)){
+				write(address, element);
+				return true;
+			}
+			
+			return false;
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+
+	public DataMap replace(Object value, DataMap element) {
+		Key key       = toKey(value);
+		long h        = key.hash();
+		Segment s     = segmentFor(h);
+		Lock lock     = s.lock.writeLock();
+		lock.lock();
+		try{
+			s.check();
+			long slot = s.find(h, key);
+			
+			if(slot == -1)
+				return null;
+			
+			long address = UnsafeMemoryUtil.getLong(slot, 8);
+			DataMap e    = read(address);
+			
+			if(!e.isDead(cacheHandler.getCreationTime())){
+				write(address, element);
+				return e;
+			}
+			
+			return null;
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+
+	public DataMap putIfAbsent(Object value, DataMap element) {
+		Key key       = toKey(value);
+		long h        = key.hash();
+		Segment s     = segmentFor(h);
+		Lock lock     = s.lock.writeLock();
+		lock.lock();
+		try{
+			s.check();
+			long slot = s.find(h, key);
+			
+			if(slot == -1){
+				s.insert(h, key, element);
+				return null;
+			}
+			
+			long address = UnsafeMemoryUtil.getLong(slot, 8);
+			DataMap e    = read(address);
+			
+			if(e.isDead(cacheHandler.getCreationTime())){
+				write(address, element);
+			}
+			
+			return e;
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+
+	public DataMap get(Object key) {
+		Key k         = toKey(key);
+		long h        = k.hash();
+		Segment s     = segmentFor(h);
+		Lock lock     = s.lock.readLock();
+		lock.lock();
+		try{
+			s.check();
+			long slot = s.find(h, k);
+			return slot == -1? null : read(UnsafeMemoryUtil.getLong(slot, 8));
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+
+	public DataMap remove(Object key) {
+		Key k         = toKey(key);
+		long h        = k.hash();
+		Segment s     = segmentFor(h);
+		Lock lock     = s.lock.writeLock();
+		lock.lock();
+		try{
+			s.check();
+			long slot = s.find(h, k);
+			
+			if(slot == -1)
+				return null;
+			
+			DataMap old = read(UnsafeMemoryUtil.getLong(slot, 8));
+			s.remove(slot);
+			return old;
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+
+	public boolean remove(Object key, Object oldValue) {
+		Key k         = toKey(key);
+		long h        = k.hash();
+		Segment s     = segmentFor(h);
+		Lock lock     = s.lock.writeLock();
+		lock.lock();
+		try{
+			s.check();
+			long slot = s.find(h, k);
+			
+			if(slot == -1)
+				return false;
+			
+			DataMap e = read(UnsafeMemoryUtil.getLong(slot, 8));
+			
+			if(e.equals(oldValue)){
+				s.remove(slot);
+				return true;
+			}
+			
+			return false;
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Percorre todos os registros. Cada chave é informada como um único 
+	 * segmento. Os bloqueios não são mantidos durante a chamada dos 
+	 * métodos de <code>f</code>.
+	 */
+	public void find(Find<DataMap> f) {
+		for(Segment s: segments){
+			find(f, s);
+		}
+	}
+
+	/**
+	 * Executa a busca em paralelo. Cada segmento é percorrido por uma tarefa.
+	 */
+	public void find(ParallelFind<DataMap> f, ForkJoinPool pool) {
+		List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(segments.length);
+		
+		for(final Segment s: segments){
+			final Find<DataMap> task = f.fork();
+			tasks.add(pool.submit(new Runnable(){
+				
+				public void run(){
+					find(task, s);
+				}
+				
+			}));
+		}
+		
+		for(ForkJoinTask<?> task: tasks){
+			task.join();
+		}
+	}
+	
+	/**
+	 * Obtém a quantidade de reorganizações das tabelas. Uma reorganização 
+	 * muda a posição dos registros. Desse modo, uma busca feita ao mesmo 
+	 * tempo pode não encontrar alguns registros.
+	 * @return Quantidade.
+	 */
+	public long getRehashes(){
+		long value = 0;
+		
+		for(Segment s: segments){
+			value += s.rehashes;
+		}
+		
+		return value;
+	}
+	
+	private void find(Find<DataMap> f, Segment s) {
+		int i = 0;
+		
+		for(;;){
+			byte[] key;
+			DataMap value;
+			
+			Lock lock = s.lock.readLock();
+			lock.lock();
+			try{
+				if(s.table == 0)
+					break;
+				
+				while(i < s.capacity){
+					long address = UnsafeMemoryUtil.getLong(s.table + (long)i*SLOT_SIZE, 8);
+					
+					if(address != EMPTY && address != REMOVED)
+						break;
+					
+					i++;
+				}
+				
+				if(i >= s.capacity)
+					break;
+				
+				long address = UnsafeMemoryUtil.getLong(s.table + (long)i*SLOT_SIZE, 8);
+				key          = readKey(address);
+				value        = read(address);
+				i++;
+			}
+			finally{
+				lock.unlock();
+			}
+			
+			if(f.acceptNodeKey(key)){
+				f.beforeNextNode(key, null);
+				if(f.accept()){
+					f.found(value);
+				}
+				f.afterNextNode(key, null);
+			}
+		}
+	}
+
+	public void clear() {
+		for(Segment s: segments){
+			Lock lock = s.lock.writeLock();
+			lock.lock();
+			try{
+				s.check();
+				s.clear();
+			}
+			finally{
+				lock.unlock();
+			}
+		}
+	}
+
+	public void destroy() {
+		for(Segment s: segments){
+			Lock lock = s.lock.writeLock();
+			lock.lock();
+			try{
+				s.destroy();
+			}
+			finally{
+				lock.unlock();
+			}
+		}
+	}
+
+	public void flush() {
+	}
+
+	public void setDeleteOnExit(boolean value) {
+		this.deleteOnExit = value;
+	}
+
+	public boolean isDeleteOnExit() {
+		return deleteOnExit;
+	}
+
+	public void setReadOnly(boolean value) {
+		this.readOnly = value;
+	}
+
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	private Segment segmentFor(long h){
+		return segments[(int)(h >>> 32) & segmentMask];
+	}
+	
+	private static Key toKey(Object value){
+		Key key     = keys.get();
+		int len     = KeyUtil.length(value);
+		byte[] data = KeyUtil.toBytes(value, key.buffer, len);
+		
+		if(data != value)
+			key.buffer = data;
+		
+		key.value  = data;
+		key.length = len;
+		return key;
+	}
+	
+	private static boolean keyEquals(long address, Key key){
+		int len = UnsafeMemoryUtil.getInt(address, KEY_LENGTH);
+		
+		if(len != key.length)
+			return false;
+		
+		for(int i=0;i<len;i++){
+			if(UnsafeMemoryUtil.getByte(address, KEY + i) != key.value[i])
+				return false;
+		}
+		
+		return true;
+	}
+
+	private static byte[] readKey(long address){
+		int len  = UnsafeMemoryUtil.getInt(address, KEY_LENGTH);
+		byte[] r = new byte[len];
+		UnsafeMemoryUtil.arrayCopy(address, KEY, r, 0, len);
+		return r;
+	}
+	
+	private static long alloc(Key key){
+		long address = UnsafeMemoryUtil.alloc(KEY + key.length);
+		UnsafeMemoryUtil.putInt(address, KEY_LENGTH, key.length);
+		UnsafeMemoryUtil.arrayCopy(key.value, 0, address, KEY, key.length);
+		return address;
+	}
+	
+	private static DataMap read(long address){
+		DataMap e = new DataMap();
+		e.setId(UnsafeMemoryUtil.getLong(address, ID));
+		e.setTimeToLive(UnsafeMemoryUtil.getLong(address, TIME_TO_LIVE));
+		e.setCreationTime(UnsafeMemoryUtil.getLong(address, CREATION_TIME));
+		e.setTimeToIdle(UnsafeMemoryUtil.getLong(address, TIME_TO_IDLE));
+		e.setFirstSegment(UnsafeMemoryUtil.getLong(address, FIRST_SEGMENT));
+		e.setLength(UnsafeMemoryUtil.getLong(address, LENGTH));
+		e.setMostRecentTime(UnsafeMemoryUtil.getLong(address, MOST_RECENT_TIME));
+		e.setSegments(UnsafeMemoryUtil.getInt(address, SEGMENTS));
+		e.setFlag(UnsafeMemoryUtil.getShort(address, FLAG));
+		e.setPool(UnsafeMemoryUtil.getByte(address, POOL) & 0xff);
+		return e;
+	}
+	
+	private static void write(long address, DataMap e){
+		UnsafeMemoryUtil.putLong(address, ID, e.getId());
+		UnsafeMemoryUtil.putLong(address, TIME_TO_LIVE, e.getTimeToLive());
+		UnsafeMemoryUtil.putLong(address, CREATION_TIME, e.getCreationTime());
+		UnsafeMemoryUtil.putLong(address, TIME_TO_IDLE, e.getTimeToIdle());
+		UnsafeMemoryUtil.putLong(address, FIRST_SEGMENT, e.getFirstSegment());
+		UnsafeMemoryUtil.putLong(address, LENGTH, e.getLength());
+		UnsafeMemoryUtil.putLong(address, MOST_RECENT_TIME, e.getMostRecentTime());
+		UnsafeMemoryUtil.putInt(address, SEGMENTS, e.getSegments());
+		UnsafeMemoryUtil.putShort(address, FLAG, e.getFlag());
+		UnsafeMemoryUtil.putByte(address, POOL, (byte)e.getPool());
+	}
+	
+	protected void finalize() throws Throwable{
+		try{
+			if(deleteOnExit){
+				destroy();
+			}
+		}
+		finally{
+			super.finalize();
+		}
+	}
+	
+	private static class Segment{
+		
+		public final ReadWriteLock lock;
+		
+		public long table;
+		
+		public int capacity;
+		
+		public int size;
+		
+		public int used;
+		
+		/**
+		 * Quantidade de reorganizações da tabela.
+		 */
+		public volatile long rehashes;
+		
+		private int initialCapacity;
+		
+		public Segment(int capacity){
+			this.lock            = new ReentrantReadWriteLock();
+			this.initialCapacity = capacity;
+			this.table           = allocTable(capacity);
+			this.capacity        = capacity;
+		}
+		
+		public void check(){
+			if(table == 0)
+				throw new IllegalStateException("destroyed");
+		}
+		
+		/**
+		 * Localiza a posição da chave na tabela.
+		 * @return Endereço da posição ou -1.
+		 */
+		public long find(long h, Key key){
+			int mask = capacity - 1;
+			int i    = (int)h & mask;
+			
+			for(;;){
+				long slot    = table + (long)i*SLOT_SIZE;
+				long address = UnsafeMemoryUtil.getLong(slot, 8);
+				
+				if(address == EMPTY)
+					return -1;
+				
+				if(address != REMOVED && UnsafeMemoryUtil.getLong(slot, 0) == h && keyEquals(address, key))
+					return slot;
+				
+				i = (i + 1) & mask;
+			}
+		}
+		
+		public void insert(long h, Key key, DataMap value){
+			long address = alloc(key);
+			write(address, value);
+			
+			if(put(table, capacity, h, address)){
+				used++;
+			}
+			
+			size++;
+			
+			if(used > capacity*LOAD_FACTOR){
+				rehash(size > capacity*LOAD_FACTOR/2? capacity << 1 : capacity);
+			}
+		}
+		
+		public void remove(long slot){
+			UnsafeMemoryUtil.free(UnsafeMemoryUtil.getLong(slot, 8));
+			UnsafeMemoryUtil.putLong(slot, 8, REMOVED);
+			size--;
+		}
+		
+		public void clear(){
+			freeRecords();
+			UnsafeMemoryUtil.free(table);
+			table    = allocTable(initialCapacity);
+			capacity = initialCapacity;
+			size     = 0;
+			used     = 0;
+		}
+		
+		public void destroy(){
+			if(table != 0){
+				freeRecords();
+				UnsafeMemoryUtil.free(table);
+				table = 0;
+				size  = 0;
+				used  = 0;
+			}
+		}
+		
+		private void freeRecords(){
+			for(int i=0;i<capacity;i++){
+				long address = UnsafeMemoryUtil.getLong(table + (long)i*SLOT_SIZE, 8);
+				
+				if(address != EMPTY && address != REMOVED)
+					UnsafeMemoryUtil.free(address);
+			}
+		}
+		
+		private void rehash(int newCapacity){
+			long newTable = allocTable(newCapacity);
+			
+			for(int i=0;i<capacity;i++){
+				long slot    = table + (long)i*SLOT_SIZE;
+				long address = UnsafeMemoryUtil.getLong(slot, 8);
+				
+				if(address != EMPTY && address != REMOVED)
+					put(newTable, newCapacity, UnsafeMemoryUtil.getLong(slot, 0), address);
+			}
+			
+			UnsafeMemoryUtil.free(table);
+			table    = newTable;
+			capacity = newCapacity;
+			used     = size;
+			rehashes++;
+		}
+		
+		/**
+		 * Coloca o registro na primeira posição livre.
+		 * @return <code>true</code> se foi usada uma posição vazia.
+		 */
+		private static boolean put(long table, int capacity, long h, long address){
+			int mask = capacity - 1;
+			int i    = (int)h & mask;
+			
+			for(;;){
+				long slot = table + (long)i*SLOT_SIZE;
+				long a    = UnsafeMemoryUtil.getLong(slot, 8);
+				
+				if(a == EMPTY || a == REMOVED){
+					UnsafeMemoryUtil.putLong(slot, 0, h);
+					UnsafeMemoryUtil.putLong(slot, 8, address);
+					return a == EMPTY;
+				}
+				
+				i = (i + 1) & mask;
+			}
+		}
+		
+		private static long allocTable(int capacity){
+			long table = UnsafeMemoryUtil.alloc((long)capacity*SLOT_SIZE);
+			UnsafeMemoryUtil.setMemory(table, 0, (long)capacity*SLOT_SIZE, (byte)0);
+			return table;
+		}
+		
+	}
+	
+	/**
+	 * Chave no formato binário. A instância é reutilizada pelo processo.
+	 */
+	private static class Key{
+		
+		public byte[] buffer;
+		
+		public byte[] value;
+		
+		public int length;
+		
+		/**
+		 * Calcula o hash de 64 bits da chave (FNV-1a).
+		 */
+		public long hash(){
+			long h = 0xcbf29ce484222325L;
+			
+			for(int i=0;i<length;i++){
+				h ^= value[i] & 0xff;
+				h *= 0x100000001b3L;
+			}
+			
+			h ^= h >>> 33;
+			h *= 0xff51afd7ed558ccdL;
+			h ^= h >>> 33;
+			return h;
+		}
+		
+	}
+	
+}
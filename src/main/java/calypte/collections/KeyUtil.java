@@ -0,0 +1,191 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.collections;
+
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Converte as chaves para a sua forma binária. Uma chave pode ser 
+ * um <code>byte[]</code>, usado sem conversão, ou uma <code>String</code>, 
+ * codificada em UTF-8. As duas formas são equivalentes.
+ * 
+ * @author Ribeiro
+ *
+ */
+public class KeyUtil {
+
+	public static final String ENCODING = "UTF-8";
+	
+	/**
+	 * Obtém o tamanho, em bytes, da chave.
+	 * @param key Chave.
+	 * @return Tamanho.
+	 */
+	public static int length(Object key){
+		if(key instanceof byte[])
+			return ((byte[])key).length;
+		
+		String value = (String)key;
+		int len      = value.length();
+		int r        = 0;
+		
+		for(int i=0;i<len;i++){
+			char c = value.charAt(i);
+			
+			if(c < 0x80)
+				r += 1;
+			else
+			if(c < 0x800)
+				r += 2;
+			else
+			if(Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(value.charAt(i + 1))){
+				r += 4;
+				i++;
+			}
+			else
+			if(Character.isSurrogate(c))
+				r += 1;
+			else
+				r += 3;
+		}
+		
+		return r;
+	}
+	
+	/**
+	 * Obtém a forma binária da chave. Se a chave for um <code>byte[]</code>
+	 * ela é retornada. Caso contrário, é usado o buffer informado se 
+	 * tiver o tamanho necessário.
+	 * @param key Chave.
+	 * @param buffer Buffer.
+	 * @param length Tamanho da chave obtido em {@link #length(Object)}.
+	 * @return Chave.
+	 */
+	public static byte[] toBytes(Object key, byte[] buffer, int length){
+		if(key instanceof byte[])
+			return (byte[])key;
+		
+		if(buffer == null || buffer.length < length)
+			buffer = new byte[length];
+		
+		String value = (String)key;
+		int len      = value.length();
+		int p        = 0;
+		
+		for(int i=0;i<len;i++){
+			char c = value.charAt(i);
+			
+			if(c < 0x80)
+				buffer[p++] = (byte)c;
+			else
+			if(c < 0x800){
+				buffer[p++] = (byte)(0xc0 | (c >> 6));
+				buffer[p++] = (byte)(0x80 | (c & 0x3f));
+			}
+			else
+			if(Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(value.charAt(i + 1))){
+				int cp      = Character.toCodePoint(c, value.charAt(++i));
+				buffer[p++] = (byte)(0xf0 | (cp >> 18));
+				buffer[p++] = (byte)(0x80 | ((cp >> 12) & 0x3f));
+				buffer[p++] = (byte)(0x80 | ((cp >> 6) & 0x3f));
+				buffer[p++] = (byte)(0x80 | (cp & 0x3f));
+			}
+			else
+			if(Character.isSurrogate(c))
+				buffer[p++] = (byte)'?';
+			else{
+				buffer[p++] = (byte)(0xe0 | (c >> 12));
+				buffer[p++] = (byte)(0x80 | ((c >> 6) & 0x3f));
+				buffer[p++] = (byte)(0x80 | (c & 0x3f));
+			}
+		}
+		
+		return buffer;
+	}
+	
+	/**
+	 * Calcula o hash de 64 bits da forma binária da chave (FNV-1a). 
+	 * Uma <code>String</code> e os seus bytes em UTF-8 têm o mesmo hash.
+	 * @param key Chave.
+	 * @return Hash.
+	 */
+	public static long hash(Object key){
+		long h = 0xcbf29ce484222325L;
+		
+		if(key instanceof byte[]){
+			byte[] value = (byte[])key;
+			for(int i=0;i<value.length;i++){
+				h = (h ^ (value[i] & 0xff)) * 0x100000001b3L;
+			}
+		}
+		else{
+			String value = (String)key;
+			int len      = value.length();
+			
+			for(int i=0;i<len;i++){
+				char c = value.charAt(i);
+				
+				if(c < 0x80)
+					h = (h ^ c) * 0x100000001b3L;
+				else
+				if(c < 0x800){
+					h = (h ^ (0xc0 | (c >> 6))) * 0x100000001b3L;
+					h = (h ^ (0x80 | (c & 0x3f))) * 0x100000001b3L;
+				}
+				else
+				if(Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(value.charAt(i + 1))){
+					int cp = Character.toCodePoint(c, value.charAt(++i));
+					h = (h ^ (0xf0 | (cp >> 18))) * 0x100000001b3L;
+					h = (h ^ (0x80 | ((cp >> 12) & 0x3f))) * 0x100000001b3L;
+					h = (h ^ (0x80 | ((cp >> 6) & 0x3f))) * 0x100000001b3L;
+					h = (h ^ (0x80 | (cp & 0x3f))) * 0x100000001b3L;
+				}
+				else
+				if(Character.isSurrogate(c))
+					h = (h ^ '?') * 0x100000001b3L;
+				else{
+					h = (h ^ (0xe0 | (c >> 12))) * 0x100000001b3L;
+					h = (h ^ (0x80 | ((c >> 6) & 0x3f))) * 0x100000001b3L;
+					h = (h ^ (0x80 | (c & 0x3f))) * 0x100000001b3L;
+				}
+			}
+		}
+		
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		return h;
+	}
+	
+	/**
+	 * Obtém a chave no formato texto.
+	 * @param key Chave.
+	 * @param off Início da chave.
+	 * @param len Tamanho da chave.
+	 * @return Chave.
+	 */
+	public static String toString(byte[] key, int off, int len){
+		try{
+			return new String(key, off, len, ENCODING);
+		}
+		catch(UnsupportedEncodingException e){
+			throw new IllegalStateException(e);
+		}
+	}
+	
+}
@@ -17,6 +17,8 @@
 
 package calypte.collections;
 
+import java.util.concurrent.ForkJoinPool;
+
 import calypte.collections.treehugemap.TreeNode;
 
 /**
@@ -30,6 +32,14 @@ public interface MapReferenceCollection<K,T> {
 
     void find(Find<T> f);
 	
+    /**
+     * Executa a busca em paralelo. Cada tarefa usa uma cópia da busca 
+     * criada por {@link ParallelFind#fork()}.
+     * @param f Busca.
+     * @param pool Threads usadas na busca.
+     */
+    void find(ParallelFind<T> f, ForkJoinPool pool);
+	
     T put(K key, T element);
 
     boolean replace(K key, T oldElement, T element);
@@ -72,5 +82,23 @@ public interface MapReferenceCollection<K,T> {
     	
     }
     
+    /**
+     * Busca que pode ser dividida entre várias threads. Os métodos de uma 
+     * cópia são chamados somente por uma thread, mas cópias diferentes são 
+     * usadas ao mesmo tempo. Desse modo, {@link #found(Object)} tem que ser 
+     * seguro para acesso simultâneo.
+     * 
+     * @param <T>
+     */
+    public static interface ParallelFind<T> extends Find<T> {
+    	
+    	/**
+    	 * Cria uma cópia da busca no estado atual. 
+    	 * @return Cópia.
+    	 */
+    	ParallelFind<T> fork();
+    	
+    }
+    
     
 }
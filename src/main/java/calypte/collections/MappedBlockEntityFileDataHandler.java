@@ -0,0 +1,139 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.collections;
+
+import java.io.IOException;
+
+import org.brandao.entityfilemanager.DataReader;
+import org.brandao.entityfilemanager.DataWritter;
+import org.brandao.entityfilemanager.EntityFileDataHandler;
+
+import calypte.Block;
+import calypte.memory.DirectRegionMemory;
+import calypte.memory.MappedMemory;
+
+/**
+ * Registro de um bloco cujos dados estão em um arquivo mapeado. Somente 
+ * a posição da região é gravada. Os dados não são copiados.
+ * 
+ * @author Ribeiro
+ *
+ */
+public class MappedBlockEntityFileDataHandler 
+	implements EntityFileDataHandler<Block, byte[], BlockEntityFileHeader>{
+
+	private static final int RECORD_SIZE = 38;
+	
+	private byte[] empty;
+	
+	private MappedMemory memory;
+	
+	public MappedBlockEntityFileDataHandler(MappedMemory memory){
+		this.empty  = new byte[RECORD_SIZE - 1];
+		this.memory = memory;
+	}
+	
+	public void writeMetaData(DataWritter stream, BlockEntityFileHeader value)
+			throws IOException {
+	}
+
+	public BlockEntityFileHeader readMetaData(DataReader srteam)
+			throws IOException {
+		return new BlockEntityFileHeader();
+	}
+
+	public void writeEOF(DataWritter stream) throws IOException {
+		stream.writeByte((byte)-1);
+	}
+
+	public void write(DataWritter stream, Block entity) throws IOException {
+		if(entity == null){
+			stream.writeByte((byte)0);
+			stream.write(empty);
+		}
+		else{
+			DirectRegionMemory region = (DirectRegionMemory)entity.buffer;
+			stream.writeByte((byte)1);
+			stream.writeLong(entity.id);
+			stream.writeInt(entity.length);
+			stream.writeInt(entity.segment);
+			stream.writeLong(region.getAddress());
+			stream.writeLong(region.size());
+			stream.writeInt(region.getSizeClass());
+			stream.writeByte((byte)0);
+		}
+	}
+
+	public void writeRaw(DataWritter stream, byte[] entity) throws IOException {
+		stream.write(entity);
+	}
+
+	public Block read(DataReader stream) throws IOException {
+		byte e = stream.readByte();
+		if(e == 0){
+			stream.read(new byte[empty.length]);
+			return null;
+		}
+		else{
+			long id       = stream.readLong();
+			int length    = stream.readInt();
+			int segment   = stream.readInt();
+			long address  = stream.readLong();
+			long size     = stream.readLong();
+			int sizeClass = stream.readInt();
+			stream.readByte();
+			
+			return new Block(id, segment, memory.wrap(address, size, sizeClass), length);
+		}
+	}
+
+	public byte[] readRaw(DataReader stream) throws IOException {
+		byte[] b = new byte[RECORD_SIZE];
+		stream.read(b);
+		return b;
+	}
+
+	public long getFirstPointer() {
+		return 0;
+	}
+
+	public int getHeaderLength() {
+		return 0;
+	}
+
+	public int getRecordLength() {
+		return RECORD_SIZE;
+	}
+
+	public int getEOFLength() {
+		return 1;
+	}
+
+	public int getFirstRecord() {
+		return 0;
+	}
+
+	public Class<Block> getType() {
+		return Block.class;
+	}
+
+	public Class<byte[]> getRawType() {
+		return byte[].class;
+	}
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.collections;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.brandao.entityfilemanager.EntityFileDataHandler;
+
+import calypte.Block;
+import calypte.CacheException;
+import calypte.memory.Memory;
+
+/**
+ * Envia os blocos de dados cujas regiões estão em arquivos mapeados. A 
+ * região de um bloco que deixou a memória não é liberada, somente a sua 
+ * posição é gravada. A região é liberada quando o bloco deixa a lista.
+ * <p>Enquanto a instância de um bloco que deixou a memória estiver em uso 
+ * por uma leitura, ela é devolvida para a lista. Desse modo, as referências 
+ * do bloco continuam válidas.</p>
+ * 
+ * @author Ribeiro
+ *
+ */
+public class MappedBlockEntityFileSwapper extends BlockEntityFileSwapper{
+
+	private static final long serialVersionUID = 1853442069574870591L;
+
+	private transient Map<Long, BlockReference> unloaded;
+	
+	private transient ReferenceQueue<Block> queue;
+	
+	public MappedBlockEntityFileSwapper(File file, EntityFileDataHandler<Block, ?, ?> handler, 
+			Memory memory, boolean mapped) throws IOException{
+		super(file, handler, memory, mapped);
+		this.unloaded = new HashMap<Long, BlockReference>();
+		this.queue    = new ReferenceQueue<Block>();
+	}
+
+	public Entry<Block> getItem(long index) throws CacheException{
+		Block block;
+		
+		//somente a busca da instância é sincronizada. A leitura do arquivo não é.
+		synchronized(this){
+			purge();
+			
+			BlockReference ref = unloaded.remove(index);
+			block              = ref == null? null : ref.get();
+		}
+		
+		if(block == null)
+			return super.getItem(index);
+		
+		Entry<Block> e = new Entry<Block>(index, block);
+		e.setNeedUpdate(false);
+		return e;
+	}
+	
+	public synchronized void unloadItem(long index, Block item) {
+		//a região continua no arquivo mapeado e a referência da lista não é removida.
+		purge();
+		
+		if(item != null){
+			unloaded.put(index, new BlockReference(index, item, queue));
+		}
+	}
+
+	public synchronized void clear() throws CacheException{
+		unloaded.clear();
+		super.clear();
+	}
+	
+	private void purge(){
+		Reference<? extends Block> r;
+		while((r = queue.poll()) != null){
+			BlockReference ref = (BlockReference)r;
+			if(unloaded.get(ref.index) == ref){
+				unloaded.remove(ref.index);
+			}
+		}
+	}
+	
+	private static class BlockReference extends WeakReference<Block>{
+		
+		private final long index;
+		
+		public BlockReference(long index, Block referent, ReferenceQueue<Block> queue) {
+			super(referent, queue);
+			this.index = index;
+		}
+		
+	}
+	
+}
@@ -41,7 +41,17 @@ public class RouletteLock {
 	}
 	
 	public Lock getLock(long value){
-		return this.locks[(int)(value % this.locks.length)];
+		return this.locks[getIndex(value)];
+	}
+	
+	/**
+	 * Obtém a posição do bloqueio associado a um valor. Deve ser usado 
+	 * para ordenar a obtenção de mais de um bloqueio.
+	 * @param value Valor.
+	 * @return Posição.
+	 */
+	public int getIndex(long value){
+		return (int)(value % this.locks.length);
 	}
 	
 }
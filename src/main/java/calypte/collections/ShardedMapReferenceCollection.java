@@ -0,0 +1,141 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package calypte.collections;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Coleção dividida em partições independentes. Cada partição tem a 
+ * sua própria raiz, as suas próprias listas de nós e valores e os 
+ * seus próprios bloqueios. A partição de uma chave é definida pelo 
+ * hash da sua forma binária ({@link KeyUtil#hash(Object)}).
+ * 
+ * @author Ribeiro
+ *
+ * @param <T>
+ */
+public class ShardedMapReferenceCollection<T> 
+	implements MapReferenceCollection<Object, T>{
+
+	private MapReferenceCollection<Object, T>[] shards;
+	
+	public ShardedMapReferenceCollection(MapReferenceCollection<Object, T>[] shards){
+		this.shards = shards;
+	}
+	
+	/**
+	 * Obtém a partição associada a uma chave.
+	 * @param key Chave.
+	 * @return Partição.
+	 */
+	protected MapReferenceCollection<Object, T> getShard(Object key){
+		//os bits baixos e altos do hash são usados dentro da partição
+		long h = KeyUtil.hash(key) * 0x9e3779b97f4a7c15L;
+		return shards[(int)((h >>> 33) % shards.length)];
+	}
+	
+	/**
+	 * Obtém as partições.
+	 * @return Partições.
+	 */
+	public MapReferenceCollection<Object, T>[] getShards(){
+		return shards;
+	}
+	
+	public void find(Find<T> f) {
+		for(MapReferenceCollection<Object, T> shard: shards){
+			shard.find(f);
+		}
+	}
+
+	public void find(ParallelFind<T> f, ForkJoinPool pool) {
+		//as partições são percorridas uma por vez. Cada partição divide 
+		//a própria busca entre as threads.
+		for(MapReferenceCollection<Object, T> shard: shards){
+			shard.find(f, pool);
+		}
+	}
+
+	public T put(Object key, T element) {
+		return getShard(key).put(key, element);
+	}
+
+	public boolean replace(Object key, T oldElement, T element) {
+		return getShard(key).replace(key, oldElement, element);
+	}
+
+	public T replace(Object key, T element) {
+		return getShard(key).replace(key, element);
+	}
+
+	public T putIfAbsent(Object key, T element) {
+		return getShard(key).putIfAbsent(key, element);
+	}
+
+	public T get(Object key) {
+		return getShard(key).get(key);
+	}
+
+	public T remove(Object key) {
+		return getShard(key).remove(key);
+	}
+
+	public boolean remove(Object key, Object oldValue) {
+		return getShard(key).remove(key, oldValue);
+	}
+
+	public void clear() {
+		for(MapReferenceCollection<Object, T> shard: shards){
+			shard.clear();
+		}
+	}
+
+	public void destroy() {
+		for(MapReferenceCollection<Object, T> shard: shards){
+			shard.destroy();
+		}
+	}
+
+	public void flush() {
+		for(MapReferenceCollection<Object, T> shard: shards){
+			shard.flush();
+		}
+	}
+
+	public void setDeleteOnExit(boolean value) {
+		for(MapReferenceCollection<Object, T> shard: shards){
+			shard.setDeleteOnExit(value);
+		}
+	}
+
+	public boolean isDeleteOnExit() {
+		return shards[0].isDeleteOnExit();
+	}
+
+	public void setReadOnly(boolean value) {
+		for(MapReferenceCollection<Object, T> shard: shards){
+			shard.setReadOnly(value);
+		}
+	}
+
+	public boolean isReadOnly() {
+		return shards[0].isReadOnly();
+	}
+
+}
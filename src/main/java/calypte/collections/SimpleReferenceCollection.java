@@ -23,6 +23,8 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -47,6 +49,8 @@ public class SimpleReferenceCollection<T>
 	
 	private FreeManager freeAddress;
 	
+	private FreeExtents freeExtents;
+	
 	private SwapCollection<T> collection;
 	
 	private long lastPos;
@@ -91,14 +95,17 @@ public class SimpleReferenceCollection<T>
     	}
 		
     	this.freeAddress  = new FreeManager(GROUP_SIZE);
+    	this.freeExtents  = new FreeExtents();
     	this.lastPos      = 0;
     	this.lock         = new ReentrantLock();
         this.deleteOnExit = true;
         this.collection   = 
-                    new SegmentedSwapCollectionImp<T>(
+                    new SwapCollectionImp<T>(
+                        swap,
+                        true,
                         maxCapacityElements, 
                         fragmentFactorElements,
-                        swap);
+                        false);
     }
     
 	public long insert(T e) {
@@ -123,6 +130,80 @@ public class SimpleReferenceCollection<T>
 			
 	}
 
+	/**
+	 * Inclui itens em posições consecutivas. É usada a menor extensão livre
+	 * que comporta os itens. Se não existir, os itens são incluídos no fim
+	 * da coleção.
+	 * @param e Itens.
+	 * @return Índice do primeiro item.
+	 */
+	public long insert(T[] e) {
+		lock.lock();
+		try{
+			long index = freeExtents.alloc(e.length);
+			
+			if(index == -1){
+				index   = length;
+				length += e.length;
+				for(int i=0;i<e.length;i++){
+					collection.add(index + i, e[i]);
+				}
+			}
+			else{
+				for(int i=0;i<e.length;i++){
+					collection.set(index + i, e[i]);
+				}
+			}
+			
+			return index;
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+	
+	public void get(long reference, T[] e) {
+		for(int i=0;i<e.length;i++){
+			e[i] = collection.get(reference + i);
+		}
+	}
+	
+	/**
+	 * Remove os itens de uma extensão. Se algum item não for removido, 
+	 * as sequências de posições removidas são liberadas como extensões.
+	 */
+	public boolean remove(long reference, T[] oldValues) {
+		boolean[] removed = new boolean[oldValues.length];
+		boolean all       = true;
+		
+		for(int i=0;i<oldValues.length;i++){
+			removed[i] = oldValues[i] != null && collection.replace(reference + i, oldValues[i], null);
+			all        = all && removed[i];
+		}
+		
+		lock.lock();
+		try{
+			int start = -1;
+			
+			for(int i=0;i<=removed.length;i++){
+				if(i < removed.length && removed[i]){
+					if(start == -1)
+						start = i;
+				}
+				else
+				if(start != -1){
+					freeExtents.free(reference + start, i - start);
+					start = -1;
+				}
+			}
+		}
+		finally{
+			lock.unlock();
+		}
+		
+		return all;
+	}
+	
 	public T set(long reference, T e) {
 		return collection.set(reference, e);
 	}
@@ -132,8 +213,10 @@ public class SimpleReferenceCollection<T>
 	}
 
 	public boolean remove(long reference) {
+		//a posição somente pode ser reutilizada depois de ser liberada.
+		boolean r = collection.set(reference, null) != null;
 		freeAddress.push(reference);
-		return collection.set(reference, null) != null;
+		return r;
 	}
 	
 	public boolean replace(long reference, T oldValue, T value) {
@@ -149,8 +232,11 @@ public class SimpleReferenceCollection<T>
 	}
 
 	public boolean remove(long reference, T oldValue) {
-		freeAddress.push(reference);
-		return collection.replace(reference, oldValue, null);
+		if(collection.replace(reference, oldValue, null)){
+			freeAddress.push(reference);
+			return true;
+		}
+		return false;
 	}
 	
     public void setDeleteOnExit(boolean value){
@@ -175,11 +261,13 @@ public class SimpleReferenceCollection<T>
     
     public void clear() {
     	this.length = 0;
+    	this.freeExtents.clear();
 		collection.clear();
     }
 
     public void destroy(){
     	this.length = 0;
+    	this.freeExtents.clear();
 		collection.clear();
     	collection.destroy();
     }
@@ -196,6 +284,95 @@ public class SimpleReferenceCollection<T>
     	return this.collection.isReadOnly();
 	}
 	
+	/**
+	 * Extensões livres. As extensões vizinhas são unidas na liberação e 
+	 * uma extensão maior que a necessária é dividida na alocação.
+	 */
+	private static class FreeExtents{
+		
+		private TreeMap<Long, Extent> starts;
+		
+		private TreeSet<Extent> sizes;
+		
+		private FreeExtents() {
+			this.starts = new TreeMap<Long, Extent>();
+			this.sizes  = new TreeSet<Extent>();
+		}
+		
+		public long alloc(int count) {
+			Extent e = sizes.ceiling(new Extent(-1, count));
+			
+			if(e == null)
+				return -1;
+			
+			remove(e);
+			
+			if(e.count > count){
+				add(new Extent(e.start + count, e.count - count));
+			}
+			
+			return e.start;
+		}
+		
+		public void free(long start, long count) {
+			Long previous = starts.lowerKey(start);
+			
+			if(previous != null){
+				Extent e = starts.get(previous);
+				if(e.start + e.count == start){
+					remove(e);
+					start  = e.start;
+					count += e.count;
+				}
+			}
+			
+			Extent next = starts.get(start + count);
+			
+			if(next != null){
+				remove(next);
+				count += next.count;
+			}
+			
+			add(new Extent(start, count));
+		}
+		
+		public void clear() {
+			starts.clear();
+			sizes.clear();
+		}
+		
+		private void add(Extent e) {
+			starts.put(e.start, e);
+			sizes.add(e);
+		}
+		
+		private void remove(Extent e) {
+			starts.remove(e.start);
+			sizes.remove(e);
+		}
+		
+	}
+	
+	private static class Extent implements Comparable<Extent>{
+		
+		private long start;
+		
+		private long count;
+		
+		private Extent(long start, long count) {
+			this.start = start;
+			this.count = count;
+		}
+		
+		public int compareTo(Extent o) {
+			if(count != o.count)
+				return count < o.count? -1 : 1;
+			
+			return start < o.start? -1 : (start == o.start? 0 : 1);
+		}
+		
+	}
+	
 	private class FreeManager{
 		
 		private String prefixFileName;
@@ -17,12 +17,23 @@
 
 package calypte.collections;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
+ * Coleção paginada. O índice de um item é dividido em página e posição. 
+ * A tabela de páginas é um array e cada página residente mantém os seus 
+ * itens em um array. Desse modo, a localização de um item residente 
+ * custa dois acessos a arrays e não cria objetos.
+ * <p>A leitura de um item residente não usa bloqueio. Ela somente marca 
+ * a página como referenciada. As páginas são distribuídas em grupos e 
+ * cada grupo tem o seu bloqueio, usado pelas alterações, pelas cargas e 
+ * pelos envios.</p>
+ * <p>Um item é obtido do {@link Swapper} somente no primeiro acesso depois 
+ * do carregamento da página. Quando o limite de itens do grupo é atingido, 
+ * a página escolhida pelo relógio (segunda chance) deixa a memória inteira. 
+ * Somente os itens alterados são enviados.</p>
  * 
  * @author Ribeiro
  *
@@ -31,11 +42,39 @@ import java.util.concurrent.locks.ReentrantLock;
 public class SwapCollectionImp<T> 
 	implements SwapCollection<T>{
 
+	/**
+	 * Quantidade de bits da posição do item na página.
+	 */
+	public static final int PAGE_SHIFT = 6;
+	
+	/**
+	 * Quantidade de itens de uma página.
+	 */
+	public static final int PAGE_SIZE  = 1 << PAGE_SHIFT;
+	
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+	
+	/**
+	 * Quantidade mínima de páginas residentes de um grupo.
+	 */
+	private static final int MIN_GROUP_PAGES = 8;
+	
+	private static final int MIN_PAGES = 16;
+	
+	/**
+	 * Posição enviada para o {@link Swapper} e ainda não carregada.
+	 */
+	private static final Object UNLOADED = new Object();
+	
 	private final long id;
 	
-    protected Map<Long, Entry<T>> data;
-
-    protected Lock lock;
+	protected volatile Page<T>[] pages;
+	
+	protected Group<T>[] groups;
+	
+	private int groupMask;
+	
+	protected Lock lock;
     
     protected Swapper<T> swap;
     
@@ -43,20 +82,45 @@ public class SwapCollectionImp<T>
     
     protected long maxSegmentCapacity;
     
-    protected volatile Entry<T> firstItem;
-    
     protected boolean readOnly;
-
-    public SwapCollectionImp(Swapper<T> swap, boolean forceSwap, 
-    		long maxSegmentCapacity, boolean readOnly) {
+    
+    /**
+     * Cria uma nova coleção.
+     * @param swap Destino dos itens que deixam a memória.
+     * @param forceSwap Envia as páginas quando o limite é atingido.
+     * @param maxSegmentCapacity Quantidade máxima de itens na memória.
+     * @param fragmentFactor Fração da capacidade destinada a cada grupo.
+     * @param readOnly Os itens alterados não são enviados.
+     */
+    @SuppressWarnings("unchecked")
+	public SwapCollectionImp(Swapper<T> swap, boolean forceSwap, 
+    		long maxSegmentCapacity, double fragmentFactor, boolean readOnly) {
+    	
+        if(swap == null)
+        	throw new NullPointerException("swap");
+        
+        if(maxSegmentCapacity <= 0)
+        	throw new IllegalStateException("maxCapacity");
+        
+        long maxPages = (maxSegmentCapacity + PAGE_SIZE - 1) >>> PAGE_SHIFT;
+        long count    = fragmentFactor <= 0? 1 : (long)(1/fragmentFactor);
+        count         = Long.highestOneBit(Math.max(1, Math.min(count, maxPages/MIN_GROUP_PAGES)));
+        
     	this.id                 = getNextUniqueID();
-		this.data 				= new HashMap<Long, Entry<T>>();
+    	this.pages              = new Page[MIN_PAGES];
+    	this.groups             = new Group[(int)count];
+    	this.groupMask          = (int)count - 1;
 		this.lock 				= new ReentrantLock();
 		this.swap 				= swap;
 		this.forceSwap 			= forceSwap;
 		this.maxSegmentCapacity = maxSegmentCapacity;
-		this.firstItem 			= null;
 		this.readOnly 			= readOnly;
+		
+		for(int i=0;i<count;i++){
+			//os itens restantes são distribuídos entre os primeiros grupos.
+			long items     = maxSegmentCapacity/count + (i < maxSegmentCapacity % count? 1 : 0);
+			this.groups[i] = new Group<T>(items);
+		}
 	}
     
     public long getId(){
@@ -64,83 +128,219 @@ public class SwapCollectionImp<T>
     }
 
 	public void add(long index, T item){
-		lock.lock();
-		try{
-			Entry<T> e = new Entry<T>(index, item);
-			add(e);
-		}
-		finally{
-			lock.unlock();
-		}
+		set(index, item);
 	}
     
 	public T set(long index, T item){
-		lock.lock();
+		Group<T> group = getGroup(index);
+		group.lock.lock();
 		try{
-			Entry<T> e = getEntry(index);
-			T old = e.getItem();
-			e.setItem(item);
-			e.setNeedUpdate(true);
+			Page<T> page = getResidentPage(group, index, true);
+			int slot     = (int)index & PAGE_MASK;
+			T old        = load(group, page, slot);
+			
+			put(group, page, slot, item);
+			release(index, old, item);
 			return old;
 		}
 		finally{
-			lock.unlock();
+			group.lock.unlock();
 		}
 	}
 
 	public T get(long index){
-		lock.lock();
+		long pageId     = index >>> PAGE_SHIFT;
+		Page<T>[] table = this.pages;
+		Page<T> page    = pageId < table.length? table[(int)pageId] : null;
+		
+		if(page != null){
+			AtomicReferenceArray<Object> items = page.items;
+			
+			if(items != null){
+				Object item = items.get((int)index & PAGE_MASK);
+				
+				if(item != UNLOADED){
+					page.reference();
+					return page.cast(item);
+				}
+			}
+		}
+		
+		return getOnLock(index);
+	}
+	
+	/*
+	 * Obtém um item que não está na memória.
+	 */
+	private T getOnLock(long index){
+		Group<T> group = getGroup(index);
+		group.lock.lock();
 		try{
-			Entry<T> e = getEntry(index);
-			return e.getItem();
+			Page<T> page = getResidentPage(group, index, false);
+			return page == null? null : load(group, page, (int)index & PAGE_MASK);
 		}
 		finally{
-			lock.unlock();
+			group.lock.unlock();
 		}
 	}
 
 	public boolean replace(long index, T oldValue, T item){
-		lock.lock();
+		Group<T> group = getGroup(index);
+		group.lock.lock();
 		try{
-			Entry<T> e = getEntry(index);
-			T old = e.getItem();
+			Page<T> page = getResidentPage(group, index, false);
+			
+			if(page == null)
+				return false;
+			
+			int slot = (int)index & PAGE_MASK;
+			T old    = load(group, page, slot);
+			
 			if(oldValue.equals(old)){
-				e.setItem(item);
-				e.setNeedUpdate(true);
+				put(group, page, slot, item);
+				release(index, old, item);
 				return true;
 			}
+			
 			return false;
 		}
 		finally{
-			lock.unlock();
+			group.lock.unlock();
 		}
 	}
 
 	public T replace(long index, T item){
-		lock.lock();
+		return set(index, item);
+	}
+	
+	/**
+	 * Notifica que um item deixou a coleção.
+	 */
+	private void release(long index, T old, T item){
+		if(old != null && old != item){
+			this.swap.releaseItem(index, old);
+		}
+	}
+
+	public T putIfAbsent(long index, T item){
+		Group<T> group = getGroup(index);
+		group.lock.lock();
 		try{
-			Entry<T> e = getEntry(index);
-			T old = e.getItem();
-			e.setItem(item);
-			e.setNeedUpdate(true);
+			Page<T> page = getResidentPage(group, index, true);
+			int slot     = (int)index & PAGE_MASK;
+			T old        = load(group, page, slot);
+			
+			if(old == null)
+				put(group, page, slot, item);
+			
 			return old;
 		}
 		finally{
-			lock.unlock();
+			group.lock.unlock();
 		}
 	}
-
-	public T putIfAbsent(long index, T item){
+	
+	private Group<T> getGroup(long index){
+		return groups[(int)(index >>> PAGE_SHIFT) & groupMask];
+	}
+	
+	/*
+	 * Obtém a página de um item e a mantém na memória. Deve ser executado 
+	 * com o bloqueio do grupo. As posições enviadas são marcadas antes da 
+	 * publicação dos itens da página.
+	 */
+	private Page<T> getResidentPage(Group<T> group, long index, boolean create){
+		long pageId     = index >>> PAGE_SHIFT;
+		Page<T>[] table = this.pages;
+		Page<T> page    = pageId < table.length? table[(int)pageId] : null;
+		
+		if(page == null){
+			if(!create)
+				return null;
+			
+			page = createPage(pageId);
+		}
+		
+		if(page.items == null){
+			AtomicReferenceArray<Object> items = new AtomicReferenceArray<Object>(PAGE_SIZE);
+			long stored                        = page.stored;
+			
+			while(stored != 0){
+				items.lazySet(Long.numberOfTrailingZeros(stored), UNLOADED);
+				stored &= stored - 1;
+			}
+			
+			page.items = items;
+			group.add(page);
+		}
+		else
+			page.reference();
+		
+		return page;
+	}
+	
+	/*
+	 * Obtém um item da página. O item é obtido do swapper se foi enviado 
+	 * e ainda não foi carregado.
+	 */
+	private T load(Group<T> group, Page<T> page, int slot){
+		long bit = 1L << slot;
+		
+		if((page.loaded & bit) == 0 && (page.stored & bit) != 0){
+			makeRoom(group, page);
+			
+			Entry<T> e    = this.swap.getItem((page.id << PAGE_SHIFT) + slot);
+			page.items.set(slot, e == null? null : e.getItem());
+			page.loaded  |= bit;
+			group.items++;
+		}
+		
+		return page.get(slot);
+	}
+	
+	private void put(Group<T> group, Page<T> page, int slot, T item){
+		long bit = 1L << slot;
+		
+		if((page.loaded & bit) == 0){
+			makeRoom(group, page);
+			page.loaded |= bit;
+			group.items++;
+		}
+		
+		page.items.set(slot, item);
+		page.dirty |= bit;
+	}
+	
+	/*
+	 * Envia as páginas escolhidas pelo relógio até que exista espaço para 
+	 * um item. A página em uso nunca é enviada.
+	 */
+	private void makeRoom(Group<T> group, Page<T> page){
+		if(!forceSwap)
+			return;
+		
+		Page<T> victim;
+		
+		while(group.items >= group.maxItems && (victim = group.nextVictim(page)) != null){
+			swapOnDisk(group, victim);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private Page<T> createPage(long pageId){
 		lock.lock();
 		try{
-			Entry<T> e = getEntry(index);
-			T old = e.getItem();
-			if(old == null){
-				e.setItem(item);
-				e.setNeedUpdate(true);
-				return null;
+			Page<T>[] table = this.pages;
+			
+			if(pageId >= table.length){
+				Page<T>[] newTable = new Page[(int)Math.max(pageId + 1, (long)table.length << 1)];
+				System.arraycopy(table, 0, newTable, 0, table.length);
+				this.pages = table = newTable;
 			}
-			return old;
+			
+			Page<T> page = new Page<T>(pageId);
+			table[(int)pageId] = page;
+			return page;
 		}
 		finally{
 			lock.unlock();
@@ -148,159 +348,84 @@ public class SwapCollectionImp<T>
 	}
 	
     public boolean swapNextCandidate(){
-    	this.lock.lock();
-    	try{
-        	Entry<T> item = this.firstItem;
-            if(item != null){
-                this.swapOnDisk(item);
-                return true;
-            }
-            return false;
+    	for(Group<T> group: groups){
+    		group.lock.lock();
+    		try{
+    			if(group.hand != null){
+    				swapOnDisk(group, group.hand);
+    				return true;
+    			}
+    		}
+    		finally{
+    			group.lock.unlock();
+    		}
     	}
-    	finally{
-        	lock.unlock();
-    	}
-    }
-	
-	protected void add(Entry<T> item){
-		
-        if(this.forceSwap && this.needSwap()){
-            this.swapFirst();
-        }
-        
-        if(data.put(item.getIndex(), item) != null){
-        	throw new IllegalStateException();
-        }
-        
-        this.addListedItemOnMemory(item);
-        
-    }
-
-    protected Entry<T> getEntry(long index) {
-        Entry<T> e = this.data.get(index);
-        
-        if(e == null)
-            return swapOnMemory(index);
-        else{
-        	realocItemListedOnMemory(e);
-        	return e;
-        }
+    	return false;
     }
 	
-    protected void swapOnDisk(Entry<T> item){
-
-        if(item.isNeedReload())
-            return;
+    protected void swapOnDisk(Group<T> group, Page<T> page){
+    	long first                         = page.id << PAGE_SHIFT;
+    	AtomicReferenceArray<Object> items = page.items;
     	
-        if(!this.readOnly && item.isNeedUpdate()){
-            this.swap.sendItem(item.getIndex(), item);
+        if(!this.readOnly && page.dirty != 0){
+        	Entry<T> entry = new Entry<T>();
+        	long dirty     = page.dirty;
+        	
+        	while(dirty != 0){
+        		int slot = Long.numberOfTrailingZeros(dirty);
+        		dirty   &= dirty - 1;
+        		
+        		entry.setIndex(first + slot);
+        		entry.setItem(page.cast(items.get(slot)));
+        		this.swap.sendItem(first + slot, entry);
+        	}
+        	
+        	page.stored |= page.dirty;
         }
-
-        Entry<T> removedItem = this.data.remove(item.getIndex());
-        this.removeItemListedOnMemory(removedItem);
-        removedItem.setItem(null);
-        removedItem.setNeedUpdate(false);
-        removedItem.setNeedReload(false);
         
-        if(item != removedItem){
-            throw new IllegalStateException();
-        }
+        group.remove(page);
+        group.items -= Long.bitCount(page.loaded);
         
-        removedItem = null;
-    }
-
-	protected Entry<T> swapOnMemory(long key){
-		
-        Entry<T> onMemoryEntity = this.data.get(key);
-
-        if(onMemoryEntity != null)
-            return onMemoryEntity;
-
-        if(forceSwap && this.needSwap())
-            this.swapFirst();
+        //uma leitura em andamento ainda pode obter um item da página.
+        page.items  = null;
+        page.dirty  = 0;
+        page.loaded = 0;
         
-        Entry<T> entity = (Entry<T>)this.swap.getItem(key);
-        entity.setNeedUpdate(false);
-        entity.setNeedReload(false);
-    	this.data.put(key, entity);
-        this.addListedItemOnMemory(entity);
-
-        return entity;
-    }
-
-    protected void swapFirst() {
-    	Entry<T> item = this.firstItem;
-        if(item != null){
-            this.swapOnDisk(item);
+        for(int i=0;i<PAGE_SIZE;i++){
+        	Object item = items.get(i);
+        	if(item != null && item != UNLOADED){
+        		this.swap.unloadItem(first + i, page.cast(item));
+        	}
         }
     }
     
-    protected void addListedItemOnMemory(Entry<T> item){
-        
-        if(firstItem == null){
-            firstItem = item;
-            firstItem.setNext(firstItem);
-            firstItem.setBefore(firstItem);
-        }
-        else{
-            Entry<T> lastItem = firstItem.getBefore();
-
-            item.setNext(this.firstItem);
-            item.setBefore(lastItem);
-
-            this.firstItem.setBefore(item);
-            lastItem.setNext(item);
-        }
-    }
-
-    protected void removeItemListedOnMemory(Entry<T> item){
-    	Entry<T> before = item.getBefore();
-    	Entry<T> next   = item.getNext();
-    	
-        if(firstItem == item){
-            if(firstItem == next)
-                    this.firstItem = null;
-            else{
-                    this.firstItem = next;
-                    before.setNext(next);
-                    next.setBefore(before);
-            }
-        }
-        else{
-            before.setNext(next);
-            next.setBefore(before);
-        }
-        item.setNext(null);
-        item.setBefore(null);
-    }
-    
-    protected void realocItemListedOnMemory(Entry<T> item){
-    	
-    	if(item.getBefore() == null && item.getNext() == null)
-    		return;
-    	
-        if(this.firstItem != null && this.firstItem.getBefore() != item){
-            this.removeItemListedOnMemory(item);
-            this.addListedItemOnMemory(item);
-        }
-    }
-    
-    public void clear(){
+    @SuppressWarnings("unchecked")
+	public void clear(){
     	this.lock.lock();
     	try{
-	    	this.firstItem = null;
-    		data.clear();
-    		swap.clear();
+    		for(Group<T> group: groups){
+    			group.lock.lock();
+    		}
+    		
+    		try{
+	    		for(Group<T> group: groups){
+	    			group.clear();
+	    		}
+	    		
+	    		this.pages = new Page[MIN_PAGES];
+	    		swap.clear();
+    		}
+    		finally{
+	    		for(Group<T> group: groups){
+	    			group.lock.unlock();
+	    		}
+    		}
     	}
     	finally{
     		this.lock.unlock();
     	}
     }
     
-    protected boolean needSwap(){
-    	return maxSegmentCapacity > 0 && this.data.size() > maxSegmentCapacity - 1;    	
-    }
-
 	public boolean isReadOnly() {
 		return readOnly;
 	}
@@ -333,31 +458,167 @@ public class SwapCollectionImp<T>
 	}
 
 	public int getNumberOfGroups() {
-		return 1;
+		return groups.length;
 	}
 
 	public Lock getGroupLock(long index) {
-		return lock;
+		return getGroup(index).lock;
 	}
 
+	@SuppressWarnings("unchecked")
 	public void flush() {
-		while(swapNextCandidate());		
+		while(swapNextCandidate());
+		
+		//os itens enviados em segundo plano também são gravados.
+		if(swap instanceof WriteBehindSwapper)
+			((WriteBehindSwapper<T>)swap).flush();
 	}
 
 	public void destroy() {
-    	this.lock.lock();
-    	try{
-	    	this.firstItem = null;
-    		data.clear();
-    		swap.destroy();
-    	}
-    	finally{
-    		this.lock.unlock();
-    	}
+		clear();
+		swap.destroy();
 	}
 
 	public void setForceSwap(boolean value) {
 		this.forceSwap = value;
 	}
 
+	/**
+	 * Página da coleção. O array dos itens somente existe quando a página 
+	 * está na memória. As posições alteradas, carregadas e enviadas para o 
+	 * {@link Swapper} são mantidas em mapas de bits, alterados somente com 
+	 * o bloqueio do grupo.
+	 */
+	protected static class Page<T> {
+		
+		private final long id;
+		
+		private volatile AtomicReferenceArray<Object> items;
+		
+		private volatile boolean referenced;
+		
+		private long dirty;
+		
+		private long loaded;
+		
+		private long stored;
+		
+		private Page<T> before;
+		
+		private Page<T> next;
+		
+		private Page(long id){
+			this.id = id;
+		}
+		
+		/*
+		 * Evita a escrita quando a página já está marcada.
+		 */
+		private void reference(){
+			if(!referenced){
+				referenced = true;
+			}
+		}
+		
+		@SuppressWarnings("unchecked")
+		private T get(int slot){
+			return (T)items.get(slot);
+		}
+		
+		@SuppressWarnings("unchecked")
+		private T cast(Object item){
+			return (T)item;
+		}
+		
+	}
+	
+	/**
+	 * Grupo de páginas. As páginas residentes formam um anel percorrido 
+	 * por um ponteiro (relógio). Uma página referenciada perde a marca e 
+	 * recebe uma segunda chance.
+	 */
+	protected static class Group<T> {
+		
+		private final Lock lock;
+		
+		private final long maxItems;
+		
+		private Page<T> hand;
+		
+		private int pages;
+		
+		private long items;
+		
+		private Group(long maxItems){
+			this.lock     = new ReentrantLock();
+			this.maxItems = maxItems;
+		}
+		
+		/*
+		 * A nova página é inserida antes do ponteiro. Desse modo, ela é a 
+		 * última a ser avaliada.
+		 */
+		private void add(Page<T> page){
+			page.referenced = false;
+			
+			if(hand == null){
+				page.before = page;
+				page.next   = page;
+				hand        = page;
+			}
+			else{
+				page.before      = hand.before;
+				page.next        = hand;
+				hand.before.next = page;
+				hand.before      = page;
+			}
+			
+			pages++;
+		}
+		
+		private void remove(Page<T> page){
+			if(page.next == page)
+				hand = null;
+			else{
+				page.before.next = page.next;
+				page.next.before = page.before;
+				
+				if(hand == page)
+					hand = page.next;
+			}
+			
+			page.before = null;
+			page.next   = null;
+			pages--;
+		}
+		
+		/*
+		 * Obtém a próxima página que deve deixar a memória. Cada página é 
+		 * avaliada no máximo duas vezes.
+		 */
+		private Page<T> nextVictim(Page<T> current){
+			for(int i=2*pages;i>0;i--){
+				Page<T> page = hand;
+				hand         = page.next;
+				
+				if(page == current)
+					continue;
+				
+				if(page.referenced)
+					page.referenced = false;
+				else
+					return page;
+			}
+			
+			return null;
+		}
+		
+		private void clear(){
+			hand  = null;
+			pages = 0;
+			items = 0;
+		}
+		
+	}
+	
 }
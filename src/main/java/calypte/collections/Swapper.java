@@ -44,6 +44,23 @@ public interface Swapper<T> extends Serializable {
      */
     Entry<T> getItem(long index) throws CacheException;
     
+    /**
+     * Libera os recursos de uma entidade que deixou a coleção. Executado 
+     * quando a entidade é substituída ou removida da coleção.
+     * @param index índice da entidade.
+     * @param item Item.
+     */
+    void releaseItem(long index, T item);
+    
+    /**
+     * Libera os recursos de uma entidade que deixou a memória. Executado 
+     * depois do envio da entidade para o agrupamento. A entidade continua 
+     * na coleção.
+     * @param index índice da entidade.
+     * @param item Item.
+     */
+    void unloadItem(long index, T item);
+    
     /**
      * Remove todos os agrupamentos.
      * @param swapCollection Coleção de onde o item pertence.
@@ -102,7 +102,7 @@ public class TreeMap<K,T>
             return this.put(key, next, value);
         }
         else{
-        	return this.treeNodes.setValue(nodes, values, node, value);
+        	return this.treeNodes.setValue(nodes, values, key, node, value);
         }
     }
 
@@ -135,7 +135,7 @@ public class TreeMap<K,T>
             return this.putIfAbsent(key, next, value);
         }
         else{
-        	return this.treeNodes.putIfAbsentValue(nodes, values, node, value);
+        	return this.treeNodes.putIfAbsentValue(nodes, values, key, node, value);
         }
     }
     
@@ -159,8 +159,13 @@ public class TreeMap<K,T>
             TreeNode<T> next = this.treeNodes.getNext(nodes, key, node, true);
             if(next == null)
                 return null;
-            else
-                return (T)remove(key, next);
+            
+            T r = remove(key, next);
+            
+            if(r != null)
+            	this.treeNodes.removeNext(nodes, key, node, next);
+            
+            return r;
         }
         else{
         	return this.treeNodes.removeValue(nodes, values, node);
@@ -174,8 +179,13 @@ public class TreeMap<K,T>
             TreeNode<T> next = this.treeNodes.getNext(nodes, key, node, true);
             if(next == null)
                 return false;
-            else
-                return remove(key, next, oldValue);
+            
+            boolean r = remove(key, next, oldValue);
+            
+            if(r)
+            	this.treeNodes.removeNext(nodes, key, node, next);
+            
+            return r;
         }
         else{
         	return this.treeNodes.removeValue(nodes, values, node, oldValue);
@@ -184,27 +194,51 @@ public class TreeMap<K,T>
     }
     
     public T put(K key, T element){
-    	TreeMapKey k = this.treeNodes.getKey(key);
-        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
-        return put(k, root, element);
+    	int op = this.treeNodes.beginOperation();
+    	try{
+	    	TreeMapKey k = this.treeNodes.getKey(key);
+	        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
+	        return put(k, root, element);
+    	}
+    	finally{
+    		this.treeNodes.endOperation(op);
+    	}
     }
 
     public boolean replace(K key, T oldElement, T element){
-    	TreeMapKey k = this.treeNodes.getKey(key);
-        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
-        return this.replace(k, root, oldElement, element);
+    	int op = this.treeNodes.beginOperation();
+    	try{
+	    	TreeMapKey k = this.treeNodes.getKey(key);
+	        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
+	        return this.replace(k, root, oldElement, element);
+    	}
+    	finally{
+    		this.treeNodes.endOperation(op);
+    	}
     }
 
     public T replace(K key, T element){
-    	TreeMapKey k = this.treeNodes.getKey(key);
-        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
-        return this.replace(k, root, element);
+    	int op = this.treeNodes.beginOperation();
+    	try{
+	    	TreeMapKey k = this.treeNodes.getKey(key);
+	        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
+	        return this.replace(k, root, element);
+    	}
+    	finally{
+    		this.treeNodes.endOperation(op);
+    	}
     }
 
     public T putIfAbsent(K key, T element){
-    	TreeMapKey k = this.treeNodes.getKey(key);
-        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
-        return this.putIfAbsent(k, root, element);
+    	int op = this.treeNodes.beginOperation();
+    	try{
+	    	TreeMapKey k = this.treeNodes.getKey(key);
+	        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
+	        return this.putIfAbsent(k, root, element);
+    	}
+    	finally{
+    		this.treeNodes.endOperation(op);
+    	}
     }
     
     public void setDeleteOnExit(boolean value){
@@ -233,31 +267,49 @@ public class TreeMap<K,T>
     }
 
     public T get(Object key) {
-    	TreeMapKey k = this.treeNodes.getKey(key);
-        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
-        if(root == null)
-            return null;
-        else
-            return this.get(k, root);
+    	int op = this.treeNodes.beginOperation();
+    	try{
+	    	TreeMapKey k = this.treeNodes.getKey(key);
+	        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
+	        if(root == null)
+	            return null;
+	        else
+	            return this.get(k, root);
+    	}
+    	finally{
+    		this.treeNodes.endOperation(op);
+    	}
     }
 
     public T remove(Object key) {
-    	TreeMapKey k = this.treeNodes.getKey(key);
-        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
-        if(root == null)
-            return null;
-        else
-            return this.remove(k, root);
+    	int op = this.treeNodes.beginOperation();
+    	try{
+	    	TreeMapKey k = this.treeNodes.getKey(key);
+	        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
+	        if(root == null)
+	            return null;
+	        else
+	            return this.remove(k, root);
+    	}
+    	finally{
+    		this.treeNodes.endOperation(op);
+    	}
     }
 
     @SuppressWarnings("unchecked")
 	public boolean remove(Object key, Object oldValue) {
-    	TreeMapKey k = this.treeNodes.getKey(key);
-        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
-        if(root == null)
-            return false;
-        else
-            return this.remove(k, root, (T)oldValue);
+    	int op = this.treeNodes.beginOperation();
+    	try{
+	    	TreeMapKey k = this.treeNodes.getKey(key);
+	        TreeNode<T> root = this.treeNodes.getFirst(this.nodes);
+	        if(root == null)
+	            return false;
+	        else
+	            return this.remove(k, root, (T)oldValue);
+    	}
+    	finally{
+    		this.treeNodes.endOperation(op);
+    	}
     }
     
     public void putAll(Map<? extends K, ? extends T> m) {
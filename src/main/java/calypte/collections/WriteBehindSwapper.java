@@ -0,0 +1,550 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.collections;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import calypte.CacheErrors;
+import calypte.CacheException;
+
+/**
+ * Envia os itens para o arquivo em segundo plano. Os itens enviados ficam 
+ * pendentes até que uma thread de gravação os grave em ordem de posição. 
+ * Os itens de posições consecutivas são gravados em uma única operação.
+ * <p>Enquanto um item está pendente, ele é devolvido por {@link #getItem(long)} 
+ * e a sua liberação é adiada até o fim da gravação. Quando a quantidade de 
+ * itens pendentes atinge o limite, o envio aguarda a gravação por até 
+ * {@link #MAX_BACKLOG_WAIT} milisegundos.</p>
+ * <p>Se a gravação falhar, os itens voltam para a lista de pendentes e uma 
+ * nova tentativa é agendada com um intervalo crescente. A falha é informada 
+ * em {@link #flush()} enquanto os itens não forem gravados. Com o limite 
+ * atingido, a falha também é informada no envio depois de 
+ * {@link #MAX_FAILURES} falhas seguidas.</p>
+ * 
+ * @author Ribeiro
+ *
+ * @param <T>
+ */
+public class WriteBehindSwapper<T> implements Swapper<T>, Runnable{
+
+	private static final long serialVersionUID = 3514006338934155713L;
+
+	/**
+	 * Os itens são gravados somente quando o limite de itens pendentes 
+	 * é atingido.
+	 */
+	public static final int FLUSH_NEVER    = 0;
+	
+	/**
+	 * Os itens pendentes são gravados periodicamente.
+	 */
+	public static final int FLUSH_INTERVAL = 1;
+	
+	/**
+	 * Os itens pendentes são gravados quando atingem uma quantidade de bytes.
+	 */
+	public static final int FLUSH_BYTES    = 2;
+	
+	/**
+	 * Intervalo inicial entre as tentativas de gravação em milisegundos.
+	 */
+	public static final long MIN_RETRY_DELAY = 10;
+	
+	/**
+	 * Intervalo máximo entre as tentativas de gravação em milisegundos.
+	 */
+	public static final long MAX_RETRY_DELAY = 5000;
+	
+	/**
+	 * Tempo máximo que um envio aguarda a gravação quando o limite de itens 
+	 * pendentes é atingido, em milisegundos.
+	 */
+	public static final long MAX_BACKLOG_WAIT = 30000;
+	
+	/**
+	 * Quantidade de falhas seguidas que faz o envio desistir de aguardar 
+	 * a gravação.
+	 */
+	public static final int MAX_FAILURES = 5;
+	
+	private final BatchSwapper<T> swapper;
+	
+	private transient ScheduledExecutorService writers;
+	
+	private transient ScheduledFuture<?> flushTask;
+	
+	private transient ScheduledFuture<?> retryTask;
+	
+	private final int flushPolicy;
+	
+	private final int flushItems;
+	
+	private final int maxItems;
+	
+	private final Lock lock;
+	
+	private final Condition written;
+	
+	private TreeMap<Long, Pending<T>> pending;
+	
+	private Map<Long, Pending<T>> writing;
+	
+	private boolean scheduled;
+	
+	private CacheException error;
+	
+	private int failures;
+	
+	private volatile boolean destroyed;
+	
+	/**
+	 * Cria um novo envio em segundo plano.
+	 * @param swapper Destino dos itens.
+	 * @param writers Threads de gravação.
+	 * @param flushPolicy Momento da gravação dos itens pendentes.
+	 * @param flushInterval Intervalo entre as gravações em milisegundos. 
+	 * Usado com {@link #FLUSH_INTERVAL}.
+	 * @param flushBytes Quantidade de bytes pendentes que inicia uma gravação. 
+	 * Usado com {@link #FLUSH_BYTES}.
+	 * @param maxBacklog Quantidade máxima de bytes pendentes.
+	 * @param recordLength Tamanho de um item no arquivo.
+	 */
+	public WriteBehindSwapper(BatchSwapper<T> swapper, ScheduledExecutorService writers, 
+			int flushPolicy, long flushInterval, long flushBytes, long maxBacklog, int recordLength){
+		this.swapper     = swapper;
+		this.writers     = writers;
+		this.flushPolicy = flushPolicy;
+		this.flushItems  = (int)Math.max(1, Math.min(Integer.MAX_VALUE, flushBytes / recordLength));
+		this.maxItems    = (int)Math.max(1, Math.min(Integer.MAX_VALUE, maxBacklog / recordLength));
+		this.lock        = new ReentrantLock();
+		this.written     = this.lock.newCondition();
+		this.pending     = new TreeMap<Long, Pending<T>>();
+		this.writing     = new HashMap<Long, Pending<T>>();
+		this.flushTask   = flushPolicy != FLUSH_INTERVAL? 
+				null : 
+				writers.scheduleWithFixedDelay(new Runnable(){
+					
+					public void run(){
+						flushPending();
+					}
+					
+				}, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+	}
+	
+	public void sendItem(long index, Entry<T> item) throws CacheException {
+		Pending<T> old;
+		
+		lock.lock();
+		try{
+			//contrapressão. O envio é feito com o bloqueio da coleção, por isso 
+			//a espera é limitada.
+			awaitBacklog();
+			
+			old = pending.put(index, new Pending<T>(item.getItem()));
+			
+			if(flushPolicy == FLUSH_BYTES && pending.size() >= flushItems)
+				schedule();
+		}
+		finally{
+			lock.unlock();
+		}
+		
+		//o item substituído não foi gravado.
+		if(old != null && old.item != item.getItem())
+			release(index, old);
+	}
+	
+	public Entry<T> getItem(long index) throws CacheException {
+		lock.lock();
+		try{
+			Pending<T> p = get(index);
+			
+			if(p != null){
+				//o item volta para a coleção.
+				p.unload   = false;
+				Entry<T> e = new Entry<T>(index, p.item);
+				e.setNeedUpdate(false);
+				return e;
+			}
+		}
+		finally{
+			lock.unlock();
+		}
+		
+		return swapper.getItem(index);
+	}
+
+	public void releaseItem(long index, T item) {
+		lock.lock();
+		try{
+			Pending<T> p = get(index, item);
+			
+			if(p != null){
+				p.release = true;
+				return;
+			}
+		}
+		finally{
+			lock.unlock();
+		}
+		
+		swapper.releaseItem(index, item);
+	}
+
+	public void unloadItem(long index, T item) {
+		lock.lock();
+		try{
+			Pending<T> p = get(index, item);
+			
+			if(p != null){
+				p.unload = true;
+				return;
+			}
+		}
+		finally{
+			lock.unlock();
+		}
+		
+		swapper.unloadItem(index, item);
+	}
+	
+	/**
+	 * Grava os itens pendentes e aguarda o fim da gravação.
+	 * @throws CacheException Lançada se a última gravação falhou. Os itens 
+	 * continuam pendentes.
+	 */
+	public void flush() throws CacheException {
+		lock.lock();
+		try{
+			checkError();
+			
+			while((!pending.isEmpty() || scheduled) && !destroyed){
+				schedule();
+				written.awaitUninterruptibly();
+				checkError();
+			}
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+	
+	public void clear() throws CacheException {
+		Map<Long, Pending<T>> discarded;
+		
+		lock.lock();
+		try{
+			while(scheduled){
+				//a nova tentativa ainda não foi iniciada.
+				if(retryTask != null && retryTask.cancel(false)){
+					retryTask = null;
+					scheduled = false;
+				}
+				else
+					written.awaitUninterruptibly();
+			}
+			
+			discarded = pending;
+			pending   = new TreeMap<Long, Pending<T>>();
+			error     = null;
+			failures  = 0;
+		}
+		finally{
+			lock.unlock();
+		}
+		
+		for(Map.Entry<Long, Pending<T>> e: discarded.entrySet()){
+			release(e.getKey(), e.getValue());
+		}
+		
+		swapper.clear();
+	}
+
+	public void destroy() throws CacheException {
+		if(flushTask != null)
+			flushTask.cancel(false);
+		
+		clear();
+		
+		lock.lock();
+		try{
+			destroyed = true;
+			written.signalAll();
+		}
+		finally{
+			lock.unlock();
+		}
+		
+		swapper.destroy();
+	}
+	
+	/**
+	 * Grava os itens pendentes. Executado por uma thread de gravação.
+	 */
+	public void run() {
+		Map<Long, Pending<T>> batch;
+		
+		lock.lock();
+		try{
+			retryTask = null;
+			
+			if(destroyed){
+				scheduled = false;
+				written.signalAll();
+				return;
+			}
+			
+			batch   = pending;
+			pending = new TreeMap<Long, Pending<T>>();
+			writing = batch;
+		}
+		finally{
+			lock.unlock();
+		}
+		
+		CacheException fail = null;
+		int attempt         = 0;
+		
+		try{
+			write(batch);
+		}
+		catch(CacheException e){
+			fail = e;
+		}
+		catch(Throwable e){
+			fail = new CacheException(e, CacheErrors.ERROR_1014);
+		}
+		
+		List<Map.Entry<Long, Pending<T>>> done = new ArrayList<Map.Entry<Long, Pending<T>>>();
+		
+		lock.lock();
+		try{
+			writing = new HashMap<Long, Pending<T>>();
+			
+			if(fail != null){
+				//os itens continuam disponíveis para a coleção.
+				for(Map.Entry<Long, Pending<T>> e: batch.entrySet()){
+					Pending<T> p = pending.get(e.getKey());
+					
+					if(p == null)
+						pending.put(e.getKey(), e.getValue());
+					else
+					if(p.item != e.getValue().item)
+						done.add(e);
+				}
+				
+				error     = fail;
+				attempt   = ++failures;
+				scheduled = retry(attempt);
+			}
+			else{
+				done.addAll(batch.entrySet());
+				error     = null;
+				failures  = 0;
+				scheduled = false;
+				
+				if(pending.size() >= maxItems || 
+						(flushPolicy == FLUSH_BYTES && pending.size() >= flushItems)){
+					schedule();
+				}
+			}
+			
+			written.signalAll();
+		}
+		finally{
+			lock.unlock();
+		}
+		
+		//somente a primeira falha de uma sequência é registrada.
+		if(attempt == 1)
+			fail.printStackTrace();
+		
+		for(Map.Entry<Long, Pending<T>> e: done){
+			release(e.getKey(), e.getValue());
+		}
+	}
+	
+	/*
+	 * Aguarda até que a quantidade de itens pendentes fique abaixo do limite.
+	 * Deve ser executado com o bloqueio.
+	 */
+	private void awaitBacklog() throws CacheException {
+		long deadline       = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_BACKLOG_WAIT);
+		boolean interrupted = false;
+		
+		try{
+			while(pending.size() >= maxItems && !destroyed){
+				if(failures >= MAX_FAILURES)
+					throw error;
+				
+				long wait = deadline - System.nanoTime();
+				
+				if(wait <= 0)
+					throw error != null? error : new CacheException(CacheErrors.ERROR_1032);
+				
+				schedule();
+				
+				try{
+					written.awaitNanos(wait);
+				}
+				catch(InterruptedException e){
+					interrupted = true;
+				}
+			}
+		}
+		finally{
+			if(interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+	
+	/*
+	 * Agenda uma nova tentativa de gravação. O intervalo dobra a cada falha.
+	 * Deve ser executado com o bloqueio.
+	 */
+	private boolean retry(int failures){
+		if(destroyed)
+			return false;
+		
+		long delay = MIN_RETRY_DELAY << Math.min(failures - 1, 20);
+		
+		try{
+			retryTask = writers.schedule(this, Math.min(delay, MAX_RETRY_DELAY), TimeUnit.MILLISECONDS);
+			return true;
+		}
+		catch(RejectedExecutionException e){
+			//as threads de gravação foram finalizadas.
+			return false;
+		}
+	}
+	
+	/*
+	 * Grava os itens em ordem de posição. Cada sequência de posições 
+	 * consecutivas é gravada em uma única operação.
+	 */
+	private void write(Map<Long, Pending<T>> batch) throws CacheException {
+		List<T> items = new ArrayList<T>();
+		long first    = -1;
+		long next     = -1;
+		
+		for(Map.Entry<Long, Pending<T>> e: batch.entrySet()){
+			long index = e.getKey();
+			
+			if(index != next && !items.isEmpty()){
+				swapper.sendItems(first, items);
+				items.clear();
+			}
+			
+			if(items.isEmpty())
+				first = index;
+			
+			items.add(e.getValue().item);
+			next = index + 1;
+		}
+		
+		if(!items.isEmpty())
+			swapper.sendItems(first, items);
+	}
+	
+	private void flushPending(){
+		lock.lock();
+		try{
+			if(!pending.isEmpty())
+				schedule();
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+	
+	/*
+	 * Deve ser executado com o bloqueio.
+	 */
+	private void schedule(){
+		if(!scheduled && !destroyed){
+			scheduled = true;
+			writers.execute(this);
+		}
+	}
+	
+	/*
+	 * A falha permanece até que uma gravação termine com sucesso.
+	 */
+	private void checkError() throws CacheException {
+		if(error != null)
+			throw error;
+	}
+	
+	/*
+	 * Obtém o item mais recente de uma posição. Deve ser executado com o bloqueio.
+	 */
+	private Pending<T> get(long index){
+		Pending<T> p = pending.get(index);
+		return p != null? p : writing.get(index);
+	}
+	
+	/*
+	 * Obtém o registro pendente de um item. Deve ser executado com o bloqueio.
+	 */
+	private Pending<T> get(long index, T item){
+		Pending<T> p = pending.get(index);
+		
+		if(p != null && p.item == item)
+			return p;
+		
+		p = writing.get(index);
+		return p != null && p.item == item? p : null;
+	}
+	
+	/*
+	 * Executa a liberação adiada de um item que deixou a lista de pendentes.
+	 */
+	private void release(long index, Pending<T> p){
+		if(p.release)
+			swapper.releaseItem(index, p.item);
+		else
+		if(p.unload)
+			swapper.unloadItem(index, p.item);
+	}
+	
+	private static class Pending<T> {
+		
+		private final T item;
+		
+		private boolean unload;
+		
+		private boolean release;
+		
+		public Pending(T item){
+			this.item = item;
+		}
+		
+	}
+	
+}
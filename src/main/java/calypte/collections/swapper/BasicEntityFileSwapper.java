@@ -131,4 +131,11 @@ public class BasicEntityFileSwapper<T> implements Swapper<T>{
 	public void destroy() throws CacheException{
 	}
 
+	public void releaseItem(long index, T item) {
+	}
+
+	public void unloadItem(long index, T item) {
+		this.releaseItem(index, item);
+	}
+
 }
@@ -0,0 +1,347 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.collections.treehugemap;
+
+import calypte.collections.ReferenceCollection;
+
+/**
+ * Nó adaptativo da árvore. A quantidade de ligações cresce conforme
+ * a necessidade (4, 16, 48 e 256) e as cadeias de nós com somente um
+ * filho são comprimidas no prefixo do nó.
+ * <p>O valor da chave fica no próprio nó. Desse modo, o valor é obtido 
+ * sem acessar outra coleção.</p>
+ * <p>As alterações na estrutura não modificam a instância. É criada uma
+ * cópia que deve substituir a instância atual na coleção.</p>
+ *
+ * @author Ribeiro
+ *
+ * @param <T>
+ */
+public abstract class AdaptiveNode<T> implements TreeNode<T>{
+
+	private static final long serialVersionUID 	= -1837617470429862217L;
+
+	public static final int NODE4				= 0;
+
+	public static final int NODE16				= 1;
+
+	public static final int NODE48				= 2;
+
+	public static final int NODE256				= 3;
+
+	/**
+	 * Quantidade máxima de rótulos por nó.
+	 */
+	public static final int MAX_NODES			= 256;
+
+	/**
+	 * Tamanho máximo do prefixo de um nó.
+	 */
+	public static final int MAX_PREFIX			= 32;
+
+	public static final byte[] EMPTY_PREFIX		= new byte[0];
+
+	/**
+	 * Profundidade de um nó removido da árvore.
+	 */
+	public static final int REMOVED				= -1;
+
+    protected long id;
+
+    protected volatile T value;
+
+    protected int depth;
+
+    protected byte[] prefix;
+
+    public AdaptiveNode(long id, T value, int depth, byte[] prefix){
+        this.id         = id;
+        this.value      = value;
+        this.depth      = depth;
+        this.prefix     = prefix;
+    }
+
+    /**
+     * Cria um nó com o menor tipo que comporta as ligações informadas.
+     *
+     * @param id Identificação do nó.
+     * @param value Valor.
+     * @param depth Tamanho da chave no fim do nó.
+     * @param prefix Prefixo do nó.
+     * @param count Quantidade de ligações.
+     * @param labels Rótulos das ligações em ordem crescente.
+     * @param nextNodes Identificação dos nós das ligações.
+     * @return Nó.
+     */
+    public static <T> AdaptiveNode<T> create(long id, T value, int depth, byte[] prefix,
+    		int count, int[] labels, long[] nextNodes){
+
+    	if(count <= AdaptiveNode16.CAPACITY){
+    		int capacity = count <= AdaptiveNode4.CAPACITY? AdaptiveNode4.CAPACITY : AdaptiveNode16.CAPACITY;
+    		byte[] l     = new byte[capacity];
+    		long[] n     = new long[capacity];
+
+    		for(int i=0;i<count;i++){
+    			l[i] = (byte)labels[i];
+    			n[i] = nextNodes[i];
+    		}
+
+    		return capacity == AdaptiveNode4.CAPACITY?
+				new AdaptiveNode4<T>(id, value, depth, prefix, l, n, count) :
+				new AdaptiveNode16<T>(id, value, depth, prefix, l, n, count);
+    	}
+    	else
+    	if(count <= AdaptiveNode48.CAPACITY){
+    		byte[] index = new byte[MAX_NODES];
+    		long[] n     = new long[AdaptiveNode48.CAPACITY];
+
+    		for(int i=0;i<n.length;i++){
+    			n[i] = -1;
+    		}
+
+    		for(int i=0;i<count;i++){
+    			index[labels[i]] = (byte)(i + 1);
+    			n[i]             = nextNodes[i];
+    		}
+
+    		return new AdaptiveNode48<T>(id, value, depth, prefix, index, n, count);
+    	}
+    	else{
+    		long[] n = new long[MAX_NODES];
+
+    		for(int i=0;i<n.length;i++){
+    			n[i] = -1;
+    		}
+
+    		for(int i=0;i<count;i++){
+    			n[labels[i]] = nextNodes[i];
+    		}
+
+    		return new AdaptiveNode256<T>(id, value, depth, prefix, n, count);
+    	}
+    }
+
+    /**
+     * Obtém o tipo do nó.
+     * @return {@link #NODE4}, {@link #NODE16}, {@link #NODE48} ou {@link #NODE256}.
+     */
+    public abstract int getType();
+
+    /**
+     * Obtém a quantidade de ligações do nó.
+     * @return Quantidade.
+     */
+    public abstract int getCount();
+
+    /**
+     * Obtém a identificação do nó associado ao rótulo.
+     * @param label Rótulo.
+     * @return Identificação do nó ou -1.
+     */
+    public abstract long getNextId(int label);
+
+    /**
+     * Obtém o primeiro rótulo existente a partir de um determinado rótulo.
+     * @param label Rótulo inicial.
+     * @return Rótulo ou -1.
+     */
+    public abstract int nextLabel(int label);
+
+    /**
+     * Associa um nó a um rótulo.
+     * @param label Rótulo.
+     * @param nextId Identificação do nó.
+     * @return Cópia do nó com a nova ligação. O tipo do nó cresce se necessário.
+     */
+    public abstract AdaptiveNode<T> putNextId(int label, long nextId);
+
+    /**
+     * Cria uma cópia do nó com um novo prefixo.
+     * @param prefix Prefixo.
+     * @return Cópia do nó.
+     */
+    public abstract AdaptiveNode<T> withPrefix(byte[] prefix);
+
+    /**
+     * Remove a ligação associada a um rótulo.
+     * @param label Rótulo.
+     * @return Cópia do nó sem a ligação. O tipo do nó diminui se possível.
+     */
+    public AdaptiveNode<T> removeNextId(int label){
+    	int count        = this.getCount();
+    	int[] labels     = new int[count];
+    	long[] nextNodes = new long[count];
+    	int n            = 0;
+    	int l            = this.nextLabel(0);
+    	
+    	while(l != -1){
+    		if(l != label){
+    			labels[n]      = l;
+    			nextNodes[n++] = this.getNextId(l);
+    		}
+    		l = l + 1 < MAX_NODES? this.nextLabel(l + 1) : -1;
+    	}
+    	
+    	return create(id, value, depth, prefix, n, labels, nextNodes);
+    }
+    
+    /**
+     * Cria uma cópia do nó marcada como removida. Um nó removido não é 
+     * válido em nenhuma posição da árvore.
+     * @return Cópia do nó.
+     */
+    public AdaptiveNode<T> removed(){
+    	AdaptiveNode<T> node = this.withPrefix(prefix);
+    	node.depth = REMOVED;
+    	return node;
+    }
+    
+    /**
+     * Verifica se o nó foi removido da árvore.
+     * @return <code>true</code> se o nó foi removido. Caso contrário, <code>false</code>.
+     */
+    public boolean isRemoved(){
+    	return depth == REMOVED;
+    }
+    
+    public Object[] getNextNodes() {
+    	Object[] o = new Object[this.getCount()];
+    	int label  = this.nextLabel(0);
+    	int i      = 0;
+
+    	while(label != -1 && i < o.length){
+    		o[i++] = getLabelKey(label);
+    		label  = label + 1 < MAX_NODES? this.nextLabel(label + 1) : -1;
+    	}
+
+    	return o;
+    }
+
+    public void setNext(ReferenceCollection<TreeNode<T>> nodes, Object key, TreeNode<T> node){
+    	nodes.set(id, this.putNextId(toLabel(key), node.getId()));
+    }
+
+    public TreeNode<T> getNext(ReferenceCollection<TreeNode<T>> nodes, Object key) {
+		long nexNode = this.getNextId(toLabel(key));
+
+        if(nexNode != -1){
+            return nodes.get(nexNode);
+        }
+        else
+            return null;
+    }
+
+    public TreeNode<T> getNextNode(ReferenceCollection<TreeNode<T>> nodes, int label) {
+		long nexNode = this.getNextId(label);
+		return nexNode == -1? null : nodes.get(nexNode);
+    }
+
+    public Object getLabelKey(int label){
+    	return Byte.valueOf((byte)label);
+    }
+    
+    protected static int toLabel(Object key){
+    	return ((Byte)key).byteValue() & 0xff;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    /**
+     * Obtém a identificação do valor. O valor fica no próprio nó.
+     * @return Identificação do nó ou -1 se o nó não tiver valor.
+     */
+    public long getValueId() {
+        return value == null? -1 : id;
+    }
+
+    public int getDepth() {
+		return depth;
+	}
+
+	public byte[] getPrefix() {
+		return prefix;
+	}
+
+	public T setValue(ReferenceCollection<T> values, T value) {
+		T old      = this.value;
+		this.value = value;
+		return old;
+    }
+
+    public T removeValue(ReferenceCollection<T> values) {
+		T old      = this.value;
+		this.value = null;
+		return old;
+    }
+
+    public T getValue(ReferenceCollection<T> values) {
+    	return this.value;
+    }
+
+	public boolean replaceValue(ReferenceCollection<T> values, T oldValue,
+			T value) {
+		T current = this.value;
+        if(current != null && current.equals(oldValue)){
+        	this.value = value;
+            return true;
+        }
+        else{
+        	return false;
+        }
+	}
+
+	public T replaceValue(ReferenceCollection<T> values, T value) {
+		T current = this.value;
+        if(current != null){
+        	this.value = value;
+            return current;
+        }
+        else{
+        	return null;
+        }
+	}
+
+	public T putIfAbsentValue(ReferenceCollection<T> values, T value) {
+		T current = this.value;
+        if(current != null){
+            return current;
+        }
+        else{
+        	this.value = value;
+        	return null;
+        }
+	}
+
+	public boolean removeValue(ReferenceCollection<T> values, T oldValue) {
+		T current = this.value;
+        if(current != null && current.equals(oldValue)){
+        	this.value = null;
+            return true;
+        }
+        else{
+        	return false;
+        }
+	}
+
+}
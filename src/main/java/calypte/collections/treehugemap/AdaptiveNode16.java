@@ -0,0 +1,62 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.collections.treehugemap;
+
+/**
+ * Nó com até 16 ligações. Os rótulos são mantidos em ordem crescente.
+ * 
+ * @author Ribeiro
+ *
+ * @param <T>
+ */
+public class AdaptiveNode16<T> extends AdaptiveNode4<T>{
+
+	private static final long serialVersionUID 	= -2990530232383390935L;
+
+	public static final int CAPACITY			= 16;
+	
+	public AdaptiveNode16(long id, T value, int depth, byte[] prefix,
+			byte[] labels, long[] nextNodes, int count){
+		super(id, value, depth, prefix, labels, nextNodes, count);
+	}
+
+	public int getType() {
+		return NODE16;
+	}
+
+	protected AdaptiveNode4<T> newInstance(byte[] labels, long[] nextNodes, int count){
+		return new AdaptiveNode16<T>(id, value, depth, prefix, labels, nextNodes, count);
+	}
+	
+	protected AdaptiveNode<T> grow(){
+		byte[] index = new byte[MAX_NODES];
+		long[] n     = new long[AdaptiveNode48.CAPACITY];
+		
+		for(int i=0;i<n.length;i++){
+			n[i] = -1;
+		}
+		
+		for(int i=0;i<count;i++){
+			index[labels[i] & 0xff] = (byte)(i + 1);
+			n[i]                    = nextNodes[i];
+		}
+		
+		return new AdaptiveNode48<T>(id, value, depth, prefix, index, n, count);
+	}
+	
+}
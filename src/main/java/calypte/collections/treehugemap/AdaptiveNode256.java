@@ -0,0 +1,73 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.collections.treehugemap;
+
+/**
+ * Nó com uma ligação para cada rótulo.
+ * 
+ * @author Ribeiro
+ *
+ * @param <T>
+ */
+public class AdaptiveNode256<T> extends AdaptiveNode<T>{
+
+	private static final long serialVersionUID 	= -4475307773187329307L;
+
+	protected long[] nextNodes;
+	
+	protected int count;
+	
+	public AdaptiveNode256(long id, T value, int depth, byte[] prefix,
+			long[] nextNodes, int count){
+		super(id, value, depth, prefix);
+		this.nextNodes = nextNodes;
+		this.count     = count;
+	}
+
+	public int getType() {
+		return NODE256;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public long getNextId(int label) {
+		return nextNodes[label];
+	}
+
+	public int nextLabel(int label) {
+		for(int i=label;i<MAX_NODES;i++){
+			if(nextNodes[i] != -1)
+				return i;
+		}
+		return -1;
+	}
+
+	public AdaptiveNode<T> putNextId(int label, long nextId) {
+		long[] n = nextNodes.clone();
+		int c    = n[label] == -1? count + 1 : count;
+		n[label] = nextId;
+		return new AdaptiveNode256<T>(id, value, depth, prefix, n, c);
+	}
+
+	public AdaptiveNode<T> withPrefix(byte[] prefix) {
+		return new AdaptiveNode256<T>(id, value, depth, prefix, nextNodes, count);
+	}
+	
+}
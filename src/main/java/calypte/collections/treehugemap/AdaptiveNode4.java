@@ -0,0 +1,131 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.collections.treehugemap;
+
+/**
+ * Nó com até 4 ligações. Os rótulos são mantidos em ordem crescente.
+ * 
+ * @author Ribeiro
+ *
+ * @param <T>
+ */
+public class AdaptiveNode4<T> extends AdaptiveNode<T>{
+
+	private static final long serialVersionUID 	= 6405722813815520146L;
+
+	public static final int CAPACITY			= 4;
+	
+	protected byte[] labels;
+	
+	protected long[] nextNodes;
+	
+	protected int count;
+	
+	public AdaptiveNode4(long id, T value, int depth, byte[] prefix){
+		this(id, value, depth, prefix, new byte[CAPACITY], new long[CAPACITY], 0);
+	}
+	
+	public AdaptiveNode4(long id, T value, int depth, byte[] prefix,
+			byte[] labels, long[] nextNodes, int count){
+		super(id, value, depth, prefix);
+		this.labels    = labels;
+		this.nextNodes = nextNodes;
+		this.count     = count;
+	}
+
+	public int getType() {
+		return NODE4;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public long getNextId(int label) {
+		for(int i=0;i<count;i++){
+			int l = labels[i] & 0xff;
+			
+			if(l == label)
+				return nextNodes[i];
+			
+			if(l > label)
+				break;
+		}
+		return -1;
+	}
+
+	public int nextLabel(int label) {
+		for(int i=0;i<count;i++){
+			int l = labels[i] & 0xff;
+			
+			if(l >= label)
+				return l;
+		}
+		return -1;
+	}
+
+	public AdaptiveNode<T> putNextId(int label, long nextId) {
+		int i = 0;
+		
+		while(i < count && (labels[i] & 0xff) < label){
+			i++;
+		}
+		
+		if(i < count && (labels[i] & 0xff) == label){
+			long[] n = nextNodes.clone();
+			n[i] = nextId;
+			return newInstance(labels, n, count);
+		}
+		
+		if(count == labels.length){
+			return grow().putNextId(label, nextId);
+		}
+		
+		byte[] l = new byte[labels.length];
+		long[] n = new long[nextNodes.length];
+		
+		System.arraycopy(labels, 0, l, 0, i);
+		System.arraycopy(nextNodes, 0, n, 0, i);
+		System.arraycopy(labels, i, l, i + 1, count - i);
+		System.arraycopy(nextNodes, i, n, i + 1, count - i);
+		
+		l[i] = (byte)label;
+		n[i] = nextId;
+		
+		return newInstance(l, n, count + 1);
+	}
+
+	public AdaptiveNode<T> withPrefix(byte[] prefix) {
+		AdaptiveNode4<T> node = newInstance(labels, nextNodes, count);
+		node.prefix = prefix;
+		return node;
+	}
+	
+	protected AdaptiveNode4<T> newInstance(byte[] labels, long[] nextNodes, int count){
+		return new AdaptiveNode4<T>(id, value, depth, prefix, labels, nextNodes, count);
+	}
+	
+	protected AdaptiveNode<T> grow(){
+		byte[] l = new byte[AdaptiveNode16.CAPACITY];
+		long[] n = new long[AdaptiveNode16.CAPACITY];
+		System.arraycopy(labels, 0, l, 0, count);
+		System.arraycopy(nextNodes, 0, n, 0, count);
+		return new AdaptiveNode16<T>(id, value, depth, prefix, l, n, count);
+	}
+	
+}
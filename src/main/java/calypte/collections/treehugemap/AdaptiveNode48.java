@@ -0,0 +1,109 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.collections.treehugemap;
+
+/**
+ * Nó com até 48 ligações. O rótulo indexa a posição da ligação.
+ * 
+ * @author Ribeiro
+ *
+ * @param <T>
+ */
+public class AdaptiveNode48<T> extends AdaptiveNode<T>{
+
+	private static final long serialVersionUID 	= 3001283012476235513L;
+
+	public static final int CAPACITY			= 48;
+	
+	protected byte[] index;
+	
+	protected long[] nextNodes;
+	
+	protected int count;
+	
+	public AdaptiveNode48(long id, T value, int depth, byte[] prefix,
+			byte[] index, long[] nextNodes, int count){
+		super(id, value, depth, prefix);
+		this.index     = index;
+		this.nextNodes = nextNodes;
+		this.count     = count;
+	}
+
+	public int getType() {
+		return NODE48;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public long getNextId(int label) {
+		int i = index[label] & 0xff;
+		return i == 0? -1 : nextNodes[i - 1];
+	}
+
+	public int nextLabel(int label) {
+		for(int i=label;i<MAX_NODES;i++){
+			if(index[i] != 0)
+				return i;
+		}
+		return -1;
+	}
+
+	public AdaptiveNode<T> putNextId(int label, long nextId) {
+		int i = index[label] & 0xff;
+		
+		if(i != 0){
+			long[] n = nextNodes.clone();
+			n[i - 1] = nextId;
+			return new AdaptiveNode48<T>(id, value, depth, prefix, index, n, count);
+		}
+		
+		if(count == CAPACITY){
+			return grow().putNextId(label, nextId);
+		}
+		
+		int slot = 0;
+		
+		while(nextNodes[slot] != -1){
+			slot++;
+		}
+		
+		byte[] x = index.clone();
+		long[] n = nextNodes.clone();
+		x[label] = (byte)(slot + 1);
+		n[slot]  = nextId;
+		return new AdaptiveNode48<T>(id, value, depth, prefix, x, n, count + 1);
+	}
+
+	public AdaptiveNode<T> withPrefix(byte[] prefix) {
+		return new AdaptiveNode48<T>(id, value, depth, prefix, index, nextNodes, count);
+	}
+	
+	protected AdaptiveNode<T> grow(){
+		long[] n = new long[MAX_NODES];
+		
+		for(int i=0;i<MAX_NODES;i++){
+			int x = index[i] & 0xff;
+			n[i] = x == 0? -1 : nextNodes[x - 1];
+		}
+		
+		return new AdaptiveNode256<T>(id, value, depth, prefix, n, count);
+	}
+	
+}
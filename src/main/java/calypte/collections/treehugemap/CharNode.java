@@ -66,6 +66,23 @@ public class CharNode<T> implements TreeNode<T>{
     	return o;
     }
     
+    public int nextLabel(int label) {
+    	for(int i=label;i<nextNodes.length;i++) {
+    		if(nextNodes[i] != -1)
+    			return i;
+    	}
+    	return -1;
+    }
+    
+    public TreeNode<T> getNextNode(ReferenceCollection<TreeNode<T>> nodes, int label) {
+		long nexNode = nextNodes[label];
+		return nexNode == -1? null : nodes.get(nexNode);
+    }
+    
+    public Object getLabelKey(int label) {
+    	return Character.valueOf(CharNodeUtil.toMap(label));
+    }
+    
     public void setNext(ReferenceCollection<TreeNode<T>> nodes, Object key, TreeNode<T> node){
     	int index = CharNodeUtil.toIndex((Character)key);
     	
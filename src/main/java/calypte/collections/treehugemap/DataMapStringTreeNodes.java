@@ -33,21 +33,6 @@ public class DataMapStringTreeNodes extends StringTreeNodes<DataMap>{
 		this.basicCacheHandler = basicCacheHandler;
 	}
 	
-	public DataMap setValue(ReferenceCollection<TreeNode<DataMap>> nodes, 
-    		ReferenceCollection<DataMap> values, TreeNode<DataMap> node, DataMap value){
-    	Lock lock = locks.getLock(node.getId());
-    	lock.lock();
-    	try{
-    		node = nodes.get(node.getId());
-    		DataMap r = node.setValue(values, value);
-    		nodes.set(node.getId(), node);
-    		return r;
-    	}
-    	finally{
-    		lock.unlock();
-    	}
-    }
-    
     public boolean replaceValue(ReferenceCollection<TreeNode<DataMap>> nodes, 
     		ReferenceCollection<DataMap> values, TreeNode<DataMap> node, DataMap oldValue, DataMap value){
     	Lock lock = this.locks.getLock(node.getId());
@@ -87,20 +72,27 @@ public class DataMapStringTreeNodes extends StringTreeNodes<DataMap>{
     }
 
     public DataMap putIfAbsentValue(ReferenceCollection<TreeNode<DataMap>> nodes, 
-    		ReferenceCollection<DataMap> values, TreeNode<DataMap> node, DataMap value){
-    	Lock lock = this.locks.getLock(node.getId());
-    	lock.lock();
-    	try{
-    		node = nodes.get(node.getId());
-    		DataMap e = node.getValue(values);
-    		if(e == null || e.isDead(basicCacheHandler.getCreationTime())) {
-    			node.setValue(values, value);
-        		nodes.set(node.getId(), node);
-    		}
-    		return e;
-    	}
-    	finally{
-    		lock.unlock();
+    		ReferenceCollection<DataMap> values, TreeMapKey key, TreeNode<DataMap> node, DataMap value){
+    	for(;;){
+	    	Lock lock = this.locks.getLock(node.getId());
+	    	lock.lock();
+	    	try{
+	    		node = nodes.get(node.getId());
+	    		
+	    		if(!isRemoved(node)){
+		    		DataMap e = node.getValue(values);
+		    		if(e == null || e.isDead(basicCacheHandler.getCreationTime())) {
+		    			node.setValue(values, value);
+		        		nodes.set(node.getId(), node);
+		    		}
+		    		return e;
+	    		}
+	    	}
+	    	finally{
+	    		lock.unlock();
+	    	}
+	    	
+	    	node = this.reload(nodes, key);
     	}
     }
     
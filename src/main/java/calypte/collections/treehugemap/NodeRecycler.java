@@ -0,0 +1,165 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package calypte.collections.treehugemap;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import calypte.collections.ReferenceCollection;
+
+/**
+ * Controla a reutilização dos nós removidos da árvore. Um item 
+ * removido somente é devolvido para a sua coleção quando todas as operações 
+ * iniciadas antes da remoção forem finalizadas. Desse modo, uma operação 
+ * sem bloqueio nunca encontra um item que foi reutilizado em outra posição.
+ * <p>As operações são contadas na época em que foram iniciadas. A época 
+ * avança quando não existem operações da época anterior e os itens 
+ * removidos nela são devolvidos.</p>
+ * 
+ * @author Ribeiro
+ *
+ * @param <T>
+ */
+class NodeRecycler<T> {
+
+	private static final int STRIPES = 16;
+	
+	/**
+	 * Separa os contadores em linhas de cache diferentes.
+	 */
+	private static final int PADDING = 16;
+	
+	private final AtomicIntegerArray active;
+	
+	private final Lock lock;
+	
+	private final IdList[] removedNodes;
+	
+	private volatile int epoch;
+	
+	private ReferenceCollection<TreeNode<T>> nodes;
+	
+	public NodeRecycler(){
+		this.active        = new AtomicIntegerArray(2*STRIPES*PADDING);
+		this.lock          = new ReentrantLock();
+		this.removedNodes  = new IdList[]{new IdList(), new IdList()};
+		this.epoch         = 0;
+	}
+	
+	/**
+	 * Define a coleção de nós e descarta os itens removidos.
+	 * @param nodes Coleção de nós.
+	 */
+	public void clear(ReferenceCollection<TreeNode<T>> nodes){
+		lock.lock();
+		try{
+			this.nodes = nodes;
+			
+			for(int i=0;i<2;i++){
+				this.removedNodes[i].size = 0;
+			}
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Registra o início de uma operação.
+	 * @return Identificação do registro.
+	 */
+	public int begin(){
+		int stripe = (int)(Thread.currentThread().getId() & (STRIPES - 1));
+		
+		for(;;){
+			int e = this.epoch;
+			int i = ((e & 1)*STRIPES + stripe)*PADDING;
+			
+			this.active.incrementAndGet(i);
+			
+			if(e == this.epoch)
+				return i;
+			
+			//a época mudou antes do registro.
+			this.active.decrementAndGet(i);
+		}
+	}
+	
+	/**
+	 * Registra o fim de uma operação.
+	 * @param operation Identificação do registro.
+	 */
+	public void end(int operation){
+		this.active.decrementAndGet(operation);
+	}
+	
+	/**
+	 * Registra a remoção de um nó. O nó não pode ser acessível a partir da raiz.
+	 * @param id Identificação do nó.
+	 */
+	public void removeNode(long id){
+		lock.lock();
+		try{
+			this.removedNodes[this.epoch & 1].add(id);
+			this.recycle();
+		}
+		finally{
+			lock.unlock();
+		}
+	}
+
+	private void recycle(){
+		int e    = this.epoch;
+		int prev = (e + 1) & 1;
+		
+		for(int i=0;i<STRIPES;i++){
+			if(this.active.get((prev*STRIPES + i)*PADDING) != 0)
+				return;
+		}
+		
+		//não existem operações da época anterior.
+		IdList list = this.removedNodes[prev];
+		
+		for(int i=0;i<list.size;i++){
+			this.nodes.remove(list.ids[i]);
+		}
+		
+		list.size  = 0;
+		this.epoch = e + 1;
+	}
+	
+	private static class IdList{
+		
+		public long[] ids = new long[16];
+		
+		public int size;
+		
+		public void add(long id){
+			if(size == ids.length){
+				long[] n = new long[ids.length*2];
+				System.arraycopy(ids, 0, n, 0, size);
+				ids = n;
+			}
+			ids[size++] = id;
+		}
+		
+	}
+	
+}
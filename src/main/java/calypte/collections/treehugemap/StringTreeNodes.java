@@ -19,10 +19,14 @@ package calypte.collections.treehugemap;
 
 import java.util.concurrent.locks.Lock;
 
+import calypte.collections.KeyUtil;
 import calypte.collections.ReferenceCollection;
 import calypte.collections.RouletteLock;
 
 /**
+ * Árvore de busca com chaves binárias. Uma chave pode ser um 
+ * <code>byte[]</code> ou uma <code>String</code>, que é codificada em UTF-8. 
+ * Cada nível da árvore representa um byte da chave.
  *
  * @author Ribeiro
  */
@@ -30,25 +34,65 @@ public class StringTreeNodes<T> implements TreeNodes<T>{
 
 	private static final long serialVersionUID = -8387188156629418047L;
 
+	private static final ThreadLocal<StringTreeMapKey> keys = 
+		new ThreadLocal<StringTreeMapKey>(){
+		
+			protected StringTreeMapKey initialValue(){
+				return new StringTreeMapKey();
+			}
+			
+		};
+	
 	protected RouletteLock locks;
 	
+	protected NodeRecycler<T> recycler;
+	
 	protected long firstNodeId;
 	
 	public StringTreeNodes(){
 		this.locks       = new RouletteLock();
+		this.recycler    = new NodeRecycler<T>();
 		this.firstNodeId = -1;
 	}
 	
+	public int beginOperation(){
+		return this.recycler.begin();
+	}
+	
+	public void endOperation(int operation){
+		this.recycler.end(operation);
+	}
+	
+	/**
+	 * Obtém a chave da árvore. A instância é reutilizada pelo processo 
+	 * e somente é válida até a próxima chamada.
+	 */
 	public TreeMapKey getKey(Object key) {
-    	String strKey = (String)key;
-    	strKey = strKey.toLowerCase();
-        StringTreeMapKey k = new StringTreeMapKey();
-        k.index = strKey.toCharArray();
-        k.limit = k.index.length;
+        StringTreeMapKey k = keys.get();
+        int len            = KeyUtil.length(key);
+        byte[] index       = KeyUtil.toBytes(key, k.buffer, len);
+        
+        if(index != key)
+        	k.buffer = index;
+        
+        k.index = index;
+        k.limit = len;
         k.pos   = 0;
         return k;
     }
 
+    public Object getNodeKey(Object key, TreeNode<T> node){
+    	byte[] prefix = ((AdaptiveNode<T>)node).getPrefix();
+    	
+    	if(prefix.length == 0)
+    		return key;
+    	
+    	byte[] value = new byte[prefix.length + 1];
+    	value[0] = (Byte)key;
+    	System.arraycopy(prefix, 0, value, 1, prefix.length);
+    	return value;
+    }
+    
     public boolean isEquals(TreeMapKey key, TreeNode<T> node) {
         StringTreeMapKey k = (StringTreeMapKey)key;
         return k.pos == k.limit;
@@ -65,17 +109,25 @@ public class StringTreeNodes<T> implements TreeNodes<T>{
     	//}
     }
     
-    public T setValue(ReferenceCollection<TreeNode<T>> nodes, ReferenceCollection<T> values, TreeNode<T> node, T value){
-    	Lock lock = this.locks.getLock(node.getId());
-    	lock.lock();
-    	try{
-    		node = nodes.get(node.getId());
-    		T r = node.setValue(values, value);
-    		nodes.set(node.getId(), node);
-    		return r;
-    	}
-    	finally{
-    		lock.unlock();
+    public T setValue(ReferenceCollection<TreeNode<T>> nodes, ReferenceCollection<T> values, 
+    		TreeMapKey key, TreeNode<T> node, T value){
+    	for(;;){
+	    	Lock lock = this.locks.getLock(node.getId());
+	    	lock.lock();
+	    	try{
+	    		node = nodes.get(node.getId());
+	    		
+	    		if(!isRemoved(node)){
+		    		T r = node.setValue(values, value);
+		    		nodes.set(node.getId(), node);
+		    		return r;
+	    		}
+	    	}
+	    	finally{
+	    		lock.unlock();
+	    	}
+	    	
+	    	node = this.reload(nodes, key);
     	}
     }
     
@@ -107,17 +159,25 @@ public class StringTreeNodes<T> implements TreeNodes<T>{
     	}
     }
 
-    public T putIfAbsentValue(ReferenceCollection<TreeNode<T>> nodes, ReferenceCollection<T> values, TreeNode<T> node, T value){
-    	Lock lock = this.locks.getLock(node.getId());
-    	lock.lock();
-    	try{
-    		node = nodes.get(node.getId());
-    		T r = node.putIfAbsentValue(values, value);
-    		nodes.set(node.getId(), node);
-    		return r;
-    	}
-    	finally{
-    		lock.unlock();
+    public T putIfAbsentValue(ReferenceCollection<TreeNode<T>> nodes, ReferenceCollection<T> values, 
+    		TreeMapKey key, TreeNode<T> node, T value){
+    	for(;;){
+	    	Lock lock = this.locks.getLock(node.getId());
+	    	lock.lock();
+	    	try{
+	    		node = nodes.get(node.getId());
+	    		
+	    		if(!isRemoved(node)){
+		    		T r = node.putIfAbsentValue(values, value);
+		    		nodes.set(node.getId(), node);
+		    		return r;
+	    		}
+	    	}
+	    	finally{
+	    		lock.unlock();
+	    	}
+	    	
+	    	node = this.reload(nodes, key);
     	}
     }
     
@@ -149,40 +209,270 @@ public class StringTreeNodes<T> implements TreeNodes<T>{
     	}
     }
     
+    /**
+     * Remove a ligação com um nó que não tem valor nem ligações. O nó é 
+     * marcado como removido e a sua posição é reutilizada quando as 
+     * operações que podem acessá-lo forem finalizadas.
+     */
+    public void removeNext(ReferenceCollection<TreeNode<T>> nodes, TreeMapKey key, TreeNode<T> node, TreeNode<T> next){
+        StringTreeMapKey k     = (StringTreeMapKey)key;
+        AdaptiveNode<T> parent = (AdaptiveNode<T>)node;
+        
+        if(parent.isRemoved())
+        	return;
+        
+        int label   = k.index[parent.getDepth()] & 0xff;
+        long nextId = next.getId();
+    	Lock first;
+    	Lock second;
+    	
+    	if(this.locks.getIndex(parent.getId()) <= this.locks.getIndex(nextId)){
+    		first  = this.locks.getLock(parent.getId());
+    		second = this.locks.getLock(nextId);
+    	}
+    	else{
+    		first  = this.locks.getLock(nextId);
+    		second = this.locks.getLock(parent.getId());
+    	}
+    	
+    	first.lock();
+    	try{
+    		second.lock();
+    		try{
+    			AdaptiveNode<T> current = (AdaptiveNode<T>)nodes.get(parent.getId());
+    			
+    			if(current.isRemoved() || current.getNextId(label) != nextId)
+    				return;
+    			
+    			AdaptiveNode<T> child = (AdaptiveNode<T>)nodes.get(nextId);
+    			
+    			if(child.getValueId() != -1 || child.getCount() != 0)
+    				return;
+    			
+    			nodes.set(nextId, child.removed());
+    			nodes.set(current.getId(), current.removeNextId(label));
+    			this.recycler.removeNode(nextId);
+    		}
+    		finally{
+    			second.unlock();
+    		}
+    	}
+    	finally{
+    		first.unlock();
+    	}
+    }
+    
+    /**
+     * Obtém novamente o nó da chave a partir da raiz. Usado quando o nó 
+     * obtido foi removido por outro processo.
+     */
+    protected TreeNode<T> reload(ReferenceCollection<TreeNode<T>> nodes, TreeMapKey key){
+        StringTreeMapKey k = (StringTreeMapKey)key;
+        TreeNode<T> node   = this.getFirst(nodes);
+        
+        k.pos = 0;
+        
+        while(k.pos < k.limit){
+        	node = this.getNext(nodes, k, node, false);
+        }
+        
+        return node;
+    }
+    
+    protected boolean isRemoved(TreeNode<T> node){
+    	return ((AdaptiveNode<T>)node).isRemoved();
+    }
+    
     public TreeNode<T> getNext(ReferenceCollection<TreeNode<T>> nodes, TreeMapKey key, TreeNode<T> node, boolean read) {
         StringTreeMapKey k = (StringTreeMapKey)key;
+        AdaptiveNode<T> parent = (AdaptiveNode<T>)node;
+        int label = k.index[k.pos] & 0xff;
         
-        char i = k.index[k.pos++];
-        TreeNode<T> next = node.getNext(nodes, i);
+        long nextId = parent.getNextId(label);
         
-        if(next == null && !read){
-        	Lock lock = this.locks.getLock(node.getId());
-        	lock.lock();
+        if(nextId != -1){
+        	AdaptiveNode<T> next = (AdaptiveNode<T>)nodes.get(nextId);
+        	int m = match(k, parent, next);
+        	
+        	if(m == -1){
+        		//o nó está sendo alterado.
+            	Lock lock = this.locks.getLock(parent.getId());
+            	lock.lock();
+            	try{
+            		parent = (AdaptiveNode<T>)nodes.get(parent.getId());
+            		nextId = parent.getNextId(label);
+            		next   = nextId == -1? null : (AdaptiveNode<T>)nodes.get(nextId);
+            		m      = match(k, parent, next);
+            	}
+            	finally{
+            		lock.unlock();
+            	}
+        	}
+        	
+        	if(m != -1 && m == next.getPrefix().length){
+        		k.pos += m + 1;
+        		return next;
+        	}
+        }
+        
+        if(read)
+        	return null;
+        
+        for(;;){
+        	nextId = parent.getNextId(label);
+        	
+        	Lock first;
+        	Lock second;
+        	
+        	if(nextId == -1){
+        		first  = this.locks.getLock(parent.getId());
+        		second = null;
+        	}
+        	else
+        	if(this.locks.getIndex(parent.getId()) <= this.locks.getIndex(nextId)){
+        		first  = this.locks.getLock(parent.getId());
+        		second = this.locks.getLock(nextId);
+        	}
+        	else{
+        		first  = this.locks.getLock(nextId);
+        		second = this.locks.getLock(parent.getId());
+        	}
+        	
+        	first.lock();
         	try{
-                node = nodes.get(node.getId());
-                next = node.getNext(nodes, i);
-                
-                if(next != null)
-                    return next;
-                
-                CharNode<T> nextNode = new CharNode<T>();
-                
-                long id = nodes.insert(nextNode);
-                
-                nextNode.setId(id);
-                next = nextNode;
-                
-                node.setNext(nodes, i, nextNode);
+        		if(second != null)
+        			second.lock();
+        		try{
+        			AdaptiveNode<T> current = (AdaptiveNode<T>)nodes.get(parent.getId());
+        			
+        			if(current.isRemoved())
+        				break;
+        			
+        			if(current.getNextId(label) != nextId){
+        				parent = current;
+        				continue;
+        			}
+        			
+        			if(nextId == -1){
+        				return this.createNodes(nodes, k, current, label);
+        			}
+        			
+        			AdaptiveNode<T> next = (AdaptiveNode<T>)nodes.get(nextId);
+        			int m = match(k, current, next);
+        			
+                	if(m == next.getPrefix().length){
+                		k.pos += m + 1;
+                		return next;
+                	}
+                	
+                	return this.split(nodes, k, current, label, next, m);
+        		}
+        		finally{
+            		if(second != null)
+            			second.unlock();
+        		}
         	}
         	finally{
-        		lock.unlock();
+        		first.unlock();
         	}
-        	
         }
         
-        return next;
+        //o nó foi removido. A busca é reiniciada a partir da raiz.
+        k.pos = 0;
+        return this.getNext(nodes, k, this.getFirst(nodes), false);
+    }
+
+    /**
+     * Verifica quantos caracteres do prefixo do nó são iguais aos da chave.
+     * @return Quantidade de caracteres ou -1 se o nó não é válido.
+     */
+    private int match(StringTreeMapKey k, AdaptiveNode<T> parent, AdaptiveNode<T> next){
+    	if(next == null)
+    		return -1;
+    	
+    	byte[] prefix = next.getPrefix();
+    	
+    	if(next.getDepth() != parent.getDepth() + 1 + prefix.length)
+    		return -1;
+    	
+    	int off = k.pos + 1;
+    	int max = Math.min(prefix.length, k.limit - off);
+    	int i   = 0;
+    	
+    	while(i < max && prefix[i] == k.index[off + i]){
+    		i++;
+    	}
+    	
+    	return i;
+    }
+    
+    /**
+     * Cria os nós do restante da chave. Os nós são criados do último 
+     * para o primeiro e a ligação do nó pai é criada por último.
+     */
+    private TreeNode<T> createNodes(ReferenceCollection<TreeNode<T>> nodes, 
+    		StringTreeMapKey k, AdaptiveNode<T> parent, int label){
+    	
+    	int start = k.pos + 1;
+    	int n     = 0;
+    	
+    	while(start + n*(AdaptiveNode.MAX_PREFIX + 1) + AdaptiveNode.MAX_PREFIX < k.limit){
+    		n++;
+    	}
+    	
+    	int off                = start + n*(AdaptiveNode.MAX_PREFIX + 1);
+    	AdaptiveNode<T> node   = new AdaptiveNode4<T>(-1, null, k.limit, copy(k.index, off, k.limit));
+    	long id                = nodes.insert(node);
+    	AdaptiveNode<T> result = node;
+    	
+    	node.setId(id);
+    	nodes.set(id, node);
+    	
+    	while(n-- > 0){
+    		int end = off - 1;
+    		off     = start + n*(AdaptiveNode.MAX_PREFIX + 1);
+    		node    = new AdaptiveNode4<T>(-1, null, end, copy(k.index, off, end))
+    						.putNextId(k.index[end] & 0xff, id);
+    		id      = nodes.insert(node);
+        	node.setId(id);
+        	nodes.set(id, node);
+    	}
+    	
+		nodes.set(parent.getId(), parent.putNextId(label, id));
+		k.pos = k.limit;
+		return result;
     }
 
+    /**
+     * Divide o prefixo de um nó. É criado um nó intermediário com a parte 
+     * comum do prefixo.
+     */
+    private TreeNode<T> split(ReferenceCollection<TreeNode<T>> nodes, 
+    		StringTreeMapKey k, AdaptiveNode<T> parent, int label, AdaptiveNode<T> next, int m){
+    	
+    	byte[] prefix        = next.getPrefix();
+    	AdaptiveNode<T> node = 
+			new AdaptiveNode4<T>(-1, null, parent.getDepth() + 1 + m, copy(prefix, 0, m))
+				.putNextId(prefix[m] & 0xff, next.getId());
+    	long id              = nodes.insert(node);
+    	
+    	node.setId(id);
+    	nodes.set(id, node);
+    	nodes.set(next.getId(), next.withPrefix(copy(prefix, m + 1, prefix.length)));
+		nodes.set(parent.getId(), parent.putNextId(label, id));
+		k.pos += m + 1;
+		return node;
+    }
+    
+    private static byte[] copy(byte[] value, int start, int end){
+    	if(start == end)
+    		return AdaptiveNode.EMPTY_PREFIX;
+    	
+    	byte[] r = new byte[end - start];
+    	System.arraycopy(value, start, r, 0, r.length);
+    	return r;
+    }
+    
     public TreeNode<T> getFirst(ReferenceCollection<TreeNode<T>> nodes) {
         return this.firstNodeId == -1? null : nodes.get(this.firstNodeId);
     }
@@ -191,7 +481,9 @@ public class StringTreeNodes<T> implements TreeNodes<T>{
         if(!nodes.isEmpty())
             throw new IllegalStateException();
         
-        CharNode<T> node = new CharNode<T>();
+        this.recycler.clear(nodes);
+        
+        AdaptiveNode<T> node = new AdaptiveNode4<T>(-1, null, 0, AdaptiveNode.EMPTY_PREFIX);
         node.setId(nodes.insert(node));
         nodes.set(node.getId(), node);
         this.firstNodeId = node.getId();
@@ -199,7 +491,9 @@ public class StringTreeNodes<T> implements TreeNodes<T>{
     
     private static class StringTreeMapKey implements TreeMapKey{
         
-        public char[] index;
+        public byte[] buffer;
+        
+        public byte[] index;
         
         public int pos;
         
@@ -51,4 +51,26 @@ public interface TreeNode<T> extends Serializable{
     
     Object[] getNextNodes();
     
+    /**
+     * Obtém o primeiro rótulo existente a partir de um determinado rótulo.
+     * @param label Rótulo inicial.
+     * @return Rótulo ou -1.
+     */
+    int nextLabel(int label);
+    
+    /**
+     * Obtém o nó associado a um rótulo.
+     * @param nodes Coleção de nós.
+     * @param label Rótulo.
+     * @return Nó ou <code>null</code>.
+     */
+    TreeNode<T> getNextNode(ReferenceCollection<TreeNode<T>> nodes, int label);
+    
+    /**
+     * Obtém a chave que representa um rótulo em {@link #getNext(ReferenceCollection, Object)}.
+     * @param label Rótulo.
+     * @return Chave.
+     */
+    Object getLabelKey(int label);
+    
 }
@@ -33,13 +33,15 @@ public interface TreeNodes<T> extends Serializable{
     
     boolean isEquals(TreeMapKey key, TreeNode<T> node);
     
+    Object getNodeKey(Object key, TreeNode<T> node);
+    
     TreeNode<T> getNext(ReferenceCollection<TreeNode<T>> nodes, TreeMapKey key, TreeNode<T> node, boolean read);
 
     TreeNode<T> getFirst(ReferenceCollection<TreeNode<T>> nodes);
     
     T getValue(ReferenceCollection<TreeNode<T>> nodes, ReferenceCollection<T> values, TreeNode<T> node);
     
-    T setValue(ReferenceCollection<TreeNode<T>> nodes, ReferenceCollection<T> values, TreeNode<T> node, T value);
+    T setValue(ReferenceCollection<TreeNode<T>> nodes, ReferenceCollection<T> values, TreeMapKey key, TreeNode<T> node, T value);
 
     boolean replaceValue(ReferenceCollection<TreeNode<T>> nodes, ReferenceCollection<T> values, TreeNode<T> node, T oldValue, T value);
 
@@ -47,8 +49,14 @@ public interface TreeNodes<T> extends Serializable{
     
     T removeValue(ReferenceCollection<TreeNode<T>> nodes, ReferenceCollection<T> values, TreeNode<T> node);
  
-    T putIfAbsentValue(ReferenceCollection<TreeNode<T>> nodes, ReferenceCollection<T> values, TreeNode<T> node, T value);
+    T putIfAbsentValue(ReferenceCollection<TreeNode<T>> nodes, ReferenceCollection<T> values, TreeMapKey key, TreeNode<T> node, T value);
     
     boolean removeValue(ReferenceCollection<TreeNode<T>> nodes, ReferenceCollection<T> values, TreeNode<T> node, T oldValue);
     
+    void removeNext(ReferenceCollection<TreeNode<T>> nodes, TreeMapKey key, TreeNode<T> node, TreeNode<T> next);
+    
+    int beginOperation();
+    
+    void endOperation(int operation);
+    
 }
@@ -0,0 +1,83 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package calypte.memory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Região da memória, somente leitura, formada por um <code>byte[]</code>. 
+ * Não pertence a nenhuma {@link Memory} e não deve ser liberada.
+ * 
+ * @author Ribeiro
+ *
+ */
+public class ByteArrayRegionMemory 
+	implements RegionMemory{
+
+	private static final long serialVersionUID = -3172209434542155301L;
+
+	private byte[] data;
+	
+	public ByteArrayRegionMemory(byte[] data){
+		this.data = data;
+	}
+	
+	public long size() {
+		return data.length;
+	}
+
+	public int read(long thisOff, byte[] buf, int off, int len) {
+		if(thisOff >= data.length)
+			return -1;
+		
+		int copy = (int)Math.min(len, data.length - thisOff);
+		System.arraycopy(data, (int)thisOff, buf, off, copy);
+		return copy;
+	}
+
+	public long read(long thisOff, RegionMemory buf, long off, long len) {
+		if(thisOff >= data.length)
+			return -1;
+		
+		int copy = (int)Math.min(len, data.length - thisOff);
+		buf.write(off, data, (int)thisOff, copy);
+		return copy;
+	}
+
+	public void read(OutputStream out, int off, int len) throws IOException {
+		if(off + len > data.length)
+			throw new IndexOutOfBoundsException("len");
+		
+		out.write(data, off, len);
+	}
+
+	public void write(long thisOff, byte[] buf, int off, int len) {
+		throw new UnsupportedOperationException();
+	}
+
+	public void write(long thisOff, RegionMemory buf, long off, long len) {
+		throw new UnsupportedOperationException();
+	}
+
+	public byte get(long off) {
+		return data[(int)off];
+	}
+
+}
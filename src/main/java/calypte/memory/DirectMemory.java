@@ -17,96 +17,257 @@
 
 package calypte.memory;
 
-import java.io.IOException;
-import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
+ * Gerencia a memória usada no cache em blocos diretos do NIO 
+ * ({@link ByteBuffer#allocateDirect(int)}). Cada bloco é dividido em 
+ * posições de tamanho fixo e cada região ocupa uma posição da menor classe 
+ * de tamanho que a comporta. Uma posição liberada é reutilizada pela sua classe.
+ * <p>Regiões maiores que {@link #MAX_SLOT_SIZE} são alocadas separadamente.</p>
+ * <p>A posição de uma região é identificada pelo bloco e pelo deslocamento 
+ * no bloco. A tabela de blocos é copiada a cada alteração. Desse modo, 
+ * a obtenção de um bloco não usa bloqueio.</p>
  * 
  * @author Ribeiro
  *
  */
 public class DirectMemory implements Memory{
 
+	/**
+	 * Tamanho da menor posição.
+	 */
+	public static final int MIN_SLOT_SIZE		= 1 << 4;
+	
+	/**
+	 * Tamanho da maior posição.
+	 */
+	public static final int MAX_SLOT_SIZE		= 1 << 20;
+	
+	/**
+	 * Tamanho de um bloco direto.
+	 */
+	public static final int CHUNK_SIZE			= 4 << 20;
+	
+	private static final int MIN_SHIFT			= 4;
+	
+	private static final int MAX_SHIFT			= 20;
+	
+	private final SizeClass[] classes;
+	
+	private volatile ByteBuffer[] chunks;
+	
+	private final List<Integer> freeChunks;
+	
+	public DirectMemory(){
+		this.classes    = new SizeClass[MAX_SHIFT - MIN_SHIFT + 1];
+		this.chunks     = new ByteBuffer[0];
+		this.freeChunks = new ArrayList<Integer>();
+		
+		for(int i=0;i<classes.length;i++){
+			this.classes[i] = new SizeClass(1 << (MIN_SHIFT + i));
+		}
+	}
+	
 	public RegionMemory alloc(long size) {
-		return new DirectRegionMemory(new byte[(int)size]);
+		int sizeClass = sizeClass(size);
+		return wrap(allocSlot(sizeClass, size), size, sizeClass);
 	}
 
 	public void realloc(long size, RegionMemory region) {
-		((DirectRegionMemory)region).buffer = new byte[(int)size];
+		DirectRegionMemory r = (DirectRegionMemory)region;
+		
+		synchronized(r){
+			int sizeClass     = sizeClass(size);
+			long address      = allocSlot(sizeClass, size);
+			ByteBuffer buffer = slice(address, size, sizeClass);
+			ByteBuffer src    = r.buffer.duplicate();
+			
+			src.limit((int)Math.min(r.length, size));
+			buffer.duplicate().put(src);
+			
+			if(r.address != -1)
+				freeSlot(r.sizeClass, r.address);
+			
+			r.buffer    = buffer;
+			r.address   = address;
+			r.length    = size;
+			r.sizeClass = sizeClass;
+		}
 	}
 
 	public void alloc(long size, RegionMemory region) {
-		((DirectRegionMemory)region).buffer = new byte[(int)size];
+		DirectRegionMemory r = (DirectRegionMemory)region;
+		
+		synchronized(r){
+			if(r.buffer != null)
+				throw new IllegalStateException();
+			
+			int sizeClass = sizeClass(size);
+			r.address     = allocSlot(sizeClass, size);
+			r.buffer      = slice(r.address, size, sizeClass);
+			r.length      = size;
+			r.sizeClass   = sizeClass;
+		}
 	}
 
 	public void release(RegionMemory region) {
-		((DirectRegionMemory)region).buffer = null;
+		DirectRegionMemory r = (DirectRegionMemory)region;
+		
+		synchronized(r){
+			if(r.buffer == null)
+				return;
+			
+			//uma região desserializada não pertence a nenhum bloco.
+			if(r.address != -1)
+				freeSlot(r.sizeClass, r.address);
+			
+			r.buffer = null;
+		}
 	}
 
-	private class DirectRegionMemory implements RegionMemory{
-
-		private static final long serialVersionUID = -6421266271433887657L;
+	/**
+	 * Obtém a região de uma posição já alocada.
+	 * @param address Posição da região.
+	 * @param size Tamanho da região.
+	 * @param sizeClass Classe de tamanho da região.
+	 * @return Região.
+	 */
+	public DirectRegionMemory wrap(long address, long size, int sizeClass){
+		return new DirectRegionMemory(slice(address, size, sizeClass), address, size, sizeClass);
+	}
+	
+	/**
+	 * Obtém a quantidade de memória reservada pelos blocos diretos.
+	 * @return Quantidade em bytes.
+	 */
+	public long getChunkMemory(){
+		long r = 0;
+		for(ByteBuffer c: this.chunks){
+			if(c != null)
+				r += c.capacity();
+		}
+		return r;
+	}
+	
+	/**
+	 * Cria um bloco.
+	 * @param id Identificação do bloco.
+	 * @param size Tamanho do bloco.
+	 * @return Bloco.
+	 */
+	protected ByteBuffer allocateChunk(int id, int size){
+		return ByteBuffer.allocateDirect(size);
+	}
+	
+	private synchronized int addChunk(int size){
+		int id = freeChunks.isEmpty()? chunks.length : freeChunks.remove(freeChunks.size() - 1).intValue();
 		
-		byte[] buffer;
+		ByteBuffer chunk = allocateChunk(id, size);
+		ByteBuffer[] c   = new ByteBuffer[Math.max(chunks.length, id + 1)];
 		
-		public DirectRegionMemory(byte[] buffer) {
-			this.buffer = buffer;
-		}
+		System.arraycopy(chunks, 0, c, 0, chunks.length);
+		c[id]  = chunk;
+		chunks = c;
 		
-		public long size() {
-			return buffer.length;
+		return id;
+	}
+	
+	private synchronized void removeChunk(int id){
+		ByteBuffer[] c = chunks.clone();
+		c[id]  = null;
+		chunks = c;
+		freeChunks.add(Integer.valueOf(id));
+	}
+	
+	private ByteBuffer getChunk(int id){
+		return chunks[id];
+	}
+	
+	private ByteBuffer slice(long address, long size, int sizeClass){
+		ByteBuffer b = getChunk((int)(address >>> 32)).duplicate();
+		int off      = (int)address;
+		b.position(off);
+		b.limit(off + (int)(sizeClass < 0? size : classes[sizeClass].slotSize));
+		return b.slice();
+	}
+	
+	private long allocSlot(int sizeClass, long size){
+		if(sizeClass < 0)
+			return (long)addChunk((int)size) << 32;
+		
+		return classes[sizeClass].alloc();
+	}
+	
+	private void freeSlot(int sizeClass, long address){
+		if(sizeClass < 0)
+			removeChunk((int)(address >>> 32));
+		else
+			classes[sizeClass].free(address);
+	}
+	
+	private static int sizeClass(long size){
+		if(size > MAX_SLOT_SIZE)
+			return -1;
+		
+		int shift = MIN_SHIFT;
+		
+		while((1L << shift) < size){
+			shift++;
 		}
-
-		public int read(long thisOff, byte[] buf, int off, int len) {
-			int max = (int)(buffer.length - thisOff);
-			max     = max > len? len : max;
-			
-			System.arraycopy(buffer, (int)thisOff, buf, off, max);
-			thisOff += max;
-			return max;
+		
+		return shift - MIN_SHIFT;
+	}
+	
+	/**
+	 * Classe de tamanho. Contém o bloco em uso e a lista de posições livres.
+	 */
+	private class SizeClass{
+		
+		private final int slotSize;
+		
+		private final int chunkSize;
+		
+		private long[] free;
+		
+		private int freeSize;
+		
+		private int chunk;
+		
+		private int chunkOffset;
+		
+		public SizeClass(int slotSize){
+			this.slotSize    = slotSize;
+			this.chunkSize   = Math.max(CHUNK_SIZE, slotSize);
+			this.free        = new long[64];
+			this.chunkOffset = chunkSize;
 		}
-
-		public long read(long thisOff, RegionMemory buf, long off, long len) {
-			int max = (int)(buffer.length - thisOff);
-			max     = (int)(max > len? len : max);
+		
+		public synchronized long alloc(){
+			if(freeSize > 0)
+				return free[--freeSize];
 			
-			System.arraycopy(buffer, (int)thisOff, ((DirectRegionMemory)buf).buffer, (int)off, max);
-			thisOff += max;
-			return max;
-		}
-
-		public void read(OutputStream out, int off, int len) throws IOException {
-			byte[] tmp = new byte[2048];
-			int read;
-			int thisOff = off;
-			int maxRead = len > tmp.length? tmp.length : len;
-			while((read = read(thisOff, tmp, 0, maxRead)) > 0){
-				out.write(tmp, 0, read);
-				thisOff += read;
-				len     -= read;
-				maxRead  = len > tmp.length? tmp.length : len;
+			if(chunkOffset + slotSize > chunkSize){
+				chunk       = addChunk(chunkSize);
+				chunkOffset = 0;
 			}
-		}
-
-		public void write(long thisOff, byte[] buf, int off, int len) {
-			int max = (int)(buffer.length - thisOff);
-			max     = max > len? len : max;
 			
-			System.arraycopy(buf, (int)thisOff, buffer, off, max);
-			thisOff += max;
+			long address = ((long)chunk << 32) | chunkOffset;
+			chunkOffset += slotSize;
+			return address;
 		}
-
-		public void write(long thisOff, RegionMemory buf, long off, long len) {
-			int max = (int)(buffer.length - thisOff);
-			max     = (int)(max > len? len : max);
-			
-			System.arraycopy(((DirectRegionMemory)buf).buffer, (int)thisOff, buffer, (int)off, max);
-			thisOff += max;
-		}
-
-		public byte get(long off) {
-			return buffer[(int)off];
+		
+		public synchronized void free(long address){
+			if(freeSize == free.length){
+				long[] n = new long[free.length*2];
+				System.arraycopy(free, 0, n, 0, freeSize);
+				free = n;
+			}
+			free[freeSize++] = address;
 		}
 		
 	}
+	
 }
@@ -0,0 +1,207 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.memory;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Região de um bloco direto do {@link DirectMemory}. Os dados podem ser 
+ * acessados por um {@link ByteBuffer} para que a escrita em canais 
+ * seja feita sem cópias intermediárias.
+ * 
+ * @author Ribeiro
+ *
+ */
+public class DirectRegionMemory 
+	implements RegionMemory{
+
+	private static final long serialVersionUID = -6421266271433887657L;
+
+	transient ByteBuffer buffer;
+	
+	/**
+	 * Posição da região. Contém o bloco e o deslocamento no bloco.
+	 */
+	transient long address;
+	
+	long length;
+	
+	/**
+	 * Classe de tamanho da região. Se for -1, a região foi alocada separadamente.
+	 */
+	int sizeClass;
+	
+	public DirectRegionMemory(ByteBuffer buffer, long address, long length, int sizeClass) {
+		this.buffer    = buffer;
+		this.address   = address;
+		this.length    = length;
+		this.sizeClass = sizeClass;
+	}
+	
+	/**
+	 * Obtém uma visão da região. A posição e o limite da visão são 
+	 * independentes da região.
+	 * @return Visão da região.
+	 */
+	public ByteBuffer getByteBuffer(){
+		return view(0, (int)length);
+	}
+	
+	/**
+	 * Obtém a posição da região no {@link DirectMemory}.
+	 * @return Posição.
+	 */
+	public long getAddress(){
+		return address;
+	}
+	
+	/**
+	 * Obtém a classe de tamanho da região.
+	 * @return Classe de tamanho ou -1 se a região foi alocada separadamente.
+	 */
+	public int getSizeClass(){
+		return sizeClass;
+	}
+	
+	public long size() {
+		return length;
+	}
+
+	public byte get(long off) {
+		return buffer.get((int)off);
+	}
+	
+	public int read(long thisOff, byte[] buf, int off, int len) {
+		int max = (int)(length - thisOff);
+		max     = max > len? len : max;
+		
+		if(max > 0)
+			view((int)thisOff, max).get(buf, off, max);
+		
+		return max;
+	}
+
+	public long read(long thisOff, RegionMemory buf, long off, long len) {
+		long max = length - thisOff;
+		max      = max > len? len : max;
+		
+		if(max > 0)
+			buf.write(off, this, thisOff, max);
+		
+		return max;
+	}
+
+	public void read(OutputStream out, int off, int len) throws IOException {
+		//o canal do arquivo escreve diretamente da região.
+		if(out instanceof FileOutputStream){
+			ByteBuffer src = view(off, len);
+			while(src.hasRemaining()){
+				((FileOutputStream)out).getChannel().write(src);
+			}
+			return;
+		}
+		
+		byte[] tmp = new byte[2048];
+		int read;
+		int thisOff = off;
+		int maxRead = len > tmp.length? tmp.length : len;
+		while((read = read(thisOff, tmp, 0, maxRead)) > 0){
+			out.write(tmp, 0, read);
+			thisOff += read;
+			len     -= read;
+			maxRead  = len > tmp.length? tmp.length : len;
+		}
+	}
+
+	public void write(long thisOff, byte[] buf, int off, int len) {
+		int max = (int)(length - thisOff);
+		max     = max > len? len : max;
+		
+		if(max > 0)
+			view((int)thisOff, max).put(buf, off, max);
+	}
+
+	public void write(long thisOff, RegionMemory buf, long off, long len) {
+		long max = length - thisOff;
+		max      = max > len? len : max;
+		
+		if(max <= 0)
+			return;
+		
+		if(buf instanceof DirectRegionMemory){
+			ByteBuffer src = ((DirectRegionMemory)buf).view((int)off, (int)max);
+			view((int)thisOff, src.remaining()).put(src);
+			return;
+		}
+		
+		byte[] tmp = new byte[(int)Math.min(max, 8192)];
+		int read;
+		
+		while(max > 0 && (read = buf.read(off, tmp, 0, (int)Math.min(max, tmp.length))) > 0){
+			view((int)thisOff, read).put(tmp, 0, read);
+			thisOff += read;
+			off     += read;
+			max     -= read;
+		}
+	}
+	
+	private ByteBuffer view(int off, int len){
+		ByteBuffer b = buffer.duplicate();
+		len          = Math.min(len, b.capacity() - off);
+		b.limit(off + len);
+		b.position(off);
+		return b;
+	}
+	
+	private void writeObject(ObjectOutputStream stream) throws IOException {
+		stream.writeLong(this.length);
+		byte[] b = new byte[9024];
+		int off  = 0;
+		int len;
+		while((len = this.read(off, b, 0, b.length)) > 0){
+			stream.write(b, 0, len);
+			off += len;
+		}
+    }
+
+    private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+    	this.length    = stream.readLong();
+    	this.buffer    = ByteBuffer.allocateDirect((int)length);
+    	//a região foi alocada separadamente e não pertence a nenhum bloco.
+    	this.address   = -1;
+    	this.sizeClass = -1;
+		int len;
+		int thisOff = 0;
+		byte[] b = new byte[9024];
+		while(thisOff < this.length){
+			int maxLen = (int)Math.min(b.length, this.length - thisOff);
+			len = stream.read(b, 0, maxLen);
+			if(len <= 0){
+				break;
+			}
+			this.write(thisOff, b, 0, len);
+			thisOff += len;
+		}
+    }
+    
+}
@@ -17,60 +17,366 @@
 
 package calypte.memory;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
- * Gerencia a memória usada no cache.
+ * Gerencia a memória usada no cache em segmentos contínuos do heap 
+ * (<code>byte[]</code>). Cada segmento é dividido em posições de tamanho 
+ * fixo e cada região ocupa uma posição da menor classe de tamanho que a 
+ * comporta. Desse modo, uma região é contínua e identificada pelo 
+ * segmento e pelo deslocamento no segmento.
+ * <p>Cada thread tem a sua própria lista de posições livres por classe. 
+ * Quando a lista fica vazia ou cheia, um lote de posições é trocado com o 
+ * conjunto compartilhado da classe, sem bloqueio.</p>
+ * <p>Regiões maiores que o segmento são alocadas separadamente e reutilizadas 
+ * por um conjunto compartilhado limitado a {@link #MAX_POOL_SIZE} bytes.</p>
  * 
  * @author Ribeiro
  *
  */
 public class HeapMemory implements Memory{
 
+	/**
+	 * Tamanho padrão de um segmento.
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE	= 1 << 20;
+	
+	/**
+	 * Tamanho da menor posição.
+	 */
+	public static final int MIN_SLOT_SIZE			= 1 << 4;
+	
+	/**
+	 * Quantidade máxima de bytes das regiões maiores que o segmento 
+	 * mantidas para reutilização.
+	 */
+	public static final long MAX_POOL_SIZE			= 16L << 20;
+	
+	private static final int MIN_SHIFT				= 4;
+	
+	/**
+	 * Quantidade máxima de posições trocadas por vez com o conjunto compartilhado.
+	 */
+	private static final int MAX_BATCH				= 32;
+	
+	private final int segmentSize;
+	
+	private final SizeClass[] classes;
+	
+	private final ThreadLocal<LongStack[]> threadCaches;
+	
+	private final ConcurrentHashMap<Integer, ConcurrentLinkedQueue<byte[]>> pool;
+	
+	private final AtomicLong poolSize;
+	
+	private volatile byte[][] segments;
+	
+	private int segmentCount;
+	
+	public HeapMemory(){
+		this(DEFAULT_SEGMENT_SIZE);
+	}
+	
+	/**
+	 * Cria a memória.
+	 * @param segmentSize Tamanho de um segmento. Deve ser uma potência de 2 
+	 * maior ou igual a {@link #MIN_SLOT_SIZE}.
+	 */
+	public HeapMemory(int segmentSize){
+		if(segmentSize < MIN_SLOT_SIZE || Integer.bitCount(segmentSize) != 1)
+			throw new IllegalArgumentException("segmentSize: " + segmentSize);
+		
+		this.segmentSize = segmentSize;
+		this.classes     = new SizeClass[Integer.numberOfTrailingZeros(segmentSize) - MIN_SHIFT + 1];
+		this.segments    = new byte[16][];
+		this.pool        = new ConcurrentHashMap<Integer, ConcurrentLinkedQueue<byte[]>>();
+		this.poolSize    = new AtomicLong();
+		
+		for(int i=0;i<classes.length;i++){
+			this.classes[i] = new SizeClass(1 << (MIN_SHIFT + i));
+		}
+		
+		this.threadCaches = new ThreadLocal<LongStack[]>(){
+			
+			protected LongStack[] initialValue(){
+				LongStack[] caches = new LongStack[classes.length];
+				
+				for(int i=0;i<caches.length;i++){
+					caches[i] = new LongStack(2*classes[i].batch);
+				}
+				
+				return caches;
+			}
+			
+		};
+	}
+	
+	/**
+	 * Obtém o tamanho de um segmento.
+	 * @return Tamanho em bytes.
+	 */
+	public int getSegmentSize(){
+		return segmentSize;
+	}
+	
 	public RegionMemory alloc(long size) {
-		byte[][] segs = HeapMemoryUtil.alloc(size);
-		return new HeapRegionMemory(segs, (int)HeapMemoryUtil.segmentSize, (int)size);
+		HeapRegionMemory r = new HeapRegionMemory(this);
+		allocRegion(size, r);
+		return r;
 	}
 
 	public void realloc(long size, RegionMemory region){
 		HeapRegionMemory r = (HeapRegionMemory)region;
-		byte[][] segs      = r.segments;
-		byte[][] newSegs   = HeapMemoryUtil.alloc(size);
 		
-		if(newSegs.length > segs.length){
-			System.arraycopy(segs, 0, newSegs, 0, segs.length);
-			HeapMemoryUtil.free(segs);
-			r.segments    = newSegs;
-			r.segmentSize = (int)HeapMemoryUtil.segmentSize;
-		}
-		else{
-			System.arraycopy(segs, 0, newSegs, 0, newSegs.length);
-			HeapMemoryUtil.free(segs);
+		synchronized(r){
+			byte[] data   = r.data;
+			int offset    = r.offset;
+			long length   = r.length;
+			int sizeClass = r.sizeClass;
+			long address  = r.address;
+			
+			allocRegion(size, r);
+			System.arraycopy(data, offset, r.data, r.offset, (int)Math.min(length, size));
+			freeRegion(sizeClass, address, data, false);
 		}
-		
 	}
 	
 	public void alloc(long size, RegionMemory region) {
 		HeapRegionMemory r = (HeapRegionMemory)region;
-		if(r.segments != null)
-			throw new IllegalStateException();
-		allocSegments(size, r);
+		
+		synchronized(r){
+			if(r.data != null)
+				throw new IllegalStateException();
+			
+			allocRegion(size, r);
+		}
 	}
 	
 	public void release(RegionMemory region){
 		HeapRegionMemory r = (HeapRegionMemory)region;
-		if(r.segments == null)
-			return;
 		
-		HeapMemoryUtil.free(r.segments);
-		r.segments = null;
+		synchronized(r){
+			if(r.data == null)
+				return;
+			
+			freeRegion(r.sizeClass, r.address, r.data, false);
+			r.data = null;
+		}
  	}
 	
-	private HeapRegionMemory allocSegments(long size, HeapRegionMemory region){
-		byte[][] allocSegs = HeapMemoryUtil.alloc(size);
-		region.length      = size;
-		region.segments    = allocSegs;
-		region.segmentSize = HeapMemoryUtil.segmentSize;
-		return region;
+	/**
+	 * Devolve uma região que não foi liberada. Executado pelo coletor de lixo. 
+	 * A posição é devolvida diretamente para o conjunto compartilhado.
+	 * @param region Região.
+	 */
+	void free(HeapRegionMemory region){
+		freeRegion(region.sizeClass, region.address, region.data, true);
+	}
+	
+	/**
+	 * Obtém a quantidade de memória reservada pelos segmentos.
+	 * @return Quantidade em bytes.
+	 */
+	public synchronized long getSegmentMemory(){
+		return (long)segmentCount*segmentSize;
+	}
+	
+	private void allocRegion(long size, HeapRegionMemory r){
+		int sizeClass = sizeClass(size);
+		
+		if(sizeClass < 0){
+			r.data    = allocLarge((int)size);
+			r.offset  = 0;
+			r.address = -1;
+		}
+		else{
+			long address = allocSlot(sizeClass);
+			r.data       = segments[(int)(address >>> 32)];
+			r.offset     = (int)address;
+			r.address    = address;
+		}
+		
+		r.length    = size;
+		r.sizeClass = sizeClass;
+	}
+	
+	private void freeRegion(int sizeClass, long address, byte[] data, boolean shared){
+		if(sizeClass < 0){
+			freeLarge(data);
+			return;
+		}
+		
+		if(shared){
+			classes[sizeClass].shared.add(new long[]{address});
+			return;
+		}
+		
+		LongStack cache = threadCaches.get()[sizeClass];
+		
+		if(cache.isFull())
+			classes[sizeClass].drain(cache);
+		
+		cache.push(address);
+	}
+	
+	private long allocSlot(int sizeClass){
+		LongStack cache = threadCaches.get()[sizeClass];
+		
+		if(cache.size == 0)
+			classes[sizeClass].refill(cache);
+		
+		return cache.pop();
+	}
+	
+	private byte[] allocLarge(int size){
+		ConcurrentLinkedQueue<byte[]> queue = pool.get(size);
+		byte[] data                         = queue == null? null : queue.poll();
+		
+		if(data == null)
+			return new byte[size];
+		
+		poolSize.addAndGet(-size);
+		return data;
+	}
+	
+	private void freeLarge(byte[] data){
+		//o conjunto é limitado. O excedente é descartado pelo coletor de lixo.
+		if(poolSize.addAndGet(data.length) > MAX_POOL_SIZE){
+			poolSize.addAndGet(-data.length);
+			return;
+		}
+		
+		ConcurrentLinkedQueue<byte[]> queue = pool.get(data.length);
+		
+		if(queue == null){
+			ConcurrentLinkedQueue<byte[]> q = new ConcurrentLinkedQueue<byte[]>();
+			queue = pool.putIfAbsent(data.length, q);
+			queue = queue == null? q : queue;
+		}
+		
+		queue.add(data);
+	}
+	
+	private synchronized int addSegment(){
+		byte[][] s = segments;
+		
+		if(segmentCount == s.length){
+			byte[][] n = new byte[s.length*2][];
+			System.arraycopy(s, 0, n, 0, s.length);
+			s = n;
+		}
+		
+		s[segmentCount] = new byte[segmentSize];
+		segments        = s;
+		return segmentCount++;
+	}
+	
+	private int sizeClass(long size){
+		if(size > segmentSize)
+			return -1;
+		
+		int shift = MIN_SHIFT;
+		
+		while((1L << shift) < size){
+			shift++;
+		}
+		
+		return shift - MIN_SHIFT;
+	}
+	
+	/**
+	 * Classe de tamanho. Contém o segmento em uso e o conjunto compartilhado 
+	 * de posições livres, formado por lotes.
+	 */
+	private class SizeClass{
+		
+		public final int slotSize;
+		
+		public final int batch;
+		
+		public final ConcurrentLinkedQueue<long[]> shared;
+		
+		private int segment;
+		
+		private int segmentOffset;
+		
+		public SizeClass(int slotSize){
+			this.slotSize      = slotSize;
+			this.batch         = Math.max(1, Math.min(MAX_BATCH, segmentSize / slotSize / 16));
+			this.shared        = new ConcurrentLinkedQueue<long[]>();
+			this.segmentOffset = segmentSize;
+		}
+		
+		public void refill(LongStack cache){
+			long[] b = shared.poll();
+			
+			if(b != null){
+				for(long address: b){
+					cache.push(address);
+				}
+				return;
+			}
+			
+			synchronized(this){
+				for(int i=0;i<batch;i++){
+					if(segmentOffset + slotSize > segmentSize){
+						segment       = addSegment();
+						segmentOffset = 0;
+					}
+					
+					cache.push(((long)segment << 32) | segmentOffset);
+					segmentOffset += slotSize;
+				}
+			}
+		}
+		
+		public void drain(LongStack cache){
+			long[] b = new long[batch];
+			
+			for(int i=0;i<b.length;i++){
+				b[i] = cache.pop();
+			}
+			
+			shared.add(b);
+		}
+		
+	}
+	
+	/**
+	 * Pilha de posições.
+	 */
+	private static class LongStack{
+		
+		public long[] values;
+		
+		public int size;
+		
+		private final int capacity;
+		
+		public LongStack(int capacity){
+			this.values   = new long[capacity];
+			this.capacity = capacity;
+		}
+		
+		public boolean isFull(){
+			return size >= capacity;
+		}
+		
+		public void push(long value){
+			if(size == values.length){
+				long[] n = new long[values.length*2];
+				System.arraycopy(values, 0, n, 0, size);
+				values = n;
+			}
+			values[size++] = value;
+		}
+		
+		public long pop(){
+			return values[--size];
+		}
+		
 	}
 	
-
 }
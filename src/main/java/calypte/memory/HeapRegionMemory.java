@@ -23,6 +23,7 @@ import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 
 /**
+ * Região contínua de um segmento do {@link HeapMemory}.
  * 
  * @author Ribeiro
  *
@@ -31,20 +32,26 @@ public class HeapRegionMemory implements RegionMemory{
 
 	private static final long serialVersionUID = -8225524015808420667L;
 
-	byte[][] segments;
+	transient HeapMemory memory;
+	
+	byte[] data;
 
-	int segmentSize;
+	int offset;
 	
 	long length;
 	
-	public HeapRegionMemory(byte[][] segments, int segmentSize, int length){
-		this.segments    = segments;
-		this.segmentSize = segmentSize;
-		this.length      = length;
-	}
+	/**
+	 * Classe de tamanho da região. Se for -1, a região foi alocada separadamente.
+	 */
+	int sizeClass;
+	
+	/**
+	 * Posição da região. Contém o segmento e o deslocamento no segmento.
+	 */
+	long address;
 	
-	byte[][] getSegments(){
-		return segments;
+	HeapRegionMemory(HeapMemory memory){
+		this.memory = memory;
 	}
 	
 	public long size(){
@@ -57,10 +64,7 @@ public class HeapRegionMemory implements RegionMemory{
 			throw new IndexOutOfBoundsException(offset + " >= " + this.length);
 		}
 		
-		int seg = (int)(offset / this.segmentSize); 
-		int off = (int)(offset % this.segmentSize);
-		
-		return this.segments[seg][off];
+		return this.data[this.offset + (int)offset];
 	}
 
 	public void read(OutputStream out, int off, int len) throws IOException{
@@ -73,20 +77,7 @@ public class HeapRegionMemory implements RegionMemory{
 			throw new IndexOutOfBoundsException("len");
 		}
 		
-		int ioff = off % segmentSize;
-		int seg  = (off / segmentSize) + (ioff > 0? 1 : 0);
-		int maxWrite;
-		while(len > 0){
-			maxWrite = segmentSize - ioff;
-			maxWrite = maxWrite > len? len : maxWrite;
-			
-			out.write(segments[seg], ioff, maxWrite);
-			
-			len  -= maxWrite;
-			ioff  = ioff + maxWrite;
-			seg  += ioff / segmentSize;
-			ioff  = ioff % segmentSize;
-		}
+		out.write(data, offset + off, len);
 	}
 	
 	public int read(long thisOff, byte[] buf, int off, int len){
@@ -95,145 +86,23 @@ public class HeapRegionMemory implements RegionMemory{
 			return -1;
 		
 		len = (int)(thisOff + len > this.length? this.length - thisOff : len);
-		
-		int thisSegmentId    = (int)(thisOff/this.segmentSize);
-		byte[] thisCurrent   = this.segments[thisSegmentId];
-		int thisSegmentLimit = thisCurrent.length;
-		int thisSegmentOff   = (int)(thisOff%this.segmentSize);
-		int read             = 0;
-		int totalRead        = 0;
-    	int maxOff           = off + len;
-    	int needRead         = 0;
-    	int maxRead          = 0;
-		int maxThisLen       = 0;
-		
-    	while(off < maxOff && thisOff < this.length){
-
-	    	if(thisSegmentOff >= thisSegmentLimit){
-	    		thisSegmentId    = (int)(thisOff/this.segmentSize);
-	    		thisCurrent      = this.segments[thisSegmentId];
-	    		thisSegmentOff   = (int)(thisOff%this.segmentSize);
-	    		thisSegmentLimit = thisCurrent.length;
-	    	}
-    		
-	    	maxThisLen = (int)(this.length - thisOff);
-	    	needRead   = maxOff - off;
-	    	maxRead    = thisSegmentLimit - thisSegmentOff;
-	    	
-	    	if(needRead > maxThisLen)
-	    		needRead = maxThisLen;
-	    	
-	    	if(needRead > maxRead)
-	    		read = maxRead;
-	    	else
-	    		read = needRead;
-    		
-    		System.arraycopy(thisCurrent, thisSegmentOff, buf, off, read);
-
-    		totalRead      += read;
-    		thisSegmentOff += read;
-	    	off            += read;
-	    	thisOff        += read;
-    		
-    	}
-    	
-    	return totalRead;
+		System.arraycopy(data, offset + (int)thisOff, buf, off, len);
+		return len;
 	}
 	
 	public long read(long thisOff, RegionMemory b, long off, long len){
 		HeapRegionMemory buf = (HeapRegionMemory)b; 
+		
 		if(thisOff >= this.length)
 			return -1;
 		
-		int totalRead     = 0;
-		byte[][] segments = buf.segments;
-		int segmentSize   = buf.segmentSize;
-		
-		int thisSegmentId    = (int)(thisOff/this.segmentSize);
-		byte[] thisCurrent   = this.segments[thisSegmentId];
-		int thisSegmentLimit = thisCurrent.length;
-		int thisSegmentOff   = (int)(thisOff%this.segmentSize);
-		
-		int segmentId    = (int)(off/segmentSize);
-		byte[] current   = segments[segmentId];
-		int segmentLimit = current.length;
-		int segmentOff   = (int)(off%segmentSize);
+		len = thisOff + len > this.length? this.length - thisOff : len;
 		
-    	long maxOff       = off + len;
-    	
-    	int transferLen   = 0;
-    	int needRead      = 0;
-    	int maxRead       = 0;
-		int maxThisLen    = 0;
-		int read          = 0;
-				
-		long maxLen       = 0;
-    	int needWrite     = 0;
-    	int maxWrite      = 0;
-		int write         = 0;
+		if(off + len > buf.length)
+			throw new IndexOutOfBoundsException((off + len) + " > " + buf.length);
 		
-    	while(off < maxOff){
-
-	    	if(thisSegmentOff >= thisSegmentLimit){
-	    		thisSegmentId    = (int)(thisOff/this.segmentSize);
-	    		thisCurrent      = this.segments[thisSegmentId];
-	    		thisSegmentOff   = (int)(thisOff%this.segmentSize);
-	    		thisSegmentLimit = thisCurrent.length;
-	    	}
-
-	    	if(segmentOff >= segmentLimit){
-	    		segmentId    = (int)(off/segmentSize);
-	    		current      = segments[segmentId];
-	    		segmentOff   = (int)(off % segmentSize);
-	    		segmentLimit = current.length;
-	    	}
-	    	
-	    	transferLen = (int)(maxOff - off);
-	    	
-	    	maxThisLen  = (int)(this.length - thisOff);
-	    	needRead    = transferLen;
-	    	maxRead     = thisSegmentLimit - thisSegmentOff;
-	    	
-	    	if(needRead > maxThisLen)
-	    		needRead = maxThisLen;
-	    	
-	    	if(needRead > maxRead)
-	    		read = maxRead;
-	    	else
-	    		read = needRead;
-
-	    	maxLen    = buf.length - off;
-	    	needWrite = transferLen;
-	    	maxWrite  = segmentLimit - segmentOff;
-	    	
-	    	if(needWrite > maxLen)
-	    		throw new IndexOutOfBoundsException(needWrite + " > " + maxLen);
-	    	
-	    	if(needWrite > maxWrite)
-	    		write = maxWrite;
-	    	else
-	    		write = needWrite;
-	    	
-	    	int copy;
-	    	
-    		if(maxWrite > maxRead)
-    			copy = read;
-    		else
-    			copy = write;
-
-    		if(copy == 0)
-    			break;
-    		
-    		System.arraycopy(thisCurrent, thisSegmentOff, current, segmentOff, copy);
-
-    		thisOff        += copy;
-    		off            += copy;
-    		thisSegmentOff += copy;
-    		segmentOff     += copy;
-    		totalRead      += copy;
-    	}
-    	
-    	return totalRead;
+		System.arraycopy(data, offset + (int)thisOff, buf.data, buf.offset + (int)off, (int)len);
+		return len;
 	}
 	
 	public void write(long thisOff, byte[] buf, int off, int len){
@@ -241,46 +110,13 @@ public class HeapRegionMemory implements RegionMemory{
 		if(len == 0)
 			return;
 		
-		long maxThisOff = this.length;
-		int maxOff      = off + len;
-
-		if(maxOff > buf.length)
-			throw new IndexOutOfBoundsException(maxOff + " > " + buf.length);
+		if(off + len > buf.length)
+			throw new IndexOutOfBoundsException((off + len) + " > " + buf.length);
 		
-		int thisSegmentIndex = (int)(thisOff/this.segmentSize);
-		int thisSegmentOff   = (int)(thisOff%this.segmentSize);
-		byte[] thisSegment   = this.segments[thisSegmentIndex]; 
-		int maxThisSegment   = thisSegment.length; 
+		if(thisOff + len > this.length)
+			throw new IndexOutOfBoundsException((thisOff + len) + " > " + this.length);
 		
-    	while(off < maxOff){
-
-	    	if(thisSegmentOff >= maxThisSegment){
-	    		thisSegmentIndex = (int)(thisOff/this.segmentSize);
-	    		thisSegmentOff   = (int)(thisOff%this.segmentSize);
-	    		thisSegment      = this.segments[thisSegmentIndex]; 
-	    		maxThisSegment   = thisSegment.length; 
-	    	}
-    		
-	    	int maxRead   = maxOff - off;
-	    	long maxWrite = maxThisOff - thisOff;
-	    	
-	    	if(maxRead > maxWrite)
-	    		throw new IndexOutOfBoundsException(maxOff + " > " + maxThisOff);
-	    	
-	    	int maxSegmentWrite = maxThisSegment - thisSegmentOff;
-	    	int copy;
-	    	
-	    	if(maxRead > maxSegmentWrite)
-	    		copy = maxSegmentWrite;
-	    	else
-	    		copy = maxRead;
-
-    		System.arraycopy(buf, off, thisSegment, thisSegmentOff, copy);
-	    	
-    		thisSegmentOff += copy;
-    		off            += copy;
-    		thisOff        += copy;
-    	}
+		System.arraycopy(buf, off, data, offset + (int)thisOff, len);
 	}
 
 	public void write(long thisOff, RegionMemory b, long off, long len){
@@ -289,96 +125,38 @@ public class HeapRegionMemory implements RegionMemory{
 		if(len == 0)
 			return;
 		
-		long maxThisOff = this.length;
-		long maxOff     = off + len;
-
-		if(maxOff > buf.length)
-			throw new IndexOutOfBoundsException(maxOff + " > " + buf.length);
+		if(off + len > buf.length)
+			throw new IndexOutOfBoundsException((off + len) + " > " + buf.length);
 		
-		int thisSegmentIndex = (int)(thisOff/this.segmentSize);
-		int thisSegmentOff   = (int)(thisOff%this.segmentSize);
-		byte[] thisSegment   = this.segments[thisSegmentIndex]; 
-		int maxThisSegment   = thisSegment.length; 
-
-		int bufSegmentIndex = (int)(off/this.segmentSize);
-		int bufSegmentOff   = (int)(off%this.segmentSize);
-		byte[] bufSegment   = buf.segments[bufSegmentIndex]; 
-		int maxBufSegment   = bufSegment.length; 
+		if(thisOff + len > this.length)
+			throw new IndexOutOfBoundsException((thisOff + len) + " > " + this.length);
 		
-    	while(off < maxOff){
-
-	    	if(thisSegmentOff >= maxThisSegment){
-	    		thisSegmentIndex = (int)(thisOff/this.segmentSize);
-	    		thisSegmentOff   = (int)(thisOff%this.segmentSize);
-	    		thisSegment      = this.segments[thisSegmentIndex]; 
-	    		maxThisSegment   = thisSegment.length; 
-	    	}
-
-	    	if(bufSegmentOff >= maxBufSegment){
-	    		bufSegmentIndex = (int)(off/this.segmentSize);
-	    		bufSegmentOff   = (int)(off%this.segmentSize);
-	    		bufSegment      = buf.segments[bufSegmentIndex]; 
-	    		maxBufSegment   = bufSegment.length; 
-	    	}
-	    	
-	    	int maxRead   = (int)(maxOff - off);
-	    	long maxWrite = maxThisOff - thisOff;
-	    	
-	    	if(maxRead > maxWrite)
-	    		throw new IndexOutOfBoundsException(maxOff + " > " + maxThisOff);
-	    	
-	    	int maxSegmentWrite = maxThisSegment - thisSegmentOff;
-	    	int copy;
-	    	
-	    	if(maxRead > maxSegmentWrite)
-	    		copy = maxSegmentWrite;
-	    	else
-	    		copy = maxRead;
-
-    		System.arraycopy(bufSegment, bufSegmentOff, thisSegment, thisSegmentOff, copy);
-	    	
-    		bufSegmentOff  += copy;
-    		thisSegmentOff += copy;
-    		off            += copy;
-    		thisOff        += copy;
-    	}
-
-    	
+		System.arraycopy(buf.data, buf.offset + (int)off, data, offset + (int)thisOff, (int)len);
 	}
 	
 	private void writeObject(ObjectOutputStream stream) throws IOException {
 		stream.writeLong(this.length);
-		stream.writeInt(this.segmentSize);
-		for(byte[] b: this.segments){
-			stream.write(b);
-		}
+		stream.write(this.data, this.offset, (int)this.length);
     }
 
     private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
-		this.length      = stream.readLong();
-		this.segments    = HeapMemoryUtil.alloc(length);
-		this.segmentSize = HeapMemoryUtil.segmentSize;
-		int segmentSize  = stream.readInt();
-		
-		int len;
-		int thisOff = 0;
-		byte[] b    = new byte[segmentSize];
-		
-		while(thisOff < this.length){
-			len = stream.read(b, 0, b.length);
-			int maxLen = (int)Math.min(b.length, this.length - thisOff);
-			this.write(thisOff, b, 0, maxLen);
-			thisOff += len;
-			if(len == 0){
-				break;
-			}
-				
-		}
+		this.length    = stream.readLong();
+		this.data      = new byte[(int)length];
+		this.offset    = 0;
+		this.address   = -1;
+		//a região foi alocada separadamente.
+		this.sizeClass = -1;
+		stream.readFully(this.data);
     }
 	
     protected void finalize() throws Throwable{
     	try{
-    		HeapMemoryUtil.free(this.segments);
+    		synchronized(this){
+	    		if(this.data != null && this.memory != null){
+	    			this.memory.free(this);
+	    			this.data = null;
+	    		}
+    		}
     	}
     	finally{
     		super.finalize();
@@ -0,0 +1,104 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.memory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Gerencia a memória usada no cache em arquivos mapeados na memória. Cada 
+ * bloco do {@link DirectMemory} é um arquivo mapeado e a permanência dos 
+ * dados na memória é controlada pelo sistema operacional. Desse modo, os 
+ * dados podem ser maiores que a memória física.
+ * <p>Os arquivos são removidos logo depois do mapeamento. O espaço em 
+ * disco é devolvido quando o mapeamento é descartado.</p>
+ * 
+ * @author Ribeiro
+ *
+ */
+public class MappedMemory extends DirectMemory{
+
+	public static final String FILE_TYPE = ".mem";
+	
+	private static volatile long ids = 0;
+	
+	private volatile File path;
+	
+	private String prefix;
+	
+	public MappedMemory(){
+		this(null);
+	}
+	
+	public MappedMemory(File path){
+		this.path   = path;
+		this.prefix = (ids++) + "_";
+	}
+	
+	/**
+	 * Obtém o diretório dos arquivos mapeados.
+	 * @return Diretório.
+	 */
+	public File getPath() {
+		return path;
+	}
+
+	/**
+	 * Define o diretório dos arquivos mapeados. Somente os blocos criados 
+	 * depois da definição são afetados.
+	 * @param path Diretório.
+	 */
+	public void setPath(File path) {
+		this.path = path;
+	}
+
+	protected ByteBuffer allocateChunk(int id, int size){
+		File dir = path == null? new File(System.getProperty("java.io.tmpdir")) : path;
+		dir.mkdirs();
+		
+		File f = new File(dir, prefix + id + FILE_TYPE);
+		RandomAccessFile file = null;
+		
+		try{
+			file = new RandomAccessFile(f, "rw");
+			file.setLength(size);
+			return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+		catch(IOException e){
+			throw new IllegalStateException("fail map file: " + f, e);
+		}
+		finally{
+			if(file != null){
+				try{
+					file.close();
+				}
+				catch(Throwable e){
+					//suppress exception
+				}
+			}
+			
+			//o mapeamento continua válido depois da remoção do arquivo.
+			if(!f.delete())
+				f.deleteOnExit();
+		}
+	}
+	
+}
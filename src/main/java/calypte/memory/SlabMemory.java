@@ -0,0 +1,351 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.memory;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Gerencia a memória usada no cache em arenas fora do heap. Cada arena é 
+ * dividida em posições de tamanho fixo e cada região ocupa uma posição da 
+ * menor classe de tamanho que a comporta. Uma posição liberada é reutilizada 
+ * imediatamente pela sua classe.
+ * <p>Cada thread tem a sua própria lista de posições livres por classe. 
+ * Quando a lista fica vazia ou cheia, parte dela é trocada com a lista 
+ * compartilhada da classe.</p>
+ * <p>Regiões maiores que {@link #MAX_SLOT_SIZE} são alocadas separadamente.</p>
+ * 
+ * @author Ribeiro
+ *
+ */
+public class SlabMemory implements Memory{
+
+	/**
+	 * Tamanho da menor posição.
+	 */
+	public static final int MIN_SLOT_SIZE		= 1 << 4;
+	
+	/**
+	 * Tamanho da maior posição.
+	 */
+	public static final int MAX_SLOT_SIZE		= 1 << 20;
+	
+	/**
+	 * Tamanho de uma arena.
+	 */
+	public static final long ARENA_SIZE			= 4L << 20;
+	
+	private static final int MIN_SHIFT			= 4;
+	
+	private static final int MAX_SHIFT			= 20;
+	
+	/**
+	 * Quantidade máxima de posições trocadas por vez com a lista compartilhada.
+	 */
+	private static final int MAX_BATCH			= 32;
+	
+	private final SizeClass[] classes;
+	
+	private final ThreadLocal<LongStack[]> threadCaches;
+	
+	public SlabMemory(){
+		this.classes = new SizeClass[MAX_SHIFT - MIN_SHIFT + 1];
+		
+		for(int i=0;i<classes.length;i++){
+			this.classes[i] = new SizeClass(1 << (MIN_SHIFT + i));
+		}
+		
+		this.threadCaches = new ThreadLocal<LongStack[]>(){
+			
+			protected LongStack[] initialValue(){
+				LongStack[] caches = new LongStack[classes.length];
+				
+				for(int i=0;i<caches.length;i++){
+					caches[i] = new LongStack(2*classes[i].batch);
+				}
+				
+				return caches;
+			}
+			
+		};
+	}
+	
+	public RegionMemory alloc(long size){
+		int sizeClass = sizeClass(size);
+		long address  = allocSlot(sizeClass, size);
+		return new SlabRegionMemory(this, address, size, sizeClass);
+	}
+
+	public void realloc(long size, RegionMemory region) {
+		SlabRegionMemory r = (SlabRegionMemory)region;
+		
+		synchronized(r){
+			int sizeClass = sizeClass(size);
+			long address  = allocSlot(sizeClass, size);
+			
+			UnsafeMemoryUtil.arrayCopy(r.address, 0, address, 0, Math.min(r.length, size));
+			freeSlot(r.sizeClass, r.address);
+			
+			r.address   = address;
+			r.length    = size;
+			r.sizeClass = sizeClass;
+		}
+	}
+	
+	public void alloc(long size, RegionMemory region){
+		SlabRegionMemory r = (SlabRegionMemory)region;
+		
+		synchronized(r){
+			if(r.address != null)
+				throw new IllegalStateException();
+			
+			int sizeClass = sizeClass(size);
+			r.address     = allocSlot(sizeClass, size);
+			r.length      = size;
+			r.sizeClass   = sizeClass;
+		}
+	}
+	
+	public void release(RegionMemory region){
+		SlabRegionMemory r = (SlabRegionMemory)region;
+		
+		synchronized(r){
+			if(r.address == null)
+				return;
+			
+			freeSlot(r.sizeClass, r.address);
+			r.address = null;
+		}
+ 	}
+	
+	/**
+	 * Devolve uma região que não foi liberada. Executado pelo coletor de lixo. 
+	 * A posição é devolvida diretamente para a lista compartilhada.
+	 * @param region Região.
+	 */
+	void free(SlabRegionMemory region){
+		if(region.sizeClass < 0)
+			UnsafeMemoryUtil.free(region.address);
+		else
+			classes[region.sizeClass].free(region.address);
+	}
+	
+	/**
+	 * Obtém a quantidade de memória reservada pelas arenas.
+	 * @return Quantidade em bytes.
+	 */
+	public long getArenaMemory(){
+		long r = 0;
+		for(SizeClass c: classes){
+			r += c.getArenaMemory();
+		}
+		return r;
+	}
+	
+	private long allocSlot(int sizeClass, long size){
+		if(sizeClass < 0)
+			return UnsafeMemoryUtil.alloc(size);
+		
+		LongStack cache = threadCaches.get()[sizeClass];
+		
+		if(cache.size == 0)
+			classes[sizeClass].refill(cache);
+		
+		return cache.pop();
+	}
+	
+	private void freeSlot(int sizeClass, long address){
+		if(sizeClass < 0){
+			UnsafeMemoryUtil.free(address);
+			return;
+		}
+		
+		LongStack cache = threadCaches.get()[sizeClass];
+		
+		if(cache.isFull())
+			classes[sizeClass].drain(cache);
+		
+		cache.push(address);
+	}
+	
+	private static int sizeClass(long size){
+		if(size > MAX_SLOT_SIZE)
+			return -1;
+		
+		int shift = MIN_SHIFT;
+		
+		while((1L << shift) < size){
+			shift++;
+		}
+		
+		return shift - MIN_SHIFT;
+	}
+	
+    protected void finalize() throws Throwable{
+    	try{
+    		//as regiões mantém uma referência para a instância. Desse modo,
+    		//nenhuma região está em uso.
+    		for(SizeClass c: classes){
+    			c.destroy();
+    		}
+    	}
+    	finally{
+    		super.finalize();
+    	}
+    }
+	
+	/**
+	 * Classe de tamanho. Contém as arenas e a lista compartilhada de 
+	 * posições livres.
+	 */
+	private static class SizeClass{
+		
+		public final long slotSize;
+		
+		public final int batch;
+		
+		private final long arenaSize;
+		
+		private final Lock lock;
+		
+		private final LongStack free;
+		
+		private LongStack arenas;
+		
+		private long arena;
+		
+		private long arenaOffset;
+		
+		public SizeClass(long slotSize){
+			this.slotSize    = slotSize;
+			this.arenaSize   = Math.max(ARENA_SIZE, slotSize);
+			this.batch       = (int)Math.max(1, Math.min(MAX_BATCH, arenaSize / slotSize / 16));
+			this.lock        = new ReentrantLock();
+			this.free        = new LongStack(64);
+			this.arenas      = new LongStack(4);
+			this.arenaOffset = arenaSize;
+		}
+		
+		public void refill(LongStack cache){
+			lock.lock();
+			try{
+				for(int i=0;i<batch;i++){
+					if(free.size > 0){
+						cache.push(free.pop());
+						continue;
+					}
+					
+					if(arenaOffset + slotSize > arenaSize){
+						arena       = UnsafeMemoryUtil.alloc(arenaSize);
+						arenaOffset = 0;
+						arenas.push(arena);
+					}
+					
+					cache.push(arena + arenaOffset);
+					arenaOffset += slotSize;
+				}
+			}
+			finally{
+				lock.unlock();
+			}
+		}
+		
+		public void drain(LongStack cache){
+			lock.lock();
+			try{
+				for(int i=0;i<batch;i++){
+					free.push(cache.pop());
+				}
+			}
+			finally{
+				lock.unlock();
+			}
+		}
+		
+		public void free(long address){
+			lock.lock();
+			try{
+				free.push(address);
+			}
+			finally{
+				lock.unlock();
+			}
+		}
+		
+		public long getArenaMemory(){
+			lock.lock();
+			try{
+				return arenas.size*arenaSize;
+			}
+			finally{
+				lock.unlock();
+			}
+		}
+		
+		public void destroy(){
+			lock.lock();
+			try{
+				while(arenas.size > 0){
+					UnsafeMemoryUtil.free(arenas.pop());
+				}
+				free.size   = 0;
+				arenaOffset = arenaSize;
+			}
+			finally{
+				lock.unlock();
+			}
+		}
+		
+	}
+	
+	/**
+	 * Pilha de endereços.
+	 */
+	private static class LongStack{
+		
+		public long[] values;
+		
+		public int size;
+		
+		private final int capacity;
+		
+		public LongStack(int capacity){
+			this.values   = new long[capacity];
+			this.capacity = capacity;
+		}
+		
+		public boolean isFull(){
+			return size >= capacity;
+		}
+		
+		public void push(long value){
+			if(size == values.length){
+				long[] n = new long[values.length*2];
+				System.arraycopy(values, 0, n, 0, size);
+				values = n;
+			}
+			values[size++] = value;
+		}
+		
+		public long pop(){
+			return values[--size];
+		}
+		
+	}
+	
+}
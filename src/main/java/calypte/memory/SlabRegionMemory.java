@@ -0,0 +1,70 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.memory;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
+/**
+ * Região de uma arena do {@link SlabMemory}.
+ * 
+ * @author Ribeiro
+ *
+ */
+public class SlabRegionMemory 
+	extends UnsafeRegionMemory{
+
+	private static final long serialVersionUID = -2318424453117025566L;
+
+	transient SlabMemory slab;
+	
+	/**
+	 * Classe de tamanho da região. Se for -1, a região foi alocada separadamente.
+	 */
+	int sizeClass;
+	
+	public SlabRegionMemory(SlabMemory slab, long address, long length, int sizeClass) {
+		super(address, length);
+		this.slab      = slab;
+		this.sizeClass = sizeClass;
+	}
+
+    private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+    	stream.defaultReadObject();
+    	//a região foi alocada separadamente pela classe base.
+    	this.sizeClass = -1;
+    }
+    
+    protected void finalize() throws Throwable{
+    	try{
+    		synchronized(this){
+    			if(this.address != null){
+    				if(this.slab != null)
+    					this.slab.free(this);
+    				else
+    					UnsafeMemoryUtil.free(this.address);
+	    			this.address = null;
+    			}
+    		}
+    	}
+    	finally{
+    		super.finalize();
+    	}
+    }
+    
+}
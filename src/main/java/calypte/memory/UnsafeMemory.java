@@ -37,6 +37,7 @@ public class UnsafeMemory implements Memory{
 		UnsafeRegionMemory r = (UnsafeRegionMemory)region;
 		long address         = UnsafeMemoryUtil.realloc(r.address, size);
 		r.address            = address;
+		r.length             = size;
 	}
 	
 	public void alloc(long size, RegionMemory region){
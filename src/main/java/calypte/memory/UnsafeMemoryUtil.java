@@ -69,6 +69,46 @@ public class UnsafeMemoryUtil {
 		return UNSAFE.getByte(address + off);
 	}
 	
+	public static void putByte(long address, long off, byte value){
+		UNSAFE.putByte(address + off, value);
+	}
+
+	public static short getShort(long address, long off){
+		return UNSAFE.getShort(address + off);
+	}
+	
+	public static void putShort(long address, long off, short value){
+		UNSAFE.putShort(address + off, value);
+	}
+	
+	public static char getChar(long address, long off){
+		return UNSAFE.getChar(address + off);
+	}
+	
+	public static void putChar(long address, long off, char value){
+		UNSAFE.putChar(address + off, value);
+	}
+	
+	public static int getInt(long address, long off){
+		return UNSAFE.getInt(address + off);
+	}
+	
+	public static void putInt(long address, long off, int value){
+		UNSAFE.putInt(address + off, value);
+	}
+	
+	public static long getLong(long address, long off){
+		return UNSAFE.getLong(address + off);
+	}
+	
+	public static void putLong(long address, long off, long value){
+		UNSAFE.putLong(address + off, value);
+	}
+	
+	public static void setMemory(long address, long off, long len, byte value){
+		UNSAFE.setMemory(address + off, len, value);
+	}
+	
     public static void arrayCopy(byte[] src, long srcPos, long dstAddr, long dstPos, long length){
 		
     	srcPos  += arrayBaseOffset;
@@ -97,36 +137,4 @@ public class UnsafeMemoryUtil {
 		}
     }
     
-	public static long getAddress(Object o) {
-		Object[] array = new Object[] {o};
-		long baseOffset     = UNSAFE.arrayBaseOffset(Object[].class);
-		long dataBaseOffset = UNSAFE.arrayBaseOffset(o.getClass());
-		int addressSize     = UNSAFE.addressSize();
-		
-		long address;
-		switch (addressSize){
-			case 4:
-				address = normalize(UNSAFE.getInt(array, baseOffset)) + dataBaseOffset;
-				break;
-			case 8:
-				address = UNSAFE.getLong(array, baseOffset) + dataBaseOffset;
-				break;
-			default:
-				throw new Error("unsupported address size: " + addressSize);
-		}
-		return address;
-	}
-		
-	public static Object getObject(long address) {
-	    Object[] array = new Object[] {null};
-	    long baseOffset = UNSAFE.arrayBaseOffset(Object[].class);
-	    UNSAFE.putLong(array, baseOffset, address);
-	    return array[0];
-	}
-	
-	private static long normalize(int value) {
-	    if(value >= 0) return value;
-	    return (~0L >>> 32) & value;
-	}	
-	
 }
@@ -47,9 +47,9 @@ public class UnsafeRegionMemory
 	
 	public byte get(long off){
 		
-		//if(off >= this.length){
-		//	throw new IndexOutOfBoundsException(off + " >= " + this.length);
-		//}
+		if(off < 0 || off >= this.length){
+			throw new IndexOutOfBoundsException(off + " >= " + this.length);
+		}
 		
 		return UnsafeMemoryUtil.getByte(this.address, off);
 	}
@@ -59,35 +59,25 @@ public class UnsafeRegionMemory
 		int max = (int)(this.length - thisOff);
 		max     = max > len? len : max;
 
-		/*if(max > 0){
-			
-			if(thisOff + max > this.length){
-				throw new IndexOutOfBoundsException((thisOff + max) + " > " + this.length);
-			}*/
-			
+		if(max > 0){
+			checkBounds(thisOff, off, max, buf.length);
 			UnsafeMemoryUtil.arrayCopy(this.address, thisOff, buf, off, max);
-		//}
+		}
 		
 		return max;
 	}
 	
 	public long read(long thisOff, RegionMemory buf, long off, long len){
 		
-		long max = (this.length - thisOff);
-		max      = max > len? len : max;
+		UnsafeRegionMemory dest = (UnsafeRegionMemory)buf;
+		long max                = (this.length - thisOff);
+		max                     = max > len? len : max;
+		max                     = max > dest.length - off? dest.length - off : max;
 		
-		/*if(max > 0){
-			
-			if(thisOff + max > this.length){
-				throw new IndexOutOfBoundsException("this: " + (thisOff + max) + " > " + this.length);
-			}
-			
-			if(off + max > this.length){
-				throw new IndexOutOfBoundsException("buf: " + (off + max) + " > " + this.length);
-			}*/
-			
-			UnsafeMemoryUtil.arrayCopy(this.address, thisOff, ((UnsafeRegionMemory)buf).address, off, max);
-		//}
+		if(max > 0){
+			checkBounds(thisOff, off, max, dest.length);
+			UnsafeMemoryUtil.arrayCopy(this.address, thisOff, dest.address, off, max);
+		}
 		
 		return max;
 	}
@@ -110,35 +100,36 @@ public class UnsafeRegionMemory
 		long max = (this.length - thisOff);
 		max      = max > len? len : max;
 		
-		/*if(max > 0){
-			if(thisOff + max > this.length){
-				throw new IndexOutOfBoundsException((thisOff + max) + " > " + this.length);
-			}*/
-			
+		if(max > 0){
+			checkBounds(thisOff, off, max, buf.length);
 			UnsafeMemoryUtil.arrayCopy(buf, off, this.address, thisOff, max);
-		//}
+		}
 	}
 
 	public void write(long thisOff, RegionMemory buf, long off, long len){
 		
-		long max = (this.length - thisOff);
-		max      = max > len? len : max;
-		
-		/*if(max > 0){
+		UnsafeRegionMemory src = (UnsafeRegionMemory)buf;
+		long max               = (this.length - thisOff);
+		max                    = max > len? len : max;
+		max                    = max > src.length - off? src.length - off : max;
 		
-			if(thisOff + max > this.length){
-				throw new IndexOutOfBoundsException("this: " + (thisOff + max) + " > " + this.length);
-			}
-			
-			if(off + max > this.length){
-				throw new IndexOutOfBoundsException("buf: " + (off + max) + " > " + this.length);
-			}*/
-			
-			UnsafeMemoryUtil.arrayCopy(((UnsafeRegionMemory)buf).address, off, this.address, thisOff, max);
-		//}
+		if(max > 0){
+			checkBounds(thisOff, off, max, src.length);
+			UnsafeMemoryUtil.arrayCopy(src.address, off, this.address, thisOff, max);
+		}
 		
 	}
 	
+	/**
+	 * Verifica os limites de uma cópia. A quantidade já está limitada 
+	 * ao tamanho da região. A verificação é feita uma vez por cópia.
+	 */
+	private static void checkBounds(long thisOff, long off, long len, long bufLength){
+		if(thisOff < 0 || off < 0 || off + len > bufLength){
+			throw new IndexOutOfBoundsException(thisOff + ", " + off + ", " + len + ", " + bufLength);
+		}
+	}
+	
 	private void writeObject(ObjectOutputStream stream) throws IOException {
 		stream.writeLong(this.length);
 		long len;
@@ -19,6 +19,7 @@ package calypte.tx;
 
 import java.io.InputStream;
 import java.io.Serializable;
+import java.util.Iterator;
 
 import calypte.CacheErrors;
 import calypte.CacheException;
@@ -195,6 +196,18 @@ public class CacheTransactionHandlerImp implements CacheTransactionHandler{
 		transactionInfo.find(result);
 	}
 	
+	public Iterator<String> keys(String prefix) {
+		return transactionInfo.keys(prefix);
+	}
+	
+	public long removeByPrefix(String prefix) throws StorageException {
+		return transactionInfo.removeByPrefix(prefix);
+	}
+	
+	public long countByPrefix(String prefix) {
+		return transactionInfo.countByPrefix(prefix);
+	}
+	
 	public InputStream getStream(String key, boolean forUpdate)
 			throws RecoverException {
 		return transactionInfo.getStream(key, forUpdate);
@@ -205,6 +218,11 @@ public class CacheTransactionHandlerImp implements CacheTransactionHandler{
 		return transactionInfo.putStream(key, inputData, timeToLive, timeToIdle);
 	}
 
+	public boolean putStream(byte[] key, InputStream inputData,
+			long timeToLive, long timeToIdle) throws StorageException {
+		throw new StorageException(CacheErrors.ERROR_1031);
+	}
+
 	public boolean replaceStream(String key, InputStream inputData,
 			long timeToLive, long timeToIdle) throws StorageException {
 		return transactionInfo.replaceStream(key, inputData, timeToLive, timeToIdle);
@@ -219,10 +237,32 @@ public class CacheTransactionHandlerImp implements CacheTransactionHandler{
 		return transactionInfo.getStream(key);
 	}
 
+	public InputStream getStream(byte[] key) throws RecoverException {
+		throw new RecoverException(CacheErrors.ERROR_1031);
+	}
+	
+	public boolean replaceStream(byte[] key, InputStream inputData,
+			long timeToLive, long timeToIdle) throws StorageException {
+		throw new StorageException(CacheErrors.ERROR_1031);
+	}
+	
+	public InputStream putIfAbsentStream(byte[] key, InputStream inputData,
+			long timeToLive, long timeToIdle) throws StorageException {
+		throw new StorageException(CacheErrors.ERROR_1031);
+	}
+	
+	public boolean removeStream(byte[] key) throws StorageException {
+		throw new StorageException(CacheErrors.ERROR_1031);
+	}
+	
 	public boolean removeIfInvalid(String key) throws StorageException {
 		return transactionInfo.removeIfInvalid(key);
 	}
 	
+	public boolean removeIfInvalid(byte[] key) throws StorageException {
+		return transactionInfo.removeIfInvalid(key);
+	}
+	
 	public boolean removeStream(String key) throws StorageException {
 		return transactionInfo.removeStream(key);
 	}
@@ -81,8 +81,14 @@ public class TXCacheImp
 		try{
 			InputStream in = cacheHandler.getStream(key, forUpdate);
 			if(in != null){
-				ObjectInputStream oin = new ObjectInputStream(in);
-				return oin.readObject();
+				try{
+					ObjectInputStream oin = new ObjectInputStream(in);
+					return oin.readObject();
+				}
+				finally{
+					//libera os blocos do item.
+					in.close();
+				}
 			}
 			else
 				return null;
@@ -22,6 +22,7 @@ import java.io.InputStream;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -34,6 +35,7 @@ import calypte.CacheHandler;
 import calypte.DataMap;
 import calypte.RecoverException;
 import calypte.StorageException;
+import calypte.collections.KeyUtil;
 import calypte.collections.MapReferenceCollection.Find;
 
 /**
@@ -76,6 +78,31 @@ public class TransactionInfo implements TransactionCacheHandler {
 		cache.find(result);
 	}
 	
+	public Iterator<String> keys(String prefix) {
+		return cache.keys(prefix);
+	}
+	
+	public long countByPrefix(String prefix) {
+		return cache.countByPrefix(prefix);
+	}
+	
+	/**
+	 * Remove as chaves iniciadas por um prefixo. As chaves são 
+	 * removidas individualmente para que façam parte da transação.
+	 */
+	public long removeByPrefix(String prefix) throws StorageException {
+		Iterator<String> keys = cache.keys(prefix);
+		long count            = 0;
+		
+		while(keys.hasNext()){
+			if(removeStream(keys.next())){
+				count++;
+			}
+		}
+		
+		return count;
+	}
+	
 	/* métodos de armazenamento */
 	
 	public boolean replaceStream(String key, InputStream inputData, long timeToLive, long timeToIdle) throws StorageException{
@@ -119,6 +146,11 @@ public class TransactionInfo implements TransactionCacheHandler {
 		}		
 	}
 	
+    public boolean putStream(byte[] key, InputStream inputData, long timeToLive, long timeToIdle) 
+    		throws StorageException {
+		throw new StorageException(CacheErrors.ERROR_1031);
+    }
+    
     public boolean putStream(String key, InputStream inputData, long timeToLive, long timeToIdle) 
     		throws StorageException {
 
@@ -164,6 +196,24 @@ public class TransactionInfo implements TransactionCacheHandler {
 			throws RecoverException {
     	throw new UnsupportedOperationException();
 	}
+
+	public InputStream getStream(byte[] key) throws RecoverException {
+		throw new RecoverException(CacheErrors.ERROR_1031);
+	}
+	
+	public boolean replaceStream(byte[] key, InputStream inputData, long timeToLive, long timeToIdle) 
+			throws StorageException {
+		throw new StorageException(CacheErrors.ERROR_1031);
+	}
+	
+	public InputStream putIfAbsentStream(byte[] key, InputStream inputData, long timeToLive, long timeToIdle) 
+			throws StorageException {
+		throw new StorageException(CacheErrors.ERROR_1031);
+	}
+	
+	public boolean removeStream(byte[] key) throws StorageException {
+		throw new StorageException(CacheErrors.ERROR_1031);
+	}
     
     /* métodos de remoção */
     
@@ -171,6 +221,10 @@ public class TransactionInfo implements TransactionCacheHandler {
 		return cache.removeIfInvalid(key);
 	}
 	
+	public boolean removeIfInvalid(byte[] key) throws StorageException {
+		return cache.removeIfInvalid(key);
+	}
+	
     public boolean removeStream(String key) throws StorageException{
     	
     	try{
@@ -367,7 +421,7 @@ public class TransactionInfo implements TransactionCacheHandler {
     	if(timeToIdle < 0)
             throw new StorageException(CacheErrors.ERROR_1028);
     	
-        if(key.length() > cache.getMaxKeySize())
+        if(KeyUtil.length(key) > cache.getMaxKeySize())
             throw new StorageException(CacheErrors.ERROR_1008);
     	
 		manageItem(manager, cache, key, timeout);
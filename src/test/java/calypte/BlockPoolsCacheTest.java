@@ -0,0 +1,91 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Executa os testes do cache com três conjuntos de blocos (256, 4k e 64k).
+ * 
+ * @author Ribeiro
+ *
+ */
+public class BlockPoolsCacheTest extends CacheTest{
+
+	protected CalypteConfig createConfig(){
+		CalypteConfig config = super.createConfig();
+		config.setDataBlockSize(256);
+		config.setDataBlockPools(3);
+		return config;
+	}
+	
+	public void testValueSizes() throws StorageException, RecoverException, IOException{
+		int[] sizes = new int[]{100, 300, 5000, 70000, 1000000};
+		
+		for(int i=0;i<sizes.length;i++){
+			byte[] value = createValue(sizes[i], i);
+			cache.putStream("k" + i, new ByteArrayInputStream(value), 0, 0);
+			
+			//fluxo sem o tamanho do item.
+			cache.putStream("u" + i, new FilterInputStream(new ByteArrayInputStream(value)){
+				public int available() throws IOException {
+					return 0;
+				}
+			}, 0, 0);
+		}
+		
+		for(int i=0;i<sizes.length;i++){
+			byte[] value = createValue(sizes[i], i);
+			TestCase.assertTrue(Arrays.equals(value, read(cache.getStream("k" + i), sizes[i])));
+			TestCase.assertTrue(Arrays.equals(value, read(cache.getStream("u" + i), sizes[i])));
+		}
+		
+		for(int i=0;i<sizes.length;i++){
+			TestCase.assertTrue(cache.remove("k" + i));
+			TestCase.assertTrue(cache.remove("u" + i));
+			TestCase.assertNull(cache.getStream("k" + i));
+		}
+	}
+	
+	private byte[] createValue(int size, int seed){
+		byte[] value = new byte[size];
+		new Random(seed).nextBytes(value);
+		return value;
+	}
+	
+	private byte[] read(InputStream in, int size) throws IOException{
+		byte[] result = new byte[size + 1];
+		int off       = 0;
+		int len;
+		
+		while(off < result.length && (len = in.read(result, off, result.length - off)) > 0){
+			off += len;
+		}
+		
+		in.close();
+		return Arrays.copyOf(result, off);
+	}
+	
+}
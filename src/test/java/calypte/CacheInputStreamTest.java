@@ -19,14 +19,17 @@ package calypte;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import calypte.BasicCache;
 import calypte.Block;
 import calypte.CacheInputStream;
+import calypte.memory.DirectMemory;
 import calypte.memory.Memory;
 import calypte.memory.RegionMemory;
 import calypte.memory.UnsafeMemory;
@@ -188,6 +191,82 @@ public class CacheInputStreamTest extends TestCase{
 		
 	}
 
+	public void testReleaseOnClose() throws IOException, StorageException, RecoverException{
+		final AtomicInteger released = new AtomicInteger();
+		Cache cache                  = createCache(released);
+		
+		try{
+			byte[] dta = new byte[64*1024];
+			r.nextBytes(dta);
+			cache.put("key", dta, 0, 0);
+			
+			InputStream in = cache.getStream("key");
+			in.read();
+			
+			int before = released.get();
+			cache.remove("key");
+			TestCase.assertEquals(before, released.get());
+			
+			//as referências do fluxo são removidas no fechamento.
+			in.close();
+			int after = released.get();
+			TestCase.assertTrue(after > before);
+			
+			in.close();
+			TestCase.assertEquals(after, released.get());
+		}
+		finally{
+			cache.destroy();
+		}
+	}
+	
+	public void testReleaseWithoutClose() throws IOException, StorageException, RecoverException{
+		final AtomicInteger released = new AtomicInteger();
+		Cache cache                  = createCache(released);
+		
+		try{
+			byte[] dta = new byte[64*1024];
+			r.nextBytes(dta);
+			cache.put("key", dta, 0, 0);
+			
+			//o fluxo não é fechado.
+			CacheInputStream in = (CacheInputStream)cache.getStream("key");
+			in.read();
+			
+			int before = released.get();
+			cache.remove("key");
+			TestCase.assertEquals(before, released.get());
+			
+			//a referência é colocada na fila como se o fluxo fosse coletado.
+			TestCase.assertTrue(in.getReference().enqueue());
+			((BasicCacheHandler)((AbstractCache)cache).cacheHandler).releaseUnclosedStreams();
+			int after = released.get();
+			TestCase.assertTrue(after > before);
+			
+			//os blocos são liberados uma única vez.
+			in.close();
+			TestCase.assertEquals(after, released.get());
+		}
+		finally{
+			cache.destroy();
+		}
+	}
+	
+	private Cache createCache(final AtomicInteger released){
+		CalypteConfig config = new TestCalypteConfig();
+		
+		config.setMemory(new DirectMemory(){
+			
+			public void release(RegionMemory region){
+				released.incrementAndGet();
+				super.release(region);
+			}
+			
+		});
+		
+		return new ConcurrentCache(config);
+	}
+	
 	public void testMultWithoutLastByte() throws IOException{
 		byte[] dta    = new byte[2047];
 		r.nextBytes(dta);
@@ -17,9 +17,14 @@
 
 package calypte;
 
+import java.io.ByteArrayInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
 import java.util.Set;
 
 import junit.framework.TestCase;
@@ -37,13 +42,17 @@ public class CacheTest extends TestCase{
 
 	private static final String VALUE2 = "val";
 	
-	private Cache cache;
+	protected Cache cache;
 	
 	public void setUp(){
-		CalypteConfig config = new TestCalypteConfig();
+		CalypteConfig config = createConfig();
 		this.cache = new ConcurrentCache(config);
 	}
 	
+	protected CalypteConfig createConfig(){
+		return new TestCalypteConfig();
+	}
+	
 	public void tearDown(){
 		this.cache.destroy();
 		this.cache = null;
@@ -133,6 +142,153 @@ public class CacheTest extends TestCase{
 		TestCase.assertEquals(VALUE2, (String)cache.get(KEY));
 	}
 
+	public void testCaseSensitiveKey() throws StorageException, RecoverException{
+		cache.put(KEY, VALUE, 0, 0);
+		cache.put(KEY.toUpperCase(), VALUE2, 0, 0);
+		TestCase.assertEquals(VALUE, (String)cache.get(KEY));
+		TestCase.assertEquals(VALUE2, (String)cache.get(KEY.toUpperCase()));
+	}
+
+	public void testBinaryKey() throws StorageException, RecoverException, IOException{
+		byte[] key   = new byte[]{0, (byte)0xff, (byte)0x80, 't', 0};
+		byte[] value = VALUE.getBytes("UTF-8");
+		
+		TestCase.assertNull(cache.getStream(key));
+		cache.putStream(key, new ByteArrayInputStream(value), 0, 0);
+		TestCase.assertEquals(VALUE, read(cache.getStream(key)));
+		TestCase.assertNull(cache.getStream(new byte[]{0, (byte)0xff, (byte)0x80, 't'}));
+	}
+
+	public void testBinaryKeyEqualsStringKey() throws StorageException, RecoverException, IOException{
+		cache.put(KEY, VALUE, 0, 0);
+		TestCase.assertNotNull(cache.getStream(KEY.getBytes("UTF-8")));
+		
+		cache.putStream(KEY.getBytes("UTF-8"), new ByteArrayInputStream(VALUE2.getBytes("UTF-8")), 0, 0);
+		TestCase.assertEquals(VALUE2, read(cache.getStream(KEY)));
+	}
+	
+	public void testBinaryKeyReplace() throws StorageException, RecoverException, IOException{
+		byte[] key = new byte[]{1, (byte)0xfe, 2};
+		
+		TestCase.assertFalse(cache.replaceStream(key, new ByteArrayInputStream(VALUE.getBytes("UTF-8")), 0, 0));
+		TestCase.assertNull(cache.getStream(key));
+		
+		TestCase.assertNull(cache.putIfAbsentStream(key, new ByteArrayInputStream(VALUE.getBytes("UTF-8")), 0, 0));
+		TestCase.assertEquals(VALUE, read(cache.putIfAbsentStream(key, new ByteArrayInputStream(VALUE2.getBytes("UTF-8")), 0, 0)));
+		
+		TestCase.assertTrue(cache.replaceStream(key, new ByteArrayInputStream(VALUE2.getBytes("UTF-8")), 0, 0));
+		TestCase.assertEquals(VALUE2, read(cache.getStream(key)));
+		
+		TestCase.assertTrue(cache.remove(key));
+		TestCase.assertFalse(cache.remove(key));
+		TestCase.assertNull(cache.getStream(key));
+	}
+	
+	public void testMultibyteKeySize() throws StorageException, RecoverException, IOException{
+		StringBuilder b = new StringBuilder();
+		
+		//cada caractere tem dois bytes em UTF-8.
+		for(int i=0;i<createConfig().getMaxSizeKey()/2;i++){
+			b.append('\u00e7');
+		}
+		
+		String key = b.toString();
+		cache.put(key, VALUE, 0, 0);
+		TestCase.assertEquals(VALUE, cache.get(key));
+		
+		key = key + '\u00e7';
+		
+		try{
+			cache.put(key, VALUE, 0, 0);
+			fail();
+		}
+		catch(StorageException e){
+			TestCase.assertEquals(CacheErrors.ERROR_1008, e.getError());
+		}
+		
+		try{
+			cache.replace(key, VALUE, 0, 0);
+			fail();
+		}
+		catch(StorageException e){
+			TestCase.assertEquals(CacheErrors.ERROR_1008, e.getError());
+		}
+		
+		try{
+			cache.putIfAbsent(key, VALUE, 0, 0);
+			fail();
+		}
+		catch(StorageException e){
+			TestCase.assertEquals(CacheErrors.ERROR_1008, e.getError());
+		}
+		
+		try{
+			cache.putStream(key.getBytes("UTF-8"), new ByteArrayInputStream(VALUE.getBytes("UTF-8")), 0, 0);
+			fail();
+		}
+		catch(StorageException e){
+			TestCase.assertEquals(CacheErrors.ERROR_1008, e.getError());
+		}
+	}
+	
+	private String read(InputStream in) throws IOException{
+		byte[] buf = new byte[1024];
+		int len    = in.read(buf, 0, buf.length);
+		in.close();
+		return new String(buf, 0, len, "UTF-8");
+	}
+	
+	/* prefix */
+	
+	public void testKeys() throws StorageException{
+		Set<String> expected = new HashSet<String>();
+		
+		for(int i=0;i<600;i++){
+			cache.put("tenant1:" + i, VALUE, 0, 0);
+			cache.put("tenant2:" + i, VALUE, 0, 0);
+			expected.add("tenant1:" + i);
+		}
+		
+		cache.put("tenant1", VALUE, 0, 0);
+		
+		Set<String> keys   = new HashSet<String>();
+		Iterator<String> i = cache.keys("tenant1:");
+		
+		while(i.hasNext()){
+			TestCase.assertTrue(keys.add(i.next()));
+		}
+		
+		TestCase.assertEquals(expected, keys);
+		TestCase.assertFalse(cache.keys("tenant3").hasNext());
+	}
+	
+	public void testCountByPrefix() throws StorageException{
+		for(int i=0;i<100;i++){
+			cache.put("tenant1:" + i, VALUE, 0, 0);
+			cache.put("tenant2:" + i, VALUE, 0, 0);
+		}
+		
+		TestCase.assertEquals(100, cache.countByPrefix("tenant1:"));
+		TestCase.assertEquals(200, cache.countByPrefix("tenant"));
+		TestCase.assertEquals(0, cache.countByPrefix("tenant3"));
+	}
+	
+	public void testRemoveByPrefix() throws StorageException, RecoverException{
+		for(int i=0;i<100;i++){
+			cache.put("tenant1:" + i, VALUE, 0, 0);
+			cache.put("tenant2:" + i, VALUE, 0, 0);
+		}
+		
+		TestCase.assertEquals(100, cache.removeByPrefix("tenant1:"));
+		TestCase.assertEquals(0, cache.countByPrefix("tenant1:"));
+		TestCase.assertEquals(100, cache.countByPrefix("tenant2:"));
+		
+		for(int i=0;i<100;i++){
+			TestCase.assertNull(cache.get("tenant1:" + i));
+			TestCase.assertEquals(VALUE, cache.get("tenant2:" + i));
+		}
+	}
+	
 	/* remove */
 	
 	public void testRemoveExact() throws StorageException, RecoverException{
@@ -158,6 +314,76 @@ public class CacheTest extends TestCase{
 		TestCase.assertTrue(cache.remove(KEY));
 	}
 
+	public void testRemoveWhileReading() throws StorageException, RecoverException, IOException{
+		byte[] value = new byte[20000];
+		new Random(1).nextBytes(value);
+		
+		cache.putStream(KEY, new ByteArrayInputStream(value), 0, 0);
+		InputStream in = cache.getStream(KEY);
+		
+		TestCase.assertTrue(cache.remove(KEY));
+		
+		//as regiões liberadas podem ser reutilizadas pelos novos itens.
+		byte[] other = new byte[value.length];
+		for(int i=0;i<10;i++){
+			cache.putStream(KEY + i, new ByteArrayInputStream(other), 0, 0);
+		}
+		
+		byte[] read = new byte[value.length];
+		int off     = 0;
+		int len;
+		
+		while(off < read.length && (len = in.read(read, off, read.length - off)) > 0){
+			off += len;
+		}
+		
+		in.close();
+		in.close();
+		
+		TestCase.assertEquals(value.length, off);
+		TestCase.assertTrue(Arrays.equals(value, read));
+		TestCase.assertNull(cache.getStream(KEY));
+	}
+
+	public void testSmallValues() throws StorageException, RecoverException{
+		//as remoções provocam a compactação das páginas compartilhadas.
+		int count = 6000;
+		
+		for(int i=0;i<count;i++){
+			cache.put(KEY + i, createValue(i), 0, 0);
+		}
+		
+		for(int i=0;i<count;i++){
+			if(i % 4 != 0){
+				TestCase.assertTrue(cache.remove(KEY + i));
+			}
+		}
+		
+		for(int i=0;i<count;i+=8){
+			cache.put(KEY + i, createValue(i + 1), 0, 0);
+		}
+		
+		for(int i=1;i<count;i+=4){
+			cache.put(KEY + i, createValue(i), 0, 0);
+		}
+		
+		for(int i=0;i<count;i++){
+			String expected = 
+					i % 8 == 0? createValue(i + 1) : 
+					i % 4 == 0 || i % 4 == 1? createValue(i) :
+					null;
+			TestCase.assertEquals(expected, cache.get(KEY + i));
+		}
+	}
+	
+	private String createValue(int i){
+		StringBuilder b = new StringBuilder();
+		for(int k=0;k<i % 40;k++){
+			b.append((char)('a' + (i + k) % 26));
+		}
+		return b.append(i).toString();
+	}
+
 	/* timeToLive */
 	
 	public void testTimeToLive() throws InterruptedException{
@@ -0,0 +1,233 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Executa os testes do cache com os limites de bytes e de itens.
+ * 
+ * @author Ribeiro
+ *
+ */
+public class EvictionCacheTest extends CacheTest{
+
+	protected CalypteConfig createConfig(){
+		CalypteConfig config = super.createConfig();
+		config.setMaxBytes(32*1024*1024);
+		config.setMaxEntries(100000);
+		return config;
+	}
+	
+	public void testMaxEntries() throws StorageException, RecoverException{
+		CalypteConfig config = super.createConfig();
+		config.setMaxEntries(100);
+		Cache cache = new ConcurrentCache(config);
+		
+		try{
+			for(int i=0;i<1000;i++){
+				cache.put("key" + i, "value" + i, 0, 0);
+			}
+			
+			int count = 0;
+			
+			for(int i=0;i<1000;i++){
+				Object value = cache.get("key" + i);
+				
+				if(value != null){
+					TestCase.assertEquals("value" + i, value);
+					count++;
+				}
+			}
+			
+			TestCase.assertTrue(count > 0 && count <= 100);
+			TestCase.assertEquals(1000 - count, getHandler(cache).getCountEvicted());
+			
+			//o item mais recente sempre é mantido.
+			TestCase.assertEquals("value999", cache.get("key999"));
+		}
+		finally{
+			cache.destroy();
+		}
+	}
+	
+	public void testMaxBytes() throws StorageException, RecoverException{
+		CalypteConfig config = super.createConfig();
+		config.setMaxBytes(64*1024);
+		Cache cache = new ConcurrentCache(config);
+		
+		try{
+			byte[] value = new byte[1024];
+			
+			for(int i=0;i<500;i++){
+				cache.put("key" + i, value, 0, 0);
+			}
+			
+			EvictionPolicy policy = getHandler(cache).evictionPolicy;
+			TestCase.assertTrue(policy.getBytes() <= 64*1024);
+			TestCase.assertTrue(policy.size() < 64);
+			TestCase.assertEquals(500 - policy.size(), getHandler(cache).getCountEvicted());
+			
+			int count = 0;
+			
+			for(int i=0;i<500;i++){
+				if(cache.get("key" + i) != null)
+					count++;
+			}
+			
+			TestCase.assertEquals(policy.size(), count);
+		}
+		finally{
+			cache.destroy();
+		}
+	}
+	
+	public void testRemoveReleasesCapacity() throws StorageException, RecoverException{
+		CalypteConfig config = super.createConfig();
+		config.setMaxEntries(10);
+		Cache cache = new ConcurrentCache(config);
+		
+		try{
+			for(int i=0;i<10;i++){
+				cache.put("key" + i, "value" + i, 0, 0);
+			}
+			
+			for(int i=0;i<5;i++){
+				TestCase.assertTrue(cache.remove("key" + i));
+			}
+			
+			for(int i=10;i<15;i++){
+				cache.put("key" + i, "value" + i, 0, 0);
+			}
+			
+			TestCase.assertEquals(0, getHandler(cache).getCountEvicted());
+			
+			for(int i=5;i<15;i++){
+				TestCase.assertEquals("value" + i, cache.get("key" + i));
+			}
+		}
+		finally{
+			cache.destroy();
+		}
+	}
+	
+	public void testPutIfAbsentOverExpired() throws StorageException, RecoverException, InterruptedException{
+		CalypteConfig config = super.createConfig();
+		config.setMaxBytes(64*1024);
+		Cache cache = new ConcurrentCache(config);
+		
+		try{
+			for(int i=0;i<100;i++){
+				cache.put("key" + i, "value" + i, 100, 0);
+			}
+			
+			Thread.sleep(300);
+			
+			//os itens expirados são substituídos por itens maiores.
+			byte[] value = new byte[1024];
+			
+			for(int i=0;i<100;i++){
+				TestCase.assertNull(cache.putIfAbsent("key" + i, value, 0, 0));
+			}
+			
+			EvictionPolicy policy = getHandler(cache).evictionPolicy;
+			TestCase.assertTrue(policy.getBytes() <= 64*1024);
+			TestCase.assertTrue(policy.size() < 64);
+			//os itens expirados também podem ser removidos pela política.
+			TestCase.assertTrue(getHandler(cache).getCountEvicted() >= 100 - policy.size());
+			
+			int count = 0;
+			
+			for(int i=0;i<100;i++){
+				if(cache.get("key" + i) != null)
+					count++;
+			}
+			
+			TestCase.assertEquals(policy.size(), count);
+		}
+		finally{
+			cache.destroy();
+		}
+	}
+	
+	public void testFrequentEntries(){
+		EvictionPolicy policy = new EvictionPolicy(0, 100, 100);
+		
+		for(int i=0;i<10;i++){
+			policy.put("hot" + i, i, 10);
+			
+			for(int k=0;k<5;k++){
+				policy.recordAccess("hot" + i);
+			}
+		}
+		
+		//uma varredura não remove os itens que continuam sendo acessados.
+		long id = 10;
+		
+		for(int i=0;i<10000;i++){
+			policy.put("cold" + i, id++, 10);
+			policy.recordAccess("hot" + (i % 10));
+			
+			List<EvictionPolicy.Entry> victims = policy.evict();
+			
+			for(EvictionPolicy.Entry e: victims){
+				TestCase.assertFalse(((String)e.getKey()).startsWith("hot"));
+			}
+		}
+		
+		TestCase.assertEquals(100, policy.size());
+		TestCase.assertEquals(1000, policy.getBytes());
+	}
+	
+	public void testOldRecord(){
+		EvictionPolicy policy = new EvictionPolicy(0, 100, 100);
+		
+		policy.put("key", 2, 10);
+		policy.put("key", 1, 20);
+		TestCase.assertEquals(10, policy.getBytes());
+		
+		policy.remove("key".getBytes(), 1);
+		TestCase.assertEquals(1, policy.size());
+		
+		policy.replace("key", 1, 20);
+		TestCase.assertEquals(20, policy.getBytes());
+		
+		policy.remove("key".getBytes(), 1);
+		TestCase.assertEquals(0, policy.size());
+		TestCase.assertEquals(0, policy.getBytes());
+	}
+	
+	public void testLargeEntry(){
+		EvictionPolicy policy = new EvictionPolicy(1000, 0, 100);
+		
+		policy.put("small", 1, 100);
+		policy.put("large", 2, 2000);
+		
+		List<EvictionPolicy.Entry> victims = policy.evict();
+		TestCase.assertEquals(1, victims.size());
+		TestCase.assertEquals("large", victims.get(0).getKey());
+		TestCase.assertEquals(100, policy.getBytes());
+	}
+	
+	private BasicCacheHandler getHandler(Cache cache){
+		return (BasicCacheHandler)((AbstractCache)cache).cacheHandler;
+	}
+	
+}
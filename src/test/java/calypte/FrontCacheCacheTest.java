@@ -0,0 +1,136 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package calypte;
+
+import junit.framework.TestCase;
+
+/**
+ * Executa os testes do cache usando o cache dos itens mais acessados.
+ * 
+ * @author Ribeiro
+ *
+ */
+public class FrontCacheCacheTest extends CacheTest{
+
+	protected CalypteConfig createConfig(){
+		CalypteConfig config = super.createConfig();
+		config.setFrontCacheSize(1024*1024);
+		config.setFrontCacheValueSize(1024);
+		return config;
+	}
+	
+	public void testFrontCacheHit() throws StorageException, RecoverException{
+		cache.put("key", "value", 0, 0);
+		
+		TestCase.assertEquals("value", (String)cache.get("key"));
+		TestCase.assertEquals(0, getHandler().getCountFrontCacheHit());
+		TestCase.assertEquals("value", (String)cache.get("key"));
+		TestCase.assertEquals("value", (String)cache.get("key"));
+		TestCase.assertEquals(2, getHandler().getCountFrontCacheHit());
+		TestCase.assertEquals(1, getHandler().getCountFrontCacheMiss());
+	}
+
+	public void testFrontCacheLargeValue() throws StorageException, RecoverException{
+		StringBuilder b = new StringBuilder();
+		
+		for(int i=0;i<5000;i++){
+			b.append((char)('a' + i % 26));
+		}
+		
+		String value = b.toString();
+		cache.put("key", value, 0, 0);
+		
+		TestCase.assertEquals(value, (String)cache.get("key"));
+		TestCase.assertEquals(value, (String)cache.get("key"));
+		TestCase.assertEquals(1, getHandler().getCountFrontCacheHit());
+	}
+	
+	public void testFrontCacheInvalidate() throws StorageException, RecoverException{
+		cache.put("key", "value", 0, 0);
+		TestCase.assertEquals("value", (String)cache.get("key"));
+		
+		cache.put("key", "value2", 0, 0);
+		TestCase.assertEquals("value2", (String)cache.get("key"));
+		
+		TestCase.assertTrue(cache.replace("key", "value3", 0, 0));
+		TestCase.assertEquals("value3", (String)cache.get("key"));
+		
+		TestCase.assertTrue(cache.remove("key"));
+		TestCase.assertNull(cache.get("key"));
+		TestCase.assertEquals(0, getHandler().getCountFrontCacheHit());
+	}
+	
+	public void testFrontCacheEviction(){
+		FrontCache front = new FrontCache(16*1024, 1024);
+		DataMap map      = new DataMap();
+		Block[] blocks   = new Block[0];
+		
+		front.put("hot", front.getStamp("hot"), map, blocks);
+		TestCase.assertNotNull(front.get("hot"));
+		
+		for(int i=0;i<1000;i++){
+			String key = "cold" + i;
+			front.put(key, front.getStamp(key), map, blocks);
+		}
+		
+		TestCase.assertNotNull(front.get("hot"));
+		TestCase.assertTrue(front.size() <= 16*1024);
+	}
+	
+	public void testFrontCacheStamp(){
+		FrontCache front = new FrontCache(16*1024, 1024);
+		long stamp       = front.getStamp("key");
+		
+		front.remove("key".getBytes());
+		TestCase.assertNull(front.put("key", stamp, new DataMap(), new Block[0]));
+		TestCase.assertNull(front.get("key"));
+	}
+	
+	public void testFrontCacheRemovedEntry(){
+		FrontCache front = new FrontCache(16*1024, 1024);
+		
+		front.put("key", front.getStamp("key"), new DataMap(), new Block[0]);
+		FrontCache.Entry e = front.get("key");
+		TestCase.assertFalse(e.isRemoved());
+		
+		//uma leitura que já obteve o item deixa de usá-lo.
+		front.remove("key");
+		TestCase.assertTrue(e.isRemoved());
+	}
+	
+	public void testFrontCacheTimeToIdle() throws StorageException, RecoverException, InterruptedException{
+		cache.put("key", "value", 0, 400);
+		
+		//os acessos pelo cache de itens mantêm o item.
+		for(int i=0;i<8;i++){
+			Thread.sleep(100);
+			TestCase.assertEquals("value", (String)cache.get("key"));
+		}
+		
+		TestCase.assertTrue(getHandler().getCountFrontCacheHit() >= 7);
+		
+		Thread.sleep(600);
+		TestCase.assertNull(cache.get("key"));
+	}
+	
+	private BasicCacheHandler getHandler(){
+		return (BasicCacheHandler)((AbstractCache)cache).cacheHandler;
+	}
+	
+}
@@ -0,0 +1,201 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package calypte;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import calypte.collections.CountingBloomFilter;
+import junit.framework.TestCase;
+
+/**
+ * Executa os testes do cache usando o filtro de chaves.
+ * 
+ * @author Ribeiro
+ *
+ */
+public class KeyFilterCacheTest extends CacheTest{
+
+	protected CalypteConfig createConfig(){
+		CalypteConfig config = super.createConfig();
+		config.setKeyFilterFalsePositive(0.01);
+		config.setKeyFilterCapacity(100000);
+		return config;
+	}
+	
+	public void testKeyFilter(){
+		CountingBloomFilter filter = new CountingBloomFilter(1000, 0.01);
+		
+		for(int i=0;i<1000;i++){
+			filter.add("key" + i);
+		}
+		
+		for(int i=0;i<1000;i++){
+			TestCase.assertTrue(filter.mightContain("key" + i));
+			TestCase.assertTrue(filter.mightContain(("key" + i).getBytes()));
+		}
+		
+		int falsePositive = 0;
+		
+		for(int i=0;i<10000;i++){
+			if(filter.mightContain("other" + i))
+				falsePositive++;
+		}
+		
+		TestCase.assertTrue(falsePositive < 300);
+		
+		for(int i=0;i<1000;i++){
+			filter.remove("key" + i);
+		}
+		
+		for(int i=0;i<1000;i++){
+			TestCase.assertFalse(filter.mightContain("key" + i));
+		}
+	}
+	
+	public void testKeyFilterUpdate() throws StorageException, RecoverException{
+		CountingBloomFilter filter = getHandler().keyFilter;
+		
+		TestCase.assertFalse(filter.mightContain("key"));
+		cache.put("key", "value", 0, 0);
+		TestCase.assertTrue(filter.mightContain("key"));
+		cache.put("key", "value2", 0, 0);
+		TestCase.assertTrue(cache.remove("key"));
+		TestCase.assertFalse(filter.mightContain("key"));
+		TestCase.assertNull(cache.get("key"));
+		
+		TestCase.assertNull(cache.putIfAbsent("key", "value", 0, 0));
+		TestCase.assertEquals("value", cache.putIfAbsent("key", "value2", 0, 0));
+		TestCase.assertTrue(cache.remove("key"));
+		TestCase.assertFalse(filter.mightContain("key"));
+	}
+	
+	public void testKeyFilterRebuild() throws StorageException, RecoverException{
+		for(int i=0;i<100;i++){
+			cache.put("key" + i, "value", 0, 0);
+		}
+		
+		final BasicCacheHandler handler   = getHandler();
+		final CountingBloomFilter filter  = handler.startKeyFilterRebuild();
+		
+		handler.findAll(new AbstractFindCacheHandler(null){
+			protected void found(String request, byte[] key, DataMap value) {
+				filter.add(key);
+			}
+		});
+		
+		//a inclusão é registrada no novo filtro.
+		cache.put("other", "value", 0, 0);
+		
+		TestCase.assertSame(filter, handler.finishKeyFilterRebuild(true));
+		TestCase.assertSame(filter, handler.keyFilter);
+		
+		for(int i=0;i<100;i++){
+			TestCase.assertEquals("value", cache.get("key" + i));
+		}
+		
+		TestCase.assertEquals("value", cache.get("other"));
+		
+		//o novo filtro é descartado.
+		CountingBloomFilter discarded = handler.startKeyFilterRebuild();
+		TestCase.assertSame(filter, handler.finishKeyFilterRebuild(false));
+		TestCase.assertNotSame(discarded, handler.keyFilter);
+	}
+	
+	public void testKeyFilterRebuildWithPuts() throws Throwable{
+		for(int i=0;i<1000;i++){
+			cache.put("key" + i, "value", 0, 0);
+		}
+		
+		final BasicCacheHandler handler  = getHandler();
+		final AtomicBoolean running      = new AtomicBoolean(true);
+		final AtomicInteger puts         = new AtomicInteger();
+		final Throwable[] error          = new Throwable[1];
+		
+		Thread writer = new Thread(){
+			
+			public void run(){
+				try{
+					while(running.get() && puts.get() < 20000){
+						int i = puts.getAndIncrement();
+						cache.put("other" + i, "value", 0, 0);
+						//as remoções também reorganizam o índice.
+						cache.put("removed" + i, "value", 0, 0);
+						cache.remove("removed" + i);
+					}
+				}
+				catch(Throwable e){
+					error[0] = e;
+				}
+			}
+			
+		};
+		
+		writer.start();
+		
+		while(puts.get() == 0){
+			Thread.sleep(1);
+		}
+		
+		final CountingBloomFilter filter = handler.startKeyFilterRebuild();
+		
+		try{
+			//a busca é lenta para que as inclusões alterem o índice.
+			handler.findAll(new AbstractFindCacheHandler(null){
+				
+				private int count;
+				
+				protected void found(String request, byte[] key, DataMap value) {
+					filter.add(key);
+					
+					if(++count % 10 == 0){
+						try{
+							Thread.sleep(1);
+						}
+						catch(InterruptedException e){
+						}
+					}
+				}
+				
+			});
+		}
+		finally{
+			TestCase.assertSame(filter, handler.finishKeyFilterRebuild(true));
+			running.set(false);
+			writer.join();
+		}
+		
+		TestCase.assertNull(error[0]);
+		TestCase.assertSame(filter, handler.keyFilter);
+		
+		//nenhuma chave do índice é rejeitada pelo novo filtro.
+		for(int i=0;i<1000;i++){
+			TestCase.assertEquals("value", cache.get("key" + i));
+		}
+		
+		for(int i=0;i<puts.get();i++){
+			TestCase.assertEquals("value", cache.get("other" + i));
+		}
+	}
+	
+	private BasicCacheHandler getHandler(){
+		return (BasicCacheHandler)((AbstractCache)cache).cacheHandler;
+	}
+	
+}
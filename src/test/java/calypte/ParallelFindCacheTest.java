@@ -0,0 +1,50 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte;
+
+import junit.framework.TestCase;
+
+/**
+ * Executa os testes do cache com as buscas em paralelo.
+ * 
+ * @author Ribeiro
+ *
+ */
+public class ParallelFindCacheTest extends CacheTest{
+
+	protected CalypteConfig createConfig(){
+		CalypteConfig config = super.createConfig();
+		config.setFindParallelism(4);
+		return config;
+	}
+	
+	public void testParallelRemoveByPrefix() throws StorageException, RecoverException{
+		for(int i=0;i<5000;i++){
+			cache.put("tenant1:" + i, "value", 0, 0);
+			cache.put("tenant2:" + i, "value", 0, 0);
+		}
+		
+		TestCase.assertEquals(10000, cache.countByPrefix("tenant"));
+		TestCase.assertEquals(5000, cache.removeByPrefix("tenant1:"));
+		TestCase.assertEquals(0, cache.countByPrefix("tenant1:"));
+		TestCase.assertEquals(5000, cache.countByPrefix("tenant2:"));
+		TestCase.assertNull(cache.get("tenant1:4999"));
+		TestCase.assertEquals("value", cache.get("tenant2:4999"));
+	}
+	
+}
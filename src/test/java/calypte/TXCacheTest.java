@@ -172,6 +172,19 @@ public class TXCacheTest extends TestCase{
 		TestCase.assertNull(cache.get(KEY));
 	}
 	
+	public void testRemoveByPrefix() throws StorageException, RecoverException{
+		for(int i=0;i<10;i++){
+			cache.put("tenant1:" + i, VALUE, 0, 0);
+			cache.put("tenant2:" + i, VALUE, 0, 0);
+		}
+		
+		TestCase.assertEquals(10, cache.countByPrefix("tenant1:"));
+		TestCase.assertEquals(10, cache.removeByPrefix("tenant1:"));
+		TestCase.assertEquals(0, cache.countByPrefix("tenant1:"));
+		TestCase.assertNull(cache.get("tenant1:0"));
+		TestCase.assertEquals(VALUE, cache.get("tenant2:0"));
+	}
+	
 	/* with explicit transaction */
 
 	/* replace */
@@ -0,0 +1,86 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte;
+
+import junit.framework.TestCase;
+
+/**
+ * Executa os testes do cache com a gravação em segundo plano dos itens 
+ * enviados para o disco.
+ * 
+ * @author Ribeiro
+ *
+ */
+public class WriteBehindCacheTest extends CacheTest{
+
+	protected CalypteConfig createConfig(){
+		CalypteConfig config = super.createConfig();
+		config.setSwapWriterThreads(2);
+		config.setSwapFlushPolicy("never");
+		config.setSwapMaxBacklog(64*1024);
+		return config;
+	}
+	
+	public void testSwapBacklog() throws StorageException, RecoverException{
+		CalypteConfig config = createConfig();
+		config.setDataBufferSize(2*1024*1024);
+		swap(config);
+	}
+	
+	public void testSwapFlushBytes() throws StorageException, RecoverException{
+		CalypteConfig config = createConfig();
+		config.setDataBufferSize(2*1024*1024);
+		config.setSwapFlushPolicy("bytes");
+		config.setSwapFlushBytes(16*1024);
+		swap(config);
+	}
+	
+	private void swap(CalypteConfig config) throws StorageException, RecoverException{
+		Cache cache = new ConcurrentCache(config);
+		
+		try{
+			//o dobro do buffer de dados.
+			for(int i=0;i<4096;i++){
+				cache.put("key" + i, value(i, 0), 0, 0);
+			}
+			
+			//os itens enviados são substituídos.
+			for(int i=0;i<4096;i+=2){
+				cache.put("key" + i, value(i, 1), 0, 0);
+			}
+			
+			for(int i=0;i<4096;i++){
+				TestCase.assertEquals(value(i, i % 2 == 0? 1 : 0), cache.get("key" + i));
+			}
+		}
+		finally{
+			cache.destroy();
+		}
+	}
+	
+	private String value(int i, int version){
+		StringBuilder b = new StringBuilder();
+		
+		while(b.length() < 1000){
+			b.append(i).append('-').append(version).append(';');
+		}
+		
+		return b.toString();
+	}
+	
+}
@@ -0,0 +1,157 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.collections;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import calypte.DataMap;
+import calypte.collections.treehugemap.AdaptiveNode;
+import junit.framework.TestCase;
+
+/**
+ * 
+ * @author Ribeiro
+ *
+ */
+public class AdaptiveNodeSwapperTest extends TestCase{
+
+	private static final int[] COUNTS = new int[]{0, 3, 10, 40, 200};
+	
+	private File file;
+	
+	private AdaptiveNodeSwapper swapper;
+	
+	public void setUp() throws IOException {
+		file    = File.createTempFile("swapper", "_idx");
+		swapper = new AdaptiveNodeSwapper(file, false);
+	}
+	
+	public void tearDown() {
+		swapper.destroy();
+	}
+	
+	public void testRecordLength() {
+		//o registro do menor tipo comporta 4 ligações.
+		assertEquals(
+				new AdaptiveNodeEntityFileDataHandler(AdaptiveNode.NODE4).getRecordLength(), 
+				swapper.getRecordLength());
+		assertTrue(swapper.getRecordLength() < 
+				new AdaptiveNodeEntityFileDataHandler().getRecordLength()/10);
+	}
+	
+	public void testSendItem() {
+		for(int i=0;i<COUNTS.length;i++){
+			swapper.sendItem(i, new Entry<AdaptiveNode<DataMap>>(i, node(i, COUNTS[i])));
+		}
+		
+		for(int i=0;i<COUNTS.length;i++){
+			assertNode(i, COUNTS[i], swapper.getItem(i).getItem());
+		}
+		
+		assertNull(swapper.getItem(COUNTS.length).getItem());
+		
+		//o nó muda de tipo na mesma posição.
+		swapper.sendItem(4, new Entry<AdaptiveNode<DataMap>>(4, node(4, 2)));
+		assertNode(4, 2, swapper.getItem(4).getItem());
+		
+		swapper.sendItem(1, new Entry<AdaptiveNode<DataMap>>(1, node(1, 100)));
+		assertNode(1, 100, swapper.getItem(1).getItem());
+		
+		swapper.sendItem(1, new Entry<AdaptiveNode<DataMap>>(1, null));
+		assertNull(swapper.getItem(1).getItem());
+	}
+	
+	public void testSendItems() {
+		List<AdaptiveNode<DataMap>> items = new ArrayList<AdaptiveNode<DataMap>>();
+		
+		for(int i=0;i<20;i++){
+			items.add(i == 15? null : node(10 + i, COUNTS[i % COUNTS.length]));
+		}
+		
+		swapper.sendItems(10, items);
+		
+		for(int i=0;i<20;i++){
+			if(i == 15)
+				assertNull(swapper.getItem(10 + i).getItem());
+			else
+				assertNode(10 + i, COUNTS[i % COUNTS.length], swapper.getItem(10 + i).getItem());
+		}
+	}
+	
+	public void testSmallNodes() {
+		for(int i=0;i<1000;i++){
+			swapper.sendItem(i, new Entry<AdaptiveNode<DataMap>>(i, node(i, i % 5)));
+		}
+		
+		//os arquivos dos tipos maiores não são usados.
+		for(int type=AdaptiveNode.NODE16;type<=AdaptiveNode.NODE256;type++){
+			assertEquals(0, swapper.getFile(type).length());
+		}
+	}
+	
+	public void testClear() {
+		swapper.sendItem(3, new Entry<AdaptiveNode<DataMap>>(3, node(3, 200)));
+		swapper.clear();
+		
+		assertNull(swapper.getItem(3).getItem());
+		
+		for(int type=AdaptiveNode.NODE4;type<=AdaptiveNode.NODE256;type++){
+			assertEquals(0, swapper.getFile(type).length());
+		}
+	}
+	
+	public void testDestroy() throws IOException {
+		File other                 = File.createTempFile("swapper", "_idx");
+		AdaptiveNodeSwapper nodes  = new AdaptiveNodeSwapper(other, true);
+		
+		nodes.sendItem(3, new Entry<AdaptiveNode<DataMap>>(3, node(3, 200)));
+		assertNode(3, 200, nodes.getItem(3).getItem());
+		nodes.destroy();
+		
+		for(int type=AdaptiveNode.NODE4;type<=AdaptiveNode.NODE256;type++){
+			assertFalse(nodes.getFile(type).exists());
+		}
+	}
+	
+	private AdaptiveNode<DataMap> node(long id, int count){
+		int[] labels     = new int[count];
+		long[] nextNodes = new long[count];
+		
+		for(int i=0;i<count;i++){
+			labels[i]    = i;
+			nextNodes[i] = id*1000 + i;
+		}
+		
+		return AdaptiveNode.create(id, null, 0, AdaptiveNode.EMPTY_PREFIX, 
+				count, labels, nextNodes);
+	}
+	
+	private void assertNode(long id, int count, AdaptiveNode<DataMap> node){
+		assertNotNull(node);
+		assertEquals(id, node.getId());
+		assertEquals(count, node.getCount());
+		
+		for(int i=0;i<count;i++){
+			assertEquals(id*1000 + i, node.getNextId(i));
+		}
+	}
+	
+}
@@ -0,0 +1,189 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.collections;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import calypte.DataMap;
+import calypte.collections.treehugemap.AdaptiveNode;
+import junit.framework.TestCase;
+
+/**
+ * 
+ * @author Ribeiro
+ *
+ */
+public class FileChannelSwapperTest extends TestCase{
+
+	private File file;
+	
+	private FileChannelSwapper<AdaptiveNode<DataMap>> swapper;
+	
+	public void setUp() throws IOException {
+		file    = File.createTempFile("swapper", "_idx");
+		swapper = new FileChannelSwapper<AdaptiveNode<DataMap>>(file, new AdaptiveNodeEntityFileDataHandler());
+	}
+	
+	public void tearDown() {
+		swapper.destroy();
+	}
+	
+	public void testSendItem() {
+		swapper.sendItem(5, new Entry<AdaptiveNode<DataMap>>(5, node(5)));
+		swapper.sendItem(1000, new Entry<AdaptiveNode<DataMap>>(1000, node(1000)));
+		
+		assertNode(5, swapper.getItem(5).getItem());
+		assertNode(1000, swapper.getItem(1000).getItem());
+		
+		//as posições não gravadas são nulas.
+		assertNull(swapper.getItem(0).getItem());
+		assertNull(swapper.getItem(1001).getItem());
+		assertNull(swapper.getItem(1000000).getItem());
+		
+		//o arquivo cresce em blocos.
+		assertEquals(0, file.length() % swapper.getRecordLength());
+		assertTrue(file.length() >= FileChannelSwapper.CHUNK_SIZE - swapper.getRecordLength());
+	}
+	
+	public void testSendItems() {
+		List<AdaptiveNode<DataMap>> items = new ArrayList<AdaptiveNode<DataMap>>();
+		
+		for(int i=10;i<20;i++){
+			items.add(i == 15? null : node(i));
+		}
+		
+		swapper.sendItems(10, items);
+		
+		for(int i=10;i<20;i++){
+			if(i == 15)
+				assertNull(swapper.getItem(i).getItem());
+			else
+				assertNode(i, swapper.getItem(i).getItem());
+		}
+		
+		//substitui uma posição da sequência.
+		swapper.sendItem(12, new Entry<AdaptiveNode<DataMap>>(12, null));
+		assertNull(swapper.getItem(12).getItem());
+		assertNode(13, swapper.getItem(13).getItem());
+	}
+	
+	public void testConcurrentReads() throws InterruptedException {
+		final int count = 500;
+		
+		for(int i=0;i<count;i++){
+			swapper.sendItem(i, new Entry<AdaptiveNode<DataMap>>(i, node(i)));
+		}
+		
+		final AtomicInteger errors = new AtomicInteger();
+		Thread[] threads           = new Thread[8];
+		
+		for(int t=0;t<threads.length;t++){
+			final long seed = t;
+			threads[t] = new Thread(){
+				
+				public void run(){
+					try{
+						Random r = new Random(seed);
+						for(int i=0;i<5000;i++){
+							int index         = r.nextInt(count);
+							AdaptiveNode<DataMap> node = swapper.getItem(index).getItem();
+							
+							if(node == null || node.getId() != index || node.getNextId(7) != index + 100)
+								errors.incrementAndGet();
+						}
+					}
+					catch(Throwable e){
+						errors.incrementAndGet();
+					}
+				}
+				
+			};
+			threads[t].start();
+		}
+		
+		for(Thread t: threads){
+			t.join();
+		}
+		
+		assertEquals(0, errors.get());
+	}
+	
+	public void testClear() {
+		swapper.sendItem(3, new Entry<AdaptiveNode<DataMap>>(3, node(3)));
+		swapper.clear();
+		
+		assertEquals(0, file.length());
+		assertNull(swapper.getItem(3).getItem());
+		
+		swapper.sendItem(3, new Entry<AdaptiveNode<DataMap>>(3, node(4)));
+		assertNode(4, swapper.getItem(3).getItem());
+	}
+	
+	public void testMapped() throws IOException {
+		File mappedFile = File.createTempFile("swapper", "_idx");
+		FileChannelSwapper<AdaptiveNode<DataMap>> mapped = 
+				new FileChannelSwapper<AdaptiveNode<DataMap>>(mappedFile, new AdaptiveNodeEntityFileDataHandler(), true);
+		
+		try{
+			assertTrue(mapped.isMapped());
+			
+			mapped.sendItem(5, new Entry<AdaptiveNode<DataMap>>(5, node(5)));
+			assertNode(5, mapped.getItem(5).getItem());
+			assertNull(mapped.getItem(6).getItem());
+			
+			//a escrita pelo canal é vista pela região já mapeada.
+			mapped.sendItem(6, new Entry<AdaptiveNode<DataMap>>(6, node(6)));
+			mapped.sendItem(5, new Entry<AdaptiveNode<DataMap>>(5, node(7)));
+			assertNode(6, mapped.getItem(6).getItem());
+			assertNode(7, mapped.getItem(5).getItem());
+			
+			//registro no segundo bloco do arquivo.
+			long index = FileChannelSwapper.CHUNK_SIZE/mapped.getRecordLength() + 3;
+			mapped.sendItem(index, new Entry<AdaptiveNode<DataMap>>(index, node(index)));
+			assertNode(index, mapped.getItem(index).getItem());
+			
+			mapped.clear();
+			assertNull(mapped.getItem(5).getItem());
+			
+			mapped.sendItem(5, new Entry<AdaptiveNode<DataMap>>(5, node(8)));
+			assertNode(8, mapped.getItem(5).getItem());
+		}
+		finally{
+			mapped.destroy();
+		}
+		
+		assertFalse(mappedFile.exists());
+	}
+	
+	private AdaptiveNode<DataMap> node(long id){
+		return AdaptiveNode.create(id, null, 0, AdaptiveNode.EMPTY_PREFIX, 
+				1, new int[]{7}, new long[]{id + 100});
+	}
+	
+	private void assertNode(long id, AdaptiveNode<DataMap> node){
+		assertNotNull(node);
+		assertEquals(id, node.getId());
+		assertEquals(id + 100, node.getNextId(7));
+	}
+	
+}
@@ -1,7 +1,9 @@
 package calypte.collections;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import calypte.CacheException;
@@ -45,6 +47,12 @@ public class SimpleReferenceCollectionTest extends TestCase{
 
 							public void destroy() throws CacheException {
 							}
+
+							public void releaseItem(long index, Long item) {
+							}
+
+							public void unloadItem(long index, Long item) {
+							}
 							
 						});
 		
@@ -85,6 +93,12 @@ public class SimpleReferenceCollectionTest extends TestCase{
 
 							public void destroy() throws CacheException {
 							}
+
+							public void releaseItem(long index, Long item) {
+							}
+
+							public void unloadItem(long index, Long item) {
+							}
 							
 						});
 		
@@ -92,7 +106,8 @@ public class SimpleReferenceCollectionTest extends TestCase{
 			src.insert(new Long(i));
 		}
 		
-		assertEquals(100, values.size());
+		//as páginas são enviadas inteiras.
+		assertEquals(2*SwapCollectionImp.PAGE_SIZE, values.size());
 		
 		for(int i=0;i<200;i++) {
 			assertEquals(i, src.get(i).intValue());
@@ -100,6 +115,111 @@ public class SimpleReferenceCollectionTest extends TestCase{
 		
 	}
 
+	@SuppressWarnings("serial")
+	public void testSwapDirtyItems() {
+		
+		final Map<Long,Long> values = new HashMap<Long, Long>();
+		final int[] sent            = new int[1];
+		
+		SimpleReferenceCollection<Long> src = 
+				new SimpleReferenceCollection<Long>(
+						SwapCollectionImp.PAGE_SIZE, 
+						1, 
+						new Swapper<Long>() {
+
+							public void sendItem(long index, Entry<Long> item) throws CacheException {
+								values.put(index, item.getItem());
+								sent[0]++;
+							}
+
+							public Entry<Long> getItem(long index) throws CacheException {
+								return new Entry<Long>(index, values.get(index));
+							}
+
+							public void clear() throws CacheException {
+								values.clear();
+							}
+
+							public void destroy() throws CacheException {
+							}
+
+							public void releaseItem(long index, Long item) {
+							}
+
+							public void unloadItem(long index, Long item) {
+							}
+							
+						});
+		
+		for(int i=0;i<2*SwapCollectionImp.PAGE_SIZE;i++) {
+			src.insert(new Long(i));
+		}
+		
+		assertEquals(SwapCollectionImp.PAGE_SIZE, sent[0]);
+		assertEquals(0, src.get(0).intValue());
+		assertEquals(2*SwapCollectionImp.PAGE_SIZE, sent[0]);
+		
+		//somente os itens alterados são enviados novamente.
+		src.set(1, new Long(-1));
+		
+		for(int i=SwapCollectionImp.PAGE_SIZE;i<2*SwapCollectionImp.PAGE_SIZE;i++) {
+			assertEquals(i, src.get(i).intValue());
+		}
+		
+		assertEquals(2*SwapCollectionImp.PAGE_SIZE + 1, sent[0]);
+		assertEquals(-1, src.get(1).intValue());
+		assertEquals(2*SwapCollectionImp.PAGE_SIZE + 1, sent[0]);
+	}
+	
+	@SuppressWarnings("serial")
+	public void testSecondChance() {
+		
+		final Map<Long,Long> values = new HashMap<Long, Long>();
+		final List<Long> unloaded   = new ArrayList<Long>();
+		
+		SwapCollectionImp<Long> src = 
+				new SwapCollectionImp<Long>(
+						new Swapper<Long>() {
+
+							public void sendItem(long index, Entry<Long> item) throws CacheException {
+								values.put(index, item.getItem());
+							}
+
+							public Entry<Long> getItem(long index) throws CacheException {
+								return new Entry<Long>(index, values.get(index));
+							}
+
+							public void clear() throws CacheException {
+								values.clear();
+							}
+
+							public void destroy() throws CacheException {
+							}
+
+							public void releaseItem(long index, Long item) {
+							}
+
+							public void unloadItem(long index, Long item) {
+								unloaded.add(index);
+							}
+							
+						}, true, 2, 1, false);
+		
+		//uma página por item.
+		src.set(0, new Long(0));
+		src.set(SwapCollectionImp.PAGE_SIZE, new Long(1));
+		
+		assertEquals(0, src.get(0).intValue());
+		
+		//a primeira página foi lida e recebe uma segunda chance.
+		src.set(2*SwapCollectionImp.PAGE_SIZE, new Long(2));
+		
+		assertEquals(1, unloaded.size());
+		assertEquals(SwapCollectionImp.PAGE_SIZE, unloaded.get(0).intValue());
+		assertEquals(1, values.size());
+		assertEquals(1, src.get(SwapCollectionImp.PAGE_SIZE).intValue());
+	}
+	
 	@SuppressWarnings({ "serial", "static-access" })
 	public void testFree() {
 		
@@ -125,6 +245,12 @@ public class SimpleReferenceCollectionTest extends TestCase{
 
 							public void destroy() throws CacheException {
 							}
+
+							public void releaseItem(long index, Long item) {
+							}
+
+							public void unloadItem(long index, Long item) {
+							}
 							
 						});
 		
@@ -155,4 +281,75 @@ public class SimpleReferenceCollectionTest extends TestCase{
 		
 	}
 	
+	@SuppressWarnings("serial")
+	public void testExtents() {
+		
+		final Map<Long,Long> values = new HashMap<Long, Long>();
+		
+		SimpleReferenceCollection<Long> src = 
+				new SimpleReferenceCollection<Long>(
+						100, 
+						5f/100f, 
+						new Swapper<Long>() {
+
+							public void sendItem(long index, Entry<Long> item) throws CacheException {
+								values.put(index, item.getItem());
+							}
+
+							public Entry<Long> getItem(long index) throws CacheException {
+								return new Entry<Long>(index, values.get(index));
+							}
+
+							public void clear() throws CacheException {
+								values.clear();
+							}
+
+							public void destroy() throws CacheException {
+							}
+
+							public void releaseItem(long index, Long item) {
+							}
+
+							public void unloadItem(long index, Long item) {
+							}
+							
+						});
+		
+		Long[] a = new Long[]{new Long(1), new Long(2), new Long(3)};
+		Long[] b = new Long[]{new Long(4), new Long(5)};
+		Long[] c = new Long[]{new Long(6), new Long(7), new Long(8), new Long(9)};
+		
+		assertEquals(0, src.insert(a));
+		assertEquals(3, src.insert(b));
+		assertEquals(5, src.insert(c));
+		
+		Long[] result = new Long[4];
+		src.get(5, result);
+		for(int i=0;i<c.length;i++) {
+			assertEquals(c[i], result[i]);
+		}
+		
+		//as extensões vizinhas são unidas.
+		assertTrue(src.remove(0, a));
+		assertTrue(src.remove(3, b));
+		
+		assertEquals(0, src.insert(c));
+		assertEquals(4, src.insert(new Long[]{new Long(10)}));
+		assertEquals(9, src.insert(a));
+		
+		result = new Long[5];
+		src.get(0, result);
+		assertEquals(new Long(6), result[0]);
+		assertEquals(new Long(10), result[4]);
+		
+		//uma posição já removida impede a liberação da extensão.
+		assertTrue(src.remove(5, new Long(6)));
+		assertFalse(src.remove(5, c));
+		assertNull(src.get(6));
+		
+		//as posições removidas voltam como uma extensão.
+		assertEquals(6, src.insert(new Long[]{new Long(11), new Long(12), new Long(13)}));
+		assertEquals(new Long(13), src.get(8));
+	}
+	
 }
@@ -0,0 +1,171 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.collections;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import calypte.CacheErrors;
+import calypte.CacheException;
+import junit.framework.TestCase;
+
+/**
+ * 
+ * @author Ribeiro
+ *
+ */
+public class WriteBehindSwapperTest extends TestCase{
+
+	private ScheduledExecutorService writers;
+	
+	private FailingSwapper target;
+	
+	private WriteBehindSwapper<Long> swapper;
+	
+	public void setUp() {
+		writers = Executors.newScheduledThreadPool(1);
+		target  = new FailingSwapper();
+		swapper = new WriteBehindSwapper<Long>(target, writers, 
+				WriteBehindSwapper.FLUSH_NEVER, 0, 8, 1024, 8);
+	}
+	
+	public void tearDown() {
+		swapper.destroy();
+		writers.shutdown();
+	}
+	
+	public void testWriteFailure() throws InterruptedException {
+		target.failures.set(3);
+		
+		for(long i=0;i<10;i++){
+			swapper.sendItem(i, new Entry<Long>(i, new Long(i)));
+		}
+		
+		//a falha é informada na gravação solicitada.
+		try{
+			swapper.flush();
+			fail("expected CacheException");
+		}
+		catch(CacheException e){
+			assertEquals(CacheErrors.ERROR_1014, e.getError());
+		}
+		
+		//o envio de outros itens não é afetado pela falha.
+		swapper.sendItem(10, new Entry<Long>(10, new Long(10)));
+		
+		//os itens pendentes continuam disponíveis.
+		assertEquals(new Long(5), swapper.getItem(5).getItem());
+		
+		//as novas tentativas são agendadas sem novos envios.
+		for(int i=0;i<500 && target.items.size() < 10;i++){
+			Thread.sleep(10);
+		}
+		
+		assertEquals(0, target.failures.get());
+		assertTrue(target.items.size() >= 10);
+		
+		swapper.flush();
+		
+		for(long i=0;i<=10;i++){
+			assertEquals(new Long(i), target.items.get(i));
+		}
+	}
+	
+	public void testClearAfterFailure() {
+		target.failures.set(Integer.MAX_VALUE);
+		swapper.sendItem(1, new Entry<Long>(1, new Long(1)));
+		
+		try{
+			swapper.flush();
+			fail("expected CacheException");
+		}
+		catch(CacheException e){
+		}
+		
+		//a tentativa agendada é cancelada.
+		swapper.clear();
+		swapper.flush();
+		assertNull(swapper.getItem(1).getItem());
+	}
+	
+	public void testFullBacklogFailure() {
+		target.failures.set(Integer.MAX_VALUE);
+		
+		//o limite é de 128 itens pendentes.
+		try{
+			for(long i=0;i<1000;i++){
+				swapper.sendItem(i, new Entry<Long>(i, new Long(i)));
+			}
+			fail("expected CacheException");
+		}
+		catch(CacheException e){
+			assertEquals(CacheErrors.ERROR_1014, e.getError());
+		}
+		
+		//os itens enviados continuam pendentes.
+		assertEquals(new Long(127), swapper.getItem(127).getItem());
+		assertTrue(target.items.isEmpty());
+	}
+	
+	private static class FailingSwapper implements BatchSwapper<Long> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Map<Long, Long> items = new ConcurrentHashMap<Long, Long>();
+		
+		private final AtomicInteger failures = new AtomicInteger();
+		
+		public void sendItems(long index, List<Long> values) throws CacheException {
+			if(failures.getAndDecrement() > 0)
+				throw new CacheException(CacheErrors.ERROR_1014);
+			
+			failures.set(0);
+			
+			for(Long v: values){
+				items.put(index++, v);
+			}
+		}
+		
+		public void sendItem(long index, Entry<Long> item) throws CacheException {
+			items.put(index, item.getItem());
+		}
+
+		public Entry<Long> getItem(long index) throws CacheException {
+			return new Entry<Long>(index, items.get(index));
+		}
+
+		public void releaseItem(long index, Long item) {
+		}
+
+		public void unloadItem(long index, Long item) {
+		}
+
+		public void clear() throws CacheException {
+			items.clear();
+		}
+
+		public void destroy() throws CacheException {
+		}
+		
+	}
+	
+}
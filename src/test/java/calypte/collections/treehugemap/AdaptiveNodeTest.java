@@ -0,0 +1,226 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.collections.treehugemap;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import calypte.CacheException;
+import calypte.collections.BasicMapReferenceCollection;
+import calypte.collections.Entry;
+import calypte.collections.ReferenceCollection;
+import calypte.collections.Swapper;
+import junit.framework.TestCase;
+
+/**
+ * 
+ * @author Ribeiro
+ *
+ */
+public class AdaptiveNodeTest extends TestCase{
+
+	public void testGrow() {
+		AdaptiveNode<String> node = new AdaptiveNode4<String>(1, null, 0, AdaptiveNode.EMPTY_PREFIX);
+		
+		for(int i=0;i<AdaptiveNode.MAX_NODES;i++) {
+			node = node.putNextId(i, i + 100);
+			
+			if(i < AdaptiveNode4.CAPACITY)
+				assertEquals(AdaptiveNode.NODE4, node.getType());
+			else
+			if(i < AdaptiveNode16.CAPACITY)
+				assertEquals(AdaptiveNode.NODE16, node.getType());
+			else
+			if(i < AdaptiveNode48.CAPACITY)
+				assertEquals(AdaptiveNode.NODE48, node.getType());
+			else
+				assertEquals(AdaptiveNode.NODE256, node.getType());
+			
+			assertEquals(i + 1, node.getCount());
+		}
+		
+		for(int i=0;i<AdaptiveNode.MAX_NODES;i++) {
+			assertEquals(i + 100, node.getNextId(i));
+			assertEquals(i, node.nextLabel(i));
+		}
+	}
+	
+	public void testUnorderedLabels() {
+		AdaptiveNode<String> node = new AdaptiveNode4<String>(1, null, 0, AdaptiveNode.EMPTY_PREFIX);
+		
+		for(int i=AdaptiveNode.MAX_NODES - 1;i>=0;i-=7) {
+			node = node.putNextId(i, i);
+		}
+		
+		int label = node.nextLabel(0);
+		int last  = -1;
+		int count = 0;
+		
+		while(label != -1) {
+			assertTrue(label > last);
+			assertEquals(label, node.getNextId(label));
+			last  = label;
+			label = node.nextLabel(label + 1);
+			count++;
+		}
+		
+		assertEquals(node.getCount(), count);
+		assertEquals(-1, node.getNextId(1));
+	}
+	
+	@SuppressWarnings("unchecked")
+	public void testPathCompression() {
+		BasicMapReferenceCollection<String, String> map = 
+				new BasicMapReferenceCollection<String, String>(
+						100000, 0.03, new Swapper[] {new MapSwapper<TreeNode<String>>()}, 1, 
+						100000, 0.03, new Swapper[] {new MapSwapper<String>()}, 1, 
+						new StringTreeNodes<String>());
+		
+		StringBuilder b = new StringBuilder();
+		
+		for(int i=0;i<100;i++) {
+			b.append((char)('a' + (i % 26)));
+		}
+		
+		String longKey = b.toString();
+		
+		map.put(longKey, "v1");
+		map.put(longKey.substring(0, 40), "v2");
+		map.put(longKey.substring(0, 10) + "x", "v3");
+		map.put("a", "v4");
+		
+		assertEquals("v1", map.get(longKey));
+		assertEquals("v2", map.get(longKey.substring(0, 40)));
+		assertEquals("v3", map.get(longKey.substring(0, 10) + "x"));
+		assertEquals("v4", map.get("a"));
+		assertNull(map.get(longKey.substring(0, 39)));
+		assertNull(map.get(longKey.substring(0, 10)));
+		assertNull(map.get(longKey + "a"));
+	}
+	
+	@SuppressWarnings("unchecked")
+	public void testRemoveNodes() {
+		NodesStringTreeNodes<String> treeNodes = new NodesStringTreeNodes<String>();
+		BasicMapReferenceCollection<String, String> map = 
+				new BasicMapReferenceCollection<String, String>(
+						100000, 0.03, new Swapper[] {new MapSwapper<TreeNode<String>>()}, 1, 
+						100000, 0.03, new Swapper[] {new MapSwapper<String>()}, 1, 
+						treeNodes);
+		
+		long maxId = 0;
+		
+		for(int i=0;i<10;i++) {
+			for(int k=0;k<100;k++) {
+				map.put("key/" + i + "/" + k, "v" + k);
+			}
+			
+			map.put("key", "v");
+			
+			AdaptiveNode<String> root = (AdaptiveNode<String>)treeNodes.getFirst(treeNodes.nodes);
+			
+			if(i == 1)
+				maxId = maxId(treeNodes.nodes, root);
+			else
+			if(i > 1)
+				//as posições dos nós removidos são reutilizadas.
+				assertTrue(maxId(treeNodes.nodes, root) <= maxId);
+			
+			for(int k=0;k<100;k++) {
+				assertEquals("v" + k, map.get("key/" + i + "/" + k));
+				assertEquals("v" + k, map.remove("key/" + i + "/" + k));
+			}
+			
+			assertEquals("v", map.get("key"));
+			assertTrue(map.remove("key", "v"));
+			
+			root = (AdaptiveNode<String>)treeNodes.getFirst(treeNodes.nodes);
+			assertEquals(0, root.getCount());
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	public void testInlineValues() {
+		BasicMapReferenceCollection<String, String> map = 
+				new BasicMapReferenceCollection<String, String>(
+						100000, 0.03, new Swapper[] {new MapSwapper<TreeNode<String>>()}, 1, 
+						new StringTreeNodes<String>());
+		
+		assertNull(map.put("key", "v1"));
+		assertEquals("v1", map.putIfAbsent("key", "v2"));
+		assertTrue(map.replace("key", "v1", "v3"));
+		assertFalse(map.replace("key", "v1", "v4"));
+		assertEquals("v3", map.replace("key", "v5"));
+		assertEquals("v5", map.get("key"));
+		assertFalse(map.remove("key", "v1"));
+		assertTrue(map.remove("key", "v5"));
+		assertNull(map.get("key"));
+	}
+	
+	private long maxId(ReferenceCollection<TreeNode<String>> nodes, AdaptiveNode<String> node) {
+		long max  = node.getId();
+		int label = node.nextLabel(0);
+		
+		while(label != -1) {
+			max   = Math.max(max, maxId(nodes, (AdaptiveNode<String>)nodes.get(node.getNextId(label))));
+			label = label + 1 < AdaptiveNode.MAX_NODES? node.nextLabel(label + 1) : -1;
+		}
+		
+		return max;
+	}
+	
+	@SuppressWarnings("serial")
+	private static class NodesStringTreeNodes<T> extends StringTreeNodes<T>{
+		
+		public ReferenceCollection<TreeNode<T>> nodes;
+		
+		public void init(ReferenceCollection<TreeNode<T>> nodes) {
+			super.init(nodes);
+			this.nodes = nodes;
+		}
+		
+	}
+	
+	@SuppressWarnings("serial")
+	private static class MapSwapper<T> implements Swapper<T>{
+
+		private Map<Long, T> values = new HashMap<Long, T>();
+		
+		public void sendItem(long index, Entry<T> item) throws CacheException {
+			values.put(index, item.getItem());
+		}
+
+		public Entry<T> getItem(long index) throws CacheException {
+			return new Entry<T>(index, values.get(index));
+		}
+
+		public void clear() throws CacheException {
+			values.clear();
+		}
+
+		public void destroy() throws CacheException {
+		}
+
+		public void releaseItem(long index, T item) {
+		}
+
+		public void unloadItem(long index, T item) {
+		}
+		
+	}
+	
+}
@@ -0,0 +1,156 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.memory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import calypte.Block;
+import junit.framework.TestCase;
+
+/**
+ * 
+ * @author Ribeiro
+ *
+ */
+public class DirectMemoryTest extends TestCase{
+
+	private DirectMemory memory = new DirectMemory();
+	
+	public void testAlloc(){
+		RegionMemory r = memory.alloc(1024);
+		byte[] b = new byte[1024];
+		Random random = new Random();
+		random.nextBytes(b);
+		r.write(0, b, 0, b.length);
+		
+		byte[] b2 = new byte[1024];
+		r.read(0, b2, 0, b2.length);
+		assertTrue(Arrays.equals(b, b2));
+		assertEquals(1024, r.size());
+		assertTrue(((DirectRegionMemory)r).getByteBuffer().isDirect());
+	}
+	
+	public void testReleaseReuse(){
+		RegionMemory r = memory.alloc(1000);
+		long chunk     = memory.getChunkMemory();
+		memory.release(r);
+		memory.release(r);
+		
+		for(int i=0;i<10;i++){
+			memory.release(memory.alloc(1024));
+		}
+		
+		assertEquals(chunk, memory.getChunkMemory());
+	}
+	
+	public void testBlockRelease(){
+		Block block = new Block(1, 0, memory.alloc(1000), 1000);
+		
+		assertTrue(block.pin());
+		block.release(memory);
+		assertNotNull(((DirectRegionMemory)block.buffer).buffer);
+		
+		block.release(memory);
+		assertFalse(block.pin());
+		assertNull(((DirectRegionMemory)block.buffer).buffer);
+	}
+	
+	public void testRegionCopy(){
+		RegionMemory r  = memory.alloc(100);
+		RegionMemory r2 = memory.alloc(100);
+		byte[] b = new byte[100];
+		new Random().nextBytes(b);
+		r.write(0, b, 0, b.length);
+		
+		r2.write(10, r, 20, 50);
+		
+		byte[] b2 = new byte[50];
+		r2.read(10, b2, 0, b2.length);
+		assertTrue(Arrays.equals(Arrays.copyOfRange(b, 20, 70), b2));
+		
+		r2.write(0, new ByteArrayRegionMemory(b), 0, 100);
+		r2.read(0, b2, 0, b2.length);
+		assertTrue(Arrays.equals(Arrays.copyOfRange(b, 0, 50), b2));
+	}
+	
+	public void testView(){
+		RegionMemory r = memory.alloc(100);
+		ByteBuffer view = ((DirectRegionMemory)r).getByteBuffer();
+		assertEquals(100, view.remaining());
+		
+		view.put(5, (byte)9);
+		assertEquals(9, r.get(5));
+	}
+	
+	public void testChannelWrite() throws Exception{
+		RegionMemory r = memory.alloc(3000);
+		byte[] b = new byte[3000];
+		new Random().nextBytes(b);
+		r.write(0, b, 0, b.length);
+		
+		File f = File.createTempFile("direct", ".dta");
+		f.deleteOnExit();
+		FileOutputStream out = new FileOutputStream(f);
+		try{
+			r.read(out, 100, 2000);
+		}
+		finally{
+			out.close();
+		}
+		
+		byte[] b2 = new byte[2000];
+		FileInputStream in = new FileInputStream(f);
+		try{
+			assertEquals(2000, in.read(b2));
+		}
+		finally{
+			in.close();
+		}
+		
+		assertTrue(Arrays.equals(Arrays.copyOfRange(b, 100, 2100), b2));
+	}
+	
+	public void testRealloc(){
+		RegionMemory r = memory.alloc(100);
+		byte[] b = new byte[100];
+		Random random = new Random();
+		random.nextBytes(b);
+		r.write(0, b, 0, b.length);
+		
+		memory.realloc(4000, r);
+		assertEquals(4000, r.size());
+		
+		byte[] b2 = new byte[100];
+		r.read(0, b2, 0, b2.length);
+		assertTrue(Arrays.equals(b, b2));
+	}
+	
+	public void testLargeRegion(){
+		RegionMemory r = memory.alloc(DirectMemory.MAX_SLOT_SIZE + 1);
+		r.write(DirectMemory.MAX_SLOT_SIZE, new byte[]{7}, 0, 1);
+		assertEquals(7, r.get(DirectMemory.MAX_SLOT_SIZE));
+		memory.release(r);
+		assertEquals(0, memory.getChunkMemory());
+	}
+	
+}
@@ -0,0 +1,141 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.memory;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import calypte.Block;
+import junit.framework.TestCase;
+
+/**
+ * 
+ * @author Ribeiro
+ *
+ */
+public class HeapMemoryTest extends TestCase{
+
+	private HeapMemory memory = new HeapMemory(64*1024);
+	
+	public void testAlloc(){
+		RegionMemory r = memory.alloc(1024);
+		byte[] b = new byte[1024];
+		Random random = new Random();
+		random.nextBytes(b);
+		r.write(0, b, 0, b.length);
+		
+		byte[] b2 = new byte[1024];
+		r.read(0, b2, 0, b2.length);
+		assertTrue(Arrays.equals(b, b2));
+		assertEquals(1024, r.size());
+	}
+	
+	public void testContiguous(){
+		HeapRegionMemory r  = (HeapRegionMemory)memory.alloc(1000);
+		HeapRegionMemory r2 = (HeapRegionMemory)memory.alloc(1000);
+		
+		//as regiões da mesma classe ocupam o mesmo segmento.
+		assertSame(r.data, r2.data);
+		assertEquals(1024, Math.abs(r.offset - r2.offset));
+		
+		byte[] b = new byte[1000];
+		new Random().nextBytes(b);
+		r.write(0, b, 0, b.length);
+		r2.write(0, r, 0, 1000);
+		
+		byte[] b2 = new byte[1000];
+		assertEquals(1000, r2.read(0, b2, 0, 2000));
+		assertTrue(Arrays.equals(b, b2));
+	}
+	
+	public void testReleaseReuse(){
+		RegionMemory r = memory.alloc(1000);
+		long address   = ((HeapRegionMemory)r).address;
+		memory.release(r);
+		memory.release(r);
+		
+		RegionMemory r2 = memory.alloc(1024);
+		assertEquals(address, ((HeapRegionMemory)r2).address);
+	}
+	
+	public void testBlockRelease(){
+		Block block  = new Block(1, 0, memory.alloc(1000), 1000);
+		long address = ((HeapRegionMemory)block.buffer).address;
+		
+		assertTrue(block.pin());
+		block.release(memory);
+		
+		RegionMemory r = memory.alloc(1000);
+		assertFalse(address == ((HeapRegionMemory)r).address);
+		
+		block.release(memory);
+		assertFalse(block.pin());
+		
+		RegionMemory r2 = memory.alloc(1000);
+		assertEquals(address, ((HeapRegionMemory)r2).address);
+	}
+	
+	public void testSegments(){
+		RegionMemory[] r = new RegionMemory[10000];
+		
+		for(int i=0;i<r.length;i++){
+			r[i] = memory.alloc(1024);
+		}
+		
+		long segments = memory.getSegmentMemory();
+		
+		for(int i=0;i<r.length;i++){
+			memory.release(r[i]);
+		}
+		
+		for(int i=0;i<r.length;i++){
+			r[i] = memory.alloc(1024);
+		}
+		
+		assertEquals(segments, memory.getSegmentMemory());
+	}
+	
+	public void testRealloc(){
+		RegionMemory r = memory.alloc(100);
+		byte[] b = new byte[100];
+		Random random = new Random();
+		random.nextBytes(b);
+		r.write(0, b, 0, b.length);
+		
+		memory.realloc(4000, r);
+		assertEquals(4000, r.size());
+		
+		byte[] b2 = new byte[100];
+		r.read(0, b2, 0, b2.length);
+		assertTrue(Arrays.equals(b, b2));
+	}
+	
+	public void testLargeRegion(){
+		RegionMemory r = memory.alloc(memory.getSegmentSize() + 1);
+		r.write(memory.getSegmentSize(), new byte[]{7}, 0, 1);
+		assertEquals(7, r.get(memory.getSegmentSize()));
+		
+		byte[] data = ((HeapRegionMemory)r).data;
+		memory.release(r);
+		assertEquals(0, memory.getSegmentMemory());
+		
+		RegionMemory r2 = memory.alloc(memory.getSegmentSize() + 1);
+		assertSame(data, ((HeapRegionMemory)r2).data);
+	}
+	
+}
@@ -0,0 +1,79 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.memory;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * 
+ * @author Ribeiro
+ *
+ */
+public class MappedMemoryTest extends TestCase{
+
+	private File path;
+	
+	private MappedMemory memory;
+	
+	public void setUp(){
+		path   = new File(System.getProperty("java.io.tmpdir"), "calypte-mapped");
+		memory = new MappedMemory(path);
+	}
+	
+	public void testAlloc(){
+		RegionMemory r = memory.alloc(1024);
+		byte[] b = new byte[1024];
+		new Random().nextBytes(b);
+		r.write(0, b, 0, b.length);
+		
+		byte[] b2 = new byte[1024];
+		r.read(0, b2, 0, b2.length);
+		assertTrue(Arrays.equals(b, b2));
+		assertTrue(((DirectRegionMemory)r).getByteBuffer().isDirect());
+	}
+	
+	public void testWrap(){
+		DirectRegionMemory r = (DirectRegionMemory)memory.alloc(3000);
+		byte[] b = new byte[3000];
+		new Random().nextBytes(b);
+		r.write(0, b, 0, b.length);
+		
+		//a região é obtida novamente a partir da sua posição.
+		RegionMemory r2 = memory.wrap(r.getAddress(), r.size(), r.getSizeClass());
+		byte[] b2 = new byte[3000];
+		r2.read(0, b2, 0, b2.length);
+		assertTrue(Arrays.equals(b, b2));
+	}
+	
+	public void testFiles(){
+		memory.alloc(100);
+		memory.alloc(DirectMemory.MAX_SLOT_SIZE + 1);
+		assertEquals(DirectMemory.CHUNK_SIZE + DirectMemory.MAX_SLOT_SIZE + 1, memory.getChunkMemory());
+		
+		//os arquivos são removidos depois do mapeamento.
+		File[] files = path.listFiles();
+		for(File f: files){
+			assertFalse(f.getName().endsWith(MappedMemory.FILE_TYPE));
+		}
+	}
+	
+}
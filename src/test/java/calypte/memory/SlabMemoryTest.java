@@ -0,0 +1,118 @@
+/*
+ * Calypte http://calypte.uoutec.com.br/
+ * Copyright (C) 2018 UoUTec. (calypte@uoutec.com.br)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package calypte.memory;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import calypte.Block;
+import junit.framework.TestCase;
+
+/**
+ * 
+ * @author Ribeiro
+ *
+ */
+public class SlabMemoryTest extends TestCase{
+
+	private SlabMemory memory = new SlabMemory();
+	
+	public void testAlloc(){
+		RegionMemory r = memory.alloc(1024);
+		byte[] b = new byte[1024];
+		Random random = new Random();
+		random.nextBytes(b);
+		r.write(0, b, 0, b.length);
+		
+		byte[] b2 = new byte[1024];
+		r.read(0, b2, 0, b2.length);
+		assertTrue(Arrays.equals(b, b2));
+		assertEquals(1024, r.size());
+	}
+	
+	public void testReleaseReuse(){
+		RegionMemory r = memory.alloc(1000);
+		long address   = ((SlabRegionMemory)r).address;
+		memory.release(r);
+		memory.release(r);
+		
+		RegionMemory r2 = memory.alloc(1024);
+		assertEquals(address, ((SlabRegionMemory)r2).address.longValue());
+	}
+	
+	public void testBlockRelease(){
+		Block block  = new Block(1, 0, memory.alloc(1000), 1000);
+		long address = ((SlabRegionMemory)block.buffer).address;
+		
+		assertTrue(block.pin());
+		block.release(memory);
+		
+		RegionMemory r = memory.alloc(1000);
+		assertFalse(address == ((SlabRegionMemory)r).address.longValue());
+		
+		block.release(memory);
+		assertFalse(block.pin());
+		
+		RegionMemory r2 = memory.alloc(1000);
+		assertEquals(address, ((SlabRegionMemory)r2).address.longValue());
+	}
+	
+	public void testArena(){
+		RegionMemory[] r = new RegionMemory[10000];
+		
+		for(int i=0;i<r.length;i++){
+			r[i] = memory.alloc(1024);
+		}
+		
+		long arena = memory.getArenaMemory();
+		
+		for(int i=0;i<r.length;i++){
+			memory.release(r[i]);
+		}
+		
+		for(int i=0;i<r.length;i++){
+			r[i] = memory.alloc(1024);
+		}
+		
+		assertEquals(arena, memory.getArenaMemory());
+	}
+	
+	public void testRealloc(){
+		RegionMemory r = memory.alloc(100);
+		byte[] b = new byte[100];
+		Random random = new Random();
+		random.nextBytes(b);
+		r.write(0, b, 0, b.length);
+		
+		memory.realloc(4000, r);
+		assertEquals(4000, r.size());
+		
+		byte[] b2 = new byte[100];
+		r.read(0, b2, 0, b2.length);
+		assertTrue(Arrays.equals(b, b2));
+	}
+	
+	public void testLargeRegion(){
+		RegionMemory r = memory.alloc(SlabMemory.MAX_SLOT_SIZE + 1);
+		r.write(SlabMemory.MAX_SLOT_SIZE, new byte[]{7}, 0, 1);
+		assertEquals(7, r.get(SlabMemory.MAX_SLOT_SIZE));
+		memory.release(r);
+		assertEquals(0, memory.getArenaMemory());
+	}
+	
+}
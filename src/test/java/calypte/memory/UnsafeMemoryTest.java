@@ -75,4 +75,111 @@ public class UnsafeMemoryTest extends TestCase{
 		assertTrue(Arrays.equals(b, b2));
 	}
 	
+	public void testBounds(){
+		RegionMemory r  = memory.alloc(100);
+		RegionMemory r2 = memory.alloc(50);
+		
+		try{
+			r.write(0, new byte[10], 5, 10);
+			fail();
+		}
+		catch(IndexOutOfBoundsException e){
+		}
+		
+		try{
+			r.read(0, new byte[10], -1, 5);
+			fail();
+		}
+		catch(IndexOutOfBoundsException e){
+		}
+		
+		try{
+			r.get(100);
+			fail();
+		}
+		catch(IndexOutOfBoundsException e){
+		}
+		
+		//a cópia é limitada pela menor região.
+		assertEquals(50, r.read(0, r2, 0, 100));
+		
+		memory.realloc(200, r);
+		assertEquals(200, r.size());
+	}
+	
+	public void testOutOfBounds(){
+		RegionMemory r  = memory.alloc(100);
+		RegionMemory r2 = memory.alloc(50);
+		byte[] b        = new byte[10];
+		
+		try{
+			r.get(-1);
+			fail();
+		}
+		catch(IndexOutOfBoundsException e){
+		}
+		
+		try{
+			r.read(-1, b, 0, 5);
+			fail();
+		}
+		catch(IndexOutOfBoundsException e){
+		}
+		
+		try{
+			r.write(-1, b, 0, 5);
+			fail();
+		}
+		catch(IndexOutOfBoundsException e){
+		}
+		
+		try{
+			r.read(0, b, 8, 5);
+			fail();
+		}
+		catch(IndexOutOfBoundsException e){
+		}
+		
+		try{
+			r.read(0, r2, -1, 10);
+			fail();
+		}
+		catch(IndexOutOfBoundsException e){
+		}
+		
+		try{
+			r.write(0, r2, -1, 10);
+			fail();
+		}
+		catch(IndexOutOfBoundsException e){
+		}
+		
+		try{
+			r.write(-1, r2, 0, 10);
+			fail();
+		}
+		catch(IndexOutOfBoundsException e){
+		}
+		
+		//a escrita depois do fim da região é limitada ao tamanho da região.
+		Arrays.fill(b, (byte)1);
+		r.write(95, b, 0, 10);
+		assertEquals(5, r.read(95, new byte[10], 0, 10));
+		assertEquals(1, r.get(99));
+		
+		//nada é lido ou escrito a partir do fim da região.
+		byte[] b2 = new byte[10];
+		assertTrue(r.read(100, b2, 0, 10) <= 0);
+		assertTrue(Arrays.equals(new byte[10], b2));
+		r.write(100, b, 0, 10);
+		assertEquals(100, r.size());
+		
+		//a cópia entre regiões é limitada ao fim de cada região.
+		r2.write(0, new byte[50], 0, 50);
+		r.write(90, r2, 0, 50);
+		assertEquals(0, r.get(99));
+		assertEquals(5, r.read(0, r2, 45, 10));
+		assertEquals(0, r.read(0, r2, 50, 10));
+	}
+	
 }